@@ -6,7 +6,6 @@ import org.aim.api.exceptions.InstrumentationException;
 import org.aim.api.exceptions.MeasurementException;
 import org.aim.api.measurement.dataset.Dataset;
 import org.aim.api.measurement.dataset.DatasetCollection;
-import org.aim.api.measurement.dataset.ParameterSelection;
 import org.aim.artifacts.probes.ResponsetimeProbe;
 import org.aim.artifacts.records.ResponseTimeRecord;
 import org.aim.artifacts.scopes.EntryPointScope;
@@ -26,7 +25,10 @@ import org.spotter.ext.detection.appHiccups.strategies.DBSCANStrategy;
 import org.spotter.ext.detection.appHiccups.strategies.MovingPercentileStrategy;
 import org.spotter.ext.detection.appHiccups.utils.Hiccup;
 import org.spotter.ext.detection.appHiccups.utils.HiccupDetectionConfig;
-import org.spotter.ext.detection.utils.Utils;
+import org.spotter.ext.detection.utils.ResponseTimeSeries;
+import org.spotter.ext.detection.utils.ResponseTimeSeriesCache;
+import org.spotter.ext.detection.utils.ThresholdSweep;
+import org.spotter.ext.detection.utils.TimeSeriesPyramid;
 import org.spotter.shared.configuration.ConfigKeys;
 import org.spotter.shared.result.model.SpotterResult;
 
@@ -42,6 +44,7 @@ public class AppHiccupsController extends AbstractDetectionController implements
 	private double maxHiccupTimeProportion = AppHiccupsExtension.MAX_HICCUPS_TIME_PROPORTION_DEFAULT;
 	private HiccupDetectionConfig hiccupDetectionConfig = new HiccupDetectionConfig();
 	private IHiccupAnalysisStrategy analysisStrategyImpl;
+	private long[] sweepThresholds = new long[0];
 
 	/**
 	 * Constructor.
@@ -62,11 +65,18 @@ public class AppHiccupsController extends AbstractDetectionController implements
 				String.valueOf(HiccupDetectionConfig.MOVING_AVERAGE_WINDOW_SIZE_DEFAULT));
 		hiccupDetectionConfig.setMvaWindowSize(Integer.parseInt(mvaWindowSize));
 
+		String distanceSampleSize = getProblemDetectionConfiguration().getProperty(
+				HiccupDetectionConfig.DISTANCE_SAMPLE_SIZE_KEY, String.valueOf(HiccupDetectionConfig.DISTANCE_SAMPLE_SIZE_DEFAULT));
+		hiccupDetectionConfig.setDistanceSampleSize(Integer.parseInt(distanceSampleSize));
+
 		String maxHiccupTimeProportionStr = getProblemDetectionConfiguration().getProperty(
 				AppHiccupsExtension.MAX_HICCUPS_TIME_PROPORTION_KEY,
 				String.valueOf(AppHiccupsExtension.MAX_HICCUPS_TIME_PROPORTION_DEFAULT));
 		maxHiccupTimeProportion = Double.parseDouble(maxHiccupTimeProportionStr);
 
+		sweepThresholds = ThresholdSweep.parseThresholds(getProblemDetectionConfiguration().getProperty(
+				ThresholdSweep.THRESHOLD_SWEEP_KEY));
+
 		switch (analysisStrategy) {
 		case AppHiccupsExtension.MVA_STRATEGY:
 			analysisStrategyImpl = new MovingPercentileStrategy();
@@ -100,45 +110,63 @@ public class AppHiccupsController extends AbstractDetectionController implements
 			return result;
 		}
 
-		for (String operation : rtDataset.getValueSet(ResponseTimeRecord.PAR_OPERATION, String.class)) {
-			ParameterSelection selectOperation = new ParameterSelection().select(ResponseTimeRecord.PAR_OPERATION,
-					operation);
-			Dataset operationSpecificDataset = selectOperation.applyTo(rtDataset);
-
-			NumericPairList<Long, Double> responseTimeSeries = Utils.toTimestampRTPairs(operationSpecificDataset);
+		ThresholdSweep sweep = new ThresholdSweep(sweepThresholds, "hiccups");
+		for (String operation : ResponseTimeSeriesCache.getOperations(rtDataset)) {
+			// chronologically sorted, shared with other controllers analysing
+			// the same experiment
+			ResponseTimeSeries series = ResponseTimeSeriesCache.getSeries(rtDataset, operation);
+			NumericPairList<Long, Double> responseTimeSeries = series.toNumericPairList();
 			if (responseTimeSeries.size() <= 5) {
 				continue;
 			}
-			// sort chronologically
-			responseTimeSeries.sort();
-			List<Hiccup> hiccups = analysisStrategyImpl.findHiccups(responseTimeSeries, hiccupDetectionConfig,
-					perfReqThreshold, perfReqConfidence, getResultManager(), result);
+			// built once per series, shared by all thresholds
+			TimeSeriesPyramid pyramid = series.getPyramid();
+			// the configured threshold and the sweep thresholds are evaluated
+			// in one run of the strategy
+			List<List<Hiccup>> hiccupsPerThreshold = analysisStrategyImpl.findHiccups(responseTimeSeries, pyramid,
+					hiccupDetectionConfig, ThresholdSweep.withRequirementThreshold(perfReqThreshold, sweepThresholds),
+					perfReqConfidence, getResultManager(), result);
+			List<Hiccup> hiccups = hiccupsPerThreshold.get(0);
 
 			long experimentDuration = responseTimeSeries.getKeyMax() - responseTimeSeries.getKeyMin();
-			long hiccupsDuration = 0;
-			for (Hiccup hiccup : hiccups) {
-				hiccupsDuration += hiccup.getEndTimestamp() - hiccup.getStartTimestamp();
+
+			for (int i = 0; i < sweepThresholds.length; i++) {
+				List<Hiccup> sweepHiccups = hiccupsPerThreshold.get(i + 1);
+				sweep.addVerdict(operation, sweepThresholds[i], isHiccupBehaviour(sweepHiccups, experimentDuration),
+						sweepHiccups.size());
 			}
 
-			if (hiccups.size() > 1 && hiccupsDuration < maxHiccupTimeProportion * experimentDuration) {
+			if (isHiccupBehaviour(hiccups, experimentDuration)) {
 				result.addMessage("Detected hiccup behaviour in operation: " + operation);
 				result.setDetected(true);
-				createChart(result, operation, responseTimeSeries, hiccups, perfReqThreshold);
+				createChart(result, operation, responseTimeSeries, pyramid, hiccups, perfReqThreshold);
 
 			}
 
 		}
 
+		if (sweepThresholds.length > 0) {
+			sweep.store(getResultManager(), result);
+		}
+
 		return result;
 	}
 
+	private boolean isHiccupBehaviour(List<Hiccup> hiccups, long experimentDuration) {
+		long hiccupsDuration = 0;
+		for (Hiccup hiccup : hiccups) {
+			hiccupsDuration += hiccup.getEndTimestamp() - hiccup.getStartTimestamp();
+		}
+		return hiccups.size() > 1 && hiccupsDuration < maxHiccupTimeProportion * experimentDuration;
+	}
+
 	private void createChart(SpotterResult result, String operation, NumericPairList<Long, Double> responseTimeSeries,
-			List<Hiccup> hiccups, long perfReqThreshold) {
+			TimeSeriesPyramid pyramid, List<Hiccup> hiccups, long perfReqThreshold) {
 		AnalysisChartBuilder chartBuilder = AnalysisChartBuilder.getChartBuilder();
 		String operationName = operation.contains("(")?operation.substring(0, operation.indexOf("(")):operation;
 		
 		chartBuilder.startChart(operationName, "Experiment Time [ms]", "Response Time [ms]");
-		chartBuilder.addTimeSeries(responseTimeSeries, "Response Times");
+		chartBuilder.addTimeSeries(pyramid.downsample(TimeSeriesPyramid.DEFAULT_CHART_POINTS), "Response Times");
 		chartBuilder.addHorizontalLine(perfReqThreshold, "Perf. Requirement");
 		long minTimestamp = responseTimeSeries.getKeyMin();
 		long maxTimestamp = responseTimeSeries.getKeyMax();
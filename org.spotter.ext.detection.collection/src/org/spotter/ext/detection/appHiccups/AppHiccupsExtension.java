@@ -8,6 +8,7 @@ import org.lpe.common.util.LpeSupportedTypes;
 import org.spotter.core.detection.AbstractDetectionExtension;
 import org.spotter.core.detection.IDetectionController;
 import org.spotter.ext.detection.appHiccups.utils.HiccupDetectionConfig;
+import org.spotter.ext.detection.utils.ThresholdSweep;
 
 /**
  * Extension for Application Hiccups Detection.
@@ -67,6 +68,7 @@ public class AppHiccupsExtension extends AbstractDetectionExtension {
 		addConfigParameter(ConfigParameterDescription.createExtensionDescription(EXTENSION_DESCRIPTION));
 		addConfigParameter(createStrategyParameter());
 		addConfigParameter(maxHiccupTimeProportionParameter());
+		addConfigParameter(ThresholdSweep.createThresholdSweepParameter());
 		for (ConfigParameterDescription cpd : HiccupDetectionConfig.getConfigurationParameters()) {
 			addConfigParameter(cpd);
 		}
@@ -7,6 +7,7 @@ import org.lpe.common.util.NumericPairList;
 import org.spotter.core.detection.DetectionResultManager;
 import org.spotter.ext.detection.appHiccups.utils.Hiccup;
 import org.spotter.ext.detection.appHiccups.utils.HiccupDetectionConfig;
+import org.spotter.ext.detection.utils.TimeSeriesPyramid;
 import org.spotter.shared.result.model.SpotterResult;
 
 /**
@@ -21,14 +22,25 @@ public interface IHiccupAnalysisStrategy {
 	 * 
 	 * @param responsetimeSeries
 	 *            series to analyze
+	 * @param pyramid
+	 *            multi-resolution view of the series, shared by all
+	 *            analyses of the series
 	 * @param hiccupConfig
 	 *            hiccup detection configuration
-	 * @param perfReqThreshold
-	 *            requirements threshold
+	 * @param perfReqThresholds
+	 *            requirement thresholds to evaluate; the threshold
+	 *            independent part of the analysis is done once for all of
+	 *            them
 	 * @param perfReqConfidence
 	 *            confidence for performance requirement thresholdO
-	 * @return list of hiccups
+	 * @param resultManager
+	 *            result manager to store charts with, charts are omitted if
+	 *            null; charts refer to the first threshold
+	 * @param result
+	 *            result to add messages and resources to
+	 * @return list of hiccups per threshold
 	 */
-	List<Hiccup> findHiccups(final NumericPairList<Long, Double> responsetimeSeries,
-			final HiccupDetectionConfig hiccupConfig, double perfReqThreshold, double perfReqConfidence, DetectionResultManager resultManager, SpotterResult result);
+	List<List<Hiccup>> findHiccups(final NumericPairList<Long, Double> responsetimeSeries,
+			final TimeSeriesPyramid pyramid, final HiccupDetectionConfig hiccupConfig, double[] perfReqThresholds,
+			double perfReqConfidence, DetectionResultManager resultManager, SpotterResult result);
 }
@@ -3,18 +3,21 @@ package org.spotter.ext.detection.appHiccups.strategies;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.lpe.common.util.NumericPair;
 import org.lpe.common.util.NumericPairList;
 import org.spotter.core.detection.DetectionResultManager;
 import org.spotter.ext.detection.appHiccups.IHiccupAnalysisStrategy;
 import org.spotter.ext.detection.appHiccups.utils.Hiccup;
 import org.spotter.ext.detection.appHiccups.utils.HiccupDetectionConfig;
+import org.spotter.ext.detection.utils.TimeSeriesPyramid;
 import org.spotter.ext.detection.utils.Utils;
 import org.spotter.shared.result.model.SpotterResult;
 
 /**
  * Bucket strategy devides the experiment time in fixed-sizes buckets and
  * analyzes each bucket whether it conforms to the performance requirements, in
- * order to identify hiccups.
+ * order to identify hiccups. The chronologically sorted series is consumed in
+ * a single pass, only primitive statistics of the current bucket are kept.
  * 
  * @author Alexander Wert
  * 
@@ -22,84 +25,106 @@ import org.spotter.shared.result.model.SpotterResult;
 public class BucketStrategy implements IHiccupAnalysisStrategy {
 
 	@Override
-	public List<Hiccup> findHiccups(NumericPairList<Long, Double> responsetimeSeries,
-			HiccupDetectionConfig hiccupConfig, double perfReqThreshold, double perfReqConfidence,
-			DetectionResultManager resultManager, SpotterResult result) {
-		List<Hiccup> hiccups = new ArrayList<Hiccup>();
-		Hiccup currentHiccup = null;
-		double maxRT = Double.MIN_VALUE;
-		long bucketStart = Long.MIN_VALUE;
-		long timestamp;
+	public List<List<Hiccup>> findHiccups(NumericPairList<Long, Double> responsetimeSeries,
+			TimeSeriesPyramid pyramid, HiccupDetectionConfig hiccupConfig, double[] perfReqThresholds,
+			double perfReqConfidence, DetectionResultManager resultManager, SpotterResult result) {
 		long bucketStep = Math.max(5000, Utils.meanInterRequestTime(responsetimeSeries) * 50);
-		NumericPairList<Long, Double> bucketSeries = null;
-		for (int i = 0; i < responsetimeSeries.size(); i++) {
-			timestamp = responsetimeSeries.get(i).getKey();
+		// one scanner per threshold, all fed during the same pass
+		BucketScanner[] scanners = new BucketScanner[perfReqThresholds.length];
+		for (int t = 0; t < perfReqThresholds.length; t++) {
+			scanners[t] = new BucketScanner(bucketStep, perfReqThresholds[t], perfReqConfidence);
+		}
+		for (NumericPair<Long, Double> pair : responsetimeSeries) {
+			for (BucketScanner scanner : scanners) {
+				scanner.add(pair.getKey(), pair.getValue());
+			}
+		}
+		List<List<Hiccup>> hiccupsPerThreshold = new ArrayList<List<Hiccup>>(scanners.length);
+		for (BucketScanner scanner : scanners) {
+			hiccupsPerThreshold.add(scanner.finish());
+		}
+		return hiccupsPerThreshold;
+	}
+
+	/**
+	 * Assigns the response times to buckets and merges consecutive violating
+	 * buckets to hiccups.
+	 */
+	private static final class BucketScanner {
+		private final long bucketStep;
+		private final double perfReqThreshold;
+		private final double perfReqConfidence;
+
+		private final List<Hiccup> hiccups = new ArrayList<Hiccup>();
+		private Hiccup currentHiccup = null;
+		private double maxRT = Double.MIN_VALUE;
+
+		// statistics of the current bucket
+		private long bucketStart = Long.MIN_VALUE;
+		private int bucketSize = 0;
+		private int bucketViolations;
+		private long bucketMinTimestamp;
+		private long bucketMaxTimestamp;
+		private double bucketMaxRT;
+
+		BucketScanner(long bucketStep, double perfReqThreshold, double perfReqConfidence) {
+			this.bucketStep = bucketStep;
+			this.perfReqThreshold = perfReqThreshold;
+			this.perfReqConfidence = perfReqConfidence;
+		}
+
+		void add(long timestamp, double responseTime) {
 			if (timestamp > bucketStart + bucketStep) {
 				// new bucket started
-				if (bucketSeries != null) {
-					// analyze previous bucket
-					List<Double> responseTimes = bucketSeries.getValueListAsDouble();
-					int reqViolationsCount = countRequirementViolations(perfReqThreshold, responseTimes);
-
-					double percentageViolations = ((double) reqViolationsCount) / ((double) responseTimes.size());
-					if (percentageViolations > perfReqConfidence) {
-						// new hiccup started
-						maxRT = Math.max(maxRT, bucketSeries.getValueMax());
-						if (currentHiccup == null) {
-							// new hiccup begin detected
-							currentHiccup = new Hiccup();
-							currentHiccup.setStartTimestamp(bucketSeries.getKeyMin());
-							hiccups.add(currentHiccup);
-						}
-						currentHiccup.setEndTimestamp(bucketSeries.getKeyMax());
-					} else {
-						if (currentHiccup != null) {
-							currentHiccup.setMaxHiccupResponseTime(maxRT);
-							currentHiccup = null;
-						}
-						maxRT = Double.MIN_VALUE;
-					}
+				if (bucketSize > 0) {
+					closeBucket();
 				}
-				bucketSeries = new NumericPairList<>();
+				bucketSize = 0;
+				bucketViolations = 0;
+				bucketMinTimestamp = Long.MAX_VALUE;
+				bucketMaxTimestamp = Long.MIN_VALUE;
+				bucketMaxRT = -Double.MAX_VALUE;
 				bucketStart = timestamp;
 			}
-			bucketSeries.add(responsetimeSeries.get(i));
+			bucketSize++;
+			if (responseTime > perfReqThreshold) {
+				bucketViolations++;
+			}
+			bucketMinTimestamp = Math.min(bucketMinTimestamp, timestamp);
+			bucketMaxTimestamp = Math.max(bucketMaxTimestamp, timestamp);
+			bucketMaxRT = Math.max(bucketMaxRT, responseTime);
 		}
 
-		if (bucketSeries != null && bucketSeries.size() > 0) {
-			// analyze previous bucket
-			List<Double> responseTimes = bucketSeries.getValueListAsDouble();
-			int reqViolationsCount = countRequirementViolations(perfReqThreshold, responseTimes);
+		List<Hiccup> finish() {
+			if (bucketSize > 0) {
+				closeBucket();
+			}
+			if (currentHiccup != null) {
+				currentHiccup.setMaxHiccupResponseTime(maxRT);
+			}
+			return hiccups;
+		}
 
-			double percentageViolations = ((double) reqViolationsCount) / ((double) responseTimes.size());
+		private void closeBucket() {
+			double percentageViolations = ((double) bucketViolations) / ((double) bucketSize);
 			if (percentageViolations > perfReqConfidence) {
 				// new hiccup started
-				maxRT = Math.max(maxRT, bucketSeries.getValueMax());
+				maxRT = Math.max(maxRT, bucketMaxRT);
 				if (currentHiccup == null) {
 					// new hiccup begin detected
 					currentHiccup = new Hiccup();
-					currentHiccup.setStartTimestamp(bucketSeries.getKeyMin());
+					currentHiccup.setStartTimestamp(bucketMinTimestamp);
 					hiccups.add(currentHiccup);
 				}
-				currentHiccup.setEndTimestamp(bucketSeries.getKeyMax());
-			}
-
-			if (currentHiccup != null) {
-				currentHiccup.setMaxHiccupResponseTime(maxRT);
-			}
-		}
-
-		return hiccups;
-	}
-
-	private int countRequirementViolations(double perfReqThreshold, List<Double> responseTimes) {
-		int count = 0;
-		for (Double rt : responseTimes) {
-			if (rt > perfReqThreshold) {
-				count++;
+				currentHiccup.setEndTimestamp(bucketMaxTimestamp);
+			} else {
+				if (currentHiccup != null) {
+					currentHiccup.setMaxHiccupResponseTime(maxRT);
+					currentHiccup = null;
+				}
+				maxRT = Double.MIN_VALUE;
 			}
 		}
-		return count;
 	}
 
 }
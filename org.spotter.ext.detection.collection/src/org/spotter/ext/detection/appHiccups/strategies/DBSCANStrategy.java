@@ -3,13 +3,15 @@ package org.spotter.ext.detection.appHiccups.strategies;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.lpe.common.util.LpeNumericUtils;
 import org.lpe.common.util.NumericPairList;
 import org.spotter.core.chartbuilder.AnalysisChartBuilder;
 import org.spotter.core.detection.DetectionResultManager;
 import org.spotter.ext.detection.appHiccups.IHiccupAnalysisStrategy;
 import org.spotter.ext.detection.appHiccups.utils.Hiccup;
 import org.spotter.ext.detection.appHiccups.utils.HiccupDetectionConfig;
+import org.spotter.ext.detection.utils.GridDBSCAN;
+import org.spotter.ext.detection.utils.MeanDistanceEstimate;
+import org.spotter.ext.detection.utils.TimeSeriesPyramid;
 import org.spotter.shared.result.model.SpotterResult;
 
 public class DBSCANStrategy implements IHiccupAnalysisStrategy {
@@ -17,26 +19,41 @@ public class DBSCANStrategy implements IHiccupAnalysisStrategy {
 	private static final int numMinNeighbours = 20;
 
 	@Override
-	public List<Hiccup> findHiccups(NumericPairList<Long, Double> responsetimeSeries,
-			HiccupDetectionConfig hiccupConfig, double perfReqThreshold, double perfReqConfidence,
-			DetectionResultManager resultManager, SpotterResult result) {
-		List<Hiccup> hiccups = new ArrayList<Hiccup>();
+	public List<List<Hiccup>> findHiccups(NumericPairList<Long, Double> responsetimeSeries,
+			TimeSeriesPyramid pyramid, HiccupDetectionConfig hiccupConfig, double[] perfReqThresholds,
+			double perfReqConfidence, DetectionResultManager resultManager, SpotterResult result) {
 		double keyRange = responsetimeSeries.getKeyMax() - responsetimeSeries.getKeyMin();
 		double valueRange = responsetimeSeries.getValueMax() - responsetimeSeries.getValueMin();
-		double epsilon = LpeNumericUtils.meanNormalizedDistance(responsetimeSeries, keyRange, valueRange);
-		List<NumericPairList<Long, Double>> clusters = LpeNumericUtils.dbscanNormalized(responsetimeSeries, epsilon,
+		MeanDistanceEstimate meanDistance = MeanDistanceEstimate.calculate(responsetimeSeries, keyRange, valueRange,
+				hiccupConfig.getDistanceSampleSize(), MeanDistanceEstimate.DEFAULT_SEED);
+		if (!meanDistance.isExact()) {
+			result.addMessage("DBSCAN radius based on estimated " + meanDistance);
+		}
+		double epsilon = meanDistance.getMean();
+		// clustering does not depend on the threshold, only the violation
+		// counts per cluster do
+		List<NumericPairList<Long, Double>> clusters = GridDBSCAN.cluster(responsetimeSeries, epsilon,
 				numMinNeighbours, keyRange, valueRange);
 
-		for (NumericPairList<Long, Double> c : clusters) {
-			int numViolations = countRequirementViolations(perfReqThreshold, c.getValueList());
-			if (((double) numViolations) / ((double) c.size()) > 1.0 - perfReqConfidence) {
-				Hiccup hiccup = new Hiccup();
-				hiccup.setStartTimestamp(c.getKeyMin());
-				hiccup.setEndTimestamp(c.getKeyMax());
-				hiccup.setMaxHiccupResponseTime(c.getValueMax());
-				hiccups.add(hiccup);
+		List<List<Hiccup>> hiccupsPerThreshold = new ArrayList<List<Hiccup>>(perfReqThresholds.length);
+		for (double perfReqThreshold : perfReqThresholds) {
+			List<Hiccup> hiccups = new ArrayList<Hiccup>();
+			for (NumericPairList<Long, Double> c : clusters) {
+				int numViolations = countRequirementViolations(perfReqThreshold, c.getValueList());
+				if (((double) numViolations) / ((double) c.size()) > 1.0 - perfReqConfidence) {
+					Hiccup hiccup = new Hiccup();
+					hiccup.setStartTimestamp(c.getKeyMin());
+					hiccup.setEndTimestamp(c.getKeyMax());
+					hiccup.setMaxHiccupResponseTime(c.getValueMax());
+					hiccups.add(hiccup);
+				}
+
 			}
+			hiccupsPerThreshold.add(hiccups);
+		}
 
+		if (resultManager == null || perfReqThresholds.length == 0) {
+			return hiccupsPerThreshold;
 		}
 
 		AnalysisChartBuilder chartBuilder = AnalysisChartBuilder.getChartBuilder();
@@ -47,9 +64,9 @@ public class DBSCANStrategy implements IHiccupAnalysisStrategy {
 			chartBuilder.addFixScaledTimeSeries(c, "Cluster " + i, 1.0 / 1000.0 / 60.0);
 			i++;
 		}
-		chartBuilder.addHorizontalLine(perfReqThreshold, "Performance Requirement");
+		chartBuilder.addHorizontalLine(perfReqThresholds[0], "Performance Requirement");
 		resultManager.storeImageChartResource(chartBuilder, "Response Time Clusters", result);
-		return hiccups;
+		return hiccupsPerThreshold;
 	}
 
 	private int countRequirementViolations(double perfReqThreshold, List<Double> responseTimes) {
@@ -23,6 +23,7 @@ import org.spotter.core.detection.DetectionResultManager;
 import org.spotter.ext.detection.appHiccups.IHiccupAnalysisStrategy;
 import org.spotter.ext.detection.appHiccups.utils.Hiccup;
 import org.spotter.ext.detection.appHiccups.utils.HiccupDetectionConfig;
+import org.spotter.ext.detection.utils.TimeSeriesPyramid;
 import org.spotter.ext.detection.utils.Utils;
 import org.spotter.shared.result.model.SpotterResult;
 
@@ -34,22 +35,60 @@ import org.spotter.shared.result.model.SpotterResult;
  */
 public class MovingPercentileStrategy implements IHiccupAnalysisStrategy {
 	@Override
-	public List<Hiccup> findHiccups(final NumericPairList<Long, Double> responsetimeSeries,
-			final HiccupDetectionConfig hiccupConfig, double perfReqThreshold, double perfReqConfidence,
-			DetectionResultManager resultManager, SpotterResult result) {
-		List<Hiccup> hiccups = new ArrayList<Hiccup>();
-		Hiccup currentHiccup = null;
-		double maxRT = Double.MIN_VALUE;
-		double mvaResponseTime = 0.0;
-		double responseTime = 0.0;
-		long timestamp = 0L;
+	public List<List<Hiccup>> findHiccups(final NumericPairList<Long, Double> responsetimeSeries,
+			final TimeSeriesPyramid pyramid, final HiccupDetectionConfig hiccupConfig, double[] perfReqThresholds,
+			double perfReqConfidence, DetectionResultManager resultManager, SpotterResult result) {
+		HiccupTracker[] trackers = new HiccupTracker[perfReqThresholds.length];
+		for (int t = 0; t < perfReqThresholds.length; t++) {
+			trackers[t] = new HiccupTracker();
+		}
+		int windowSize = hiccupConfig.getMvaWindowSize();
 		for (int i = 0; i < responsetimeSeries.size(); i++) {
-			timestamp = responsetimeSeries.get(i).getKey();
-			responseTime = responsetimeSeries.get(i).getValue();
-			mvaResponseTime = Utils.calculateWindowPercentile(responsetimeSeries, perfReqConfidence, i,
-					hiccupConfig.getMvaWindowSize());
+			long timestamp = responsetimeSeries.get(i).getKey();
+			double responseTime = responsetimeSeries.get(i).getValue();
+			int windowStart = Math.max(i - (windowSize / 2), 0);
+			int windowEnd = Math.min(i + (windowSize / 2), responsetimeSeries.size() - 1) + 1;
+			double windowMin = pyramid.getWindowMin(windowStart, windowEnd);
+			double windowMax = pyramid.getWindowMax(windowStart, windowEnd);
+			// the percentile lies between the minimum and the maximum of the
+			// window, it is computed at most once per window and only if a
+			// threshold is in between
+			double percentileValue = Double.NaN;
+			for (int t = 0; t < perfReqThresholds.length; t++) {
+				boolean above;
+				if (windowMin > perfReqThresholds[t]) {
+					above = true;
+				} else if (windowMax <= perfReqThresholds[t]) {
+					above = false;
+				} else {
+					if (Double.isNaN(percentileValue)) {
+						percentileValue = Utils.calculateWindowPercentile(responsetimeSeries, perfReqConfidence, i,
+								windowSize);
+					}
+					above = percentileValue > perfReqThresholds[t];
+				}
+				trackers[t].update(above, timestamp, responseTime);
+			}
+		}
+
+		List<List<Hiccup>> hiccupsPerThreshold = new ArrayList<List<Hiccup>>(trackers.length);
+		for (HiccupTracker tracker : trackers) {
+			hiccupsPerThreshold.add(tracker.finish());
+		}
+		return hiccupsPerThreshold;
+	}
+
+	/**
+	 * Merges consecutive response times with a window percentile above the
+	 * threshold to hiccups.
+	 */
+	private static final class HiccupTracker {
+		private final List<Hiccup> hiccups = new ArrayList<Hiccup>();
+		private Hiccup currentHiccup = null;
+		private double maxRT = Double.MIN_VALUE;
 
-			if (mvaResponseTime > perfReqThreshold) {
+		void update(boolean above, long timestamp, double responseTime) {
+			if (above) {
 				maxRT = Math.max(maxRT, responseTime);
 				if (currentHiccup == null) {
 					// new hiccup begin detected
@@ -67,11 +106,12 @@ public class MovingPercentileStrategy implements IHiccupAnalysisStrategy {
 			}
 		}
 
-		if (currentHiccup != null) {
-			currentHiccup.setMaxHiccupResponseTime(maxRT);
+		List<Hiccup> finish() {
+			if (currentHiccup != null) {
+				currentHiccup.setMaxHiccupResponseTime(maxRT);
+			}
+			return hiccups;
 		}
-
-		return hiccups;
 	}
 
 }
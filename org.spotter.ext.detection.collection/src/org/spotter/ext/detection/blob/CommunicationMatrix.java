@@ -0,0 +1,312 @@
+/**
+ * Copyright 2014 SAP AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spotter.ext.detection.blob;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Sparse communication matrix between components identified by their integer
+ * index. Message counts and accumulated durations are stored per (sender,
+ * receiver) edge in an open addressing table. Row (outgoing) and column
+ * (incoming) views are provided in compressed sparse form and are rebuilt
+ * lazily after modifications.
+ *
+ * @author Alexander Wert
+ *
+ */
+public class CommunicationMatrix implements Serializable {
+
+	/** */
+	private static final long serialVersionUID = -2937640528377937316L;
+
+	private static final long EMPTY = -1L;
+	private static final int INITIAL_CAPACITY = 64;
+	private static final int SHIFT = 32;
+	private static final long LOWER_MASK = 0xFFFFFFFFL;
+
+	private long[] keys;
+	private long[] counts;
+	private double[] durations;
+	private int numEdges = 0;
+	private int dimension = 0;
+
+	// compressed views, indices point to slots of the edge table
+	private transient int[] outOffsets;
+	private transient int[] outSlots;
+	private transient int[] inOffsets;
+	private transient int[] inSlots;
+
+	/**
+	 * Constructor.
+	 */
+	public CommunicationMatrix() {
+		allocate(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * Adds a message sent from the sender to the receiver.
+	 *
+	 * @param sender
+	 *            index of the sending component
+	 * @param receiver
+	 *            index of the receiving component
+	 * @param duration
+	 *            duration of the message transmission
+	 */
+	public void addMessage(int sender, int receiver, double duration) {
+		add(sender, receiver, 1L, duration);
+	}
+
+	/**
+	 * Adds the given number of messages and their accumulated duration to the
+	 * edge between sender and receiver.
+	 *
+	 * @param sender
+	 *            index of the sending component
+	 * @param receiver
+	 *            index of the receiving component
+	 * @param count
+	 *            number of messages
+	 * @param duration
+	 *            accumulated duration of the messages
+	 */
+	public void add(int sender, int receiver, long count, double duration) {
+		if (sender < 0 || receiver < 0) {
+			throw new IllegalArgumentException("Component indices must not be negative.");
+		}
+		if ((numEdges + 1) * 2 > keys.length) {
+			rehash(keys.length * 2);
+		}
+		long key = toKey(sender, receiver);
+		int slot = findSlot(key);
+		if (keys[slot] == EMPTY) {
+			keys[slot] = key;
+			numEdges++;
+		}
+		counts[slot] += count;
+		durations[slot] += duration;
+		dimension = Math.max(dimension, Math.max(sender, receiver) + 1);
+		invalidateViews();
+	}
+
+	/**
+	 * @param sender
+	 *            index of the sending component
+	 * @param receiver
+	 *            index of the receiving component
+	 * @return number of messages sent from sender to receiver
+	 */
+	public long getCount(int sender, int receiver) {
+		int slot = findSlot(toKey(sender, receiver));
+		return keys[slot] == EMPTY ? 0L : counts[slot];
+	}
+
+	/**
+	 * @param sender
+	 *            index of the sending component
+	 * @param receiver
+	 *            index of the receiving component
+	 * @return accumulated duration of messages sent from sender to receiver
+	 */
+	public double getDuration(int sender, int receiver) {
+		int slot = findSlot(toKey(sender, receiver));
+		return keys[slot] == EMPTY ? 0.0 : durations[slot];
+	}
+
+	/**
+	 * @return number of non-empty edges
+	 */
+	public int getNumEdges() {
+		return numEdges;
+	}
+
+	/**
+	 * @return one plus the highest component index used in this matrix
+	 */
+	public int getDimension() {
+		return dimension;
+	}
+
+	/**
+	 * Returns the edge handles of all edges leaving the given sender. Use
+	 * {@link #getReceiver(int)}, {@link #getCount(int)} and
+	 * {@link #getDuration(int)} to resolve a handle.
+	 *
+	 * @param sender
+	 *            index of the sending component
+	 * @return edge handles
+	 */
+	public int[] getOutgoingEdges(int sender) {
+		buildViews();
+		return slice(outOffsets, outSlots, sender);
+	}
+
+	/**
+	 * Returns the edge handles of all edges arriving at the given receiver.
+	 * Use {@link #getSender(int)}, {@link #getCount(int)} and
+	 * {@link #getDuration(int)} to resolve a handle.
+	 *
+	 * @param receiver
+	 *            index of the receiving component
+	 * @return edge handles
+	 */
+	public int[] getIncomingEdges(int receiver) {
+		buildViews();
+		return slice(inOffsets, inSlots, receiver);
+	}
+
+	/**
+	 * @param edge
+	 *            edge handle
+	 * @return sender index of the edge
+	 */
+	public int getSender(int edge) {
+		return (int) (keys[edge] >>> SHIFT);
+	}
+
+	/**
+	 * @param edge
+	 *            edge handle
+	 * @return receiver index of the edge
+	 */
+	public int getReceiver(int edge) {
+		return (int) (keys[edge] & LOWER_MASK);
+	}
+
+	/**
+	 * @param edge
+	 *            edge handle
+	 * @return number of messages of the edge
+	 */
+	public long getCount(int edge) {
+		return counts[edge];
+	}
+
+	/**
+	 * @param edge
+	 *            edge handle
+	 * @return accumulated message duration of the edge
+	 */
+	public double getDuration(int edge) {
+		return durations[edge];
+	}
+
+	/**
+	 * Sums up the durations of all messages received per component, ignoring
+	 * messages a component sent to itself. Runs in a single pass over all
+	 * edges.
+	 *
+	 * @param numComponents
+	 *            size of the returned array
+	 * @return accumulated incoming message durations indexed by receiver
+	 */
+	public double[] getIncomingDurationSums(int numComponents) {
+		double[] sums = new double[Math.max(numComponents, dimension)];
+		for (int slot = 0; slot < keys.length; slot++) {
+			if (keys[slot] != EMPTY && getSender(slot) != getReceiver(slot)) {
+				sums[getReceiver(slot)] += durations[slot];
+			}
+		}
+		return sums;
+	}
+
+	private static int[] slice(int[] offsets, int[] slots, int index) {
+		if (index < 0 || index + 1 >= offsets.length) {
+			return new int[0];
+		}
+		return Arrays.copyOfRange(slots, offsets[index], offsets[index + 1]);
+	}
+
+	private void buildViews() {
+		if (outOffsets != null) {
+			return;
+		}
+		int[] outCounts = new int[dimension + 1];
+		int[] inCounts = new int[dimension + 1];
+		for (int slot = 0; slot < keys.length; slot++) {
+			if (keys[slot] != EMPTY) {
+				outCounts[getSender(slot) + 1]++;
+				inCounts[getReceiver(slot) + 1]++;
+			}
+		}
+		for (int i = 1; i <= dimension; i++) {
+			outCounts[i] += outCounts[i - 1];
+			inCounts[i] += inCounts[i - 1];
+		}
+		int[] outPos = Arrays.copyOf(outCounts, dimension);
+		int[] inPos = Arrays.copyOf(inCounts, dimension);
+		int[] newOutSlots = new int[numEdges];
+		int[] newInSlots = new int[numEdges];
+		for (int slot = 0; slot < keys.length; slot++) {
+			if (keys[slot] != EMPTY) {
+				newOutSlots[outPos[getSender(slot)]++] = slot;
+				newInSlots[inPos[getReceiver(slot)]++] = slot;
+			}
+		}
+		outSlots = newOutSlots;
+		inSlots = newInSlots;
+		inOffsets = inCounts;
+		outOffsets = outCounts;
+	}
+
+	private void invalidateViews() {
+		outOffsets = null;
+		outSlots = null;
+		inOffsets = null;
+		inSlots = null;
+	}
+
+	private int findSlot(long key) {
+		int mask = keys.length - 1;
+		int slot = mix(key) & mask;
+		while (keys[slot] != EMPTY && keys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void rehash(int newCapacity) {
+		long[] oldKeys = keys;
+		long[] oldCounts = counts;
+		double[] oldDurations = durations;
+		allocate(newCapacity);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != EMPTY) {
+				int slot = findSlot(oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				counts[slot] = oldCounts[i];
+				durations[slot] = oldDurations[i];
+			}
+		}
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		Arrays.fill(keys, EMPTY);
+		counts = new long[capacity];
+		durations = new double[capacity];
+	}
+
+	private static long toKey(int sender, int receiver) {
+		return ((long) sender << SHIFT) | (receiver & LOWER_MASK);
+	}
+
+	private static int mix(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> SHIFT));
+	}
+}
@@ -0,0 +1,243 @@
+/**
+ * Copyright 2014 SAP AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spotter.ext.detection.blob;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Partial summary of the messaging communication observed in a subset of the
+ * measurement records. Summaries of disjoint record subsets can be merged in
+ * any order. Messages whose send and receive events ended up in different
+ * summaries are correlated during the merge, thus, the merged summary equals
+ * the summary of the union of the records.
+ * 
+ * @author Alexander Wert
+ * 
+ */
+public class CommunicationSummary implements Serializable {
+
+	/** */
+	private static final long serialVersionUID = -6401950377812630958L;
+
+	private static final int INITIAL_CLIENT_CAPACITY = 64;
+
+	private Map<String, Integer> clientIndices = new HashMap<String, Integer>();
+	private List<String> clientIds = new ArrayList<String>();
+
+	private long[] messagesSent = new long[INITIAL_CLIENT_CAPACITY];
+	private long[] messagesReceived = new long[INITIAL_CLIENT_CAPACITY];
+	private double[] totalSentDurations = new double[INITIAL_CLIENT_CAPACITY];
+	private double[] shortestSentDurations = new double[INITIAL_CLIENT_CAPACITY];
+	private double[] longestSentDurations = new double[INITIAL_CLIENT_CAPACITY];
+
+	private CommunicationMatrix matrix = new CommunicationMatrix();
+	private MessageCorrelationTable pendingCorrelations = new MessageCorrelationTable();
+	private Map<String, String> stackTraces = new HashMap<String, String>();
+
+	private double firstTimestamp = Double.MAX_VALUE;
+	private double lastTimestamp = 0;
+
+	/**
+	 * Adds a send or receive event of a message.
+	 * 
+	 * @param clientId
+	 *            id of the client who sent or received the message
+	 * @param correlationHash
+	 *            correlation hash of the message
+	 * @param wasSent
+	 *            true, if the message has been sent by the client, false if it
+	 *            has been received
+	 * @param timestamp
+	 *            time of the event
+	 * @param stackTrace
+	 *            stack trace of the client, may be null or empty
+	 */
+	public void addEvent(String clientId, String correlationHash, boolean wasSent, double timestamp,
+			String stackTrace) {
+		addEvent(correlationHash, wasSent, getClientIndex(clientId), timestamp);
+
+		if (stackTrace != null && !stackTrace.isEmpty()) {
+			// TODO client id can have multiple stacktraces because of
+			// multiple method instrumentations
+			stackTraces.put(clientId, stackTrace);
+		}
+	}
+
+	/**
+	 * Merges the given summary into this summary. The other summary is not
+	 * modified.
+	 * 
+	 * @param other
+	 *            summary to merge
+	 */
+	public void merge(CommunicationSummary other) {
+		int[] indexMapping = new int[other.clientIds.size()];
+		for (int i = 0; i < indexMapping.length; i++) {
+			indexMapping[i] = getClientIndex(other.clientIds.get(i));
+		}
+
+		for (int i = 0; i < indexMapping.length; i++) {
+			int client = indexMapping[i];
+			if (other.messagesSent[i] > 0) {
+				updateSentDurations(client, other.shortestSentDurations[i], other.longestSentDurations[i]);
+				totalSentDurations[client] += other.totalSentDurations[i];
+			}
+			messagesSent[client] += other.messagesSent[i];
+			messagesReceived[client] += other.messagesReceived[i];
+		}
+
+		CommunicationMatrix otherMatrix = other.matrix;
+		for (int sender = 0; sender < otherMatrix.getDimension(); sender++) {
+			for (int edge : otherMatrix.getOutgoingEdges(sender)) {
+				matrix.add(indexMapping[sender], indexMapping[otherMatrix.getReceiver(edge)],
+						otherMatrix.getCount(edge), otherMatrix.getDuration(edge));
+			}
+		}
+
+		MessageCorrelationTable otherPending = other.pendingCorrelations;
+		for (int slot = 0; slot < otherPending.getCapacity(); slot++) {
+			String key = otherPending.getKey(slot);
+			if (key == null) {
+				continue;
+			}
+			if (otherPending.getSender(slot) != MessageCorrelationTable.UNKNOWN) {
+				addEvent(key, true, indexMapping[otherPending.getSender(slot)], otherPending.getTimeSend(slot));
+			}
+			if (otherPending.getReceiver(slot) != MessageCorrelationTable.UNKNOWN) {
+				addEvent(key, false, indexMapping[otherPending.getReceiver(slot)],
+						otherPending.getTimeReceived(slot));
+			}
+		}
+
+		stackTraces.putAll(other.stackTraces);
+		firstTimestamp = Math.min(firstTimestamp, other.firstTimestamp);
+		lastTimestamp = Math.max(lastTimestamp, other.lastTimestamp);
+	}
+
+	/**
+	 * Creates the component view of this summary. Only clients who
+	 * participated in at least one complete message or provided a stack trace
+	 * become components.
+	 * 
+	 * @return processed data
+	 */
+	public ProcessedData toProcessedData() {
+		ProcessedData processedData = new ProcessedData();
+		Component[] components = new Component[clientIds.size()];
+		long totalSent = 0;
+		long totalReceived = 0;
+		for (int client = 0; client < components.length; client++) {
+			if (messagesSent[client] == 0 && messagesReceived[client] == 0) {
+				continue;
+			}
+			Component component = processedData.getComponent(clientIds.get(client));
+			component.setMessagesSent(messagesSent[client]);
+			component.setMessagesReceived(messagesReceived[client]);
+			if (messagesSent[client] > 0) {
+				component.setTotalMessageSentDuration(totalSentDurations[client]);
+				component.setShortestMessageSentDuration(shortestSentDurations[client]);
+				component.setLongestMessageSentDuration(longestSentDurations[client]);
+				component.setAverageMessageSentDuration(totalSentDurations[client] / messagesSent[client]);
+			}
+			totalSent += messagesSent[client];
+			totalReceived += messagesReceived[client];
+			components[client] = component;
+		}
+
+		CommunicationMatrix componentMatrix = processedData.getCommunicationMatrix();
+		for (int sender = 0; sender < matrix.getDimension(); sender++) {
+			for (int edge : matrix.getOutgoingEdges(sender)) {
+				componentMatrix.add(components[sender].getIndex(), components[matrix.getReceiver(edge)].getIndex(),
+						matrix.getCount(edge), matrix.getDuration(edge));
+			}
+		}
+
+		for (Entry<String, String> pair : stackTraces.entrySet()) {
+			processedData.getComponent(pair.getKey()).setStackTrace(pair.getValue());
+		}
+
+		processedData.setTotalMessagesSent(totalSent);
+		processedData.setTotalMessagesReceived(totalReceived);
+		processedData.setTotalExperimentDuration(lastTimestamp - firstTimestamp);
+		return processedData;
+	}
+
+	/**
+	 * @return number of messages whose sender or receiver is still unknown
+	 */
+	public int getNumIncompleteMessages() {
+		return pendingCorrelations.size();
+	}
+
+	private void addEvent(String correlationHash, boolean wasSent, int client, double timestamp) {
+		int slot = pendingCorrelations.add(correlationHash, wasSent, client, timestamp);
+		if (slot >= 0) {
+			addMessage(pendingCorrelations.getSender(slot), pendingCorrelations.getReceiver(slot),
+					pendingCorrelations.getTimeSend(slot), pendingCorrelations.getTimeReceived(slot));
+			pendingCorrelations.remove(slot);
+		}
+	}
+
+	private void addMessage(int sender, int receiver, double timeSend, double timeReceived) {
+		double duration = timeReceived - timeSend;
+
+		updateSentDurations(sender, duration, duration);
+		totalSentDurations[sender] += duration;
+		messagesSent[sender]++;
+		messagesReceived[receiver]++;
+		matrix.addMessage(sender, receiver, duration);
+
+		if (timeSend < firstTimestamp) {
+			firstTimestamp = timeSend;
+		}
+		if (timeReceived > lastTimestamp) {
+			lastTimestamp = timeReceived;
+		}
+	}
+
+	private void updateSentDurations(int client, double shortest, double longest) {
+		if (messagesSent[client] == 0 || shortest < shortestSentDurations[client]) {
+			shortestSentDurations[client] = shortest;
+		}
+		if (longest > longestSentDurations[client]) {
+			longestSentDurations[client] = longest;
+		}
+	}
+
+	private int getClientIndex(String clientId) {
+		Integer index = clientIndices.get(clientId);
+		if (index == null) {
+			index = clientIds.size();
+			clientIndices.put(clientId, index);
+			clientIds.add(clientId);
+			if (index >= messagesSent.length) {
+				int capacity = messagesSent.length * 2;
+				messagesSent = Arrays.copyOf(messagesSent, capacity);
+				messagesReceived = Arrays.copyOf(messagesReceived, capacity);
+				totalSentDurations = Arrays.copyOf(totalSentDurations, capacity);
+				shortestSentDurations = Arrays.copyOf(shortestSentDurations, capacity);
+				longestSentDurations = Arrays.copyOf(longestSentDurations, capacity);
+			}
+		}
+		return index;
+	}
+}
@@ -20,9 +20,7 @@ import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
  * A component is a participant of the messaging procedure.
@@ -37,9 +35,8 @@ public class Component implements Serializable {
 	/** */
 	private static final long serialVersionUID = 4873965184317389096L;
 
-	private List<String> componentsWhoSentToMe = new ArrayList<String>();
-
 	// LOCAL FIELDS
+	private final int index;
 	private String id;
 	private double totalMessageSentDuration;
 	private double longestMessageSentDuration;
@@ -52,43 +49,24 @@ public class Component implements Serializable {
 	private long messagesSent = 0;
 
 	private ProcessedData parentContainer;
-	private Map<String, Long> sendToCountMap = new HashMap<String, Long>();
-	private Map<String, Double> sendToDurationMap = new HashMap<String, Double>();
 	private String[] stackTrace;
 
-	Component(ProcessedData parent, String componentId) {
+	Component(ProcessedData parent, String componentId, int componentIndex) {
 		parentContainer = parent;
 		id = componentId;
+		index = componentIndex;
 	}
 
 	/**
-	 * Adds id of component which received messages from this component.
+	 * Adds a message sent from this component to the given receiver.
 	 * 
-	 * @param receiverId
-	 *            id of the receiver component
-	 */
-	public void addSendMessageTo(String receiverId) {
-		if (sendToCountMap.containsKey(receiverId)) {
-			sendToCountMap.put(receiverId, sendToCountMap.get(receiverId) + 1L);
-		} else {
-			sendToCountMap.put(receiverId, 1L);
-		}
-	}
-
-	/**
-	 * Adds id of component which received messages from this component.
-	 * 
-	 * @param receiverId
-	 *            id of the receiver component
+	 * @param receiver
+	 *            the receiver component
 	 * @param duration
-	 *            duration to add
+	 *            duration of the message
 	 */
-	public void addSendMessageToDuration(String receiverId, double duration) {
-		if (sendToDurationMap.containsKey(receiverId)) {
-			sendToDurationMap.put(receiverId, sendToDurationMap.get(receiverId) + duration);
-		} else {
-			sendToDurationMap.put(receiverId, duration);
-		}
+	public void addSendMessageTo(Component receiver, double duration) {
+		parentContainer.getCommunicationMatrix().addMessage(index, receiver.getIndex(), duration);
 	}
 
 	/**
@@ -96,30 +74,21 @@ public class Component implements Serializable {
 	 * @return average percentage as target
 	 */
 	public double getAveragePercentageAsTarget() {
+		CommunicationMatrix matrix = parentContainer.getCommunicationMatrix();
 		double sum = 0;
 		long cCount = 0;
-		for (String componentId : componentsWhoSentToMe) {
-			if (componentId.equals(id)) {
+		for (int edge : matrix.getIncomingEdges(index)) {
+			int sender = matrix.getSender(edge);
+			if (sender == index) {
 				continue;
 			}
 			cCount++;
-			sum += parentContainer.getComponent(componentId).getPercentageSendToComponent(id);
+			Component senderComponent = parentContainer.getComponent(sender);
+			sum += _100_PERCENT / senderComponent.getMessagesSent() * matrix.getCount(edge);
 		}
 		return sum / cCount;
 	}
 
-	/**
-	 * Adds a component which sent a message to this component.
-	 * 
-	 * @param clientId
-	 *            id of the component who sent a message to this component
-	 */
-	public void addComponentWhoSentToMe(String clientId) {
-		if (!componentsWhoSentToMe.contains(clientId)) {
-			componentsWhoSentToMe.add(clientId);
-		}
-	}
-
 	/**
 	 * Returns number of messages send per millisecond.
 	 * 
@@ -154,10 +123,39 @@ public class Component implements Serializable {
 	 * @return percentage of messages send to the given component
 	 */
 	public double getPercentageSendToComponent(String componentId) {
-		if (!sendToCountMap.containsKey(componentId)) {
+		long count = getSendToCount(componentId);
+		if (count == 0) {
 			return 0;
 		}
-		return _100_PERCENT / messagesSent * sendToCountMap.get(componentId);
+		return _100_PERCENT / messagesSent * count;
+	}
+
+	/**
+	 * 
+	 * @param componentId
+	 *            id of the receiver component
+	 * @return number of messages sent to the given component
+	 */
+	public long getSendToCount(String componentId) {
+		Component receiver = parentContainer.findComponent(componentId);
+		if (receiver == null) {
+			return 0L;
+		}
+		return parentContainer.getCommunicationMatrix().getCount(index, receiver.getIndex());
+	}
+
+	/**
+	 * 
+	 * @param componentId
+	 *            id of the receiver component
+	 * @return accumulated duration of messages sent to the given component
+	 */
+	public double getSendToDuration(String componentId) {
+		Component receiver = parentContainer.findComponent(componentId);
+		if (receiver == null) {
+			return 0.0;
+		}
+		return parentContainer.getCommunicationMatrix().getDuration(index, receiver.getIndex());
 	}
 
 	/**
@@ -176,14 +174,21 @@ public class Component implements Serializable {
 	 * @return sorted list of messages sent
 	 */
 	public List<String> getSortedMessagesSendToList() {
-		List<String> returnList = new ArrayList<String>();
-		returnList.addAll(sendToCountMap.keySet());
-		Collections.sort(returnList, new Comparator<String>() {
+		final CommunicationMatrix matrix = parentContainer.getCommunicationMatrix();
+		List<Integer> edges = new ArrayList<Integer>();
+		for (int edge : matrix.getOutgoingEdges(index)) {
+			edges.add(edge);
+		}
+		Collections.sort(edges, new Comparator<Integer>() {
 			@Override
-			public int compare(String o1, String o2) {
-				return (int) (sendToCountMap.get(o2) - sendToCountMap.get(o1));
+			public int compare(Integer o1, Integer o2) {
+				return Long.compare(matrix.getCount(o2), matrix.getCount(o1));
 			}
 		});
+		List<String> returnList = new ArrayList<String>(edges.size());
+		for (int edge : edges) {
+			returnList.add(parentContainer.getComponent(matrix.getReceiver(edge)).getId());
+		}
 		return returnList;
 	}
 
@@ -244,7 +249,7 @@ public class Component implements Serializable {
 		if (sendList) {
 			for (String key : getSortedMessagesSendToList()) {
 				builder.append("\t\t\t");
-				builder.append(sendToCountMap.get(key));
+				builder.append(getSendToCount(key));
 				builder.append("|");
 				builder.append(dcFormat.format(getPercentageSendToComponent(key)));
 				builder.append("% -> ");
@@ -285,18 +290,22 @@ public class Component implements Serializable {
 	}
 
 	/**
-	 * @return the componentsWhoSentToMe
+	 * @return ids of the components who sent messages to this component
 	 */
 	public List<String> getComponentsWhoSentToMe() {
-		return componentsWhoSentToMe;
+		CommunicationMatrix matrix = parentContainer.getCommunicationMatrix();
+		List<String> senderIds = new ArrayList<String>();
+		for (int edge : matrix.getIncomingEdges(index)) {
+			senderIds.add(parentContainer.getComponent(matrix.getSender(edge)).getId());
+		}
+		return senderIds;
 	}
 
 	/**
-	 * @param componentsWhoSentToMe
-	 *            the componentsWhoSentToMe to set
+	 * @return the index of this component within its {@link ProcessedData}
 	 */
-	public void setComponentsWhoSentToMe(List<String> componentsWhoSentToMe) {
-		this.componentsWhoSentToMe = componentsWhoSentToMe;
+	public int getIndex() {
+		return index;
 	}
 
 	/**
@@ -404,21 +413,6 @@ public class Component implements Serializable {
 		this.messagesSent = messagesSent;
 	}
 
-	/**
-	 * @return the sendToCountMap
-	 */
-	public Map<String, Long> getSendToCountMap() {
-		return sendToCountMap;
-	}
-
-	/**
-	 * @param sendToCountMap
-	 *            the sendToCountMap to set
-	 */
-	public void setSendToCountMap(Map<String, Long> sendToCountMap) {
-		this.sendToCountMap = sendToCountMap;
-	}
-
 	/**
 	 * @return the stackTrace
 	 */
@@ -434,21 +428,6 @@ public class Component implements Serializable {
 		this.stackTrace = stackTrace;
 	}
 
-	/**
-	 * @return the sendToDurationMap
-	 */
-	public Map<String, Double> getSendToDurationMap() {
-		return sendToDurationMap;
-	}
-
-	/**
-	 * @param sendToDurationMap
-	 *            the sendToDurationMap to set
-	 */
-	public void setSendToDurationMap(Map<String, Double> sendToDurationMap) {
-		this.sendToDurationMap = sendToDurationMap;
-	}
-
 	/* (non-Javadoc)
 	 * @see java.lang.Object#hashCode()
 	 */
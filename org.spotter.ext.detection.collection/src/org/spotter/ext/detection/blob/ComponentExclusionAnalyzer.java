@@ -16,12 +16,11 @@
 package org.spotter.ext.detection.blob;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
-import org.lpe.common.util.LpeNumericUtils;
 import org.lpe.common.util.NumericPairList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.spotter.core.chartbuilder.AnalysisChartBuilder;
 import org.spotter.core.detection.DetectionResultManager;
 import org.spotter.shared.result.model.SpotterResult;
@@ -34,60 +33,61 @@ import org.spotter.shared.result.model.SpotterResult;
  * 
  */
 public class ComponentExclusionAnalyzer implements IBlobAnalyzer {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ComponentExclusionAnalyzer.class);
+
+	private static final double THREE_SIGMA = 3.0;
+	// the standard deviation of the other components needs at least two
+	// other components
+	private static final int MIN_COMPONENTS = 3;
 
 	@Override
 	public List<Component> analyze(ProcessedData processData, DetectionResultManager resultManager, SpotterResult result) {
 		List<Component> blobs = new ArrayList<>();
+		int numComponents = processData.getComponents().size();
+		if (numComponents < MIN_COMPONENTS) {
+			LOGGER.info("Component exclusion analysis requires at least {} components, found {}. "
+					+ "No blob components reported.", MIN_COMPONENTS, numComponents);
+			return blobs;
+		}
 		double totalMessagingTime = processData.getTotalMessagingTime();
-double totalNumMessages = Math.max(processData.getTotalMessagesReceived(),processData.getTotalMessagesSent());
-		Map<Component, Double> msgContributions = new HashMap<Component, Double>();
-		Map<Component, Double> msgNumContributions = new HashMap<Component, Double>();
+		double totalNumMessages = Math.max(processData.getTotalMessagesReceived(), processData.getTotalMessagesSent());
+		double[] incomingDurations = processData.getCommunicationMatrix().getIncomingDurationSums(numComponents);
+
+		double[] msgContributions = new double[numComponents];
+		double[] msgNumContributions = new double[numComponents];
 		for (Component comp : processData.getComponents()) {
-			double messagingTimeWithoutComp = totalMessagingTime - comp.getTotalMessageSentDuration();
-			double messagesNumWithoutComp = totalNumMessages - comp.getMessagesSent()-comp.getMessagesReceived();
-			for (Component sender : processData.getComponents()) {
-				if (!sender.getId().equals(comp.getId())) {
-					Double receivingDuration = sender.getSendToDurationMap().get(comp.getId());
-					if (receivingDuration != null) {
-						messagingTimeWithoutComp -= receivingDuration;
-					}
-
-				}
-			}
+			int index = comp.getIndex();
+			double messagingTimeWithoutComp = totalMessagingTime - comp.getTotalMessageSentDuration()
+					- incomingDurations[index];
+			double messagesNumWithoutComp = totalNumMessages - comp.getMessagesSent() - comp.getMessagesReceived();
 
-			double msgTimeContribution = 1.0 - messagingTimeWithoutComp / totalMessagingTime;
-			double msgNumContribution = 1.0 - messagesNumWithoutComp / totalNumMessages;
-			msgNumContributions.put(comp, msgNumContribution);
-			msgContributions.put(comp, msgTimeContribution);
+			msgContributions[index] = 1.0 - messagingTimeWithoutComp / totalMessagingTime;
+			msgNumContributions[index] = 1.0 - messagesNumWithoutComp / totalNumMessages;
 		}
+
+		LeaveOneOutStatistics contStats = new LeaveOneOutStatistics(msgContributions);
+		LeaveOneOutStatistics contNumStats = new LeaveOneOutStatistics(msgNumContributions);
+
 		NumericPairList<Integer, Double> ownValues = new NumericPairList<>();
 		NumericPairList<Integer, Double> excludedMeans = new NumericPairList<>();
 		List<Number> excludedThresholds = new ArrayList<>();
-		int i = 0;
 		for (Component comp : processData.getComponents()) {
-			List<Double> conts = new ArrayList<>();
-			List<Double> contsNum = new ArrayList<>();
-			for (Component otherComp : processData.getComponents()) {
-				if (!otherComp.equals(comp)) {
-					conts.add(msgContributions.get(otherComp));
-					contsNum.add(msgNumContributions.get(otherComp));
-				}
-			}
+			int index = comp.getIndex();
+
+			double mean = contStats.meanWithout(index);
+			double sd = contStats.stdDevWithout(index);
+			double threshold = mean + THREE_SIGMA * sd;
+			double ownControbution = msgContributions[index];
+
+			double meanNum = contNumStats.meanWithout(index);
+			double sdNum = contNumStats.stdDevWithout(index);
+			double thresholdNum = meanNum + THREE_SIGMA * sdNum;
+			double ownControbutionNum = msgNumContributions[index];
 
-			double mean = LpeNumericUtils.average(conts);
-			double sd = LpeNumericUtils.stdDev(conts);
-			double threshold = mean + 3.0 * sd;
-			double ownControbution = msgContributions.get(comp);
-			
-			double meanNum = LpeNumericUtils.average(contsNum);
-			double sdNum = LpeNumericUtils.stdDev(contsNum);
-			double thresholdNum = meanNum + 3.0 * sdNum;
-			double ownControbutionNum = msgNumContributions.get(comp);
-			
-			ownValues.add(i, ownControbution);
-			excludedMeans.add(i, mean);
-			excludedThresholds.add(3 * sd);
-			if (ownControbution > threshold || ownControbutionNum >thresholdNum ) {
+			ownValues.add(index, ownControbution);
+			excludedMeans.add(index, mean);
+			excludedThresholds.add(THREE_SIGMA * sd);
+			if (ownControbution > threshold || ownControbutionNum > thresholdNum) {
 				blobs.add(comp);
 			}
 		}
@@ -100,4 +100,40 @@ double totalNumMessages = Math.max(processData.getTotalMessagesReceived(),proces
 		return blobs;
 	}
 
+	/**
+	 * Mean and sample standard deviation of a series with one element left
+	 * out, derived in constant time from the statistics of the whole series.
+	 * The series needs at least three values.
+	 */
+	static final class LeaveOneOutStatistics {
+		private final double[] values;
+		private final double mean;
+		private final double sumSquaredDeviations;
+
+		LeaveOneOutStatistics(double[] values) {
+			this.values = values;
+			double runningMean = 0.0;
+			double runningM2 = 0.0;
+			for (int i = 0; i < values.length; i++) {
+				double delta = values[i] - runningMean;
+				runningMean += delta / (i + 1);
+				runningM2 += delta * (values[i] - runningMean);
+			}
+			mean = runningMean;
+			sumSquaredDeviations = runningM2;
+		}
+
+		double meanWithout(int index) {
+			int n = values.length;
+			return (n * mean - values[index]) / (n - 1);
+		}
+
+		double stdDevWithout(int index) {
+			int n = values.length;
+			double x = values[index];
+			double m2 = sumSquaredDeviations - (x - mean) * (x - meanWithout(index));
+			return Math.sqrt(Math.max(m2, 0.0) / (n - 2));
+		}
+	}
+
 }
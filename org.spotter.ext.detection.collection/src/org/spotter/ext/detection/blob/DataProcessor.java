@@ -16,14 +16,16 @@
 package org.spotter.ext.detection.blob;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.aim.api.measurement.dataset.Dataset;
 import org.aim.api.measurement.dataset.DatasetCollection;
 import org.aim.artifacts.records.JmsRecord;
+import org.lpe.common.util.system.LpeSystemUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Processes raw measurement data with respect to messaging.
@@ -33,6 +35,13 @@ import org.aim.artifacts.records.JmsRecord;
  */
 public final class DataProcessor {
 
+	private static final Logger LOGGER = LoggerFactory.getLogger(DataProcessor.class);
+
+	/**
+	 * Minimal number of records per partition to justify parallel processing.
+	 */
+	private static final int MIN_RECORDS_PER_PARTITION = 50000;
+
 	/**
 	 * Process the given WrappedMeasurementData.
 	 * 
@@ -41,18 +50,27 @@ public final class DataProcessor {
 	 * @return the processed data
 	 */
 	public static ProcessedData processData(DatasetCollection data) {
-		return new DataProcessor().process(data);
+		CommunicationSummary summary = summarizeData(data);
+		if (summary.getNumIncompleteMessages() > 0) {
+			LOGGER.warn("{} messages without sender or receiver have been ignored.",
+					summary.getNumIncompleteMessages());
+		}
+		return summary.toProcessedData();
 	}
 
-	// INFOS
-	private double firstTimestamp;
-	private double lastTimestamp;
-	private Map<String, List<Double>> messageDurations;
-
-	// TEMP
-	private Map<String, MessageCorrelation> messageMap;
-	private ProcessedData processedData;
-	private Map<String, String> tempStackTraceMap;
+	/**
+	 * Summarizes the messaging communication of the given data. The records
+	 * are partitioned by their message correlation hash and the partitions are
+	 * processed in parallel. Summaries of different measurement data can be
+	 * combined with {@link CommunicationSummary#merge(CommunicationSummary)}.
+	 * 
+	 * @param data
+	 *            Data to process
+	 * @return the communication summary
+	 */
+	public static CommunicationSummary summarizeData(DatasetCollection data) {
+		return new DataProcessor().summarize(data);
+	}
 
 	/**
 	 * Hide default constructor.
@@ -65,178 +83,89 @@ public final class DataProcessor {
 	 * 
 	 * @param data
 	 *            data to process
-	 * @return transformed data
-	 */
-	public ProcessedData process(DatasetCollection data) {
-		initVariables();
-
-		buildMessageMap(data);
-		evaluateMessageMap();
-		callcualteMessageDurations();
-		assignStackTrace(data);
-
-		return processedData;
-	}
-
-	private void addMessageDuration(String clientId, double duration) {
-		if (!messageDurations.containsKey(clientId)) {
-			messageDurations.put(clientId, new ArrayList<Double>());
-		}
-		messageDurations.get(clientId).add(duration);
-	}
-
-	/**
-	 * Assigns to each ComponentInfo the correlating StackTrace
+	 * @return summary of the data
 	 */
-	private void assignStackTrace(DatasetCollection data) {
-		// Assigns a stacktrace to each ComponentInfo
-		// for (WrappedDataSet set :
-		// data.getDataSets(JmsStartConnectionRecord.class)) {
-		// for (JmsStartConnectionRecord jscr :
-		// set.getRecords(JmsStartConnectionRecord.class)) {
-		// processedData.getComponent(jscr.getClientId()).setStackTrace(jscr.getStackTrace());
-		// }
-		// }
-		for (Entry<String, String> pair : tempStackTraceMap.entrySet()) {
-			processedData.getComponent(pair.getKey()).setStackTrace(pair.getValue());
+	public CommunicationSummary summarize(DatasetCollection data) {
+		List<List<JmsRecord>> recordLists = new ArrayList<>();
+		long numRecords = 0;
+		for (Dataset set : data.getDataSets()) {
+			List<JmsRecord> records = set.getRecords(JmsRecord.class);
+			recordLists.add(records);
+			numRecords += records.size();
 		}
-	}
 
-	/**
-	 * Builds the messageMap out of the input data. Creates relations between
-	 * send and received messages.
-	 */
-	private void buildMessageMap(DatasetCollection data) {
-		for (Dataset set : data.getDataSets()) {
-			for (JmsRecord record : set.getRecords(JmsRecord.class)) {
+		final int numPartitions = (int) Math.max(1L,
+				Math.min(Runtime.getRuntime().availableProcessors(), numRecords / MIN_RECORDS_PER_PARTITION));
 
-				if (record.getClientId() == null) {
-					System.err.println("ClientId is null..");
+		// distribute the records to the partitions in a single pass, send
+		// and receive events of a message always fall into the same partition
+		final List<List<JmsRecord>> partitions = new ArrayList<>(numPartitions);
+		for (int i = 0; i < numPartitions; i++) {
+			partitions.add(new ArrayList<JmsRecord>((int) (numRecords / numPartitions) + 1));
+		}
+		long numIncompleteRecords = 0;
+		for (List<JmsRecord> records : recordLists) {
+			for (JmsRecord record : records) {
+				String correlationHash = record.getMessageCorrelationHash();
+				if (record.getClientId() == null || correlationHash == null) {
+					numIncompleteRecords++;
 					continue;
 				}
-
-				MessageCorrelation correlation = getMessageCorrelation(record.getMessageCorrelationHash());
-
-				if (!record.wasSent()) {
-					correlation.setReceiverId(record.getClientId());
-					correlation.setTimeReceived(record.getTimeStamp());
-				} else if (record.wasSent()) {
-					correlation.setSenderId(record.getClientId());
-					correlation.setTimeSend(record.getTimeStamp());
-				} else {
-					throw new RuntimeException("'wasSent' must be 0 or 1 and NOT " + record.wasSent());
-				}
-
-				if (record.getStackTrace() != null && !record.getStackTrace().isEmpty()) {
-					// TODO client id can have multiple stacktraces because of
-					// multiple method instrumentations
-					tempStackTraceMap.put(record.getClientId(), record.getStackTrace());
-				}
+				partitions.get((correlationHash.hashCode() & Integer.MAX_VALUE) % numPartitions).add(record);
 			}
 		}
-	}
+		if (numIncompleteRecords > 0) {
+			LOGGER.warn("{} records without client id or message correlation hash have been ignored.",
+					numIncompleteRecords);
+		}
 
-	/**
-	 * Aggregates the durations of all messages.
-	 */
-	private void callcualteMessageDurations() {
-		for (Component component : processedData.getComponents()) {
-			List<Double> list = messageDurations.get(component.getId());
-			if (list == null) {
-				continue;
-			}
-			double shortest = Double.MAX_VALUE;
-			double longest = 0;
-			double average = 0;
-			double total = 0;
-
-			for (double duration : list) {
-				if (duration < shortest) {
-					shortest = duration;
-				}
-				if (duration > longest) {
-					longest = duration;
-				}
-				total += duration;
-			}
-			average = total / list.size();
+		if (numPartitions == 1) {
+			return summarizePartition(partitions.get(0));
+		}
 
-			component.setShortestMessageSentDuration(shortest);
-			component.setLongestMessageSentDuration(longest);
-			component.setAverageMessageSentDuration(average);
-			component.setTotalMessageSentDuration(total);
+		final CommunicationSummary[] partialSummaries = new CommunicationSummary[numPartitions];
+		List<Future<?>> tasks = new ArrayList<>();
+		for (int i = 0; i < numPartitions; i++) {
+			final int partition = i;
+			tasks.add(LpeSystemUtils.submitTask(new Runnable() {
+				@Override
+				public void run() {
+					partialSummaries[partition] = summarizePartition(partitions.get(partition));
+				}
+			}));
 		}
-	}
 
-	/**
-	 * Evaluates the messageMap and builds the componentMap during this action.
-	 */
-	private void evaluateMessageMap() {
-		for (MessageCorrelation mc : messageMap.values()) {
-			// Check clientIds
-			if (mc.getSenderId() == null || mc.getReceiverId() == null) {
-				System.err.println("Nullpointer!");
-				continue;
+		try {
+			for (Future<?> task : tasks) {
+				task.get();
 			}
-
-			// Get relevant Component objects
-			Component senderInfo = processedData.getComponent(mc.getSenderId());
-			Component receiverInfo = processedData.getComponent(mc.getReceiverId());
-
-			// Increase their message count
-			senderInfo.increaseMessageSent();
-			receiverInfo.increaseMessageReceived();
-
-			// Increase the messageCount to the specified receiver
-			senderInfo.addSendMessageTo(receiverInfo.getId());
-			senderInfo.addSendMessageToDuration(receiverInfo.getId(), mc.getDuration());
-
-			// Add message duration to sending component
-			addMessageDuration(senderInfo.getId(), mc.getDuration());
-
-			// Remember sender
-			receiverInfo.addComponentWhoSentToMe(senderInfo.getId());
-
-			// Update timestamps if necessary
-			if (mc.getTimeSend() < firstTimestamp) {
-				firstTimestamp = mc.getTimeSend();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while summarizing the messaging data.", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
 			}
-			if (mc.getTimeReceived() > lastTimestamp) {
-				lastTimestamp = mc.getTimeReceived();
+			if (cause instanceof Error) {
+				throw (Error) cause;
 			}
+			throw new IllegalStateException(cause);
 		}
 
-		processedData.setTotalExperimentDuration(lastTimestamp - firstTimestamp);
-	}
-
-	/**
-	 * Returns the MessageCorrelation object of the messageMap which is related
-	 * to the given key. If no object is stored with the given key, it will be
-	 * created.
-	 * 
-	 * @param key
-	 * @return
-	 */
-	private MessageCorrelation getMessageCorrelation(String key) {
-		if (messageMap.containsKey(key)) {
-			return messageMap.get(key);
-		} else {
-			MessageCorrelation correlation = new MessageCorrelation();
-			messageMap.put(key, correlation);
-			return correlation;
+		CommunicationSummary summary = partialSummaries[0];
+		for (int i = 1; i < numPartitions; i++) {
+			summary.merge(partialSummaries[i]);
 		}
+		return summary;
 	}
 
-	/**
-	 * Initializes all local variables.
-	 */
-	private void initVariables() {
-		messageMap = new HashMap<String, MessageCorrelation>();
-		processedData = new ProcessedData();
-		messageDurations = new HashMap<String, List<Double>>();
-		tempStackTraceMap = new HashMap<String, String>();
-
-		firstTimestamp = Double.MAX_VALUE;
-		lastTimestamp = 0;
+	private CommunicationSummary summarizePartition(List<JmsRecord> records) {
+		CommunicationSummary summary = new CommunicationSummary();
+		for (JmsRecord record : records) {
+			summary.addEvent(record.getClientId(), record.getMessageCorrelationHash(), record.wasSent(),
+					record.getTimeStamp(), record.getStackTrace());
+		}
+		return summary;
 	}
 }
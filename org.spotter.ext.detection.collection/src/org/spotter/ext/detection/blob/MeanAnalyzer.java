@@ -16,9 +16,7 @@
 package org.spotter.ext.detection.blob;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import org.lpe.common.util.LpeNumericUtils;
 import org.lpe.common.util.NumericPairList;
@@ -37,39 +35,28 @@ public class MeanAnalyzer implements IBlobAnalyzer {
 
 	private static final double TIME_IMPROVEMENT_THREASHOLD_PERCENT = 0.4;
 
+	private static final double THREE_SIGMA = 3.0;
+
 	@Override
 	public List<Component> analyze(ProcessedData processData, DetectionResultManager resultManager, SpotterResult result) {
 		List<Component> blobs = new ArrayList<>();
-		double totalMessagingTime = processData.getTotalMessagingTime();
+		int numComponents = processData.getComponents().size();
+		double[] msgTimes = processData.getCommunicationMatrix().getIncomingDurationSums(numComponents);
 
-		Map<Component, Double> msgTimes = new HashMap<Component, Double>();
+		List<Double> msgTimeValues = new ArrayList<>(numComponents);
 		for (Component comp : processData.getComponents()) {
-			double messagingTime = comp.getTotalMessageSentDuration();
-
-			for (Component sender : processData.getComponents()) {
-				if (!sender.getId().equals(comp.getId())) {
-					Double receivingDuration = sender.getSendToDurationMap().get(comp.getId());
-					if (receivingDuration != null) {
-						messagingTime += receivingDuration;
-					}
-				}
-			}
-
-
-			msgTimes.put(comp, messagingTime);
-
+			msgTimes[comp.getIndex()] += comp.getTotalMessageSentDuration();
+			msgTimeValues.add(msgTimes[comp.getIndex()]);
 		}
 
-		NumericPairList<Integer, Double> ownValues = new NumericPairList<>();
-		
-		
-		double mean = LpeNumericUtils.average(msgTimes.values());
-		double sd = LpeNumericUtils.stdDev(msgTimes.values());
+		double mean = LpeNumericUtils.average(msgTimeValues);
+		double sd = LpeNumericUtils.stdDev(msgTimeValues);
 
-		double threshold = mean + 3 * sd;
+		NumericPairList<Integer, Double> ownValues = new NumericPairList<>();
+		double threshold = mean + THREE_SIGMA * sd;
 		int i = 1;
-		for (Component comp : msgTimes.keySet()) {
-			double time = msgTimes.get(comp);
+		for (Component comp : processData.getComponents()) {
+			double time = msgTimes[comp.getIndex()];
 			if (time >= threshold) {
 				blobs.add(comp);
 			}
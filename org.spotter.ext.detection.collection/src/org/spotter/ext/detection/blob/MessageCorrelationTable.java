@@ -0,0 +1,232 @@
+/**
+ * Copyright 2014 SAP AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spotter.ext.detection.blob;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Open addressing table correlating the send and receive events of messages
+ * by their correlation hash. Only messages whose counterpart has not been seen
+ * yet are kept in the table. Completed correlations are handed out by slot and
+ * should be removed by the caller, thus, memory consumption is bounded by the
+ * number of messages in flight rather than by the total number of messages.
+ *
+ * @author Alexander Wert
+ *
+ */
+public class MessageCorrelationTable implements Serializable {
+
+	/** */
+	private static final long serialVersionUID = 5390142868165017724L;
+
+	/**
+	 * Marker for a not yet known sender or receiver.
+	 */
+	public static final int UNKNOWN = -1;
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private String[] keys;
+	private int[] senders;
+	private int[] receivers;
+	private double[] timesSend;
+	private double[] timesReceived;
+	private int size = 0;
+
+	/**
+	 * Constructor.
+	 */
+	public MessageCorrelationTable() {
+		allocate(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * Adds a send or receive event of a message.
+	 *
+	 * @param correlationHash
+	 *            correlation hash of the message
+	 * @param wasSent
+	 *            true, if the event is a send event, false for receive events
+	 * @param clientIndex
+	 *            index of the client who sent or received the message
+	 * @param timestamp
+	 *            time of the event
+	 * @return the slot of the correlation if both, sender and receiver, are
+	 *         known now, otherwise -1
+	 */
+	public int add(String correlationHash, boolean wasSent, int clientIndex, double timestamp) {
+		if ((size + 1) * 2 > keys.length) {
+			rehash(keys.length * 2);
+		}
+		int slot = findSlot(correlationHash);
+		if (keys[slot] == null) {
+			keys[slot] = correlationHash;
+			senders[slot] = UNKNOWN;
+			receivers[slot] = UNKNOWN;
+			size++;
+		}
+		if (wasSent) {
+			senders[slot] = clientIndex;
+			timesSend[slot] = timestamp;
+		} else {
+			receivers[slot] = clientIndex;
+			timesReceived[slot] = timestamp;
+		}
+		if (senders[slot] != UNKNOWN && receivers[slot] != UNKNOWN) {
+			return slot;
+		}
+		return -1;
+	}
+
+	/**
+	 * Removes the correlation at the given slot.
+	 *
+	 * @param slot
+	 *            slot to clear
+	 */
+	public void remove(int slot) {
+		int mask = keys.length - 1;
+		int hole = slot;
+		int i = slot;
+		while (true) {
+			i = (i + 1) & mask;
+			if (keys[i] == null) {
+				break;
+			}
+			int home = mix(keys[i]) & mask;
+			boolean movable = (i > hole) ? (home <= hole || home > i) : (home <= hole && home > i);
+			if (movable) {
+				move(i, hole);
+				hole = i;
+			}
+		}
+		keys[hole] = null;
+		size--;
+	}
+
+	/**
+	 * @return number of slots, use {@link #getKey(int)} to find occupied
+	 *         slots
+	 */
+	public int getCapacity() {
+		return keys.length;
+	}
+
+	/**
+	 * @param slot
+	 *            slot of a correlation
+	 * @return correlation hash stored in the slot, or null if the slot is
+	 *         empty
+	 */
+	public String getKey(int slot) {
+		return keys[slot];
+	}
+
+	/**
+	 * @param slot
+	 *            slot of a correlation
+	 * @return index of the sender
+	 */
+	public int getSender(int slot) {
+		return senders[slot];
+	}
+
+	/**
+	 * @param slot
+	 *            slot of a correlation
+	 * @return index of the receiver
+	 */
+	public int getReceiver(int slot) {
+		return receivers[slot];
+	}
+
+	/**
+	 * @param slot
+	 *            slot of a correlation
+	 * @return time when message has been send
+	 */
+	public double getTimeSend(int slot) {
+		return timesSend[slot];
+	}
+
+	/**
+	 * @param slot
+	 *            slot of a correlation
+	 * @return time when message has been received
+	 */
+	public double getTimeReceived(int slot) {
+		return timesReceived[slot];
+	}
+
+	/**
+	 * @return number of incomplete correlations
+	 */
+	public int size() {
+		return size;
+	}
+
+	private void move(int from, int to) {
+		keys[to] = keys[from];
+		senders[to] = senders[from];
+		receivers[to] = receivers[from];
+		timesSend[to] = timesSend[from];
+		timesReceived[to] = timesReceived[from];
+	}
+
+	private int findSlot(String key) {
+		int mask = keys.length - 1;
+		int slot = mix(key) & mask;
+		while (keys[slot] != null && !keys[slot].equals(key)) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void rehash(int newCapacity) {
+		String[] oldKeys = keys;
+		int[] oldSenders = senders;
+		int[] oldReceivers = receivers;
+		double[] oldTimesSend = timesSend;
+		double[] oldTimesReceived = timesReceived;
+		allocate(newCapacity);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != null) {
+				int slot = findSlot(oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				senders[slot] = oldSenders[i];
+				receivers[slot] = oldReceivers[i];
+				timesSend[slot] = oldTimesSend[i];
+				timesReceived[slot] = oldTimesReceived[i];
+			}
+		}
+	}
+
+	private void allocate(int capacity) {
+		keys = new String[capacity];
+		senders = new int[capacity];
+		receivers = new int[capacity];
+		timesSend = new double[capacity];
+		timesReceived = new double[capacity];
+		Arrays.fill(senders, UNKNOWN);
+		Arrays.fill(receivers, UNKNOWN);
+	}
+
+	private static int mix(String key) {
+		int h = key.hashCode() * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
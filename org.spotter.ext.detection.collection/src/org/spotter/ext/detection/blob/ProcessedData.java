@@ -16,8 +16,10 @@
 package org.spotter.ext.detection.blob;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.slf4j.Logger;
@@ -39,6 +41,8 @@ public class ProcessedData implements Serializable {
 	private static final Logger LOGGER = LoggerFactory.getLogger(ProcessedData.class);
 
 	private Map<String, Component> components;
+	private List<Component> componentsByIndex;
+	private CommunicationMatrix communicationMatrix;
 	private double totalExperimentDuration = 0;
 
 	private long totalMessagesReceived = 0;
@@ -50,6 +54,8 @@ public class ProcessedData implements Serializable {
 	 */
 	public ProcessedData() {
 		components = new HashMap<String, Component>();
+		componentsByIndex = new ArrayList<Component>();
+		communicationMatrix = new CommunicationMatrix();
 	}
 
 	/**
@@ -64,8 +70,9 @@ public class ProcessedData implements Serializable {
 			LOGGER.debug("Component '" + componentId + "' already exists.");
 			return getComponent(componentId);
 		} else {
-			Component temp = new Component(this, componentId);
+			Component temp = new Component(this, componentId, componentsByIndex.size());
 			components.put(componentId, temp);
+			componentsByIndex.add(temp);
 			return temp;
 		}
 	}
@@ -84,6 +91,38 @@ public class ProcessedData implements Serializable {
 		return components.get(clientId);
 	}
 
+	/**
+	 * Returns the component for the passed index.
+	 * 
+	 * @param index
+	 *            index of the component of interest
+	 * @return component for the passed index.
+	 */
+	public Component getComponent(int index) {
+		return componentsByIndex.get(index);
+	}
+
+	/**
+	 * Returns the component for the passed id without creating it.
+	 * 
+	 * @param clientId
+	 *            id of the client of interest
+	 * @return component for the passed id, or null if no such component
+	 *         exists.
+	 */
+	public Component findComponent(String clientId) {
+		return components.get(clientId);
+	}
+
+	/**
+	 * 
+	 * @return matrix of messages sent between the components, indexed by
+	 *         {@link Component#getIndex()}
+	 */
+	public CommunicationMatrix getCommunicationMatrix() {
+		return communicationMatrix;
+	}
+
 	/**
 	 * Returns an array with all existing client ids.
 	 * 
@@ -100,10 +139,10 @@ public class ProcessedData implements Serializable {
 
 	/**
 	 * 
-	 * @return all participating components
+	 * @return all participating components, ordered by their index
 	 */
 	public Collection<Component> getComponents() {
-		return components.values();
+		return componentsByIndex;
 	}
 
 	@Override
@@ -4,7 +4,6 @@ import org.aim.api.exceptions.InstrumentationException;
 import org.aim.api.exceptions.MeasurementException;
 import org.aim.api.measurement.dataset.Dataset;
 import org.aim.api.measurement.dataset.DatasetCollection;
-import org.aim.api.measurement.dataset.ParameterSelection;
 import org.aim.artifacts.probes.ResponsetimeProbe;
 import org.aim.artifacts.records.ResponseTimeRecord;
 import org.aim.artifacts.scopes.EntryPointScope;
@@ -23,7 +22,10 @@ import org.spotter.ext.detection.continuousViolation.strategies.BucketStrategy;
 import org.spotter.ext.detection.continuousViolation.strategies.DBSCANStrategy;
 import org.spotter.ext.detection.continuousViolation.strategies.MovingPercentileStrategy;
 import org.spotter.ext.detection.continuousViolation.util.AnalysisConfig;
-import org.spotter.ext.detection.utils.Utils;
+import org.spotter.ext.detection.utils.ResponseTimeSeries;
+import org.spotter.ext.detection.utils.ResponseTimeSeriesCache;
+import org.spotter.ext.detection.utils.ThresholdSweep;
+import org.spotter.ext.detection.utils.TimeSeriesPyramid;
 import org.spotter.shared.configuration.ConfigKeys;
 import org.spotter.shared.result.model.SpotterResult;
 
@@ -38,6 +40,7 @@ public class ContinuousViolationController extends AbstractDetectionController i
 	private String analysisStrategy;
 	private AnalysisConfig analysisConfig = new AnalysisConfig();
 	private IViolationAnalysisStrategy analysisStrategyImpl;
+	private long[] sweepThresholds = new long[0];
 
 	/**
 	 * Constructor.
@@ -60,11 +63,18 @@ public class ContinuousViolationController extends AbstractDetectionController i
 				String.valueOf(AnalysisConfig.MOVING_AVERAGE_WINDOW_SIZE_DEFAULT));
 		analysisConfig.setMvaWindowSize(Integer.parseInt(mvaWindowSize));
 
+		String distanceSampleSize = getProblemDetectionConfiguration().getProperty(
+				AnalysisConfig.DISTANCE_SAMPLE_SIZE_KEY, String.valueOf(AnalysisConfig.DISTANCE_SAMPLE_SIZE_DEFAULT));
+		analysisConfig.setDistanceSampleSize(Integer.parseInt(distanceSampleSize));
+
 		String minBucketTimeProportionStr = getProblemDetectionConfiguration().getProperty(
 				AnalysisConfig.MIN_BUCKET_TIME_PROPORTION_KEY,
 				String.valueOf(AnalysisConfig.MIN_BUCKET_TIME_PROPORTION_DEFAULT));
 		analysisConfig.setMinBucketTimeProportion(Double.parseDouble(minBucketTimeProportionStr));
 
+		sweepThresholds = ThresholdSweep.parseThresholds(getProblemDetectionConfiguration().getProperty(
+				ThresholdSweep.THRESHOLD_SWEEP_KEY));
+
 		switch (analysisStrategy) {
 		case ContinuousViolationExtension.DBSCAN_STRATEGY:
 			analysisStrategyImpl = new DBSCANStrategy();
@@ -98,19 +108,27 @@ public class ContinuousViolationController extends AbstractDetectionController i
 			return result;
 		}
 
-		for (String operation : rtDataset.getValueSet(ResponseTimeRecord.PAR_OPERATION, String.class)) {
-			ParameterSelection selectOperation = new ParameterSelection().select(ResponseTimeRecord.PAR_OPERATION,
-					operation);
-			Dataset operationSpecificDataset = selectOperation.applyTo(rtDataset);
-
-			NumericPairList<Long, Double> responseTimeSeries = Utils.toTimestampRTPairs(operationSpecificDataset);
+		ThresholdSweep sweep = new ThresholdSweep(sweepThresholds, null);
+		for (String operation : ResponseTimeSeriesCache.getOperations(rtDataset)) {
+			// chronologically sorted, shared with other controllers analysing
+			// the same experiment
+			ResponseTimeSeries series = ResponseTimeSeriesCache.getSeries(rtDataset, operation);
+			NumericPairList<Long, Double> responseTimeSeries = series.toNumericPairList();
 			if (responseTimeSeries.size() <= 5) {
 				continue;
 			}
-			// sort chronologically
-			responseTimeSeries.sort();
-			boolean detected = analysisStrategyImpl.analyze(responseTimeSeries, analysisConfig, perfReqThreshold,
+			// built once per series, shared by all thresholds
+			TimeSeriesPyramid pyramid = series.getPyramid();
+			// the configured threshold and the sweep thresholds are evaluated
+			// in one run of the strategy
+			boolean[] detectedPerThreshold = analysisStrategyImpl.analyze(responseTimeSeries, pyramid,
+					analysisConfig, ThresholdSweep.withRequirementThreshold(perfReqThreshold, sweepThresholds),
 					perfReqConfidence);
+			boolean detected = detectedPerThreshold[0];
+
+			for (int i = 0; i < sweepThresholds.length; i++) {
+				sweep.addVerdict(operation, sweepThresholds[i], detectedPerThreshold[i + 1], Double.NaN);
+			}
 
 			if (detected) {
 				result.addMessage("Detected continuous violation of performance requirements in operation: "
@@ -118,19 +136,23 @@ public class ContinuousViolationController extends AbstractDetectionController i
 				result.setDetected(true);
 			}
 
-			createChart(perfReqThreshold, result, operation, responseTimeSeries);
+			createChart(perfReqThreshold, result, operation, pyramid);
+		}
+
+		if (sweepThresholds.length > 0) {
+			sweep.store(getResultManager(), result);
 		}
 
 		return result;
 	}
 
 	private void createChart(double perfReqThreshold, SpotterResult result, String operation,
-			NumericPairList<Long, Double> responseTimeSeries) {
+			TimeSeriesPyramid pyramid) {
 		AnalysisChartBuilder chartBuilder = AnalysisChartBuilder.getChartBuilder();
 		String operationName = operation.contains("(")?operation.substring(0, operation.indexOf("(")):operation;
 		
 		chartBuilder.startChart(operationName, "experiment time [ms]", "response time [ms]");
-		chartBuilder.addTimeSeries(responseTimeSeries, "response times");
+		chartBuilder.addTimeSeries(pyramid.downsample(TimeSeriesPyramid.DEFAULT_CHART_POINTS), "response times");
 		chartBuilder.addHorizontalLine(perfReqThreshold, "requirements threshold");
 		getResultManager().storeImageChartResource(chartBuilder, "Response Times", result);
 	}
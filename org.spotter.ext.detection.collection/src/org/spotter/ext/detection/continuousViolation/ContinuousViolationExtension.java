@@ -8,6 +8,7 @@ import org.lpe.common.util.LpeSupportedTypes;
 import org.spotter.core.detection.AbstractDetectionExtension;
 import org.spotter.core.detection.IDetectionController;
 import org.spotter.ext.detection.continuousViolation.util.AnalysisConfig;
+import org.spotter.ext.detection.utils.ThresholdSweep;
 
 /**
  * Extensions for the detection of continuoous performance requirements
@@ -58,6 +59,7 @@ public class ContinuousViolationExtension extends AbstractDetectionExtension {
 	protected void initializeConfigurationParameters() {
 		addConfigParameter(ConfigParameterDescription.createExtensionDescription(EXTENSION_DESCRIPTION));
 		addConfigParameter(createStrategyParameter());
+		addConfigParameter(ThresholdSweep.createThresholdSweepParameter());
 		for (ConfigParameterDescription cpd : AnalysisConfig.getConfigurationParameters()) {
 			addConfigParameter(cpd);
 		}
@@ -2,6 +2,7 @@ package org.spotter.ext.detection.continuousViolation;
 
 import org.lpe.common.util.NumericPairList;
 import org.spotter.ext.detection.continuousViolation.util.AnalysisConfig;
+import org.spotter.ext.detection.utils.TimeSeriesPyramid;
 
 /**
  * Interface for the violation analysis strategy.
@@ -15,14 +16,19 @@ public interface IViolationAnalysisStrategy {
 	 * 
 	 * @param responsetimeSeries
 	 *            series to analyze
+	 * @param pyramid
+	 *            multi-resolution view of the series, shared by all
+	 *            analyses of the series
 	 * @param analysisConfig
 	 *            analysis configuration
-	 * @param perfReqThreshold
-	 *            requirements threshold
+	 * @param perfReqThresholds
+	 *            requirement thresholds to evaluate; the threshold
+	 *            independent part of the analysis is done once for all of
+	 *            them
 	 * @param perfReqConfidence
 	 *            confidence for performance requirement thresholdO
-	 * @return true if detected
+	 * @return verdict per threshold, true if detected
 	 */
-	boolean analyze(final NumericPairList<Long, Double> responsetimeSeries, final AnalysisConfig analysisConfig,
-			double perfReqThreshold, double perfReqConfidence);
+	boolean[] analyze(final NumericPairList<Long, Double> responsetimeSeries, final TimeSeriesPyramid pyramid,
+			final AnalysisConfig analysisConfig, double[] perfReqThresholds, double perfReqConfidence);
 }
@@ -1,19 +1,19 @@
 package org.spotter.ext.detection.continuousViolation.strategies;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
-import org.lpe.common.util.LpeNumericUtils;
 import org.lpe.common.util.NumericPair;
 import org.lpe.common.util.NumericPairList;
 import org.spotter.ext.detection.continuousViolation.IViolationAnalysisStrategy;
 import org.spotter.ext.detection.continuousViolation.util.AnalysisConfig;
-import org.spotter.ext.detection.continuousViolation.util.Bucket;
+import org.spotter.ext.detection.utils.TimeSeriesPyramid;
 import org.spotter.ext.detection.utils.Utils;
 
 /**
  * Analyzes continuous performance requirement violation by iterating over
- * buckets.
+ * buckets. Fine grained buckets (requirement coverage) and coarse grained
+ * parts (equal distribution of the response times) are evaluated during a
+ * single pass over the chronologically sorted series.
  * 
  * @author Alexander Wert
  * 
@@ -24,106 +24,103 @@ public class BucketStrategy implements IViolationAnalysisStrategy {
 	private static final double EPSILON_PERCENTAGE = 0.5;
 
 	@Override
-	public boolean analyze(NumericPairList<Long, Double> responsetimeSeries, AnalysisConfig analysisConfig,
-			double perfReqThreshold, double perfReqConfidence) {
-		boolean bucketsCovered = checkBucketCoverage(responsetimeSeries, analysisConfig, perfReqThreshold,
-				perfReqConfidence);
-
-		boolean equallyDistributed = checkEqualDistribution(responsetimeSeries);
-
-		return equallyDistributed && bucketsCovered;
-	}
+	public boolean[] analyze(NumericPairList<Long, Double> responsetimeSeries, TimeSeriesPyramid pyramid,
+			AnalysisConfig analysisConfig, double[] perfReqThresholds, double perfReqConfidence) {
+		int size = responsetimeSeries.size();
+		long minTimestamp = responsetimeSeries.get(0).getKey();
+		long maxTimestamp = responsetimeSeries.get(size - 1).getKey();
+
+		// fine grained buckets, only the current bucket is open; violations
+		// are counted per threshold
+		long bucketStep = Math.max(3000, Utils.meanInterRequestTime(responsetimeSeries) * 50);
+		long bucketStart = Long.MIN_VALUE;
+		int bucketSize = 0;
+		int[] bucketViolations = new int[perfReqThresholds.length];
+		int numBuckets = 0;
+		int[] numViolatingBuckets = new int[perfReqThresholds.length];
+
+		// coarse grained parts, a part is closed whenever a timestamp exceeds
+		// the current border
+		long partStep = ((maxTimestamp - minTimestamp) / NUM_COARSE_GRAINED_BUCKETS) + 1L;
+		long nextBorder = minTimestamp + partStep;
+		double[] partSums = new double[NUM_COARSE_GRAINED_BUCKETS + 1];
+		int[] partSizes = new int[NUM_COARSE_GRAINED_BUCKETS + 1];
+		int part = 0;
+		double overallSum = 0.0;
 
-	private boolean checkEqualDistribution(NumericPairList<Long, Double> responsetimeSeries) {
-		double overallMean = LpeNumericUtils.average(responsetimeSeries.getValueArrayAsDouble());
-		long minTimestamp = responsetimeSeries.getKeyMin();
-		long maxTimestamp = responsetimeSeries.getKeyMax();
-		long step = ((maxTimestamp - minTimestamp) / NUM_COARSE_GRAINED_BUCKETS) + 1L;
-		long nextBorder = minTimestamp + step;
-		List<Double> values = new ArrayList<>();
 		for (NumericPair<Long, Double> pair : responsetimeSeries) {
-			if (pair.getKey() > nextBorder) {
-				if (!checkPartMean(overallMean, values)) {
-					return false;
-				}
-				nextBorder += step;
-				values.clear();
-			}
-			values.add(pair.getValue());
-		}
-		return checkPartMean(overallMean, values);
-	}
+			long timestamp = pair.getKey();
+			double responseTime = pair.getValue();
 
-	private boolean checkPartMean(double overallMean, List<Double> values) {
-		double tmpMean = LpeNumericUtils.average(values);
-		return tmpMean >= (overallMean - overallMean * EPSILON_PERCENTAGE)
-				&& tmpMean <= (overallMean + overallMean * EPSILON_PERCENTAGE);
-
-	}
-
-	private boolean checkBucketCoverage(NumericPairList<Long, Double> responsetimeSeries,
-			AnalysisConfig analysisConfig, double perfReqThreshold, double perfReqConfidence) {
-		List<Bucket> buckets = new ArrayList<Bucket>();
-
-		long bucketStart = Long.MIN_VALUE;
-		long timestamp;
-		NumericPairList<Long, Double> bucketSeries = null;
-		long bucketStep = Math.max(3000, Utils.meanInterRequestTime(responsetimeSeries) * 50);
-		for (int i = 0; i < responsetimeSeries.size(); i++) {
-			timestamp = responsetimeSeries.get(i).getKey();
 			if (timestamp > bucketStart + bucketStep) {
-				// new bucket started
-				if (bucketSeries != null) {
-					// analyze previous bucket
-					List<Double> responseTimes = bucketSeries.getValueListAsDouble();
-					int reqViolationsCount = countRequirementViolations(perfReqThreshold, responseTimes);
-
-					double percentageViolations = ((double) reqViolationsCount) / ((double) responseTimes.size());
-					Bucket bucket = new Bucket();
-					bucket.setStartTimestamp(bucketSeries.getKeyMin());
-					bucket.setEndTimestamp(bucketSeries.getKeyMax());
-					bucket.setRequirementViolated(percentageViolations > 1.0 - perfReqConfidence);
-					buckets.add(bucket);
+				if (bucketSize > 0) {
+					numBuckets++;
+					closeBucket(bucketViolations, bucketSize, numViolatingBuckets, perfReqConfidence);
 				}
-				bucketSeries = new NumericPairList<>();
+				bucketSize = 0;
+				Arrays.fill(bucketViolations, 0);
 				bucketStart = timestamp;
 			}
-			bucketSeries.add(responsetimeSeries.get(i));
+			bucketSize++;
+			for (int t = 0; t < perfReqThresholds.length; t++) {
+				if (responseTime > perfReqThresholds[t]) {
+					bucketViolations[t]++;
+				}
+			}
+
+			if (timestamp > nextBorder) {
+				nextBorder += partStep;
+				part++;
+				if (part == partSums.length) {
+					partSums = Arrays.copyOf(partSums, part * 2);
+					partSizes = Arrays.copyOf(partSizes, part * 2);
+				}
+			}
+			partSums[part] += responseTime;
+			partSizes[part]++;
+			overallSum += responseTime;
 		}
-		if (bucketSeries != null && bucketSeries.size() > 0) {
-			// analyze previous bucket
-			List<Double> responseTimes = bucketSeries.getValueListAsDouble();
-			int reqViolationsCount = countRequirementViolations(perfReqThreshold, responseTimes);
-
-			double percentageViolations = ((double) reqViolationsCount) / ((double) responseTimes.size());
-			Bucket bucket = new Bucket();
-			bucket.setStartTimestamp(bucketSeries.getKeyMin());
-			bucket.setEndTimestamp(bucketSeries.getKeyMax());
-			bucket.setRequirementViolated(percentageViolations > 1.0 - perfReqConfidence);
-			buckets.add(bucket);
+		if (bucketSize > 0) {
+			numBuckets++;
+			closeBucket(bucketViolations, bucketSize, numViolatingBuckets, perfReqConfidence);
 		}
-		int numViolatingBuckets = countViolatingBuckets(buckets);
-		return ((double) numViolatingBuckets) / ((double) buckets.size()) > (analysisConfig.getMinBucketTimeProportion());
-	}
 
-	private int countRequirementViolations(double perfReqThreshold, List<Double> responseTimes) {
-		int count = 0;
-		for (Double rt : responseTimes) {
-			if (rt > perfReqThreshold) {
-				count++;
+		double overallMean = overallSum / size;
+		boolean equallyDistributed = true;
+		for (int i = 0; i <= part; i++) {
+			if (!checkPartMean(overallMean, partSums[i] / partSizes[i])) {
+				equallyDistributed = false;
+				break;
 			}
 		}
-		return count;
+
+		boolean[] detected = new boolean[perfReqThresholds.length];
+		for (int t = 0; t < perfReqThresholds.length; t++) {
+			boolean bucketsCovered = ((double) numViolatingBuckets[t]) / ((double) numBuckets) > (analysisConfig
+					.getMinBucketTimeProportion());
+			detected[t] = equallyDistributed && bucketsCovered;
+		}
+		return detected;
 	}
 
-	private int countViolatingBuckets(List<Bucket> buckets) {
-		int count = 0;
-		for (Bucket b : buckets) {
-			if (b.isRequirementViolated()) {
-				count++;
+	private void closeBucket(int[] bucketViolations, int bucketSize, int[] numViolatingBuckets,
+			double perfReqConfidence) {
+		for (int t = 0; t < bucketViolations.length; t++) {
+			if (isBucketViolated(bucketViolations[t], bucketSize, perfReqConfidence)) {
+				numViolatingBuckets[t]++;
 			}
 		}
-		return count;
+	}
+
+	private boolean isBucketViolated(int violations, int bucketSize, double perfReqConfidence) {
+		double percentageViolations = ((double) violations) / ((double) bucketSize);
+		return percentageViolations > 1.0 - perfReqConfidence;
+	}
+
+	private boolean checkPartMean(double overallMean, double partMean) {
+		return partMean >= (overallMean - overallMean * EPSILON_PERCENTAGE)
+				&& partMean <= (overallMean + overallMean * EPSILON_PERCENTAGE);
+
 	}
 
 }
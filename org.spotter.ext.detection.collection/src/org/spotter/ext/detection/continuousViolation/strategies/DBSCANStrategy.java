@@ -2,10 +2,14 @@ package org.spotter.ext.detection.continuousViolation.strategies;
 
 import java.util.List;
 
-import org.lpe.common.util.LpeNumericUtils;
 import org.lpe.common.util.NumericPairList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.spotter.ext.detection.continuousViolation.IViolationAnalysisStrategy;
 import org.spotter.ext.detection.continuousViolation.util.AnalysisConfig;
+import org.spotter.ext.detection.utils.GridDBSCAN;
+import org.spotter.ext.detection.utils.MeanDistanceEstimate;
+import org.spotter.ext.detection.utils.TimeSeriesPyramid;
 
 /**
  * Analyzes continuous violation of performance requirements by mean value
@@ -15,26 +19,37 @@ import org.spotter.ext.detection.continuousViolation.util.AnalysisConfig;
  * 
  */
 public class DBSCANStrategy implements IViolationAnalysisStrategy {
+	private static final Logger LOGGER = LoggerFactory.getLogger(DBSCANStrategy.class);
 	private static final int numMinNeighbours = 10;
 
 	@Override
-	public boolean analyze(NumericPairList<Long, Double> responsetimeSeries, AnalysisConfig analysisConfig,
-			double perfReqThreshold, double perfReqConfidence) {
+	public boolean[] analyze(NumericPairList<Long, Double> responsetimeSeries, TimeSeriesPyramid pyramid,
+			AnalysisConfig analysisConfig, double[] perfReqThresholds, double perfReqConfidence) {
 		double keyRange = responsetimeSeries.getKeyMax() - responsetimeSeries.getKeyMin();
 		double valueRange = responsetimeSeries.getValueMax() - responsetimeSeries.getValueMin();
-		double epsilon = LpeNumericUtils.meanNormalizedDistance(responsetimeSeries, keyRange, valueRange)
-				* (double) numMinNeighbours * 0.75;
-		List<NumericPairList<Long, Double>> clusters = LpeNumericUtils.dbscanNormalized(responsetimeSeries, epsilon,
+		MeanDistanceEstimate meanDistance = MeanDistanceEstimate.calculate(responsetimeSeries, keyRange, valueRange,
+				analysisConfig.getDistanceSampleSize(), MeanDistanceEstimate.DEFAULT_SEED);
+		if (!meanDistance.isExact()) {
+			LOGGER.debug("DBSCAN radius based on estimated {}", meanDistance);
+		}
+		double epsilon = meanDistance.getMean() * (double) numMinNeighbours * 0.75;
+		// clustering does not depend on the threshold, only the violation
+		// counts per cluster do
+		List<NumericPairList<Long, Double>> clusters = GridDBSCAN.cluster(responsetimeSeries, epsilon,
 				numMinNeighbours, keyRange, valueRange);
 
-		for (NumericPairList<Long, Double> c : clusters) {
-			int numViolations = countRequirementViolations(perfReqThreshold, c.getValueList());
-			if (((double) numViolations) / ((double) c.size()) < 1.0 - perfReqConfidence) {
-				return false;
+		boolean[] detected = new boolean[perfReqThresholds.length];
+		for (int t = 0; t < perfReqThresholds.length; t++) {
+			detected[t] = true;
+			for (NumericPairList<Long, Double> c : clusters) {
+				int numViolations = countRequirementViolations(perfReqThresholds[t], c.getValueList());
+				if (((double) numViolations) / ((double) c.size()) < 1.0 - perfReqConfidence) {
+					detected[t] = false;
+					break;
+				}
 			}
-
 		}
-		return true;
+		return detected;
 
 	}
 
@@ -1,8 +1,11 @@
 package org.spotter.ext.detection.continuousViolation.strategies;
 
+import java.util.Arrays;
+
 import org.lpe.common.util.NumericPairList;
 import org.spotter.ext.detection.continuousViolation.IViolationAnalysisStrategy;
 import org.spotter.ext.detection.continuousViolation.util.AnalysisConfig;
+import org.spotter.ext.detection.utils.TimeSeriesPyramid;
 import org.spotter.ext.detection.utils.Utils;
 
 /**
@@ -15,18 +18,35 @@ import org.spotter.ext.detection.utils.Utils;
 public class MovingPercentileStrategy implements IViolationAnalysisStrategy {
 
 	@Override
-	public boolean analyze(NumericPairList<Long, Double> responsetimeSeries, AnalysisConfig analysisConfig,
-			double perfReqThreshold, double perfReqConfidence) {
-		double percentileValue = 0.0;
-		for (int i = 0; i < responsetimeSeries.size(); i++) {
-			percentileValue = Utils.calculateWindowPercentile(responsetimeSeries, perfReqConfidence, i,
-					analysisConfig.getMvaWindowSize());
-
-			if (percentileValue < perfReqThreshold) {
-				return false;
+	public boolean[] analyze(NumericPairList<Long, Double> responsetimeSeries, TimeSeriesPyramid pyramid,
+			AnalysisConfig analysisConfig, double[] perfReqThresholds, double perfReqConfidence) {
+		boolean[] detected = new boolean[perfReqThresholds.length];
+		Arrays.fill(detected, true);
+		int numUndecided = perfReqThresholds.length;
+		int halfWindowSize = analysisConfig.getMvaWindowSize() / 2;
+		for (int i = 0; i < responsetimeSeries.size() && numUndecided > 0; i++) {
+			int windowStart = Math.max(i - halfWindowSize, 0);
+			int windowEnd = Math.min(i + halfWindowSize, responsetimeSeries.size() - 1) + 1;
+			double windowMax = pyramid.getWindowMax(windowStart, windowEnd);
+			double windowMin = pyramid.getWindowMin(windowStart, windowEnd);
+			// the window percentile is computed at most once per window and
+			// only if the window bounds do not decide a threshold
+			double percentileValue = Double.NaN;
+			for (int t = 0; t < perfReqThresholds.length; t++) {
+				if (!detected[t] || windowMin >= perfReqThresholds[t]) {
+					continue;
+				}
+				if (windowMax >= perfReqThresholds[t] && Double.isNaN(percentileValue)) {
+					percentileValue = Utils.calculateWindowPercentile(responsetimeSeries, perfReqConfidence, i,
+							analysisConfig.getMvaWindowSize());
+				}
+				if (windowMax < perfReqThresholds[t] || percentileValue < perfReqThresholds[t]) {
+					detected[t] = false;
+					numUndecided--;
+				}
 			}
 		}
-		return true;
+		return detected;
 	}
 
 }
@@ -5,6 +5,7 @@ import java.util.Set;
 
 import org.lpe.common.config.ConfigParameterDescription;
 import org.lpe.common.util.LpeSupportedTypes;
+import org.spotter.ext.detection.utils.MeanDistanceEstimate;
 
 /**
  * Analysis Configuration.
@@ -17,6 +18,10 @@ public class AnalysisConfig {
 	public static final int MOVING_AVERAGE_WINDOW_SIZE_DEFAULT = 11;
 	private int mvaWindowSize; // should be an odd number
 
+	public static final String DISTANCE_SAMPLE_SIZE_KEY = "distanceSampleSize";
+	public static final int DISTANCE_SAMPLE_SIZE_DEFAULT = MeanDistanceEstimate.DEFAULT_SAMPLE_SIZE;
+	private int distanceSampleSize = DISTANCE_SAMPLE_SIZE_DEFAULT;
+
 
 	
 
@@ -44,6 +49,21 @@ public class AnalysisConfig {
 
 
 	
+	/**
+	 * @return number of sampled pairs for the mean distance estimation
+	 */
+	public int getDistanceSampleSize() {
+		return distanceSampleSize;
+	}
+
+	/**
+	 * @param distanceSampleSize
+	 *            number of sampled pairs for the mean distance estimation
+	 */
+	public void setDistanceSampleSize(int distanceSampleSize) {
+		this.distanceSampleSize = distanceSampleSize;
+	}
+
 	/**
 	 * 
 	 * @return set of configuration parameters for hiccup detection
@@ -67,8 +87,18 @@ public class AnalysisConfig {
 		
 		
 		
+		ConfigParameterDescription distanceSampleSizeParameter = new ConfigParameterDescription(
+				DISTANCE_SAMPLE_SIZE_KEY, LpeSupportedTypes.Integer);
+		distanceSampleSizeParameter.setDescription("ONLY for DBSCAN Analysis Strategy! Number of randomly sampled "
+				+ "pairs of points used to estimate the mean distance for the DBSCAN radius. "
+				+ "Series with fewer pairs use the exact mean.");
+		distanceSampleSizeParameter.setDefaultValue(String.valueOf(DISTANCE_SAMPLE_SIZE_DEFAULT));
+		distanceSampleSizeParameter.setRange(String.valueOf(2), String.valueOf(Integer.MAX_VALUE));
+		distanceSampleSizeParameter.setMandatory(false);
+
 		Set<ConfigParameterDescription> set = new HashSet<>();
 		set.add(mvaWindowSizeParameter);
+		set.add(distanceSampleSizeParameter);
 		set.add(parameter);
 		return set;
 	}
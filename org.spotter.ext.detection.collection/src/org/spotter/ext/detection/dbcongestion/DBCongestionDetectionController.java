@@ -27,11 +27,16 @@ import org.spotter.core.detection.AbstractDetectionController;
 import org.spotter.core.detection.IDetectionController;
 import org.spotter.core.detection.IExperimentReuser;
 import org.spotter.exceptions.WorkloadException;
+import org.spotter.ext.detection.utils.CounterRateSeries;
+import org.spotter.ext.detection.utils.ErlangC;
 import org.spotter.shared.configuration.ConfigKeys;
 import org.spotter.shared.result.model.SpotterResult;
 
 public class DBCongestionDetectionController extends AbstractDetectionController implements IExperimentReuser {
 
+	private static final int NUM_LOCK_WAITS_COUNTER = 0;
+	private static final int LOCK_TIME_COUNTER = 1;
+
 	private int requiredSignificantSteps;
 	private double requiredSignificanceLevel;
 	private double cpuThreshold;
@@ -165,7 +170,7 @@ public class DBCongestionDetectionController extends AbstractDetectionController
 
 			double actualThreshold = cpuThreshold;
 			if (qtStrategy) {
-				actualThreshold = LpeNumericUtils.getUtilizationForResponseTimeFactorQT(3, mapNumCores.get(processID)) * 0.9;
+				actualThreshold = ErlangC.getUtilizationForResponseTimeFactor(3, mapNumCores.get(processID)) * 0.9;
 			} else {
 				actualThreshold = cpuThreshold;
 			}
@@ -199,22 +204,15 @@ public class DBCongestionDetectionController extends AbstractDetectionController
 			Dataset tmpDataset = ParameterSelection.newSelection().select(NUMBER_OF_USERS_KEY, numUsers)
 					.select(DBStatisticsRecrod.PAR_PROCESS_ID, dbId).applyTo(dbDataset);
 
-			NumericPairList<Long, Long> numWaitsSeries = getNumWaitsTimeseries(tmpDataset);
-
-			NumericPairList<Long, Long> waitTimeSeries = getWaitTimeTimeseries(tmpDataset);
-			if (numWaitsSeries.size() != waitTimeSeries.size()) {
-				throw new RuntimeException("Unequal list sizes!");
-			}
+			CounterRateSeries lockSeries = getLockCounterSeries(tmpDataset);
+			long[] numWaits = lockSeries.getDeltas(NUM_LOCK_WAITS_COUNTER);
+			long[] waitTimes = lockSeries.getDeltas(LOCK_TIME_COUNTER);
 			List<Double> waitTimesPerLock = new ArrayList<>();
-			for (int i = 1; i < numWaitsSeries.size(); i++) {
-				long numWait_prev = numWaitsSeries.get(i - 1).getValue();
-				long waitTime_prev = waitTimeSeries.get(i - 1).getValue();
-				long numWait = numWaitsSeries.get(i).getValue();
-				long waitTime = waitTimeSeries.get(i).getValue();
-				if (numWait - numWait_prev == 0L) {
+			for (int i = 0; i < numWaits.length; i++) {
+				if (numWaits[i] == 0L) {
 					waitTimesPerLock.add(0.0);
 				} else {
-					waitTimesPerLock.add(((double) (waitTime - waitTime_prev) / ((double) (numWait - numWait_prev))));
+					waitTimesPerLock.add(((double) waitTimes[i]) / ((double) numWaits[i]));
 				}
 
 			}
@@ -291,23 +289,12 @@ public class DBCongestionDetectionController extends AbstractDetectionController
 		return descrBuilder.build();
 	}
 
-	private NumericPairList<Long, Long> getNumWaitsTimeseries(Dataset rtDataSet) {
-		NumericPairList<Long, Long> timeSeries = new NumericPairList<>();
-		for (DBStatisticsRecrod rec : rtDataSet.getRecords(DBStatisticsRecrod.class)) {
-			timeSeries.add(rec.getTimeStamp(), rec.getNumLockWaits());
+	private CounterRateSeries getLockCounterSeries(Dataset dbDataset) {
+		CounterRateSeries series = new CounterRateSeries(2);
+		for (DBStatisticsRecrod rec : dbDataset.getRecords(DBStatisticsRecrod.class)) {
+			series.add(rec.getTimeStamp(), rec.getNumLockWaits(), rec.getLockTime());
 		}
-		timeSeries.sort();
-		return timeSeries;
-	}
-
-	private NumericPairList<Long, Long> getWaitTimeTimeseries(Dataset rtDataSet) {
-		NumericPairList<Long, Long> timeSeries = new NumericPairList<>();
-		for (DBStatisticsRecrod rec : rtDataSet.getRecords(DBStatisticsRecrod.class)) {
-			timeSeries.add(rec.getTimeStamp(), rec.getLockTime());
-		}
-
-		timeSeries.sort();
-		return timeSeries;
+		return series;
 	}
 
 	private Map<String, Integer> getNumberOfCPUCores(Dataset cpuUtilDataset) {
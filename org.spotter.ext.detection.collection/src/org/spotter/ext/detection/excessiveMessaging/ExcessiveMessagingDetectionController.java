@@ -28,6 +28,8 @@ import org.spotter.core.detection.AbstractDetectionController;
 import org.spotter.core.detection.IDetectionController;
 import org.spotter.core.detection.IExperimentReuser;
 import org.spotter.exceptions.WorkloadException;
+import org.spotter.ext.detection.utils.CounterRateSeries;
+import org.spotter.ext.detection.utils.TrendTest;
 import org.spotter.shared.result.model.SpotterResult;
 
 public class ExcessiveMessagingDetectionController extends AbstractDetectionController implements IExperimentReuser {
@@ -35,6 +37,7 @@ public class ExcessiveMessagingDetectionController extends AbstractDetectionCont
 	private static final double TCP_PACKET_SIZE = 1500;
 	private static final double SPEED_100_MBIT = 100000000;
 	private static final double EPSILON_PERCENT = 0.05;
+	private static final long MS_IN_SECOND = 1000L;
 
 	private int requiredSignificantSteps;
 	private double requiredSignificanceLevel;
@@ -121,6 +124,11 @@ public class ExcessiveMessagingDetectionController extends AbstractDetectionCont
 				AbstractDetectionController.NUMBER_OF_USERS_KEY, Integer.class));
 		Collections.sort(users);
 		Set<String> queueNames = msgStatisticsDataset.getValueSet(JmsServerRecord.PAR_QUEUE_NAME, String.class);
+		Map<Integer, CounterRateSeries.Group<String>> enqueueCountsPerUsers = new HashMap<>();
+		for (Integer numUsers : users) {
+			enqueueCountsPerUsers.put(numUsers, getEnqueueCountSeries(ParameterSelection.newSelection()
+					.select(AbstractDetectionController.NUMBER_OF_USERS_KEY, numUsers).applyTo(msgStatisticsDataset)));
+		}
 		for (String queueName : queueNames) {
 			int significantSteps = 0;
 			int firstSignificantNumUsers = -1;
@@ -129,21 +137,14 @@ public class ExcessiveMessagingDetectionController extends AbstractDetectionCont
 			NumericPairList<Integer, Double> messageThroughputs = new NumericPairList<>();
 			boolean notZero = false;
 			for (Integer numUsers : users) {
-				Dataset tmpDataset = ParameterSelection.newSelection()
-						.select(AbstractDetectionController.NUMBER_OF_USERS_KEY, numUsers)
-						.select(JmsServerRecord.PAR_QUEUE_NAME, queueName).applyTo(msgStatisticsDataset);
-
-				List<Long> enqueueCounts = tmpDataset.getValues(JmsServerRecord.PAR_ENQUEUE_COUNT, Long.class);
-				List<Long> timeStamps = tmpDataset.getValues(JmsServerRecord.PAR_TIMESTAMP, Long.class);
-				long minTimestamp = LpeNumericUtils.min(timeStamps);
-				long maxTimestamp = LpeNumericUtils.max(timeStamps);
-				long minCount = LpeNumericUtils.min(enqueueCounts);
-				long maxCount = LpeNumericUtils.max(enqueueCounts);
-				if (maxCount - minCount > 0L) {
+				CounterRateSeries enqueueCounts = enqueueCountsPerUsers.get(numUsers).get(queueName);
+				if (enqueueCounts == null) {
+					continue;
+				}
+				if (enqueueCounts.getTotalIncrease(0) > 0L) {
 					notZero = true;
 				}
-				double msgThroughput = ((double) (maxCount - minCount))
-						/ ((double) (maxTimestamp - minTimestamp) * 0.001);
+				double msgThroughput = enqueueCounts.getAverageRate(0, MS_IN_SECOND);
 
 				messageThroughputs.add(numUsers, msgThroughput);
 
@@ -180,6 +181,20 @@ public class ExcessiveMessagingDetectionController extends AbstractDetectionCont
 		return false;
 	}
 
+	private CounterRateSeries.Group<String> getEnqueueCountSeries(Dataset msgStatisticsDataset) {
+		CounterRateSeries.Group<String> group = new CounterRateSeries.Group<>(1);
+		if (msgStatisticsDataset == null) {
+			return group;
+		}
+		List<String> queueNames = msgStatisticsDataset.getValues(JmsServerRecord.PAR_QUEUE_NAME, String.class);
+		List<Long> timeStamps = msgStatisticsDataset.getValues(JmsServerRecord.PAR_TIMESTAMP, Long.class);
+		List<Long> enqueueCounts = msgStatisticsDataset.getValues(JmsServerRecord.PAR_ENQUEUE_COUNT, Long.class);
+		for (int i = 0; i < queueNames.size(); i++) {
+			group.add(queueNames.get(i), timeStamps.get(i), enqueueCounts.get(i));
+		}
+		return group;
+	}
+
 	private boolean analyzeQueueSizes(DatasetCollection data, SpotterResult result) {
 
 		Dataset msgStatisticsDataset = data.getDataSet(JmsServerRecord.class);
@@ -190,6 +205,7 @@ public class ExcessiveMessagingDetectionController extends AbstractDetectionCont
 				AbstractDetectionController.NUMBER_OF_USERS_KEY, Integer.class));
 		Collections.sort(users);
 		Set<String> queueNames = msgStatisticsDataset.getValueSet(JmsServerRecord.PAR_QUEUE_NAME, String.class);
+		boolean steadyGrowthDetected = false;
 		for (String queueName : queueNames) {
 			List<Long> prevSizes = null;
 			int significantSteps = 0;
@@ -198,10 +214,18 @@ public class ExcessiveMessagingDetectionController extends AbstractDetectionCont
 			NumericPairList<Integer, Long> qSizesForChart = new NumericPairList<>();
 			boolean allZero = true;
 			for (Integer numUsers : users) {
-				List<Long> qSizes = LpeNumericUtils.filterOutliersUsingIQR(ParameterSelection.newSelection()
+				Dataset tmpDataset = ParameterSelection.newSelection()
 						.select(AbstractDetectionController.NUMBER_OF_USERS_KEY, numUsers)
-						.select(JmsServerRecord.PAR_QUEUE_NAME, queueName).applyTo(msgStatisticsDataset)
-						.getValues(JmsServerRecord.PAR_QUEUE_SIZE, Long.class));
+						.select(JmsServerRecord.PAR_QUEUE_NAME, queueName).applyTo(msgStatisticsDataset);
+				if (tmpDataset == null) {
+					continue;
+				}
+				List<Long> rawSizes = tmpDataset.getValues(JmsServerRecord.PAR_QUEUE_SIZE, Long.class);
+				if (analyzeQueueSizeTrend(queueName, numUsers,
+						tmpDataset.getValues(JmsServerRecord.PAR_TIMESTAMP, Long.class), rawSizes, result)) {
+					steadyGrowthDetected = true;
+				}
+				List<Long> qSizes = LpeNumericUtils.filterOutliersUsingIQR(rawSizes);
 				for (Long s : qSizes) {
 					if (s > 0L) {
 						allZero = false;
@@ -247,6 +271,32 @@ public class ExcessiveMessagingDetectionController extends AbstractDetectionCont
 				return true;
 			}
 		}
+		return steadyGrowthDetected;
+	}
+
+	/**
+	 * Checks whether the queue size grows steadily during a single
+	 * experiment, which indicates that the consumers cannot keep up with the
+	 * producers even if the load is constant.
+	 */
+	private boolean analyzeQueueSizeTrend(String queueName, int numUsers, List<Long> timestamps, List<Long> sizes,
+			SpotterResult result) {
+		if (sizes.size() < TrendTest.MIN_SAMPLES) {
+			return false;
+		}
+		double[] seconds = new double[sizes.size()];
+		double[] values = new double[sizes.size()];
+		for (int i = 0; i < values.length; i++) {
+			seconds[i] = ((double) timestamps.get(i)) / MS_IN_SECOND;
+			values[i] = sizes.get(i);
+		}
+		TrendTest trend = TrendTest.test(seconds, values);
+		if (trend.isIncreasing(requiredSignificanceLevel) && trend.getSlope() > 0.0) {
+			result.addMessage("Message queue " + queueName + " grows steadily with " + numUsers + " users by "
+					+ trend.getSlope() + " messages per second (Mann-Kendall p-value: " + trend.getPValueIncreasing()
+					+ ")!");
+			return true;
+		}
 		return false;
 	}
 
@@ -319,19 +369,13 @@ public class ExcessiveMessagingDetectionController extends AbstractDetectionCont
 					if (tmpDataset == null) {
 						continue interfaceLoop;
 					}
-					Set<Long> set = tmpDataset.getValueSet(NetworkRecord.PAR_TIMESTAMP, Long.class);
-					long startSend = LpeNumericUtils.min(set);
-					long endSend = LpeNumericUtils.max(set);
-					set = tmpDataset.getValueSet(NetworkRecord.PAR_TRANSFERRED_BYTES, Long.class);
-					long minNumSend = LpeNumericUtils.min(set);
-					long maxNumSend = LpeNumericUtils.max(set);
-					set = tmpDataset.getValueSet(NetworkRecord.PAR_RECEIVED_BYTES, Long.class);
-					long minNumReceived = LpeNumericUtils.min(set);
-					long maxNumReceived = LpeNumericUtils.max(set);
-
-					double sent = ((double) (maxNumSend - minNumSend) * 1000.0) / (double) (endSend - startSend);
-					double received = ((double) (maxNumReceived - minNumReceived) * 1000.0)
-							/ (double) (endSend - startSend);
+					CounterRateSeries ioSeries = CounterRateSeries.fromValues(
+							tmpDataset.getValues(NetworkRecord.PAR_TIMESTAMP, Long.class),
+							tmpDataset.getValues(NetworkRecord.PAR_TRANSFERRED_BYTES, Long.class),
+							tmpDataset.getValues(NetworkRecord.PAR_RECEIVED_BYTES, Long.class));
+
+					double sent = ioSeries.getAverageRate(0, MS_IN_SECOND);
+					double received = ioSeries.getAverageRate(1, MS_IN_SECOND);
 
 					double bandWidthUsage = Math.max(sent, received);
 					double util = bandWidthUsage / networkSpeed;
@@ -382,19 +426,13 @@ public class ExcessiveMessagingDetectionController extends AbstractDetectionCont
 					if (tmpDataset == null) {
 						continue interfaceLoop;
 					}
-					Set<Long> set = tmpDataset.getValueSet(NetworkRecord.PAR_TIMESTAMP, Long.class);
-					long startSend = LpeNumericUtils.min(set);
-					long endSend = LpeNumericUtils.max(set);
-					set = tmpDataset.getValueSet(NetworkRecord.PAR_TRANSFERRED_BYTES, Long.class);
-					long minNumSend = LpeNumericUtils.min(set);
-					long maxNumSend = LpeNumericUtils.max(set);
-					set = tmpDataset.getValueSet(NetworkRecord.PAR_RECEIVED_BYTES, Long.class);
-					long minNumReceived = LpeNumericUtils.min(set);
-					long maxNumReceived = LpeNumericUtils.max(set);
-
-					double sent = ((double) (maxNumSend - minNumSend) * 1000.0) / (double) (endSend - startSend);
-					double received = ((double) (maxNumReceived - minNumReceived) * 1000.0)
-							/ (double) (endSend - startSend);
+					CounterRateSeries ioSeries = CounterRateSeries.fromValues(
+							tmpDataset.getValues(NetworkRecord.PAR_TIMESTAMP, Long.class),
+							tmpDataset.getValues(NetworkRecord.PAR_TRANSFERRED_BYTES, Long.class),
+							tmpDataset.getValues(NetworkRecord.PAR_RECEIVED_BYTES, Long.class));
+
+					double sent = ioSeries.getAverageRate(0, MS_IN_SECOND);
+					double received = ioSeries.getAverageRate(1, MS_IN_SECOND);
 
 					double bandWidthUsage = Math.max(sent, received);
 					double util = bandWidthUsage / networkSpeed;
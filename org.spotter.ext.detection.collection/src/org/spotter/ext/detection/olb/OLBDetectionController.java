@@ -1,17 +1,26 @@
 package org.spotter.ext.detection.olb;
 
+import java.util.List;
+import java.util.Map;
+
 import org.aim.api.exceptions.InstrumentationException;
 import org.aim.api.exceptions.MeasurementException;
+import org.aim.api.measurement.AbstractRecord;
 import org.aim.api.measurement.dataset.DatasetCollection;
 import org.aim.artifacts.probes.ResponsetimeProbe;
 import org.aim.artifacts.probes.SQLQueryProbe;
+import org.aim.artifacts.records.ResponseTimeRecord;
+import org.aim.artifacts.records.SQLQueryRecord;
 import org.aim.artifacts.sampler.CPUSampler;
 import org.aim.artifacts.sampler.NetworkIOSampler;
 import org.aim.artifacts.scopes.EntryPointScope;
 import org.aim.artifacts.scopes.JDBCScope;
 import org.aim.description.InstrumentationDescription;
 import org.aim.description.builder.InstrumentationDescriptionBuilder;
+import org.lpe.common.config.GlobalConfiguration;
 import org.lpe.common.extension.IExtension;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.spotter.core.ProgressManager;
 import org.spotter.core.detection.AbstractDetectionController;
 import org.spotter.core.detection.AbstractDetectionExtension;
@@ -20,6 +29,11 @@ import org.spotter.core.detection.IExperimentReuser;
 import org.spotter.exceptions.WorkloadException;
 import org.spotter.ext.detection.olb.strategies.QTStrategy;
 import org.spotter.ext.detection.olb.strategies.TTestCpuThresholdStrategy;
+import org.spotter.ext.detection.utils.KneeSearch;
+import org.spotter.ext.detection.utils.ResponseTimeSummary;
+import org.spotter.ext.detection.utils.SequentialStepMonitor;
+import org.spotter.ext.detection.utils.Utils;
+import org.spotter.shared.configuration.ConfigKeys;
 import org.spotter.shared.result.model.SpotterResult;
 
 /**
@@ -30,9 +44,15 @@ import org.spotter.shared.result.model.SpotterResult;
  */
 public class OLBDetectionController extends AbstractDetectionController implements IExperimentReuser {
 
+	private static final Logger LOGGER = LoggerFactory.getLogger(OLBDetectionController.class);
 	private static final int SAMPLING_DELAY = 100;
+	private static final double MIN_GRANULARITY = 0.001;
+	private static final double GRANULARITY_RESOLUTION = 1000.0;
 
 	private int experimentSteps;
+	private double maxRecordRate;
+	private boolean adaptiveLoadSteps;
+	private int loadStepResolution;
 	private String analysisStrategy;
 	private String scope;
 	private IOLBAnalysisStrategy analysisStrategyImpl;
@@ -56,6 +76,18 @@ public class OLBDetectionController extends AbstractDetectionController implemen
 
 		scope = getProblemDetectionConfiguration().getProperty(OLBExtension.SCOPE_KEY, OLBExtension.ENTRY_SCOPE);
 
+		String maxRecordRateStr = getProblemDetectionConfiguration().getProperty(OLBExtension.MAX_RECORD_RATE_KEY);
+		maxRecordRate = maxRecordRateStr != null ? Double.parseDouble(maxRecordRateStr)
+				: OLBExtension.MAX_RECORD_RATE_DEFAULT;
+
+		adaptiveLoadSteps = Boolean.parseBoolean(getProblemDetectionConfiguration().getProperty(
+				OLBExtension.ADAPTIVE_LOAD_STEPS_KEY, String.valueOf(OLBExtension.ADAPTIVE_LOAD_STEPS_DEFAULT)));
+
+		String loadStepResolutionStr = getProblemDetectionConfiguration().getProperty(
+				OLBExtension.LOAD_STEP_RESOLUTION_KEY);
+		loadStepResolution = loadStepResolutionStr != null ? Integer.parseInt(loadStepResolutionStr)
+				: OLBExtension.LOAD_STEP_RESOLUTION_DEFAULT;
+
 		analysisStrategy = getProblemDetectionConfiguration().getProperty(OLBExtension.DETECTION_STRATEGY_KEY,
 				OLBExtension.QUEUEING_THEORY_STRATEGY);
 
@@ -80,6 +112,11 @@ public class OLBDetectionController extends AbstractDetectionController implemen
 
 		if (reuser) {
 			return 0;
+		} else if (adaptiveLoadSteps) {
+			// worst case, the search usually ends with fewer experiments
+			int maxUsers = GlobalConfiguration.getInstance().getPropertyAsInteger(ConfigKeys.WORKLOAD_MAXUSERS);
+			return ProgressManager.getInstance().calculateDefaultExperimentSeriesDuration(
+					KneeSearch.getMaxNumExperiments(maxUsers, loadStepResolution, getNumAdaptiveLoadSteps()));
 		} else {
 			return ProgressManager.getInstance().calculateDefaultExperimentSeriesDuration(experimentSteps);
 		}
@@ -89,27 +126,10 @@ public class OLBDetectionController extends AbstractDetectionController implemen
 	@Override
 	public void executeExperiments() throws InstrumentationException, MeasurementException, WorkloadException {
 		if (!reuser) {
-			// TODO: fix that
-			if (scope.equals(OLBExtension.DB_SCOPE)) {
-				instrumentApplication(getInstrumentationDescription(1.0));
-				runExperiment(this, 1);
-				uninstrumentApplication();
-
-				instrumentApplication(getInstrumentationDescription(1.0));
-				runExperiment(this, 125);
-				uninstrumentApplication();
-
-				instrumentApplication(getInstrumentationDescription(0.1));
-				runExperiment(this, 250);
-				uninstrumentApplication();
-
-				instrumentApplication(getInstrumentationDescription(0.1));
-				runExperiment(this, 375);
-				uninstrumentApplication();
-
-				instrumentApplication(getInstrumentationDescription(0.05));
-				runExperiment(this, 500);
-				uninstrumentApplication();
+			if (adaptiveLoadSteps) {
+				executeAdaptiveExperimentSeries();
+			} else if (scope.equals(OLBExtension.DB_SCOPE)) {
+				executeDBScopeExperiments();
 			} else {
 				executeDefaultExperimentSeries(this, experimentSteps, getInstrumentationDescription());
 			}
@@ -117,6 +137,141 @@ public class OLBDetectionController extends AbstractDetectionController implemen
 		}
 	}
 
+	/**
+	 * Runs the database scope experiments. The load steps are spread between
+	 * one user and the configured maximum number of users. The single user
+	 * experiment is executed with full granularity and serves as pilot run:
+	 * the record rate observed there determines the granularity of the
+	 * subsequent experiments, so that the instrumentation overhead stays
+	 * within the configured record budget.
+	 */
+	private void executeDBScopeExperiments() throws InstrumentationException, MeasurementException,
+			WorkloadException {
+		int maxUsers = GlobalConfiguration.getInstance().getPropertyAsInteger(ConfigKeys.WORKLOAD_MAXUSERS);
+		List<Integer> userSteps = Utils.calculateLoadSteps(maxUsers, experimentSteps - 1);
+
+		instrumentApplication(getInstrumentationDescription(1.0));
+		runExperiment(this, userSteps.get(0));
+		double recordRatePerUser = getPilotRecordRate() / userSteps.get(0);
+		uninstrumentApplication();
+
+		for (int numUsers : userSteps.subList(1, userSteps.size())) {
+			double granularity = calculateGranularity(recordRatePerUser, numUsers, maxRecordRate);
+			LOGGER.info("OLB database scope experiment with {} users uses granularity {}", numUsers, granularity);
+			instrumentApplication(getInstrumentationDescription(granularity));
+			runExperiment(this, numUsers);
+			uninstrumentApplication();
+		}
+	}
+
+	/**
+	 * Runs experiments at the loads chosen by a bisection search for the
+	 * number of users where the response times start to increase
+	 * considerably, followed by evenly spaced load steps up to that number of
+	 * users, or up to the maximum load if the response times do not saturate.
+	 * For the database scope, the first experiment of the search (single user)
+	 * is the pilot run determining the granularity of all further experiments.
+	 */
+	private void executeAdaptiveExperimentSeries() throws InstrumentationException, MeasurementException,
+			WorkloadException {
+		int maxUsers = GlobalConfiguration.getInstance().getPropertyAsInteger(ConfigKeys.WORKLOAD_MAXUSERS);
+		KneeSearch search = new KneeSearch(maxUsers, loadStepResolution, KneeSearch.KNEE_FACTOR_DEFAULT);
+		final boolean dbScope = scope.equals(OLBExtension.DB_SCOPE);
+
+		KneeSearch.ILoadExperiment experiment = new KneeSearch.ILoadExperiment() {
+			private double recordRatePerUser = -1.0;
+
+			@Override
+			public Map<String, ResponseTimeSummary> run(int numUsers) throws InstrumentationException,
+					MeasurementException, WorkloadException {
+				if (dbScope) {
+					double granularity = calculateGranularity(recordRatePerUser, numUsers, maxRecordRate);
+					LOGGER.info("OLB database scope experiment with {} users uses granularity {}", numUsers,
+							granularity);
+					instrumentApplication(getInstrumentationDescription(granularity));
+				}
+				runExperiment(OLBDetectionController.this, numUsers);
+				if (dbScope) {
+					uninstrumentApplication();
+					if (recordRatePerUser < 0.0) {
+						// the record rate needs all records, not only the
+						// response times
+						List<AbstractRecord> records = getMeasurementController().getMeasurementData()
+								.getRecords();
+						recordRatePerUser = getRecordRate(records) / numUsers;
+						return SequentialStepMonitor.summarizeByOperation(records);
+					}
+				}
+				return SequentialStepMonitor.summarizeByOperation(getMeasurementController());
+			}
+		};
+
+		if (!dbScope) {
+			instrumentApplication(getInstrumentationDescription());
+		}
+		int kneeUsers = search.search(experiment);
+		search.measureLoadSteps(experiment, kneeUsers, getNumAdaptiveLoadSteps());
+		if (!dbScope) {
+			uninstrumentApplication();
+		}
+		LOGGER.info("OLB detection measured loads {}, response times saturate at {} users.",
+				search.getMeasuredLoads(), kneeUsers);
+	}
+
+	private int getNumAdaptiveLoadSteps() {
+		return Math.max(experimentSteps, 2);
+	}
+
+	/**
+	 * Calculates the instrumentation granularity for the given load, assuming
+	 * that the record rate grows linearly with the number of users.
+	 * 
+	 * @param recordRatePerUser
+	 *            records per second and user observed in the pilot run, or a
+	 *            negative value if unknown
+	 * @param numUsers
+	 *            number of users of the experiment
+	 * @param maxRecordRate
+	 *            records per second the instrumentation may produce
+	 * @return granularity in the range [0.001, 1]
+	 */
+	public static double calculateGranularity(double recordRatePerUser, int numUsers, double maxRecordRate) {
+		if (recordRatePerUser <= 0.0) {
+			return 1.0;
+		}
+		double granularity = maxRecordRate / (recordRatePerUser * numUsers);
+		granularity = Math.floor(granularity * GRANULARITY_RESOLUTION) / GRANULARITY_RESOLUTION;
+		return Math.max(MIN_GRANULARITY, Math.min(1.0, granularity));
+	}
+
+	private double getPilotRecordRate() {
+		try {
+			return getRecordRate(getMeasurementController().getMeasurementData().getRecords());
+		} catch (MeasurementException e) {
+			LOGGER.warn("Could not determine record rate of pilot run, using full granularity.", e);
+			return -1.0;
+		}
+	}
+
+	private static double getRecordRate(List<AbstractRecord> records) {
+		long minTimestamp = Long.MAX_VALUE;
+		long maxTimestamp = Long.MIN_VALUE;
+		long numRecords = 0;
+		for (AbstractRecord record : records) {
+			if (record instanceof ResponseTimeRecord || record instanceof SQLQueryRecord) {
+				minTimestamp = Math.min(minTimestamp, record.getTimeStamp());
+				maxTimestamp = Math.max(maxTimestamp, record.getTimeStamp());
+				numRecords++;
+			}
+		}
+		double durationSeconds = numRecords > 1 ? ((double) (maxTimestamp - minTimestamp)) / SECOND
+				: GlobalConfiguration.getInstance().getPropertyAsDouble(ConfigKeys.EXPERIMENT_DURATION);
+		if (durationSeconds <= 0.0) {
+			durationSeconds = GlobalConfiguration.getInstance().getPropertyAsDouble(ConfigKeys.EXPERIMENT_DURATION);
+		}
+		return numRecords / durationSeconds;
+	}
+
 	@Override
 	protected SpotterResult analyze(DatasetCollection data) {
 		return analysisStrategyImpl.analyze(data);
@@ -26,6 +26,12 @@ public class OLBExtension extends AbstractDetectionExtension {
 	public static final String SYNC_SCOPE = "synchronization scope";
 	public static final String DB_SCOPE = "database scope";
 	public static final int EXPERIMENT_STEPS_DEFAULT = 4;
+	public static final String MAX_RECORD_RATE_KEY = "maxRecordsPerSecond";
+	public static final double MAX_RECORD_RATE_DEFAULT = 2000.0;
+	public static final String ADAPTIVE_LOAD_STEPS_KEY = "adaptiveLoadSteps";
+	public static final boolean ADAPTIVE_LOAD_STEPS_DEFAULT = false;
+	public static final String LOAD_STEP_RESOLUTION_KEY = "loadStepResolution";
+	public static final int LOAD_STEP_RESOLUTION_DEFAULT = 5;
 	
 	protected static final String DETECTION_STRATEGY_KEY = "strategy";
 	protected static final String QUEUEING_THEORY_STRATEGY = "queueing theory strategy";
@@ -74,6 +80,33 @@ public class OLBExtension extends AbstractDetectionExtension {
 				+ "different number of users between 1 and max number of users.");
 		return numExperimentsParameter;
 	}
+	private ConfigParameterDescription createMaxRecordRateParameter() {
+		ConfigParameterDescription maxRecordRateParameter = new ConfigParameterDescription(MAX_RECORD_RATE_KEY,
+				LpeSupportedTypes.Double);
+		maxRecordRateParameter.setDefaultValue(String.valueOf(MAX_RECORD_RATE_DEFAULT));
+		maxRecordRateParameter.setRange(String.valueOf(1.0), String.valueOf(Double.MAX_VALUE));
+		maxRecordRateParameter.setDescription("ONLY for database scope! Number of measurement records per second "
+				+ "the instrumentation may produce. The instrumentation granularity of each experiment "
+				+ "is derived from this budget and the record rate observed in the single user experiment.");
+		return maxRecordRateParameter;
+	}
+	private ConfigParameterDescription createAdaptiveLoadStepsParameter() {
+		ConfigParameterDescription adaptiveLoadStepsParameter = new ConfigParameterDescription(
+				ADAPTIVE_LOAD_STEPS_KEY, LpeSupportedTypes.Boolean);
+		adaptiveLoadStepsParameter.setDefaultValue(String.valueOf(ADAPTIVE_LOAD_STEPS_DEFAULT));
+		adaptiveLoadStepsParameter.setDescription("If true, the range of users is bisected towards the "
+				+ "saturation point first and the evenly spaced steps end at the saturation point.");
+		return adaptiveLoadStepsParameter;
+	}
+	private ConfigParameterDescription createLoadStepResolutionParameter() {
+		ConfigParameterDescription loadStepResolutionParameter = new ConfigParameterDescription(
+				LOAD_STEP_RESOLUTION_KEY, LpeSupportedTypes.Integer);
+		loadStepResolutionParameter.setDefaultValue(String.valueOf(LOAD_STEP_RESOLUTION_DEFAULT));
+		loadStepResolutionParameter.setRange(String.valueOf(1), String.valueOf(Integer.MAX_VALUE));
+		loadStepResolutionParameter.setDescription("ONLY for adaptive load steps! Width of the user range "
+				+ "around the saturation point at which the search stops.");
+		return loadStepResolutionParameter;
+	}
 	private ConfigParameterDescription createScopeParameter() {
 		ConfigParameterDescription scopeParameter = new ConfigParameterDescription(SCOPE_KEY,
 				LpeSupportedTypes.String);
@@ -97,6 +130,9 @@ public class OLBExtension extends AbstractDetectionExtension {
 		addConfigParameter(createStrategyParameter());
 		addConfigParameter(createScopeParameter());
 		addConfigParameter(createNumExperimentsParameter());
+		addConfigParameter(createMaxRecordRateParameter());
+		addConfigParameter(createAdaptiveLoadStepsParameter());
+		addConfigParameter(createLoadStepResolutionParameter());
 	}
 
 }
@@ -10,6 +10,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -34,6 +35,8 @@ import org.spotter.core.detection.AbstractDetectionController;
 import org.spotter.ext.detection.olb.IOLBAnalysisStrategy;
 import org.spotter.ext.detection.olb.OLBDetectionController;
 import org.spotter.ext.detection.olb.OLBExtension;
+import org.spotter.ext.detection.utils.CounterRateSeries;
+import org.spotter.ext.detection.utils.ErlangC;
 import org.spotter.shared.result.model.SpotterResult;
 
 /**
@@ -51,9 +54,18 @@ public class QTStrategy implements IOLBAnalysisStrategy {
 	private static final double SIG_LEVEL = 0.05;
 	private static final int NUM_REQ_SIG_STEPS = 2;
 	private String scope;
+	private final Map<NumericPairList<Integer, Double>, GroupedValues> groupedValuesCache = new IdentityHashMap<>();
 
 	@Override
 	public SpotterResult analyze(DatasetCollection data) {
+		try {
+			return analyzeData(data);
+		} finally {
+			groupedValuesCache.clear();
+		}
+	}
+
+	private SpotterResult analyzeData(DatasetCollection data) {
 		SpotterResult result = new SpotterResult();
 
 		Dataset rtDataset = data.getDataSet(ResponseTimeRecord.class);
@@ -188,6 +200,31 @@ public class QTStrategy implements IOLBAnalysisStrategy {
 		Map<String, NumericPairList<Integer, Double>> rtThresholdsForChart = new HashMap<String, NumericPairList<Integer, Double>>();
 		Map<String, NumericPairList<Integer, Double>> chartResponseTimes = new HashMap<String, NumericPairList<Integer, Double>>();
 
+		// the queueing theory factors only depend on the resources, hence,
+		// they are calculated once for all operations
+		Map<Integer, Double> thresholdFactors = new HashMap<>();
+		boolean fixThresholdExceeded = false;
+		for (String rersourceID : utilsMap.keySet()) {
+			NumericPairList<Integer, Double> utils = utilsMap.get(rersourceID);
+			int numServers = numServersMap.get(rersourceID);
+			createUtilChart(result, utilsChartsCreatedFor, rersourceID, utils);
+			for (int numUsers : numUsersList) {
+				double utilization = getValueForNumUsers(utils, numUsers);
+				if (utilization > 0.9) {
+					fixThresholdExceeded = true;
+				}
+				double saveUtil = Math.min(0.999, utilization + 0.1);
+				// response time threshold factor derived from queueing theory
+				// for multi-server queues
+				double factor = ErlangC.responseTimeFactor(numServers, saveUtil);
+				Double prevFactor = thresholdFactors.get(numUsers);
+				thresholdFactors.put(numUsers, prevFactor == null ? factor : Math.max(factor, prevFactor));
+			}
+		}
+		if (fixThresholdExceeded) {
+			return;
+		}
+
 		operationLoop: for (String operation : responseTimesMap.keySet()) {
 			NumericPairList<Integer, Double> responseTimes = responseTimesMap.get(operation);
 			double singleUserResponseTime = 0;
@@ -197,36 +234,14 @@ public class QTStrategy implements IOLBAnalysisStrategy {
 				continue operationLoop;
 			}
 			singleUserResponseTime = Math.max(singleUserResponseTime, 15.0);
-			boolean qtDetected = true;
 			int i = 0;
 
 			Map<Integer, Double> thresholds = new HashMap<>();
-
-			boolean fixThresholdExceeded = false;
-			for (String rersourceID : utilsMap.keySet()) {
-				NumericPairList<Integer, Double> utils = utilsMap.get(rersourceID);
-				int numServers = numServersMap.get(rersourceID);
-				createUtilChart(result, utilsChartsCreatedFor, rersourceID, utils);
-				for (int numUsers : numUsersList) {
-					double utilization = getValueForNumUsers(utils, numUsers);
-					if(utilization>0.9){
-						fixThresholdExceeded=true;
-					}
-					double saveUtil = Math.min(0.999, utilization + 0.1);
-					if (!thresholds.containsKey(numUsers)) {
-						thresholds.put(numUsers, 0.0);
-					}
-					// response time threshold derived from queueing theory for
-					// multi-server queues
-					double t = singleUserResponseTime / (numServers * (1 - saveUtil))
-							* LpeNumericUtils.calculateErlangsCFormula(numServers, saveUtil) + singleUserResponseTime;
-					thresholds.put(numUsers, Math.max(t, thresholds.get(numUsers)));
-				}
-
-			}
-			if(fixThresholdExceeded){
-				continue operationLoop;
+			for (int numUsers : numUsersList) {
+				Double factor = thresholdFactors.get(numUsers);
+				thresholds.put(numUsers, factor == null ? 0.0 : singleUserResponseTime * factor);
 			}
+
 			rtThresholdsForChart.put(operation, new NumericPairList<Integer, Double>());
 			chartResponseTimes.put(operation, new NumericPairList<Integer, Double>());
 			boolean responseTimesUnderThresholdCurve = true;
@@ -325,26 +340,37 @@ public class QTStrategy implements IOLBAnalysisStrategy {
 	}
 
 	private double getValueForNumUsers(NumericPairList<Integer, Double> pairList, int numUsers) {
-		List<Double> values = getValuesForNumUsers(pairList, numUsers);
+		double[] values = getGroupedValues(pairList).get(numUsers);
 
-		if (!values.isEmpty()) {
-			return LpeNumericUtils.average(values);
+		if (values.length > 0) {
+			double sum = 0.0;
+			for (double value : values) {
+				sum += value;
+			}
+			return sum / (double) values.length;
 		}
 		throw new IllegalArgumentException("Data not found!");
 	}
 
 	private List<Double> getValuesForNumUsers(NumericPairList<Integer, Double> pairList, int numUsers) {
-		List<Double> values = new ArrayList<>();
-		for (NumericPair<Integer, Double> pair : pairList) {
-			if (pair.getKey().equals(numUsers)) {
-				values.add(pair.getValue());
-
-			}
+		double[] values = getGroupedValues(pairList).get(numUsers);
+		List<Double> valueList = new ArrayList<>(values.length);
+		for (double value : values) {
+			valueList.add(value);
 		}
-		return values;
+		return valueList;
 
 	}
 
+	private GroupedValues getGroupedValues(NumericPairList<Integer, Double> pairList) {
+		GroupedValues groupedValues = groupedValuesCache.get(pairList);
+		if (groupedValues == null) {
+			groupedValues = new GroupedValues(pairList);
+			groupedValuesCache.put(pairList, groupedValues);
+		}
+		return groupedValues;
+	}
+
 	private List<Integer> getNumUsersList(Dataset rtDataset) {
 		List<Integer> numUsersList = new ArrayList<>(rtDataset.getValueSet(
 				AbstractDetectionController.NUMBER_OF_USERS_KEY, Integer.class));
@@ -390,7 +416,7 @@ public class QTStrategy implements IOLBAnalysisStrategy {
 			Dataset sqlDataset, SpotterResult result, final List<Integer> numUsersList) {
 
 		Map<String, NumericPairList<Integer, Double>> resultMap = new HashMap<>();
-		List<SQLQueryRecord> sqlRecords = sqlDataset.getRecords(SQLQueryRecord.class);
+		Map<Long, SQLQueryRecord> sqlRecordsByCallId = indexByCallId(sqlDataset.getRecords(SQLQueryRecord.class));
 		operationLoop: for (String operation : rtDataset.getValueSet(ResponseTimeRecord.PAR_OPERATION, String.class)) {
 
 			if (operation.contains("execute")) {
@@ -411,7 +437,7 @@ public class QTStrategy implements IOLBAnalysisStrategy {
 					}
 					Map<String, List<Long>> responsetimesMap = new HashMap<>();
 					for (ResponseTimeRecord rtRecord : tmpRTDataset.getRecords(ResponseTimeRecord.class)) {
-						SQLQueryRecord sqlRecord = findRecordForCallID(sqlRecords, rtRecord.getCallId());
+						SQLQueryRecord sqlRecord = sqlRecordsByCallId.get(rtRecord.getCallId());
 						if (sqlRecord == null) {
 							continue;
 						}
@@ -530,13 +556,15 @@ public class QTStrategy implements IOLBAnalysisStrategy {
 		}
 	}
 
-	private SQLQueryRecord findRecordForCallID(List<SQLQueryRecord> sqlRecords, long callID) {
+	private Map<Long, SQLQueryRecord> indexByCallId(List<SQLQueryRecord> sqlRecords) {
+		Map<Long, SQLQueryRecord> recordsByCallId = new HashMap<>(sqlRecords.size() * 2);
 		for (SQLQueryRecord rec : sqlRecords) {
-			if (rec.getCallId() == callID) {
-				return rec;
+			// keep the first record per call id
+			if (!recordsByCallId.containsKey(rec.getCallId())) {
+				recordsByCallId.put(rec.getCallId(), rec);
 			}
 		}
-		return null;
+		return recordsByCallId;
 
 	}
 
@@ -595,24 +623,13 @@ public class QTStrategy implements IOLBAnalysisStrategy {
 							.select(NetworkRecord.PAR_PROCESS_ID, processID)
 							.select(NetworkRecord.PAR_NETWORK_INTERFACE, nwInterfaceName).applyTo(networkIODataset);
 
-					List<Long> timestamps = tmpNetowrkIODataset.getValues(NetworkRecord.PAR_TIMESTAMP, Long.class);
-					long minTimestamp = LpeNumericUtils.min(timestamps);
-					long maxTimestamp = LpeNumericUtils.max(timestamps);
-
-					List<Long> receivedBytes = tmpNetowrkIODataset.getValues(NetworkRecord.PAR_RECEIVED_BYTES,
-							Long.class);
-					long minReceivedBytes = LpeNumericUtils.min(receivedBytes);
-					long maxReceivedBytes = LpeNumericUtils.max(receivedBytes);
-
-					List<Long> transferredBytes = tmpNetowrkIODataset.getValues(NetworkRecord.PAR_TRANSFERRED_BYTES,
-							Long.class);
-					long minTransferredBytes = LpeNumericUtils.min(transferredBytes);
-					long maxTransferredBytes = LpeNumericUtils.max(transferredBytes);
+					CounterRateSeries ioSeries = CounterRateSeries.fromValues(
+							tmpNetowrkIODataset.getValues(NetworkRecord.PAR_TIMESTAMP, Long.class),
+							tmpNetowrkIODataset.getValues(NetworkRecord.PAR_RECEIVED_BYTES, Long.class),
+							tmpNetowrkIODataset.getValues(NetworkRecord.PAR_TRANSFERRED_BYTES, Long.class));
 
-					double utilReceived = (((double) (MS_IN_SECOND * (maxReceivedBytes - minReceivedBytes))) / ((double) (maxTimestamp - minTimestamp)))
-							/ speed;
-					double utilTransferred = (((double) (MS_IN_SECOND * (maxTransferredBytes - minTransferredBytes))) / ((double) (maxTimestamp - minTimestamp)))
-							/ speed;
+					double utilReceived = ioSeries.getAverageRate(0, MS_IN_SECOND) / speed;
+					double utilTransferred = ioSeries.getAverageRate(1, MS_IN_SECOND) / speed;
 					networkUtilPairList.add(numUsers, Math.max(utilReceived, utilTransferred));
 				}
 
@@ -662,4 +679,34 @@ public class QTStrategy implements IOLBAnalysisStrategy {
 
 	}
 
+	/**
+	 * Values of a pair list grouped by number of users into primitive arrays.
+	 */
+	private static class GroupedValues {
+		private final Map<Integer, double[]> valuesPerNumUsers = new HashMap<>();
+
+		GroupedValues(NumericPairList<Integer, Double> pairList) {
+			Map<Integer, Integer> counts = new HashMap<>();
+			for (NumericPair<Integer, Double> pair : pairList) {
+				Integer count = counts.get(pair.getKey());
+				counts.put(pair.getKey(), count == null ? 1 : count + 1);
+			}
+			Map<Integer, Integer> positions = new HashMap<>();
+			for (Entry<Integer, Integer> entry : counts.entrySet()) {
+				valuesPerNumUsers.put(entry.getKey(), new double[entry.getValue()]);
+				positions.put(entry.getKey(), 0);
+			}
+			for (NumericPair<Integer, Double> pair : pairList) {
+				int pos = positions.get(pair.getKey());
+				valuesPerNumUsers.get(pair.getKey())[pos] = pair.getValue();
+				positions.put(pair.getKey(), pos + 1);
+			}
+		}
+
+		double[] get(int numUsers) {
+			double[] values = valuesPerNumUsers.get(numUsers);
+			return values == null ? new double[0] : values;
+		}
+	}
+
 }
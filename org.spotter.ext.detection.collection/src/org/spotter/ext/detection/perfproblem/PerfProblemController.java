@@ -21,7 +21,6 @@ import org.aim.api.exceptions.InstrumentationException;
 import org.aim.api.exceptions.MeasurementException;
 import org.aim.api.measurement.dataset.Dataset;
 import org.aim.api.measurement.dataset.DatasetCollection;
-import org.aim.api.measurement.dataset.ParameterSelection;
 import org.aim.artifacts.probes.ResponsetimeProbe;
 import org.aim.artifacts.records.ResponseTimeRecord;
 import org.aim.artifacts.scopes.EntryPointScope;
@@ -35,7 +34,11 @@ import org.spotter.core.chartbuilder.AnalysisChartBuilder;
 import org.spotter.core.detection.AbstractDetectionController;
 import org.spotter.core.detection.IDetectionController;
 import org.spotter.exceptions.WorkloadException;
-import org.spotter.ext.detection.utils.Utils;
+import org.spotter.ext.detection.utils.LogBucketHistogram;
+import org.spotter.ext.detection.utils.ResponseTimeSeries;
+import org.spotter.ext.detection.utils.ResponseTimeSeriesCache;
+import org.spotter.ext.detection.utils.ThresholdSweep;
+import org.spotter.ext.detection.utils.TimeSeriesPyramid;
 import org.spotter.shared.configuration.ConfigKeys;
 import org.spotter.shared.result.model.SpotterResult;
 
@@ -49,6 +52,9 @@ public class PerfProblemController extends AbstractDetectionController {
 
 	private static final double _100_PERCENT = 100.0;
 
+	private int histogramPrecision;
+	private long[] sweepThresholds;
+
 	/**
 	 * Constructor.
 	 * 
@@ -67,7 +73,12 @@ public class PerfProblemController extends AbstractDetectionController {
 
 	@Override
 	public void loadProperties() {
-
+		String histogramPrecisionStr = getProblemDetectionConfiguration().getProperty(
+				PerfProblemExtension.HISTOGRAM_PRECISION_KEY);
+		histogramPrecision = histogramPrecisionStr != null ? Integer.parseInt(histogramPrecisionStr)
+				: PerfProblemExtension.HISTOGRAM_PRECISION_DEFAULT;
+		sweepThresholds = ThresholdSweep.parseThresholds(getProblemDetectionConfiguration().getProperty(
+				ThresholdSweep.THRESHOLD_SWEEP_KEY));
 	}
 
 	private InstrumentationDescription getInstrumentationDescription() {
@@ -96,25 +107,38 @@ public class PerfProblemController extends AbstractDetectionController {
 			return result;
 		}
 
-		for (String operation : rtDataset.getValueSet(ResponseTimeRecord.PAR_OPERATION, String.class)) {
-			ParameterSelection selectOperation = new ParameterSelection().select(ResponseTimeRecord.PAR_OPERATION,
-					operation);
-			Dataset operationSpecificDataset = selectOperation.applyTo(rtDataset);
-
-			NumericPairList<Long, Double> responseTimeSeries = Utils.toTimestampRTPairs(operationSpecificDataset);
-			List<Double> responseTimes = responseTimeSeries.getValueList();
-			int reqViolationsCount = countRequirementViolations(perfReqThreshold, responseTimes);
+		ThresholdSweep sweep = new ThresholdSweep(sweepThresholds, "violations [%]");
+		for (String operation : ResponseTimeSeriesCache.getOperations(rtDataset)) {
+			ResponseTimeSeries series = ResponseTimeSeriesCache.getSeries(rtDataset, operation);
+			LogBucketHistogram histogram = new LogBucketHistogram(histogramPrecision);
+			for (int i = 0; i < series.size(); i++) {
+				histogram.recordValue((long) series.getResponseTime(i));
+			}
+			long reqViolationsCount = histogram.getCountAbove((long) Math.floor(perfReqThreshold));
+			for (long threshold : sweepThresholds) {
+				double violations = ((double) histogram.getCountAbove(threshold))
+						/ ((double) histogram.getTotalCount());
+				sweep.addVerdict(operation, threshold, violations > 1.0 - perfReqConfidence, violations
+						* _100_PERCENT);
+			}
 
-			double percentageViolations = ((double) reqViolationsCount) / ((double) responseTimes.size());
+			double percentageViolations = ((double) reqViolationsCount) / ((double) histogram.getTotalCount());
 			boolean detected = false;
 			if (percentageViolations > 1.0 - perfReqConfidence) {
 				result.addMessage("Performance Problem detected in operation: " + operation);
+				result.addMessage(String.format("%.1f%% of the requests of operation %s took up to %d ms",
+						perfReqConfidence * _100_PERCENT, operation,
+						histogram.getValueAtPercentile(perfReqConfidence * _100_PERCENT)));
 				result.setDetected(true);
 				detected = true;
 			}
 
-			createChart(perfReqThreshold, perfReqConfidence, result, operation, responseTimes, responseTimeSeries,
-					detected);
+			createChart(perfReqThreshold, perfReqConfidence, result, operation, series.toNumericPairList()
+					.getValueList(), series.getPyramid().downsample(TimeSeriesPyramid.DEFAULT_CHART_POINTS), detected);
+		}
+
+		if (sweepThresholds.length > 0) {
+			sweep.store(getResultManager(), result);
 		}
 
 		return result;
@@ -145,16 +169,6 @@ public class PerfProblemController extends AbstractDetectionController {
 		getResultManager().storeImageChartResource(chartBuilder, prefix + "Response Times", result);
 	}
 
-	private int countRequirementViolations(double perfReqThreshold, List<Double> responseTimes) {
-		int count = 0;
-		for (Double rt : responseTimes) {
-			if (rt > perfReqThreshold) {
-				count++;
-			}
-		}
-		return count;
-	}
-
 	@Override
 	public long getExperimentSeriesDuration() {
 		return ProgressManager.getInstance().calculateDefaultExperimentSeriesDuration(1);
@@ -15,8 +15,12 @@
  */
 package org.spotter.ext.detection.perfproblem;
 
+import org.lpe.common.config.ConfigParameterDescription;
+import org.lpe.common.util.LpeSupportedTypes;
 import org.spotter.core.detection.AbstractDetectionExtension;
 import org.spotter.core.detection.IDetectionController;
+import org.spotter.ext.detection.utils.LogBucketHistogram;
+import org.spotter.ext.detection.utils.ThresholdSweep;
 
 /**
  * One Lane Bridge detection extension.
@@ -25,6 +29,9 @@ import org.spotter.core.detection.IDetectionController;
  * 
  */
 public class PerfProblemExtension extends AbstractDetectionExtension {
+	public static final String HISTOGRAM_PRECISION_KEY = "histogramPrecision";
+	public static final int HISTOGRAM_PRECISION_DEFAULT = 3;
+
 	@Override
 	public String getName() {
 		return "Performance Problem";
@@ -35,9 +42,21 @@ public class PerfProblemExtension extends AbstractDetectionExtension {
 		return new PerfProblemController(this);
 	}
 
+	private ConfigParameterDescription createHistogramPrecisionParameter() {
+		ConfigParameterDescription histogramPrecisionParameter = new ConfigParameterDescription(
+				HISTOGRAM_PRECISION_KEY, LpeSupportedTypes.Integer);
+		histogramPrecisionParameter.setDefaultValue(String.valueOf(HISTOGRAM_PRECISION_DEFAULT));
+		histogramPrecisionParameter.setRange(String.valueOf(LogBucketHistogram.MIN_SIGNIFICANT_DIGITS),
+				String.valueOf(LogBucketHistogram.MAX_SIGNIFICANT_DIGITS));
+		histogramPrecisionParameter.setDescription("Number of significant decimal digits of the response time "
+				+ "histograms. Response times below 2 * 10^digits milliseconds are counted exactly.");
+		return histogramPrecisionParameter;
+	}
+
 	@Override
 	protected void initializeConfigurationParameters() {
-
+		addConfigParameter(createHistogramPrecisionParameter());
+		addConfigParameter(ThresholdSweep.createThresholdSweepParameter());
 	}
 
 }
@@ -22,6 +22,7 @@ import org.lpe.common.config.ConfigParameterDescription;
 import org.lpe.common.util.LpeSupportedTypes;
 import org.spotter.core.detection.AbstractDetectionExtension;
 import org.spotter.core.detection.IDetectionController;
+import org.spotter.ext.detection.utils.TrendTest;
 
 /**
  * The ramp antipattern detection extension.
@@ -43,12 +44,25 @@ public class RampExtension extends AbstractDetectionExtension {
 	public static final String KEY_CPU_UTILIZATION_THRESHOLD = "maxCpuUtilization";
 	public static final String KEY_EXPERIMENT_STEPS = "numExperiments";
 	public static final String KEY_LIN_SLOPE = "linear slope threhsold";
+	public static final String KEY_SEQUENTIAL_TEST = "sequentialTest";
+	public static final String KEY_REGRESSION_ESTIMATOR = "regressionEstimator";
+	public static final String KEY_GROWTH_TEST = "directGrowthTest";
+	public static final String KEY_PERMUTATION_BLOCK_LENGTH = "permutationBlockLength";
+	public static final String KEY_PERMUTATION_SEED = "permutationSeed";
+
+	public static final String BOOTSTRAP_T_TEST = "bootstrap t-test";
+	public static final String BLOCK_PERMUTATION_TEST = "block permutation test";
 
 	public static final double STIMULATION_PHASE_DURATION_DEFAULT = 1.5; // [Sec]
 	public static final int EXPERIMENT_STEPS_DEFAULT = 3;
 	public static final double REQUIRED_SIGNIFICANCE_LEVEL_DEFAULT = 0.05; // [0-1]
 	public static final double LIN_SLOPE_DEFAULT = 0.01; // [ms / ms]
 	public static final int REQUIRED_SIGNIFICANT_STEPS_DEFAULT = 2;
+	public static final boolean SEQUENTIAL_TEST_DEFAULT = false;
+	public static final String REGRESSION_ESTIMATOR_DEFAULT = TrendTest.LEAST_SQUARES_ESTIMATOR;
+	public static final String GROWTH_TEST_DEFAULT = BOOTSTRAP_T_TEST;
+	public static final int PERMUTATION_BLOCK_LENGTH_DEFAULT = 0;
+	public static final long PERMUTATION_SEED_DEFAULT = 1L;
 
 	@Override
 	public String getName() {
@@ -71,6 +85,60 @@ public class RampExtension extends AbstractDetectionExtension {
 		return parameter;
 	}
 
+	private ConfigParameterDescription createRegressionEstimatorParameter() {
+		ConfigParameterDescription parameter = new ConfigParameterDescription(KEY_REGRESSION_ESTIMATOR,
+				LpeSupportedTypes.String);
+		parameter.setOptions(TrendTest.getEstimatorOptions());
+		parameter.setDefaultValue(REGRESSION_ESTIMATOR_DEFAULT);
+		parameter.setDescription("ONLY for Linear Regression Strategy! Estimator of the linear slope. "
+				+ "Theil-Sen takes the median of all pairwise slopes and is not affected by single outliers, "
+				+ "e.g. caused by garbage collection pauses.");
+		return parameter;
+	}
+
+	private ConfigParameterDescription createGrowthTestParameter() {
+		ConfigParameterDescription parameter = new ConfigParameterDescription(KEY_GROWTH_TEST,
+				LpeSupportedTypes.String);
+		Set<String> options = new HashSet<>();
+		options.add(BOOTSTRAP_T_TEST);
+		options.add(BLOCK_PERMUTATION_TEST);
+		parameter.setOptions(options);
+		parameter.setDefaultValue(GROWTH_TEST_DEFAULT);
+		parameter.setDescription("ONLY for Direct Growth Strategy! Significance test comparing the first and "
+				+ "the second half of the experiment. The block permutation test accounts for "
+				+ "autocorrelated response times.");
+		return parameter;
+	}
+
+	private ConfigParameterDescription createPermutationBlockLengthParameter() {
+		ConfigParameterDescription parameter = new ConfigParameterDescription(KEY_PERMUTATION_BLOCK_LENGTH,
+				LpeSupportedTypes.Integer);
+		parameter.setDefaultValue(String.valueOf(PERMUTATION_BLOCK_LENGTH_DEFAULT));
+		parameter.setRange(String.valueOf(0), String.valueOf(Integer.MAX_VALUE));
+		parameter.setDescription("ONLY for block permutation test! Number of consecutive response times "
+				+ "permuted as one block. 0 derives the block length from the autocorrelation of the data.");
+		return parameter;
+	}
+
+	private ConfigParameterDescription createPermutationSeedParameter() {
+		ConfigParameterDescription parameter = new ConfigParameterDescription(KEY_PERMUTATION_SEED,
+				LpeSupportedTypes.Long);
+		parameter.setDefaultValue(String.valueOf(PERMUTATION_SEED_DEFAULT));
+		parameter.setDescription("ONLY for block permutation test! Seed of the random permutations, "
+				+ "a fixed seed makes the analysis reproducible.");
+		return parameter;
+	}
+
+	private ConfigParameterDescription createSequentialTestParameter() {
+		ConfigParameterDescription parameter = new ConfigParameterDescription(KEY_SEQUENTIAL_TEST,
+				LpeSupportedTypes.Boolean);
+		parameter.setDefaultValue(String.valueOf(SEQUENTIAL_TEST_DEFAULT));
+		parameter.setDescription("ONLY for Time Windows Strategy! If true, a sequential probability ratio test "
+				+ "is evaluated after each experiment and the experiment series is stopped as soon as "
+				+ "all operations have been decided.");
+		return parameter;
+	}
+
 	private ConfigParameterDescription createNumExperimentsParameter() {
 		ConfigParameterDescription parameter = new ConfigParameterDescription(KEY_EXPERIMENT_STEPS,
 				LpeSupportedTypes.Integer);
@@ -130,6 +198,11 @@ public class RampExtension extends AbstractDetectionExtension {
 		addConfigParameter(createRequiredSignificanceLevelParameter());
 		addConfigParameter(createRequiredSignificantStepsParameter());
 		addConfigParameter(createLinearSlopeThresholdParameter());
+		addConfigParameter(createRegressionEstimatorParameter());
+		addConfigParameter(createGrowthTestParameter());
+		addConfigParameter(createPermutationBlockLengthParameter());
+		addConfigParameter(createPermutationSeedParameter());
 		addConfigParameter(createStrategyParameter());
+		addConfigParameter(createSequentialTestParameter());
 	}
 }
@@ -8,7 +8,6 @@ import org.aim.api.exceptions.InstrumentationException;
 import org.aim.api.exceptions.MeasurementException;
 import org.aim.api.measurement.dataset.Dataset;
 import org.aim.api.measurement.dataset.DatasetCollection;
-import org.aim.api.measurement.dataset.ParameterSelection;
 import org.aim.artifacts.probes.ResponsetimeProbe;
 import org.aim.artifacts.records.ResponseTimeRecord;
 import org.aim.artifacts.scopes.EntryPointScope;
@@ -22,6 +21,8 @@ import org.spotter.core.chartbuilder.AnalysisChartBuilder;
 import org.spotter.ext.detection.ramp.IRampDetectionStrategy;
 import org.spotter.ext.detection.ramp.RampDetectionController;
 import org.spotter.ext.detection.ramp.RampExtension;
+import org.spotter.ext.detection.utils.BlockPermutation;
+import org.spotter.ext.detection.utils.ResponseTimeSeriesCache;
 import org.spotter.ext.detection.utils.Utils;
 import org.spotter.shared.result.model.SpotterResult;
 
@@ -35,6 +36,9 @@ public class DirectGrowthStrategy implements IRampDetectionStrategy {
 
 	private RampDetectionController mainDetectionController;
 	private static double requiredSignificanceLevel;
+	private boolean permutationTest = false;
+	private int blockLength = RampExtension.PERMUTATION_BLOCK_LENGTH_DEFAULT;
+	private long seed = RampExtension.PERMUTATION_SEED_DEFAULT;
 
 	@Override
 	public void setProblemDetectionConfiguration(Properties problemDetectionConfiguration) {
@@ -42,6 +46,13 @@ public class DirectGrowthStrategy implements IRampDetectionStrategy {
 				.getProperty(RampExtension.KEY_REQUIRED_SIGNIFICANCE_LEVEL);
 		requiredSignificanceLevel = significanceLevelStr != null ? Double.parseDouble(significanceLevelStr)
 				: RampExtension.REQUIRED_SIGNIFICANCE_LEVEL_DEFAULT;
+		permutationTest = RampExtension.BLOCK_PERMUTATION_TEST.equals(problemDetectionConfiguration.getProperty(
+				RampExtension.KEY_GROWTH_TEST, RampExtension.GROWTH_TEST_DEFAULT));
+		String blockLengthStr = problemDetectionConfiguration.getProperty(RampExtension.KEY_PERMUTATION_BLOCK_LENGTH);
+		blockLength = blockLengthStr != null ? Integer.parseInt(blockLengthStr)
+				: RampExtension.PERMUTATION_BLOCK_LENGTH_DEFAULT;
+		String seedStr = problemDetectionConfiguration.getProperty(RampExtension.KEY_PERMUTATION_SEED);
+		seed = seedStr != null ? Long.parseLong(seedStr) : RampExtension.PERMUTATION_SEED_DEFAULT;
 	}
 
 	@Override
@@ -68,14 +79,11 @@ public class DirectGrowthStrategy implements IRampDetectionStrategy {
 			return result;
 		}
 
-		for (String operation : rtDataset.getValueSet(ResponseTimeRecord.PAR_OPERATION, String.class)) {
-			ParameterSelection selectOperation = new ParameterSelection().select(ResponseTimeRecord.PAR_OPERATION,
-					operation);
-			Dataset operationSpecificDataset = selectOperation.applyTo(rtDataset);
-
-			NumericPairList<Long, Double> responseTimeSeries = Utils.toTimestampRTPairs(operationSpecificDataset);
-			// sort chronologically
-			responseTimeSeries.sort();
+		for (String operation : ResponseTimeSeriesCache.getOperations(rtDataset)) {
+			// chronologically sorted, shared with other controllers analysing
+			// the same experiment
+			NumericPairList<Long, Double> responseTimeSeries = ResponseTimeSeriesCache.getSeries(rtDataset, operation)
+					.toNumericPairList();
 			long minTimestamp = responseTimeSeries.getKeyMin();
 			long diff = responseTimeSeries.getKeyMax() - responseTimeSeries.getKeyMin();
 			long midTimestamp = minTimestamp + (diff) / 2L;
@@ -90,12 +98,27 @@ public class DirectGrowthStrategy implements IRampDetectionStrategy {
 				}
 			}
 
-			List<Double> sums1 = new ArrayList<>();
-			List<Double> sums2 = new ArrayList<>();
-			LpeNumericUtils.createNormalDistributionByBootstrapping(firstHalf, secondHalf, sums1, sums2);
+			if (firstHalf.isEmpty() || secondHalf.isEmpty()) {
+				result.addMessage("Operation " + operation
+						+ " has not been executed in both halves of the experiment.");
+				continue;
+			}
+
+			List<Double> sums1;
+			List<Double> sums2;
+			double pValue;
+			if (permutationTest) {
+				sums1 = firstHalf;
+				sums2 = secondHalf;
+				pValue = blockPermutationTest(firstHalf, secondHalf);
+			} else {
+				sums1 = new ArrayList<>();
+				sums2 = new ArrayList<>();
+				LpeNumericUtils.createNormalDistributionByBootstrapping(firstHalf, secondHalf, sums1, sums2);
+				pValue = LpeNumericUtils.tTest(sums1, sums2);
+			}
 			double firstMean = LpeNumericUtils.average(sums1);
 			double secondMean = LpeNumericUtils.average(sums2);
-			double pValue = LpeNumericUtils.tTest(sums1, sums2);
 			if (pValue <= requiredSignificanceLevel && firstMean < secondMean) {
 				result.addMessage("Ramp detected in operation: " + operation);
 				result.setDetected(true);
@@ -107,6 +130,24 @@ public class DirectGrowthStrategy implements IRampDetectionStrategy {
 		return result;
 	}
 
+	/**
+	 * Tests the increase from the first to the second half by permuting
+	 * blocks of consecutive response times. The halves are concatenated in
+	 * chronological order.
+	 */
+	private double blockPermutationTest(List<Double> firstHalf, List<Double> secondHalf) {
+		double[] series = new double[firstHalf.size() + secondHalf.size()];
+		int i = 0;
+		for (Double value : firstHalf) {
+			series[i++] = value;
+		}
+		for (Double value : secondHalf) {
+			series[i++] = value;
+		}
+		BlockPermutation test = new BlockPermutation(blockLength, BlockPermutation.DEFAULT_MAX_PERMUTATIONS, seed);
+		return test.testIncrease(series, firstHalf.size(), requiredSignificanceLevel);
+	}
+
 	private void createChart(SpotterResult result, String operation, NumericPairList<Long, Double> responseTimeSeries,
 			long minTimestamp, long diff, List<Double> sums1, List<Double> sums2, double firstMean, double secondMean) {
 		double firstStdDev = LpeNumericUtils.stdDev(sums1);
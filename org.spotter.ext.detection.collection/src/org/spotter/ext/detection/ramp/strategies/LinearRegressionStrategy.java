@@ -6,7 +6,6 @@ import org.aim.api.exceptions.InstrumentationException;
 import org.aim.api.exceptions.MeasurementException;
 import org.aim.api.measurement.dataset.Dataset;
 import org.aim.api.measurement.dataset.DatasetCollection;
-import org.aim.api.measurement.dataset.ParameterSelection;
 import org.aim.artifacts.probes.ResponsetimeProbe;
 import org.aim.artifacts.records.ResponseTimeRecord;
 import org.aim.artifacts.scopes.EntryPointScope;
@@ -20,18 +19,28 @@ import org.spotter.core.chartbuilder.AnalysisChartBuilder;
 import org.spotter.ext.detection.ramp.IRampDetectionStrategy;
 import org.spotter.ext.detection.ramp.RampDetectionController;
 import org.spotter.ext.detection.ramp.RampExtension;
+import org.spotter.ext.detection.utils.ResponseTimeSeriesCache;
+import org.spotter.ext.detection.utils.TrendTest;
 import org.spotter.ext.detection.utils.Utils;
 import org.spotter.shared.result.model.SpotterResult;
 
 public class LinearRegressionStrategy implements IRampDetectionStrategy {
 	private RampDetectionController mainDetectionController;
 	private double slopeThreshold = RampExtension.LIN_SLOPE_DEFAULT;
+	private boolean theilSen = false;
+	private double significanceLevel = RampExtension.REQUIRED_SIGNIFICANCE_LEVEL_DEFAULT;
 
 	@Override
 	public void setProblemDetectionConfiguration(Properties problemDetectionConfiguration) {
 		String slopeThresholdStr = problemDetectionConfiguration.getProperty(RampExtension.KEY_LIN_SLOPE);
 		slopeThreshold = slopeThresholdStr != null ? Double.parseDouble(slopeThresholdStr)
 				: RampExtension.LIN_SLOPE_DEFAULT;
+		theilSen = TrendTest.THEIL_SEN_ESTIMATOR.equals(problemDetectionConfiguration.getProperty(
+				RampExtension.KEY_REGRESSION_ESTIMATOR, RampExtension.REGRESSION_ESTIMATOR_DEFAULT));
+		String significanceLevelStr = problemDetectionConfiguration
+				.getProperty(RampExtension.KEY_REQUIRED_SIGNIFICANCE_LEVEL);
+		significanceLevel = significanceLevelStr != null ? Double.parseDouble(significanceLevelStr)
+				: RampExtension.REQUIRED_SIGNIFICANCE_LEVEL_DEFAULT;
 
 	}
 
@@ -59,40 +68,50 @@ public class LinearRegressionStrategy implements IRampDetectionStrategy {
 			return result;
 		}
 
-		for (String operation : rtDataset.getValueSet(ResponseTimeRecord.PAR_OPERATION, String.class)) {
-			ParameterSelection selectOperation = new ParameterSelection().select(ResponseTimeRecord.PAR_OPERATION,
-					operation);
-			Dataset operationSpecificDataset = selectOperation.applyTo(rtDataset);
-
-			NumericPairList<Long, Double> responseTimeSeries = Utils.toTimestampRTPairs(operationSpecificDataset);
-			// sort chronologically
-			responseTimeSeries.sort();
-
-			SimpleRegression regression = LpeNumericUtils.linearRegression(responseTimeSeries);
+		for (String operation : ResponseTimeSeriesCache.getOperations(rtDataset)) {
+			// chronologically sorted, shared with other controllers analysing
+			// the same experiment
+			NumericPairList<Long, Double> responseTimeSeries = ResponseTimeSeriesCache.getSeries(rtDataset, operation)
+					.toNumericPairList();
+
+			double slope;
+			double intercept;
+			if (theilSen) {
+				TrendTest trend = Utils.calculateTrend(responseTimeSeries);
+				slope = trend.getSlope();
+				intercept = trend.getIntercept();
+				double[] confidenceInterval = trend.getSlopeConfidenceInterval(1.0 - significanceLevel);
+				result.addMessage("Theil-Sen slope of operation " + operation + ": " + slope + " ms / ms, "
+						+ ((1.0 - significanceLevel) * 100.0) + "% confidence interval [" + confidenceInterval[0]
+						+ ", " + confidenceInterval[1] + "]");
+			} else {
+				SimpleRegression regression = LpeNumericUtils.linearRegression(responseTimeSeries);
+				slope = regression.getSlope();
+				intercept = regression.getIntercept();
+			}
 
-			double slope = regression.getSlope();
 			if (slope > slopeThreshold) {
 				result.addMessage("Ramp detected in operation: " + operation);
 				result.setDetected(true);
 			}
 
-			createChart(result, operation, responseTimeSeries, regression);
+			createChart(result, operation, responseTimeSeries, slope, intercept);
 		}
 
 		return result;
 	}
 
 	private void createChart(SpotterResult result, String operation, NumericPairList<Long, Double> responseTimeSeries,
-			SimpleRegression regression) {
+			double slope, double intercept) {
 		NumericPairList<Long, Double> linRegressionPoints = new NumericPairList<>();
 		NumericPairList<Long, Double> thresholdPoints = new NumericPairList<>();
 		long minTimestamp = responseTimeSeries.getKeyMin();
 		long maxTimestamp = responseTimeSeries.getKeyMax();
-		double intercept = regression.predict(minTimestamp);
-		linRegressionPoints.add(minTimestamp, intercept);
-		linRegressionPoints.add(maxTimestamp, regression.predict(maxTimestamp));
-		thresholdPoints.add(minTimestamp, intercept);
-		thresholdPoints.add(maxTimestamp, slopeThreshold * (double) (maxTimestamp - minTimestamp) + intercept);
+		double startValue = intercept + slope * minTimestamp;
+		linRegressionPoints.add(minTimestamp, startValue);
+		linRegressionPoints.add(maxTimestamp, intercept + slope * maxTimestamp);
+		thresholdPoints.add(minTimestamp, startValue);
+		thresholdPoints.add(maxTimestamp, slopeThreshold * (double) (maxTimestamp - minTimestamp) + startValue);
 
 		AnalysisChartBuilder chartBuilder = AnalysisChartBuilder.getChartBuilder();
 		chartBuilder.startChart(operation, "Experiment Time [ms]", "Response Time [ms]");
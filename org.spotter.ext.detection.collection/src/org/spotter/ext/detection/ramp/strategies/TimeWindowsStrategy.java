@@ -30,6 +30,9 @@ import org.spotter.exceptions.WorkloadException;
 import org.spotter.ext.detection.ramp.IRampDetectionStrategy;
 import org.spotter.ext.detection.ramp.RampDetectionController;
 import org.spotter.ext.detection.ramp.RampExtension;
+import org.spotter.ext.detection.utils.SequentialProbabilityRatioTest;
+import org.spotter.ext.detection.utils.SequentialProbabilityRatioTest.Decision;
+import org.spotter.ext.detection.utils.SequentialStepMonitor;
 import org.spotter.shared.configuration.ConfigKeys;
 import org.spotter.shared.result.model.SpotterResult;
 import org.spotter.shared.status.DiagnosisStatus;
@@ -48,6 +51,7 @@ public class TimeWindowsStrategy implements IRampDetectionStrategy {
 	private static int experimentSteps;
 	private static int reuiqredSignificanceSteps;
 	private static double requiredSignificanceLevel;
+	private static boolean sequentialTest;
 	private RampDetectionController mainDetectionController;
 
 	@Override
@@ -71,6 +75,9 @@ public class TimeWindowsStrategy implements IRampDetectionStrategy {
 				.getProperty(RampExtension.KEY_REQUIRED_SIGNIFICANCE_LEVEL);
 		requiredSignificanceLevel = significanceLevelStr != null ? Double.parseDouble(significanceLevelStr)
 				: RampExtension.REQUIRED_SIGNIFICANCE_LEVEL_DEFAULT;
+
+		sequentialTest = Boolean.parseBoolean(problemDetectionConfiguration.getProperty(
+				RampExtension.KEY_SEQUENTIAL_TEST, String.valueOf(RampExtension.SEQUENTIAL_TEST_DEFAULT)));
 	}
 
 	@Override
@@ -78,6 +85,8 @@ public class TimeWindowsStrategy implements IRampDetectionStrategy {
 		try {
 
 			mainDetectionController.instrument(getInstrumentationDescription());
+			SequentialStepMonitor monitor = new SequentialStepMonitor(requiredSignificanceLevel,
+					requiredSignificanceLevel, SequentialStepMonitor.DEFAULT_MIN_RELATIVE_INCREASE);
 
 			for (int i = 1; i <= experimentSteps; i++) {
 
@@ -94,6 +103,15 @@ public class TimeWindowsStrategy implements IRampDetectionStrategy {
 				runExperiment(1, i);
 				LOGGER.info("RampDetectionController finalized to run a single user experiment.");
 
+				if (sequentialTest) {
+					// the steps repeat the same load, thus, both decisions are
+					// final
+					monitor.addStep(mainDetectionController.measurementAdapter());
+					if (monitor.isDecided(true)) {
+						LOGGER.info("RampDetectionController stopped experiment series after {} steps.", i);
+						break;
+					}
+				}
 			}
 
 			mainDetectionController.uninstrument();
@@ -226,6 +244,8 @@ public class TimeWindowsStrategy implements IRampDetectionStrategy {
 			NumericPairList<Integer, Double> chartData = new NumericPairList<>();
 			NumericPairList<Integer, Double> chartDataMeans = new NumericPairList<>();
 			List<Number> confidenceIntervals = new ArrayList<>();
+			SequentialProbabilityRatioTest sprt = new SequentialProbabilityRatioTest(requiredSignificanceLevel,
+					requiredSignificanceLevel);
 			for (Integer step : rtDataset.getValueSet(STEP, Integer.class)) {
 				if (prevStep > 0) {
 					ParameterSelection selectionCurrent = new ParameterSelection().select(STEP, step).select(
@@ -247,6 +267,10 @@ public class TimeWindowsStrategy implements IRampDetectionStrategy {
 						prevStep = step;
 						continue;
 					}
+					sprt.addRelativeIncrease(datasetPrev.getValues(ResponseTimeRecord.PAR_RESPONSE_TIME, Long.class),
+							datasetCurrent.getValues(ResponseTimeRecord.PAR_RESPONSE_TIME, Long.class),
+							SequentialStepMonitor.DEFAULT_MIN_RELATIVE_INCREASE);
+
 					List<Double> sums1 = new ArrayList<>();
 					List<Double> sums2 = new ArrayList<>();
 					double pValue = 0.0;
@@ -294,6 +318,10 @@ public class TimeWindowsStrategy implements IRampDetectionStrategy {
 			if (firstSignificantStep > 0 && significantSteps >= reuiqredSignificanceSteps) {
 				return true;
 			}
+			if (sequentialTest) {
+				result.addMessage("Sequential test for operation '" + operation + "': " + sprt);
+				return sprt.getDecision() == Decision.ACCEPT_ALTERNATIVE_HYPOTHESIS;
+			}
 			return false;
 		} catch (Exception e) {
 			return false;
@@ -0,0 +1,38 @@
+/**
+ * Copyright 2014 SAP AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spotter.ext.detection.stifle;
+
+/**
+ * Listener notified by the {@link StreamingStifleDetector} whenever a request
+ * has been closed which executed a query repeatedly.
+ * 
+ * @author Alexander Wert
+ * 
+ */
+public interface IStifleListener {
+	/**
+	 * Called for each query that has been repeated within a request.
+	 * 
+	 * @param operation
+	 *            operation of the request
+	 * @param stifleQuery
+	 *            the updated stifle query
+	 * @param occurrence
+	 *            number of times the query has been executed within the
+	 *            request
+	 */
+	void stifleObserved(String operation, StifleQuery stifleQuery, int occurrence);
+}
@@ -0,0 +1,128 @@
+/**
+ * Copyright 2014 SAP AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spotter.ext.detection.stifle;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.lpe.common.util.LpeStringUtils;
+
+/**
+ * Assigns dense integer ids to generalized SQL queries. Generalization of a
+ * raw query string is computed only once, repeated occurrences of the same
+ * raw query are resolved by a hash lookup. The cache of raw query strings is
+ * bounded, as raw queries may contain literals and, thus, may be unique.
+ * 
+ * @author Alexander Wert
+ * 
+ */
+public class QueryRegistry {
+
+	private static final int MAX_RAW_QUERY_CACHE_SIZE = 100000;
+
+	private final int maxRawQueryCacheSize;
+	private final Map<String, Integer> rawQueryIds = new HashMap<>();
+	private final Map<String, Integer> generalizedQueryIds = new HashMap<>();
+	private final List<String> generalizedQueries = new ArrayList<>();
+
+	/**
+	 * Constructor.
+	 */
+	public QueryRegistry() {
+		this(MAX_RAW_QUERY_CACHE_SIZE);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param maxRawQueryCacheSize
+	 *            number of raw query strings after which the cache is cleared
+	 */
+	QueryRegistry(int maxRawQueryCacheSize) {
+		this.maxRawQueryCacheSize = maxRawQueryCacheSize;
+	}
+
+	/**
+	 * Returns the id of the generalized form of the given query.
+	 * 
+	 * @param rawQuery
+	 *            query string as recorded
+	 * @return id of the generalized query
+	 */
+	public int getQueryId(String rawQuery) {
+		Integer id = rawQueryIds.get(rawQuery);
+		if (id == null) {
+			String generalizedQuery = generalizeQuery(rawQuery);
+			id = generalizedQueryIds.get(generalizedQuery);
+			if (id == null) {
+				id = generalizedQueries.size();
+				generalizedQueries.add(generalizedQuery);
+				generalizedQueryIds.put(generalizedQuery, id);
+			}
+			if (rawQueryIds.size() >= maxRawQueryCacheSize) {
+				rawQueryIds.clear();
+			}
+			rawQueryIds.put(rawQuery, id);
+		}
+		return id;
+	}
+
+	/**
+	 * @param queryId
+	 *            id of a generalized query
+	 * @return the generalized query
+	 */
+	public String getQuery(int queryId) {
+		return generalizedQueries.get(queryId);
+	}
+
+	/**
+	 * @return number of distinct generalized queries
+	 */
+	public int size() {
+		return generalizedQueries.size();
+	}
+
+	/**
+	 * @return number of cached raw query strings
+	 */
+	int getNumCachedRawQueries() {
+		return rawQueryIds.size();
+	}
+
+	private static String generalizeQuery(String sql) {
+		String generalizedSql = LpeStringUtils.getGeneralizedQuery(sql);
+		if (generalizedSql == null) {
+			if (sql.contains("$")) {
+				int idx_1 = sql.indexOf(",", sql.indexOf("$"));
+				int idx_2 = sql.indexOf(" ", sql.indexOf("$"));
+				if (idx_1 < 0 && idx_2 < 0) {
+					idx_1 = sql.length();
+				}
+				idx_1 = idx_1 < 0 ? Integer.MAX_VALUE : idx_1;
+				idx_2 = idx_2 < 0 ? Integer.MAX_VALUE : idx_2;
+				int endIndex = Math.min(idx_1, idx_2);
+				String name = sql.substring(sql.indexOf("$"), endIndex);
+				generalizedSql = sql.replace(name, "tmp");
+			} else {
+				generalizedSql = sql;
+			}
+		}
+		return generalizedSql;
+	}
+}
@@ -1,16 +1,17 @@
 package org.spotter.ext.detection.stifle;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 
 import org.aim.api.exceptions.InstrumentationException;
 import org.aim.api.exceptions.MeasurementException;
+import org.aim.api.measurement.AbstractRecord;
 import org.aim.api.measurement.dataset.Dataset;
 import org.aim.api.measurement.dataset.DatasetCollection;
-import org.aim.api.measurement.utils.MeasurementDataUtils;
 import org.aim.artifacts.probes.ResponsetimeProbe;
 import org.aim.artifacts.probes.SQLQueryProbe;
 import org.aim.artifacts.probes.ThreadTracingProbe;
@@ -22,8 +23,6 @@ import org.aim.artifacts.scopes.JDBCScope;
 import org.aim.description.InstrumentationDescription;
 import org.aim.description.builder.InstrumentationDescriptionBuilder;
 import org.lpe.common.extension.IExtension;
-import org.lpe.common.util.LpeNumericUtils;
-import org.lpe.common.util.LpeStringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.spotter.core.ProgressManager;
@@ -71,21 +70,13 @@ public class StifleDetectionController extends AbstractDetectionController {
 		Dataset rtDataset = data.getDataSet(ResponseTimeRecord.class);
 		Dataset tracingDataset = data.getDataSet(ThreadTracingRecord.class);
 
-		LOGGER.info("Converting SQL dataset.");
-
 		List<SQLQueryRecord> sqlRecords = sqlDataset.getRecords(SQLQueryRecord.class);
 		List<ThreadTracingRecord> ttRecords = tracingDataset.getRecords(ThreadTracingRecord.class);
-
-		sqlRecords = filterQueryRecords(sqlRecords, ttRecords);
-
-		LOGGER.info("Converting RT dataset.");
-
 		List<ResponseTimeRecord> rtRecords = rtDataset.getRecords(ResponseTimeRecord.class);
-		rtRecords = filterResponsetimeRecords(rtRecords);
 
 		LOGGER.info("Analyzing datasets.");
 
-		Map<String, List<StifleQuery>> stifleQueries = analyzeDatasets(rtRecords, sqlRecords);
+		Map<String, List<StifleQuery>> stifleQueries = analyzeDatasets(rtRecords, sqlRecords, ttRecords);
 
 		LOGGER.info("Creating results.");
 
@@ -102,9 +93,8 @@ public class StifleDetectionController extends AbstractDetectionController {
 				for (StifleQuery stifle : stifles) {
 					strBuilder.append("Query: " + stifle.getQuery());
 					strBuilder.append("\n");
-					strBuilder.append("occured: ( " + LpeNumericUtils.min(stifle.getOccurrences()) + " , "
-							+ LpeNumericUtils.average(stifle.getOccurrences()) + " , "
-							+ LpeNumericUtils.max(stifle.getOccurrences()) + " ) times");
+					strBuilder.append("occured: ( " + stifle.getMinOccurrence() + " , "
+							+ stifle.getAverageOccurrence() + " , " + stifle.getMaxOccurrence() + " ) times");
 					strBuilder.append("\n");
 				}
 				strBuilder.append("\n");
@@ -116,91 +106,79 @@ public class StifleDetectionController extends AbstractDetectionController {
 		return result;
 	}
 
-	private List<SQLQueryRecord> filterQueryRecords(List<SQLQueryRecord> sqlRecords, List<ThreadTracingRecord> ttRecords) {
-		MeasurementDataUtils.sortRecordsAscending(sqlRecords, SQLQueryRecord.PAR_CALL_ID);
-		MeasurementDataUtils.sortRecordsAscending(ttRecords, ThreadTracingRecord.PAR_CALL_ID);
-		List<SQLQueryRecord> sqlRecordsTmp = new ArrayList<>();
-		List<ThreadTracingRecord> ttRecordsTmp = new ArrayList<>();
-		int firstSQLIndex = 0;
-		int firstTTIndex = 0;
-		int lastSQLIndex = sqlRecords.size() - 1;
-		int lastTTIndex = ttRecords.size() - 1;
-		while (sqlRecords.get(firstSQLIndex).getCallId() < ttRecords.get(firstTTIndex).getCallId()) {
-			firstSQLIndex++;
-		}
-
-		while (sqlRecords.get(firstSQLIndex).getCallId() > ttRecords.get(firstTTIndex).getCallId()) {
-			firstTTIndex++;
-		}
-
-		while (sqlRecords.get(lastSQLIndex).getCallId() < ttRecords.get(lastTTIndex).getCallId()) {
-			lastTTIndex--;
+	/**
+	 * Replays the records in ascending call id order to a
+	 * {@link StreamingStifleDetector}. SQL records are joined with the thread
+	 * tracing records of the same call id on the fly. The record lists are
+	 * sorted in place.
+	 */
+	static Map<String, List<StifleQuery>> analyzeDatasets(List<ResponseTimeRecord> rtRecords,
+			List<SQLQueryRecord> sqlRecords, List<ThreadTracingRecord> ttRecords) {
+		if (rtRecords.size() < 2) {
+			LOGGER.info("Less than two response time samples. We have too few data to do an analysis: "
+					+ "Skipping stifle analyzing.");
+			return new HashMap<String, List<StifleQuery>>();
 		}
 
-		while (sqlRecords.get(lastSQLIndex).getCallId() > ttRecords.get(lastTTIndex).getCallId()) {
-			lastSQLIndex--;
-		}
+		long[] rtCallIds = sortByCallId(rtRecords);
+		long[] sqlCallIds = sortByCallId(sqlRecords);
+		long[] ttCallIds = sortByCallId(ttRecords);
 
-		int ttIndex = firstTTIndex;
-		int i = firstSQLIndex;
-		while (i <= lastSQLIndex && ttIndex <= lastTTIndex) {
-			try {
-				while (ttRecords.get(ttIndex).getCallId() < sqlRecords.get(i).getCallId()) {
+		StreamingStifleDetector detector = new StreamingStifleDetector();
+		int rtIndex = 0;
+		int sqlIndex = 0;
+		int ttIndex = 0;
+		while (rtIndex < rtCallIds.length && sqlIndex < sqlCallIds.length) {
+			if (sqlCallIds[sqlIndex] <= rtCallIds[rtIndex]) {
+				while (ttIndex < ttCallIds.length && ttCallIds[ttIndex] < sqlCallIds[sqlIndex]) {
 					ttIndex++;
 				}
-				while (ttRecords.get(ttIndex).getCallId() > sqlRecords.get(i).getCallId()) {
-					i++;
+				if (ttIndex < ttCallIds.length && ttCallIds[ttIndex] == sqlCallIds[sqlIndex]) {
+					SQLQueryRecord sqlRecord = sqlRecords.get(sqlIndex);
+					ThreadTracingRecord ttRecord = ttRecords.get(ttIndex);
+					detector.addQuery(sqlRecord.getCallId(), sqlRecord.getQueryString(), ttRecord.getEnterNanoTime(),
+							ttRecord.getExitNanoTime());
 				}
-
-				sqlRecordsTmp.add(sqlRecords.get(i));
-				ttRecordsTmp.add(ttRecords.get(ttIndex));
-			} catch (Exception e) {
+				sqlIndex++;
+			} else {
+				ResponseTimeRecord rtRecord = rtRecords.get(rtIndex);
+				detector.addResponseTime(rtRecord.getCallId(), rtRecord.getOperation(), rtRecord.getTimeStamp(),
+						rtRecord.getResponseTime());
+				rtIndex++;
 			}
-			i++;
 		}
-
-		// for (int i = firstTTIndex; i <= lastTTIndex; i++) {
-		// ttRecordsTmp.add(ttRecords.get(i));
-		// }
-
-		if (sqlRecordsTmp.size() != ttRecordsTmp.size()) {
-			throw new RuntimeException("Unequal amount of records!");
+		// the remaining requests close the request of the last queries
+		for (; rtIndex < rtCallIds.length; rtIndex++) {
+			ResponseTimeRecord rtRecord = rtRecords.get(rtIndex);
+			detector.addResponseTime(rtRecord.getCallId(), rtRecord.getOperation(), rtRecord.getTimeStamp(),
+					rtRecord.getResponseTime());
 		}
-		List<SQLQueryRecord> uniqueSQLRecords = new ArrayList<>();
-		int index = 0;
-		long currentStart = -1;
-		long refEnd = -1;
-		while (index < sqlRecordsTmp.size()) {
-			if (sqlRecordsTmp.get(index).getCallId() != ttRecordsTmp.get(index).getCallId()) {
-				throw new RuntimeException("CallIDs do not match!");
-			}
-			currentStart = ttRecordsTmp.get(index).getEnterNanoTime();
-			if (refEnd < 0 || currentStart > refEnd) {
-				refEnd = ttRecordsTmp.get(index).getExitNanoTime();
-				uniqueSQLRecords.add(sqlRecordsTmp.get(index));
-			}
 
-			index++;
-		}
-		return uniqueSQLRecords;
+		return detector.getStifleQueries();
 	}
 
-	private List<ResponseTimeRecord> filterResponsetimeRecords(List<ResponseTimeRecord> rtRecords) {
-		MeasurementDataUtils.sortRecordsAscending(rtRecords, ResponseTimeRecord.PAR_CALL_ID);
-		List<ResponseTimeRecord> uniqueServletRecords = new ArrayList<>();
-		int index = 0;
-		long currentStart = -1;
-		long refEnd = -1;
-		while (index < rtRecords.size()) {
-			currentStart = rtRecords.get(index).getTimeStamp();
-			if (refEnd < 0 || currentStart > refEnd) {
-				refEnd = rtRecords.get(index).getTimeStamp() + rtRecords.get(index).getResponseTime();
-				uniqueServletRecords.add(rtRecords.get(index));
-			}
-
-			index++;
+	/**
+	 * Sorts the records ascending by call id, unless they are sorted already.
+	 * 
+	 * @return the sorted call ids
+	 */
+	private static <T extends AbstractRecord> long[] sortByCallId(List<T> records) {
+		long[] callIds = new long[records.size()];
+		boolean sorted = true;
+		for (int i = 0; i < callIds.length; i++) {
+			callIds[i] = records.get(i).getCallId();
+			sorted &= i == 0 || callIds[i - 1] <= callIds[i];
 		}
-		return uniqueServletRecords;
+		if (!sorted) {
+			Collections.sort(records, new Comparator<T>() {
+				@Override
+				public int compare(T o1, T o2) {
+					return Long.compare(o1.getCallId(), o2.getCallId());
+				}
+			});
+			Arrays.sort(callIds);
+		}
+		return callIds;
 	}
 
 	/**
@@ -224,107 +202,4 @@ public class StifleDetectionController extends AbstractDetectionController {
 		return idBuilder.build();
 	}
 
-	private Map<String, List<StifleQuery>> analyzeDatasets(List<ResponseTimeRecord> rtRecords,
-			List<SQLQueryRecord> sqlRecords) {
-
-		if (rtRecords.size() < 2) {
-			LOGGER.info("Less than two response time samples. We have too few data to do an analysis: Skipping stifle analyzing.");
-			return new HashMap<String, List<StifleQuery>>();
-		}
-
-		Map<String, List<StifleQuery>> stifleQueries = new HashMap<>();
-
-		// in this loop we will always be one index ahead of the element we
-		// currently analyze
-		ResponseTimeRecord currentRtRecord = null;
-		int sqlIndex = 0;
-		for (ResponseTimeRecord nextRtRecord : rtRecords) {
-			if (currentRtRecord == null) {
-				currentRtRecord = nextRtRecord;
-				continue;
-			}
-
-			// the timespace is too inaccurate, hence we use the callId
-			long currentRTCallId = currentRtRecord.getCallId();
-			long nextRTCallId = nextRtRecord.getCallId();
-
-			// we skip the first SQL queries, which are not related to the first
-			// RT record
-			while (sqlIndex < sqlRecords.size() && sqlRecords.get(sqlIndex).getCallId() < currentRTCallId) {
-				sqlIndex++;
-			}
-
-			if (sqlIndex >= sqlRecords.size()) {
-				return stifleQueries;
-			}
-
-			Map<String, Integer> potentialStifles = new HashMap<>();
-			while (sqlIndex < sqlRecords.size() && sqlRecords.get(sqlIndex).getCallId() <= nextRTCallId) {
-
-				String query = sqlRecords.get(sqlIndex).getQueryString();
-				String sql = query;
-				String generalizedSql = LpeStringUtils.getGeneralizedQuery(sql);
-				if (generalizedSql == null) {
-					if (sql.contains("$")) {
-						int idx_1 = sql.indexOf(",", sql.indexOf("$"));
-						int idx_2 = sql.indexOf(" ", sql.indexOf("$"));
-						if (idx_1 < 0 && idx_2 < 0) {
-							idx_1 = sql.length();
-						}
-						idx_1 = idx_1 < 0 ? Integer.MAX_VALUE : idx_1;
-						idx_2 = idx_2 < 0 ? Integer.MAX_VALUE : idx_2;
-						int endIndex = Math.min(idx_1, idx_2);
-						String name = sql.substring(sql.indexOf("$"), endIndex);
-						generalizedSql = sql.replace(name, "tmp");
-					} else {
-						generalizedSql = sql;
-					}
-				}
-				query = generalizedSql;
-
-				sqlIndex++;
-				boolean found = false;
-				for (String alreadyObservedQuery : potentialStifles.keySet()) {
-
-					if (alreadyObservedQuery.equals(query)) {
-						int newCount = potentialStifles.get(alreadyObservedQuery) + 1;
-						potentialStifles.put(alreadyObservedQuery, newCount);
-						found = true;
-						break;
-					}
-				}
-
-				if (!found) {
-					potentialStifles.put(query, 1);
-				}
-
-			}
-			String operation = currentRtRecord.getOperation();
-			for (Entry<String, Integer> potStifle : potentialStifles.entrySet()) {
-				if (potStifle.getValue() > 1) {
-					if (!stifleQueries.containsKey(operation)) {
-						stifleQueries.put(operation, new ArrayList<StifleQuery>());
-					}
-					List<StifleQuery> tmpStifleQueries = stifleQueries.get(operation);
-					StifleQuery sQuery = null;
-
-					for (StifleQuery tmpQuery : tmpStifleQueries) {
-						if (potStifle.getKey().equals(tmpQuery.getQuery())) {
-							sQuery = tmpQuery;
-							break;
-						}
-					}
-					if (sQuery == null) {
-						sQuery = new StifleQuery(potStifle.getKey());
-						tmpStifleQueries.add(sQuery);
-					}
-					sQuery.addOccurrence(potStifle.getValue());
-				}
-			}
-			currentRtRecord = nextRtRecord;
-		}
-
-		return stifleQueries;
-	}
-
 }
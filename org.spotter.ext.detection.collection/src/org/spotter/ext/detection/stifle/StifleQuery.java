@@ -15,34 +15,60 @@
  */
 package org.spotter.ext.detection.stifle;
 
-import java.util.ArrayDeque;
-import java.util.ArrayList;
-import java.util.Deque;
-import java.util.List;
-
+/**
+ * A query which has been executed repeatedly within single requests. Only
+ * summary statistics of the repetition counts are kept, hence, the memory
+ * footprint does not grow with the number of observed requests.
+ */
 public class StifleQuery {
 	private String query;
-	private List<Integer> occurrences = new ArrayList<>();
-	
+	private long numOccurrences = 0;
+	private long sumOccurrences = 0;
+	private int minOccurrence = Integer.MAX_VALUE;
+	private int maxOccurrence = 0;
+
 	public StifleQuery(String query) {
 		setQuery(query);
 	}
-	
 
 	/**
-	 * @return the occurrences
+	 * @param occurrence
+	 *            number of times the query has been executed within a request
 	 */
-	public List<Integer> getOccurrences() {
-		return occurrences;
+	public void addOccurrence(int occurrence) {
+		numOccurrences++;
+		sumOccurrences += occurrence;
+		minOccurrence = Math.min(minOccurrence, occurrence);
+		maxOccurrence = Math.max(maxOccurrence, occurrence);
 	}
 
 	/**
-	 * @param occurrences the occurrences to set
+	 * @return number of requests in which the query has been repeated
 	 */
-	public void addOccurrence(int occurrence) {
-		this.occurrences.add(occurrence);
+	public long getNumOccurrences() {
+		return numOccurrences;
+	}
+
+	/**
+	 * @return the minimal repetition count
+	 */
+	public int getMinOccurrence() {
+		return minOccurrence;
 	}
 
+	/**
+	 * @return the maximal repetition count
+	 */
+	public int getMaxOccurrence() {
+		return maxOccurrence;
+	}
+
+	/**
+	 * @return the average repetition count
+	 */
+	public double getAverageOccurrence() {
+		return numOccurrences == 0 ? 0.0 : (double) sumOccurrences / numOccurrences;
+	}
 
 	/**
 	 * @return the query
@@ -51,13 +77,12 @@ public class StifleQuery {
 		return query;
 	}
 
-
 	/**
-	 * @param query the query to set
+	 * @param query
+	 *            the query to set
 	 */
 	public void setQuery(String query) {
 		this.query = query;
 	}
-	
 
 }
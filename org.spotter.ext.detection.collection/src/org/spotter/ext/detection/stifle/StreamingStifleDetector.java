@@ -0,0 +1,179 @@
+/**
+ * Copyright 2014 SAP AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spotter.ext.detection.stifle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Incremental stifle detector consuming response time and query events in
+ * ascending call id order. Queries are attributed to the last top-level
+ * request whose call id is not greater than the call id of the query. When
+ * the next top-level request starts, the query counts of the previous request
+ * are evaluated and reset, thus, only the counts of the currently open
+ * request are kept in memory.
+ * 
+ * <p>
+ * For events with equal call ids, queries have to be passed before response
+ * times. Queries preceding the first request and the queries of the last,
+ * still open request are not evaluated.
+ * </p>
+ * 
+ * @author Alexander Wert
+ * 
+ */
+public class StreamingStifleDetector {
+
+	private static final int INITIAL_QUERY_CAPACITY = 64;
+
+	private final QueryRegistry queryRegistry = new QueryRegistry();
+	private final Map<String, Map<Integer, StifleQuery>> stifleQueries = new LinkedHashMap<>();
+	private final List<IStifleListener> listeners = new ArrayList<>();
+
+	private int[] queryCounts = new int[INITIAL_QUERY_CAPACITY];
+	private int[] observedQueries = new int[INITIAL_QUERY_CAPACITY];
+	private int numObservedQueries = 0;
+
+	private String openOperation = null;
+	private long lastCallId = Long.MIN_VALUE;
+	private long requestRefEnd = -1;
+	private long queryRefEnd = -1;
+
+	/**
+	 * Adds a listener which gets notified on each repeated query.
+	 * 
+	 * @param listener
+	 *            listener to add
+	 */
+	public void addListener(IStifleListener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Passes the response time of a request. Requests nested into the previous
+	 * top-level request are ignored.
+	 * 
+	 * @param callId
+	 *            call id of the request
+	 * @param operation
+	 *            operation of the request
+	 * @param timestamp
+	 *            start time of the request
+	 * @param responseTime
+	 *            response time of the request
+	 */
+	public void addResponseTime(long callId, String operation, long timestamp, long responseTime) {
+		checkOrder(callId);
+		if (requestRefEnd >= 0 && timestamp <= requestRefEnd) {
+			return;
+		}
+		requestRefEnd = timestamp + responseTime;
+
+		closeRequest();
+		openOperation = operation;
+	}
+
+	/**
+	 * Passes an executed query. Queries nested into the previous top-level
+	 * query are ignored.
+	 * 
+	 * @param callId
+	 *            call id of the query
+	 * @param query
+	 *            query string
+	 * @param enterNanoTime
+	 *            time when the query execution has been entered
+	 * @param exitNanoTime
+	 *            time when the query execution has been exited
+	 */
+	public void addQuery(long callId, String query, long enterNanoTime, long exitNanoTime) {
+		checkOrder(callId);
+		if (queryRefEnd >= 0 && enterNanoTime <= queryRefEnd) {
+			return;
+		}
+		queryRefEnd = exitNanoTime;
+
+		if (openOperation == null) {
+			return;
+		}
+
+		int queryId = queryRegistry.getQueryId(query);
+		if (queryId >= queryCounts.length) {
+			queryCounts = Arrays.copyOf(queryCounts, Math.max(queryId + 1, queryCounts.length * 2));
+		}
+		if (queryCounts[queryId]++ == 0) {
+			if (numObservedQueries >= observedQueries.length) {
+				observedQueries = Arrays.copyOf(observedQueries, observedQueries.length * 2);
+			}
+			observedQueries[numObservedQueries++] = queryId;
+		}
+	}
+
+	/**
+	 * Returns the stifle queries detected so far, grouped by operation.
+	 * 
+	 * @return stifle queries per operation
+	 */
+	public Map<String, List<StifleQuery>> getStifleQueries() {
+		Map<String, List<StifleQuery>> result = new HashMap<>();
+		for (Entry<String, Map<Integer, StifleQuery>> entry : stifleQueries.entrySet()) {
+			result.put(entry.getKey(), new ArrayList<>(entry.getValue().values()));
+		}
+		return result;
+	}
+
+	private void closeRequest() {
+		for (int i = 0; i < numObservedQueries; i++) {
+			int queryId = observedQueries[i];
+			int count = queryCounts[queryId];
+			queryCounts[queryId] = 0;
+			if (count > 1) {
+				StifleQuery stifleQuery = getStifleQuery(openOperation, queryId);
+				stifleQuery.addOccurrence(count);
+				for (IStifleListener listener : listeners) {
+					listener.stifleObserved(openOperation, stifleQuery, count);
+				}
+			}
+		}
+		numObservedQueries = 0;
+	}
+
+	private StifleQuery getStifleQuery(String operation, int queryId) {
+		Map<Integer, StifleQuery> operationStifles = stifleQueries.get(operation);
+		if (operationStifles == null) {
+			operationStifles = new LinkedHashMap<>();
+			stifleQueries.put(operation, operationStifles);
+		}
+		StifleQuery stifleQuery = operationStifles.get(queryId);
+		if (stifleQuery == null) {
+			stifleQuery = new StifleQuery(queryRegistry.getQuery(queryId));
+			operationStifles.put(queryId, stifleQuery);
+		}
+		return stifleQuery;
+	}
+
+	private void checkOrder(long callId) {
+		if (callId < lastCallId) {
+			throw new IllegalArgumentException("Events must be passed in ascending call id order.");
+		}
+		lastCallId = callId;
+	}
+}
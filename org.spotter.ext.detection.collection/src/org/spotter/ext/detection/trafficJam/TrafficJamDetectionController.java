@@ -1,5 +1,8 @@
 package org.spotter.ext.detection.trafficJam;
 
+import java.util.List;
+import java.util.Map;
+
 import org.aim.api.exceptions.InstrumentationException;
 import org.aim.api.exceptions.MeasurementException;
 import org.aim.api.measurement.dataset.Dataset;
@@ -9,20 +12,37 @@ import org.aim.artifacts.records.ResponseTimeRecord;
 import org.aim.artifacts.scopes.EntryPointScope;
 import org.aim.description.InstrumentationDescription;
 import org.aim.description.builder.InstrumentationDescriptionBuilder;
+import org.lpe.common.config.GlobalConfiguration;
 import org.lpe.common.extension.IExtension;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.spotter.core.ProgressManager;
 import org.spotter.core.detection.AbstractDetectionController;
 import org.spotter.core.detection.IDetectionController;
 import org.spotter.exceptions.WorkloadException;
 import org.spotter.ext.detection.trafficJam.strategies.LinearRegression;
 import org.spotter.ext.detection.trafficJam.strategies.TTestStrategy;
+import org.spotter.ext.detection.utils.KneeSearch;
+import org.spotter.ext.detection.utils.ResponseTimeSummary;
+import org.spotter.ext.detection.utils.SequentialStepMonitor;
+import org.spotter.ext.detection.utils.Utils;
+import org.spotter.shared.configuration.ConfigKeys;
 import org.spotter.shared.result.model.SpotterResult;
 
 public class TrafficJamDetectionController extends AbstractDetectionController {
 
+	private static final Logger LOGGER = LoggerFactory.getLogger(TrafficJamDetectionController.class);
+
 	private String analysisStrategy;
 	private ITrafficJamStrategy analysisStrategyImpl;
 	private int experimentSteps;
+	private boolean sequentialTest;
+	private boolean adaptiveLoadSteps;
+	private int loadStepResolution;
+	private int requiredSignificantSteps;
+	private double requiredSignificanceLevel;
+	private List<Integer> loadSteps;
+	private int kneeUsers = -1;
 
 	public TrafficJamDetectionController(IExtension<IDetectionController> provider) {
 		super(provider);
@@ -38,6 +58,28 @@ public class TrafficJamDetectionController extends AbstractDetectionController {
 		analysisStrategy = getProblemDetectionConfiguration().getProperty(TrafficJamExtension.DETECTION_STRATEGY_KEY,
 				TrafficJamExtension.T_TEST_STRATEGY);
 
+		sequentialTest = Boolean.parseBoolean(getProblemDetectionConfiguration().getProperty(
+				TrafficJamExtension.SEQUENTIAL_TEST_KEY, String.valueOf(TrafficJamExtension.SEQUENTIAL_TEST_DEFAULT)));
+
+		adaptiveLoadSteps = Boolean.parseBoolean(getProblemDetectionConfiguration().getProperty(
+				TrafficJamExtension.ADAPTIVE_LOAD_STEPS_KEY,
+				String.valueOf(TrafficJamExtension.ADAPTIVE_LOAD_STEPS_DEFAULT)));
+
+		String loadStepResolutionStr = getProblemDetectionConfiguration().getProperty(
+				TrafficJamExtension.LOAD_STEP_RESOLUTION_KEY);
+		loadStepResolution = loadStepResolutionStr != null ? Integer.parseInt(loadStepResolutionStr)
+				: TrafficJamExtension.LOAD_STEP_RESOLUTION_DEFAULT;
+
+		String requiredSignificantStepsStr = getProblemDetectionConfiguration().getProperty(
+				TrafficJamExtension.REQUIRED_SIGNIFICANT_STEPS_KEY);
+		requiredSignificantSteps = requiredSignificantStepsStr != null ? Integer
+				.parseInt(requiredSignificantStepsStr) : TrafficJamExtension.REQUIRED_SIGNIFICANT_STEPS_DEFAULT;
+
+		String requiredConfidenceLevelStr = getProblemDetectionConfiguration().getProperty(
+				TrafficJamExtension.REQUIRED_CONFIDENCE_LEVEL_KEY);
+		requiredSignificanceLevel = 1.0 - (requiredConfidenceLevelStr != null ? Double
+				.parseDouble(requiredConfidenceLevelStr) : TrafficJamExtension.REQUIRED_CONFIDENCE_LEVEL_DEFAULT);
+
 		switch (analysisStrategy) {
 		case TrafficJamExtension.T_TEST_STRATEGY:
 			analysisStrategyImpl = new TTestStrategy();
@@ -55,13 +97,91 @@ public class TrafficJamDetectionController extends AbstractDetectionController {
 
 	@Override
 	public long getExperimentSeriesDuration() {
+		if (adaptiveLoadSteps) {
+			// worst case, the search usually ends with fewer experiments
+			int maxUsers = GlobalConfiguration.getInstance().getPropertyAsInteger(ConfigKeys.WORKLOAD_MAXUSERS);
+			return ProgressManager.getInstance().calculateDefaultExperimentSeriesDuration(
+					KneeSearch.getMaxNumExperiments(maxUsers, loadStepResolution, getNumAdaptiveLoadSteps()));
+		}
 		return ProgressManager.getInstance().calculateDefaultExperimentSeriesDuration(experimentSteps);
 	}
 
 	@Override
 	public void executeExperiments() throws InstrumentationException, MeasurementException, WorkloadException {
-		executeDefaultExperimentSeries(this, experimentSteps, getInstrumentationDescription());
+		loadSteps = null;
+		kneeUsers = -1;
+		if (adaptiveLoadSteps) {
+			executeAdaptiveExperimentSeries();
+		} else if (sequentialTest && analysisStrategyImpl instanceof TTestStrategy) {
+			executeSequentialExperimentSeries();
+		} else {
+			executeDefaultExperimentSeries(this, experimentSteps, getInstrumentationDescription());
+		}
+
+	}
 
+	/**
+	 * Runs the experiment series step by step and stops as soon as the
+	 * sequential test accepted a response time increase for all operations.
+	 * Not accepting an increase does not stop the series, as the response
+	 * times may still increase at higher loads.
+	 */
+	private void executeSequentialExperimentSeries() throws InstrumentationException, MeasurementException,
+			WorkloadException {
+		int maxUsers = GlobalConfiguration.getInstance().getPropertyAsInteger(ConfigKeys.WORKLOAD_MAXUSERS);
+		SequentialStepMonitor monitor = new SequentialStepMonitor(requiredSignificanceLevel,
+				requiredSignificanceLevel, SequentialStepMonitor.DEFAULT_MIN_RELATIVE_INCREASE);
+
+		instrumentApplication(getInstrumentationDescription());
+		for (int numUsers : Utils.calculateLoadSteps(maxUsers, experimentSteps - 1)) {
+			runExperiment(this, numUsers);
+			monitor.addStep(getMeasurementController());
+			if (monitor.isDecided(false)) {
+				LOGGER.info("Traffic Jam detection stopped experiment series after {} steps.", monitor.getNumSteps());
+				break;
+			}
+		}
+		uninstrumentApplication();
+	}
+
+	/**
+	 * Runs experiments at the loads chosen by a bisection search for the
+	 * number of users where the response times start to increase
+	 * considerably, followed by evenly spaced load steps up to that number of
+	 * users, or up to the maximum load if the response times do not saturate.
+	 * There are at least as many evenly spaced steps as the t-test strategy
+	 * needs to detect a traffic jam.
+	 */
+	private void executeAdaptiveExperimentSeries() throws InstrumentationException, MeasurementException,
+			WorkloadException {
+		int maxUsers = GlobalConfiguration.getInstance().getPropertyAsInteger(ConfigKeys.WORKLOAD_MAXUSERS);
+		KneeSearch search = new KneeSearch(maxUsers, loadStepResolution, KneeSearch.KNEE_FACTOR_DEFAULT);
+		KneeSearch.ILoadExperiment experiment = new KneeSearch.ILoadExperiment() {
+			@Override
+			public Map<String, ResponseTimeSummary> run(int numUsers) throws MeasurementException, WorkloadException {
+				runExperiment(TrafficJamDetectionController.this, numUsers);
+				return SequentialStepMonitor.summarizeByOperation(getMeasurementController());
+			}
+		};
+
+		instrumentApplication(getInstrumentationDescription());
+		kneeUsers = search.search(experiment);
+		loadSteps = search.measureLoadSteps(experiment, kneeUsers, getNumAdaptiveLoadSteps());
+		uninstrumentApplication();
+		LOGGER.info("Traffic Jam detection measured loads {}, response times saturate at {} users.",
+				search.getMeasuredLoads(), kneeUsers);
+	}
+
+	private int getNumAdaptiveLoadSteps() {
+		return Math.max(experimentSteps, requiredSignificantSteps + 1);
+	}
+
+	/**
+	 * @return numbers of users to analyse in ascending order, null if all
+	 *         measured loads are analysed
+	 */
+	public List<Integer> getLoadSteps() {
+		return loadSteps;
 	}
 
 	private InstrumentationDescription getInstrumentationDescription() {
@@ -84,6 +204,10 @@ public class TrafficJamDetectionController extends AbstractDetectionController {
 			return result;
 		}
 
+		if (kneeUsers > 0) {
+			result.addMessage("Response times saturate at " + kneeUsers + " users.");
+		}
+
 		for (String operation : rtDataset.getValueSet(ResponseTimeRecord.PAR_OPERATION, String.class)) {
 
 			boolean operationDetected = false;
@@ -7,6 +7,7 @@ import org.lpe.common.config.ConfigParameterDescription;
 import org.lpe.common.util.LpeSupportedTypes;
 import org.spotter.core.detection.AbstractDetectionExtension;
 import org.spotter.core.detection.IDetectionController;
+import org.spotter.ext.detection.utils.TrendTest;
 
 public class TrafficJamExtension extends AbstractDetectionExtension {
 	private static final String EXTENSION_DESCRIPTION = "Traffic Jam represents a scalability problem, "
@@ -15,11 +16,19 @@ public class TrafficJamExtension extends AbstractDetectionExtension {
 	public static final String REQUIRED_SIGNIFICANT_STEPS_KEY = "numSignificantSteps";
 	public static final String REGRESSION_SLOPE_KEY = "regression slope threshold"; 
 	public static final String EXPERIMENT_STEPS_KEY = "numExperiments";
+	public static final String SEQUENTIAL_TEST_KEY = "sequentialTest";
+	public static final String REGRESSION_ESTIMATOR_KEY = "regressionEstimator";
+	public static final String ADAPTIVE_LOAD_STEPS_KEY = "adaptiveLoadSteps";
+	public static final String LOAD_STEP_RESOLUTION_KEY = "loadStepResolution";
 
 	public static final double REQUIRED_CONFIDENCE_LEVEL_DEFAULT = 0.95;
 	public static final double REGRESSION_SLOPE_DEFAULT = 10.0;
 	public static final int REQUIRED_SIGNIFICANT_STEPS_DEFAULT = 2;
 	public static final int EXPERIMENT_STEPS_DEFAULT = 4;
+	public static final boolean SEQUENTIAL_TEST_DEFAULT = false;
+	public static final String REGRESSION_ESTIMATOR_DEFAULT = TrendTest.LEAST_SQUARES_ESTIMATOR;
+	public static final boolean ADAPTIVE_LOAD_STEPS_DEFAULT = false;
+	public static final int LOAD_STEP_RESOLUTION_DEFAULT = 5;
 
 	protected static final String DETECTION_STRATEGY_KEY = "strategy";
 	protected static final String T_TEST_STRATEGY = "t-Test strategy";
@@ -74,6 +83,47 @@ public class TrafficJamExtension extends AbstractDetectionExtension {
 		return requiredConfidenceLevel;
 	}
 
+	private ConfigParameterDescription createRegressionEstimatorParameter() {
+		ConfigParameterDescription estimatorParameter = new ConfigParameterDescription(REGRESSION_ESTIMATOR_KEY,
+				LpeSupportedTypes.String);
+		estimatorParameter.setOptions(TrendTest.getEstimatorOptions());
+		estimatorParameter.setDefaultValue(REGRESSION_ESTIMATOR_DEFAULT);
+		estimatorParameter.setDescription("ONLY for linear regression strategy! Estimator of the regression slope. "
+				+ "The Theil-Sen estimator (median of pairwise slopes) is robust against outliers.");
+		return estimatorParameter;
+	}
+
+	private ConfigParameterDescription createSequentialTestParameter() {
+		ConfigParameterDescription sequentialTestParameter = new ConfigParameterDescription(SEQUENTIAL_TEST_KEY,
+				LpeSupportedTypes.Boolean);
+		sequentialTestParameter.setDefaultValue(String.valueOf(SEQUENTIAL_TEST_DEFAULT));
+		sequentialTestParameter.setDescription("ONLY for t-Test strategy! If true, a sequential probability ratio "
+				+ "test is evaluated after each experiment and the experiment series is stopped as soon as "
+				+ "a response time increase has been accepted for all operations.");
+		return sequentialTestParameter;
+	}
+
+	private ConfigParameterDescription createAdaptiveLoadStepsParameter() {
+		ConfigParameterDescription adaptiveLoadStepsParameter = new ConfigParameterDescription(
+				ADAPTIVE_LOAD_STEPS_KEY, LpeSupportedTypes.Boolean);
+		adaptiveLoadStepsParameter.setDefaultValue(String.valueOf(ADAPTIVE_LOAD_STEPS_DEFAULT));
+		adaptiveLoadStepsParameter.setDescription("If true, the number of users of the experiments is not "
+				+ "spread evenly, but determined by a bisection search for the load at which "
+				+ "the response times start to increase considerably, followed by evenly spaced steps up "
+				+ "to that load. The number of experiments parameter gives the number of evenly spaced steps.");
+		return adaptiveLoadStepsParameter;
+	}
+
+	private ConfigParameterDescription createLoadStepResolutionParameter() {
+		ConfigParameterDescription loadStepResolutionParameter = new ConfigParameterDescription(
+				LOAD_STEP_RESOLUTION_KEY, LpeSupportedTypes.Integer);
+		loadStepResolutionParameter.setDefaultValue(String.valueOf(LOAD_STEP_RESOLUTION_DEFAULT));
+		loadStepResolutionParameter.setRange(String.valueOf(1), String.valueOf(Integer.MAX_VALUE));
+		loadStepResolutionParameter.setDescription("ONLY for adaptive load steps! The search stops as soon as "
+				+ "the saturation point is narrowed down to this number of users.");
+		return loadStepResolutionParameter;
+	}
+
 	private ConfigParameterDescription createStrategyParameter() {
 		ConfigParameterDescription scopeParameter = new ConfigParameterDescription(DETECTION_STRATEGY_KEY,
 				LpeSupportedTypes.String);
@@ -96,6 +146,10 @@ public class TrafficJamExtension extends AbstractDetectionExtension {
 		addConfigParameter(createNumExperimentsParameter());
 		addConfigParameter(createStrategyParameter());
 		addConfigParameter(createRegressionSlopeParameter());
+		addConfigParameter(createRegressionEstimatorParameter());
+		addConfigParameter(createSequentialTestParameter());
+		addConfigParameter(createAdaptiveLoadStepsParameter());
+		addConfigParameter(createLoadStepResolutionParameter());
 
 	}
 
@@ -5,8 +5,6 @@ import java.util.List;
 import java.util.Properties;
 
 import org.aim.api.measurement.dataset.Dataset;
-import org.aim.api.measurement.dataset.ParameterSelection;
-import org.aim.artifacts.records.ResponseTimeRecord;
 import org.apache.commons.math3.stat.regression.SimpleRegression;
 import org.lpe.common.util.LpeNumericUtils;
 import org.lpe.common.util.NumericPair;
@@ -16,12 +14,15 @@ import org.spotter.ext.detection.ramp.RampExtension;
 import org.spotter.ext.detection.trafficJam.ITrafficJamStrategy;
 import org.spotter.ext.detection.trafficJam.TrafficJamDetectionController;
 import org.spotter.ext.detection.trafficJam.TrafficJamExtension;
+import org.spotter.ext.detection.utils.TrendTest;
 import org.spotter.ext.detection.utils.Utils;
 import org.spotter.shared.result.model.SpotterResult;
 
 public class LinearRegression implements ITrafficJamStrategy {
 
 	private double slopeThreshold;
+	private boolean theilSen;
+	private double confidenceLevel;
 	private TrafficJamDetectionController mainDetectionController;
 
 	@Override
@@ -29,6 +30,12 @@ public class LinearRegression implements ITrafficJamStrategy {
 		String slopeThresholdStr = problemDetectionConfiguration.getProperty(TrafficJamExtension.REGRESSION_SLOPE_KEY);
 		slopeThreshold = slopeThresholdStr != null ? Double.parseDouble(slopeThresholdStr)
 				: TrafficJamExtension.REGRESSION_SLOPE_DEFAULT;
+		theilSen = TrendTest.THEIL_SEN_ESTIMATOR.equals(problemDetectionConfiguration.getProperty(
+				TrafficJamExtension.REGRESSION_ESTIMATOR_KEY, TrafficJamExtension.REGRESSION_ESTIMATOR_DEFAULT));
+		String confidenceLevelStr = problemDetectionConfiguration
+				.getProperty(TrafficJamExtension.REQUIRED_CONFIDENCE_LEVEL_KEY);
+		confidenceLevel = confidenceLevelStr != null ? Double.parseDouble(confidenceLevelStr)
+				: TrafficJamExtension.REQUIRED_CONFIDENCE_LEVEL_DEFAULT;
 	}
 
 	@Override
@@ -39,32 +46,40 @@ public class LinearRegression implements ITrafficJamStrategy {
 
 	@Override
 	public boolean analyseOperationResponseTimes(Dataset dataset, String operation, SpotterResult result) {
-		ParameterSelection selectOperation = new ParameterSelection().select(ResponseTimeRecord.PAR_OPERATION,
-				operation);
-		Dataset operationSpecificDataset = selectOperation.applyTo(dataset);
-
-		NumericPairList<Integer, Double> responseTimeSeries = Utils.toUserRTPairs(operationSpecificDataset);
-
-		SimpleRegression regression = LpeNumericUtils.linearRegression(responseTimeSeries);
-
-		double slope = regression.getSlope();
+		NumericPairList<Integer, Double> responseTimeSeries = Utils.toUserRTPairs(dataset, operation);
+
+		double slope;
+		double intercept;
+		if (theilSen) {
+			TrendTest trend = Utils.calculateTrend(responseTimeSeries);
+			slope = trend.getSlope();
+			intercept = trend.getIntercept();
+			double[] confidenceInterval = trend.getSlopeConfidenceInterval(confidenceLevel);
+			result.addMessage("Theil-Sen slope of operation " + operation + ": " + slope + " ms / user, "
+					+ (confidenceLevel * 100.0) + "% confidence interval [" + confidenceInterval[0] + ", "
+					+ confidenceInterval[1] + "]");
+		} else {
+			SimpleRegression regression = LpeNumericUtils.linearRegression(responseTimeSeries);
+			slope = regression.getSlope();
+			intercept = regression.getIntercept();
+		}
 
-		createChart(result, operation, responseTimeSeries, regression);
+		createChart(result, operation, responseTimeSeries, slope, intercept);
 
 		return slope > slopeThreshold;
 	}
 
 	private void createChart(SpotterResult result, String operation,
-			NumericPairList<Integer, Double> responseTimeSeries, SimpleRegression regression) {
+			NumericPairList<Integer, Double> responseTimeSeries, double slope, double intercept) {
 		NumericPairList<Long, Double> linRegressionPoints = new NumericPairList<>();
 		NumericPairList<Long, Double> thresholdPoints = new NumericPairList<>();
 		long minTimestamp = responseTimeSeries.getKeyMin();
 		long maxTimestamp = responseTimeSeries.getKeyMax();
-		double intercept = regression.predict(minTimestamp);
-		linRegressionPoints.add(minTimestamp, intercept);
-		linRegressionPoints.add(maxTimestamp, regression.predict(maxTimestamp));
-		thresholdPoints.add(minTimestamp, intercept);
-		thresholdPoints.add(maxTimestamp, slopeThreshold * (double) (maxTimestamp - minTimestamp) + intercept);
+		double startValue = intercept + slope * minTimestamp;
+		linRegressionPoints.add(minTimestamp, startValue);
+		linRegressionPoints.add(maxTimestamp, intercept + slope * maxTimestamp);
+		thresholdPoints.add(minTimestamp, startValue);
+		thresholdPoints.add(maxTimestamp, slopeThreshold * (double) (maxTimestamp - minTimestamp) + startValue);
 
 		NumericPairList<Integer, Double> means = new NumericPairList<>();
 		List<Number> standDeviations = new ArrayList<>();
@@ -15,12 +15,16 @@ import org.spotter.core.detection.AbstractDetectionController;
 import org.spotter.ext.detection.trafficJam.ITrafficJamStrategy;
 import org.spotter.ext.detection.trafficJam.TrafficJamDetectionController;
 import org.spotter.ext.detection.trafficJam.TrafficJamExtension;
+import org.spotter.ext.detection.utils.SequentialProbabilityRatioTest;
+import org.spotter.ext.detection.utils.SequentialProbabilityRatioTest.Decision;
+import org.spotter.ext.detection.utils.SequentialStepMonitor;
 import org.spotter.shared.result.model.SpotterResult;
 
 public class TTestStrategy implements ITrafficJamStrategy {
 
 	private int requiredSignificantSteps;
 	private double requiredSignificanceLevel;
+	private boolean sequentialTest;
 	private TrafficJamDetectionController mainDetectionController;
 
 	@Override
@@ -31,11 +35,17 @@ public class TTestStrategy implements ITrafficJamStrategy {
 			int significantSteps = 0;
 			List<Integer> sortedNumUsersList = new ArrayList<Integer>(dataset.getValueSet(
 					AbstractDetectionController.NUMBER_OF_USERS_KEY, Integer.class));
+			if (mainDetectionController.getLoadSteps() != null) {
+				// adaptive load steps, leave out the loads of the bisection
+				sortedNumUsersList.retainAll(mainDetectionController.getLoadSteps());
+			}
 			Collections.sort(sortedNumUsersList);
 			int minNumUsers = sortedNumUsersList.get(0);
 			NumericPairList<Integer, Double> rawData = new NumericPairList<>();
 			NumericPairList<Integer, Double> means = new NumericPairList<>();
 			List<Number> ci = new ArrayList<>();
+			SequentialProbabilityRatioTest sprt = new SequentialProbabilityRatioTest(requiredSignificanceLevel,
+					requiredSignificanceLevel);
 			for (Integer numUsers : sortedNumUsersList) {
 				if (prevNumUsers > 0) {
 					ParameterSelection selectionCurrent = new ParameterSelection().select(
@@ -50,6 +60,9 @@ public class TTestStrategy implements ITrafficJamStrategy {
 					List<Long> prevValues = LpeNumericUtils.filterOutliersUsingIQR(selectionPrev.applyTo(dataset)
 							.getValues(ResponseTimeRecord.PAR_RESPONSE_TIME, Long.class));
 
+					sprt.addRelativeIncrease(prevValues, currentValues,
+							SequentialStepMonitor.DEFAULT_MIN_RELATIVE_INCREASE);
+
 					List<Double> sums1 = new ArrayList<>();
 					List<Double> sums2 = new ArrayList<>();
 					LpeNumericUtils.createNormalDistributionByBootstrapping(prevValues, currentValues, sums1, sums2);
@@ -112,6 +125,10 @@ public class TTestStrategy implements ITrafficJamStrategy {
 			if (firstSignificantNumUsers > 0 && significantSteps >= requiredSignificantSteps) {
 				return true;
 			}
+			if (sequentialTest) {
+				result.addMessage("Sequential test for operation '" + operation + "': " + sprt);
+				return sprt.getDecision() == Decision.ACCEPT_ALTERNATIVE_HYPOTHESIS;
+			}
 			return false;
 		} catch (Exception e) {
 			return false;
@@ -130,6 +147,8 @@ public class TTestStrategy implements ITrafficJamStrategy {
 		requiredSignificanceLevel = 1.0 - (requiredConfidenceLevelStr != null ? Double
 				.parseDouble(requiredConfidenceLevelStr) : TrafficJamExtension.REQUIRED_CONFIDENCE_LEVEL_DEFAULT);
 
+		sequentialTest = Boolean.parseBoolean(problemDetectionConfiguration.getProperty(
+				TrafficJamExtension.SEQUENTIAL_TEST_KEY, String.valueOf(TrafficJamExtension.SEQUENTIAL_TEST_DEFAULT)));
 	}
 
 	@Override
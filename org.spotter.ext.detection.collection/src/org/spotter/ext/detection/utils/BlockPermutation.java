@@ -0,0 +1,206 @@
+/**
+ * Copyright 2014 SAP AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spotter.ext.detection.utils;
+
+import java.util.Random;
+
+/**
+ * Permutation test comparing the mean of the beginning of a series with the
+ * mean of its end. In contrast to tests on independent samples, the series is
+ * permuted in blocks of consecutive values, so that the short term
+ * autocorrelation of response times is preserved under the null hypothesis.
+ * Each permutation rotates the series by a random offset (circular blocks)
+ * and shuffles the order of the blocks.
+ * 
+ * The permutation loop stops early as soon as the estimated p-value is
+ * clearly below or above the significance level.
+ * 
+ * @author Alexander Wert
+ * 
+ */
+public class BlockPermutation {
+
+	/**
+	 * Default maximum number of permutations.
+	 */
+	public static final int DEFAULT_MAX_PERMUTATIONS = 10000;
+
+	private static final int MIN_PERMUTATIONS = 100;
+	private static final int CHECK_INTERVAL = 100;
+	// two-sided 99.9% quantile of the standard normal distribution
+	private static final double DECISION_QUANTILE = 3.29;
+	private static final double MAX_AUTOCORRELATION = 0.99;
+	private static final int MIN_BLOCKS = 4;
+
+	private final int blockLength;
+	private final int maxPermutations;
+	private final Random random;
+	private int numPermutations;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param blockLength
+	 *            number of consecutive values per block, values smaller than
+	 *            one select the block length by
+	 *            {@link #defaultBlockLength(double[], int)}
+	 * @param maxPermutations
+	 *            maximum number of permutations
+	 * @param seed
+	 *            seed of the random number generator
+	 */
+	public BlockPermutation(int blockLength, int maxPermutations, long seed) {
+		this.blockLength = blockLength;
+		this.maxPermutations = maxPermutations;
+		this.random = new Random(seed);
+	}
+
+	/**
+	 * Selects the block length for the given series. Blocks have to span the
+	 * autocorrelation of the series, thus, the block length is at least twice
+	 * the integrated autocorrelation time (1 + r) / (1 - r) of a first order
+	 * autoregressive process with the lag one autocorrelation r of the series.
+	 * The cube root of the series length, the usual order of block lengths
+	 * for block resampling, serves as lower bound.
+	 * 
+	 * @param series
+	 *            values in chronological order
+	 * @param splitIndex
+	 *            index of the first value of the second part, the mean of
+	 *            each part is removed before estimating the autocorrelation
+	 * @return block length
+	 */
+	public static int defaultBlockLength(double[] series, int splitIndex) {
+		int n = series.length;
+		double firstMean = mean(series, 0, splitIndex);
+		double secondMean = mean(series, splitIndex, n);
+		double variance = 0.0;
+		double covariance = 0.0;
+		double previous = 0.0;
+		for (int i = 0; i < n; i++) {
+			double centered = series[i] - (i < splitIndex ? firstMean : secondMean);
+			variance += centered * centered;
+			if (i > 0) {
+				covariance += centered * previous;
+			}
+			previous = centered;
+		}
+		double autocorrelation = variance > 0.0 ? covariance / variance : 0.0;
+		autocorrelation = Math.max(0.0, Math.min(MAX_AUTOCORRELATION, autocorrelation));
+		double correlationTime = (1.0 + autocorrelation) / (1.0 - autocorrelation);
+		int length = (int) Math.ceil(Math.max(Math.cbrt(n), 2.0 * correlationTime));
+		return Math.max(1, Math.min(length, n / MIN_BLOCKS));
+	}
+
+	private static double mean(double[] values, int from, int to) {
+		double sum = 0.0;
+		for (int i = from; i < to; i++) {
+			sum += values[i];
+		}
+		return to > from ? sum / (to - from) : 0.0;
+	}
+
+	/**
+	 * Tests whether the values after the split index are larger on average
+	 * than the values before.
+	 * 
+	 * @param series
+	 *            values in chronological order
+	 * @param splitIndex
+	 *            index of the first value of the second part
+	 * @param significanceLevel
+	 *            significance level used to stop the test early
+	 * @return one-sided p-value
+	 */
+	public double testIncrease(double[] series, int splitIndex, double significanceLevel) {
+		int n = series.length;
+		if (splitIndex <= 0 || splitIndex >= n) {
+			throw new IllegalArgumentException("Both parts of the series must contain at least one value!");
+		}
+		double[] prefixSums = new double[n + 1];
+		for (int i = 0; i < n; i++) {
+			prefixSums[i + 1] = prefixSums[i] + series[i];
+		}
+		// the difference of means decreases with the sum of the first part,
+		// thus, permutations with a smaller or equal first part sum are at
+		// least as extreme as the observed series
+		double observed = prefixSums[splitIndex];
+		double tolerance = 1E-9 * Math.max(1.0, Math.abs(prefixSums[n]));
+
+		int length = Math.min(n, blockLength >= 1 ? blockLength : defaultBlockLength(series, splitIndex));
+		int numBlocks = (n + length - 1) / length;
+		int[] blockOrder = new int[numBlocks];
+		for (int b = 0; b < numBlocks; b++) {
+			blockOrder[b] = b;
+		}
+
+		int extreme = 0;
+		numPermutations = 0;
+		while (numPermutations < maxPermutations) {
+			int offset = random.nextInt(n);
+			shuffle(blockOrder);
+			double firstPartSum = 0.0;
+			int remaining = splitIndex;
+			for (int b = 0; b < numBlocks && remaining > 0; b++) {
+				int blockStart = blockOrder[b] * length;
+				int take = Math.min(remaining, Math.min(length, n - blockStart));
+				firstPartSum += circularSum(prefixSums, (offset + blockStart) % n, take);
+				remaining -= take;
+			}
+			if (firstPartSum <= observed + tolerance) {
+				extreme++;
+			}
+			numPermutations++;
+
+			if (numPermutations >= MIN_PERMUTATIONS && numPermutations % CHECK_INTERVAL == 0
+					&& isDecided(extreme, numPermutations, significanceLevel)) {
+				break;
+			}
+		}
+		return (extreme + 1.0) / (numPermutations + 1.0);
+	}
+
+	/**
+	 * @return number of permutations evaluated by the last test
+	 */
+	public int getNumPermutations() {
+		return numPermutations;
+	}
+
+	private static boolean isDecided(int extreme, int permutations, double significanceLevel) {
+		double pValue = (extreme + 1.0) / (permutations + 1.0);
+		double standardError = Math.sqrt(significanceLevel * (1.0 - significanceLevel) / permutations);
+		return Math.abs(pValue - significanceLevel) > DECISION_QUANTILE * standardError;
+	}
+
+	private static double circularSum(double[] prefixSums, int start, int count) {
+		int n = prefixSums.length - 1;
+		int end = start + count;
+		if (end <= n) {
+			return prefixSums[end] - prefixSums[start];
+		}
+		return prefixSums[n] - prefixSums[start] + prefixSums[end - n];
+	}
+
+	private void shuffle(int[] values) {
+		for (int i = values.length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int tmp = values[i];
+			values[i] = values[j];
+			values[j] = tmp;
+		}
+	}
+}
@@ -0,0 +1,402 @@
+/**
+ * Copyright 2014 SAP AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spotter.ext.detection.utils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Turns samples of monotonically increasing counters (transferred bytes, lock
+ * waits, enqueued messages, ...) into a series of per-interval increments and
+ * rates.
+ * 
+ * A sample smaller than its predecessor is interpreted as a counter reset;
+ * the increment of that interval is the new counter value, as the counter
+ * restarted from zero. As an exception, a decrease from the upper half of the
+ * unsigned 32 bit range is interpreted as wraparound of a 32 bit counter.
+ * Unsigned 64 bit counters wrapping around the long range need no special
+ * treatment, as the difference of the samples is still correct. Intervals which are considerably longer than the
+ * typical sampling interval (more than the gap factor times the median
+ * interval) are considered as gaps caused by missing samples and are excluded
+ * from increments and durations. Several counters which are sampled together
+ * can be stored in one series, their intervals are aligned.
+ * 
+ * @author Alexander Wert
+ * 
+ */
+public class CounterRateSeries {
+
+	/**
+	 * Default ratio between an interval and the median interval above which
+	 * the interval is considered as gap.
+	 */
+	public static final double DEFAULT_GAP_FACTOR = 10.0;
+
+	private static final int INITIAL_CAPACITY = 16;
+	private static final long INT32_RANGE = 1L << 32;
+	private static final long INT32_UPPER_HALF = 1L << 31;
+
+	private final int numCounters;
+	private final double gapFactor;
+	private long[] timestamps;
+	private long[][] samples;
+	private int size = 0;
+
+	// interval view, computed lazily
+	private long[] intervalEnds;
+	private long[] durations;
+	private long[][] deltas;
+
+	/**
+	 * Constructor using the default gap factor.
+	 * 
+	 * @param numCounters
+	 *            number of counters sampled per timestamp
+	 */
+	public CounterRateSeries(int numCounters) {
+		this(numCounters, DEFAULT_GAP_FACTOR);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param numCounters
+	 *            number of counters sampled per timestamp
+	 * @param gapFactor
+	 *            ratio between an interval and the median interval above
+	 *            which the interval is considered as gap
+	 */
+	public CounterRateSeries(int numCounters, double gapFactor) {
+		if (numCounters < 1) {
+			throw new IllegalArgumentException("At least one counter is required!");
+		}
+		this.numCounters = numCounters;
+		this.gapFactor = gapFactor;
+		timestamps = new long[INITIAL_CAPACITY];
+		samples = new long[numCounters][INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Creates a series for a single counter from aligned value lists, as
+	 * returned by {@code Dataset.getValues(...)}.
+	 * 
+	 * @param timestamps
+	 *            sample timestamps
+	 * @param counter
+	 *            counter values
+	 * @return rate series
+	 */
+	public static CounterRateSeries fromValues(List<Long> timestamps, List<Long> counter) {
+		CounterRateSeries series = new CounterRateSeries(1);
+		for (int i = 0; i < timestamps.size(); i++) {
+			series.add(timestamps.get(i), counter.get(i));
+		}
+		return series;
+	}
+
+	/**
+	 * Creates a series for two counters from aligned value lists, as returned
+	 * by {@code Dataset.getValues(...)}.
+	 * 
+	 * @param timestamps
+	 *            sample timestamps
+	 * @param firstCounter
+	 *            values of the counter with index 0
+	 * @param secondCounter
+	 *            values of the counter with index 1
+	 * @return rate series
+	 */
+	public static CounterRateSeries fromValues(List<Long> timestamps, List<Long> firstCounter,
+			List<Long> secondCounter) {
+		CounterRateSeries series = new CounterRateSeries(2);
+		for (int i = 0; i < timestamps.size(); i++) {
+			series.add(timestamps.get(i), firstCounter.get(i), secondCounter.get(i));
+		}
+		return series;
+	}
+
+	/**
+	 * Adds a sample. Samples may be added in any order.
+	 * 
+	 * @param timestamp
+	 *            time of the sample
+	 * @param counterValues
+	 *            one value per counter
+	 */
+	public void add(long timestamp, long... counterValues) {
+		if (counterValues.length != numCounters) {
+			throw new IllegalArgumentException("Expected " + numCounters + " counter values, but got "
+					+ counterValues.length + "!");
+		}
+		if (size == timestamps.length) {
+			timestamps = Arrays.copyOf(timestamps, size * 2);
+			for (int c = 0; c < numCounters; c++) {
+				samples[c] = Arrays.copyOf(samples[c], size * 2);
+			}
+		}
+		timestamps[size] = timestamp;
+		for (int c = 0; c < numCounters; c++) {
+			samples[c][size] = counterValues[c];
+		}
+		size++;
+		intervalEnds = null;
+	}
+
+	/**
+	 * @return number of samples
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return number of valid intervals, i.e. intervals between two
+	 *         consecutive samples which are not gaps
+	 */
+	public int getNumIntervals() {
+		computeIntervals();
+		return intervalEnds.length;
+	}
+
+	/**
+	 * @return timestamps at the end of each valid interval
+	 */
+	public long[] getIntervalEnds() {
+		computeIntervals();
+		return intervalEnds.clone();
+	}
+
+	/**
+	 * @param counter
+	 *            index of the counter
+	 * @return increment of the counter per valid interval
+	 */
+	public long[] getDeltas(int counter) {
+		computeIntervals();
+		return deltas[counter].clone();
+	}
+
+	/**
+	 * @param counter
+	 *            index of the counter
+	 * @param timeUnit
+	 *            length of the rate unit in timestamp units, e.g. 1000 for
+	 *            rates per second with millisecond timestamps
+	 * @return rate of the counter per valid interval
+	 */
+	public double[] getRates(int counter, long timeUnit) {
+		computeIntervals();
+		double[] rates = new double[intervalEnds.length];
+		for (int i = 0; i < rates.length; i++) {
+			rates[i] = ((double) deltas[counter][i] * timeUnit) / (double) durations[i];
+		}
+		return rates;
+	}
+
+	/**
+	 * @param counter
+	 *            index of the counter
+	 * @return increment of the counter over all valid intervals
+	 */
+	public long getTotalIncrease(int counter) {
+		computeIntervals();
+		long sum = 0L;
+		for (long delta : deltas[counter]) {
+			sum += delta;
+		}
+		return sum;
+	}
+
+	/**
+	 * @return accumulated length of all valid intervals
+	 */
+	public long getTotalDuration() {
+		computeIntervals();
+		long sum = 0L;
+		for (long duration : durations) {
+			sum += duration;
+		}
+		return sum;
+	}
+
+	/**
+	 * @param counter
+	 *            index of the counter
+	 * @param timeUnit
+	 *            length of the rate unit in timestamp units
+	 * @return average rate of the counter over all valid intervals, or 0 if
+	 *         there is no valid interval
+	 */
+	public double getAverageRate(int counter, long timeUnit) {
+		long totalDuration = getTotalDuration();
+		if (totalDuration <= 0L) {
+			return 0.0;
+		}
+		return ((double) getTotalIncrease(counter) * timeUnit) / (double) totalDuration;
+	}
+
+	private void computeIntervals() {
+		if (intervalEnds != null) {
+			return;
+		}
+		Integer[] order = new Integer[size];
+		for (int i = 0; i < size; i++) {
+			order[i] = i;
+		}
+		// stable sort keeps the insertion order of equal timestamps
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				return Long.compare(timestamps[o1], timestamps[o2]);
+			}
+		});
+
+		long maxDuration = getMaxDuration(order);
+		int numIntervals = 0;
+		long[] ends = new long[Math.max(0, size - 1)];
+		long[] lengths = new long[ends.length];
+		long[][] increments = new long[numCounters][ends.length];
+		for (int i = 1; i < size; i++) {
+			int prev = order[i - 1];
+			int current = order[i];
+			long duration = timestamps[current] - timestamps[prev];
+			if (duration <= 0L || duration > maxDuration) {
+				continue;
+			}
+			ends[numIntervals] = timestamps[current];
+			lengths[numIntervals] = duration;
+			for (int c = 0; c < numCounters; c++) {
+				increments[c][numIntervals] = increment(samples[c][prev], samples[c][current]);
+			}
+			numIntervals++;
+		}
+		durations = Arrays.copyOf(lengths, numIntervals);
+		deltas = new long[numCounters][];
+		for (int c = 0; c < numCounters; c++) {
+			deltas[c] = Arrays.copyOf(increments[c], numIntervals);
+		}
+		intervalEnds = Arrays.copyOf(ends, numIntervals);
+	}
+
+	/**
+	 * Calculates the increment of a counter between two consecutive samples.
+	 */
+	static long increment(long previous, long current) {
+		long delta = current - previous;
+		if (delta >= 0L) {
+			return delta;
+		}
+		if (previous >= INT32_UPPER_HALF && previous < INT32_RANGE && current >= 0L) {
+			return delta + INT32_RANGE;
+		}
+		return current;
+	}
+
+	private long getMaxDuration(Integer[] order) {
+		long[] positiveDurations = new long[Math.max(0, size - 1)];
+		int count = 0;
+		for (int i = 1; i < size; i++) {
+			long duration = timestamps[order[i]] - timestamps[order[i - 1]];
+			if (duration > 0L) {
+				positiveDurations[count++] = duration;
+			}
+		}
+		if (count == 0) {
+			return Long.MAX_VALUE;
+		}
+		Arrays.sort(positiveDurations, 0, count);
+		double median = positiveDurations[count / 2];
+		double maxDuration = median * gapFactor;
+		return maxDuration >= Long.MAX_VALUE ? Long.MAX_VALUE : (long) maxDuration;
+	}
+
+	/**
+	 * Rate series grouped by a key, e.g. network interface, queue or lock.
+	 * 
+	 * @param <K>
+	 *            key type
+	 */
+	public static class Group<K> {
+		private final Map<K, CounterRateSeries> seriesMap = new LinkedHashMap<>();
+		private final int numCounters;
+		private final double gapFactor;
+
+		/**
+		 * Constructor using the default gap factor.
+		 * 
+		 * @param numCounters
+		 *            number of counters sampled per timestamp
+		 */
+		public Group(int numCounters) {
+			this(numCounters, DEFAULT_GAP_FACTOR);
+		}
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param numCounters
+		 *            number of counters sampled per timestamp
+		 * @param gapFactor
+		 *            ratio between an interval and the median interval above
+		 *            which the interval is considered as gap
+		 */
+		public Group(int numCounters, double gapFactor) {
+			this.numCounters = numCounters;
+			this.gapFactor = gapFactor;
+		}
+
+		/**
+		 * Adds a sample to the series of the given key.
+		 * 
+		 * @param key
+		 *            group key
+		 * @param timestamp
+		 *            time of the sample
+		 * @param counterValues
+		 *            one value per counter
+		 */
+		public void add(K key, long timestamp, long... counterValues) {
+			CounterRateSeries series = seriesMap.get(key);
+			if (series == null) {
+				series = new CounterRateSeries(numCounters, gapFactor);
+				seriesMap.put(key, series);
+			}
+			series.add(timestamp, counterValues);
+		}
+
+		/**
+		 * @param key
+		 *            group key
+		 * @return series of the key, or null if no sample has been added for
+		 *         the key
+		 */
+		public CounterRateSeries get(K key) {
+			return seriesMap.get(key);
+		}
+
+		/**
+		 * @return all keys in insertion order
+		 */
+		public Set<K> getKeys() {
+			return Collections.unmodifiableSet(seriesMap.keySet());
+		}
+	}
+}
@@ -0,0 +1,125 @@
+/**
+ * Copyright 2014 SAP AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spotter.ext.detection.utils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Erlang C formula for M/M/c queues and its inverse. The inverse is solved by
+ * bisection and memoized per number of servers and response time factor, as
+ * both inputs are discrete in practice.
+ * 
+ * @author Alexander Wert
+ * 
+ */
+public final class ErlangC {
+
+	/**
+	 * Absolute tolerance of the utilization computed by the inverse solver.
+	 */
+	public static final double TOLERANCE = 1E-9;
+
+	private static final int MAX_ITERATIONS = 200;
+
+	private static final Map<String, Double> UTILIZATION_CACHE = new ConcurrentHashMap<>();
+
+	private ErlangC() {
+	}
+
+	/**
+	 * Calculates the probability that an arriving request has to wait in a
+	 * multi-server queue. Uses the numerically stable Erlang B recursion.
+	 * 
+	 * @param numServers
+	 *            number of servers
+	 * @param utilization
+	 *            utilization per server in the range [0,1)
+	 * @return waiting probability
+	 */
+	public static double waitingProbability(int numServers, double utilization) {
+		if (numServers < 1) {
+			throw new IllegalArgumentException("Number of servers must be positive!");
+		}
+		if (utilization <= 0.0) {
+			return 0.0;
+		}
+		if (utilization >= 1.0) {
+			return 1.0;
+		}
+		double offeredLoad = numServers * utilization;
+		double erlangB = 1.0;
+		for (int k = 1; k <= numServers; k++) {
+			erlangB = offeredLoad * erlangB / (k + offeredLoad * erlangB);
+		}
+		return erlangB / (1.0 - utilization * (1.0 - erlangB));
+	}
+
+	/**
+	 * Calculates the ratio of the mean response time to the service time of a
+	 * multi-server queue.
+	 * 
+	 * @param numServers
+	 *            number of servers
+	 * @param utilization
+	 *            utilization per server in the range [0,1)
+	 * @return response time factor, infinite for a saturated queue
+	 */
+	public static double responseTimeFactor(int numServers, double utilization) {
+		if (utilization >= 1.0) {
+			return Double.POSITIVE_INFINITY;
+		}
+		return 1.0 + waitingProbability(numServers, utilization) / (numServers * (1.0 - utilization));
+	}
+
+	/**
+	 * Calculates the utilization per server at which the mean response time of
+	 * a multi-server queue reaches the given multiple of the service time. The
+	 * result is cached, thus, repeated lookups are constant time.
+	 * 
+	 * @param responseTimeFactor
+	 *            ratio of response time to service time, must be at least 1
+	 * @param numServers
+	 *            number of servers
+	 * @return utilization per server
+	 */
+	public static double getUtilizationForResponseTimeFactor(double responseTimeFactor, int numServers) {
+		String key = numServers + "_" + responseTimeFactor;
+		Double utilization = UTILIZATION_CACHE.get(key);
+		if (utilization == null) {
+			utilization = solveUtilization(responseTimeFactor, numServers);
+			UTILIZATION_CACHE.put(key, utilization);
+		}
+		return utilization;
+	}
+
+	private static double solveUtilization(double responseTimeFactor, int numServers) {
+		if (responseTimeFactor < 1.0) {
+			throw new IllegalArgumentException("Response time factor must not be smaller than 1!");
+		}
+		double lower = 0.0;
+		double upper = 1.0;
+		for (int i = 0; i < MAX_ITERATIONS && upper - lower > TOLERANCE; i++) {
+			double mid = (lower + upper) / 2.0;
+			if (responseTimeFactor(numServers, mid) < responseTimeFactor) {
+				lower = mid;
+			} else {
+				upper = mid;
+			}
+		}
+		return (lower + upper) / 2.0;
+	}
+}
@@ -0,0 +1,242 @@
+/**
+ * Copyright 2014 SAP AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spotter.ext.detection.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.lpe.common.util.NumericPair;
+import org.lpe.common.util.NumericPairList;
+
+/**
+ * DBSCAN clustering of a response time series in the normalized (timestamp,
+ * response time) plane. Produces the same clusters as
+ * {@link org.lpe.common.util.LpeNumericUtils#dbscanNormalized}, but finds the
+ * neighbours of a point with a uniform grid of cells with the edge length
+ * epsilon: only the cell of the point and its eight adjacent cells have to be
+ * inspected, instead of all points of the series.
+ * 
+ * The grid is a list of point indices sorted by cell and a sorted array of
+ * the occupied cells, thus, no objects are created per point.
+ * 
+ * @author Alexander Wert
+ * 
+ */
+public final class GridDBSCAN {
+
+	private static final int UNCLASSIFIED = -1;
+	private static final double MIN_CELL_SIZE = 1E-6;
+
+	private final long[] keys;
+	private final double[] values;
+	private final double[] xs;
+	private final double[] ys;
+	private final double epsilonSquare;
+	private final double cellSize;
+	private final long numRows;
+	private final long[] cells;
+	private final int[] cellOffsets;
+	private final int[] cellPoints;
+
+	private GridDBSCAN(NumericPairList<Long, Double> data, double epsilon, double keyRange, double valueRange) {
+		int n = data.size();
+		this.epsilonSquare = epsilon * epsilon;
+		keys = new long[n];
+		values = new double[n];
+		xs = new double[n];
+		ys = new double[n];
+		double minKey = Double.MAX_VALUE;
+		double minValue = Double.MAX_VALUE;
+		int i = 0;
+		for (NumericPair<Long, Double> pair : data) {
+			keys[i] = pair.getKey();
+			values[i] = pair.getValue();
+			minKey = Math.min(minKey, keys[i]);
+			minValue = Math.min(minValue, values[i]);
+			i++;
+		}
+		// a range of zero maps all points to the same coordinate
+		for (i = 0; i < n; i++) {
+			xs[i] = keyRange > 0.0 ? (keys[i] - minKey) / keyRange : 0.0;
+			ys[i] = valueRange > 0.0 ? (values[i] - minValue) / valueRange : 0.0;
+		}
+
+		// cells must not be smaller than epsilon, larger cells only cost speed
+		cellSize = epsilon > MIN_CELL_SIZE ? epsilon : MIN_CELL_SIZE;
+		numRows = (long) Math.floor(1.0 / cellSize) + 2;
+		long[] pointCells = new long[n];
+		for (i = 0; i < n; i++) {
+			pointCells[i] = cellKey((long) Math.floor(xs[i] / cellSize), (long) Math.floor(ys[i] / cellSize));
+		}
+
+		// counting sort of the points by cell
+		long[] sortedCells = Arrays.copyOf(pointCells, n);
+		Arrays.sort(sortedCells);
+		int numCells = 0;
+		for (i = 0; i < n; i++) {
+			if (i == 0 || sortedCells[i] != sortedCells[i - 1]) {
+				sortedCells[numCells++] = sortedCells[i];
+			}
+		}
+		cells = Arrays.copyOf(sortedCells, numCells);
+		cellOffsets = new int[numCells + 1];
+		for (i = 0; i < n; i++) {
+			cellOffsets[Arrays.binarySearch(cells, pointCells[i]) + 1]++;
+		}
+		for (int c = 0; c < numCells; c++) {
+			cellOffsets[c + 1] += cellOffsets[c];
+		}
+		int[] positions = Arrays.copyOf(cellOffsets, numCells);
+		cellPoints = new int[n];
+		for (i = 0; i < n; i++) {
+			cellPoints[positions[Arrays.binarySearch(cells, pointCells[i])]++] = i;
+		}
+	}
+
+	/**
+	 * Clusters the given series with DBSCAN. Distances are calculated after
+	 * dividing keys by the key range and values by the value range. Points
+	 * which are neither core points nor within the epsilon neighbourhood of a
+	 * core point (noise) are not part of any cluster.
+	 * 
+	 * @param data
+	 *            timestamp response time pairs
+	 * @param epsilon
+	 *            radius of the neighbourhood in the normalized plane
+	 * @param minNeighbours
+	 *            minimal number of points within the neighbourhood of a core
+	 *            point, including the point itself
+	 * @param keyRange
+	 *            range of the keys used for normalization
+	 * @param valueRange
+	 *            range of the values used for normalization
+	 * @return clusters in the order of their first point in the series
+	 */
+	public static List<NumericPairList<Long, Double>> cluster(NumericPairList<Long, Double> data, double epsilon,
+			int minNeighbours, double keyRange, double valueRange) {
+		return new GridDBSCAN(data, epsilon, keyRange, valueRange).run(minNeighbours);
+	}
+
+	private List<NumericPairList<Long, Double>> run(int minNeighbours) {
+		int n = keys.length;
+		int[] clusterIds = new int[n];
+		Arrays.fill(clusterIds, UNCLASSIFIED);
+		boolean[] visited = new boolean[n];
+		IntList neighbours = new IntList();
+		IntList queue = new IntList();
+		List<NumericPairList<Long, Double>> clusters = new ArrayList<>();
+
+		for (int i = 0; i < n; i++) {
+			if (visited[i]) {
+				continue;
+			}
+			visited[i] = true;
+			neighbours.clear();
+			findNeighbours(i, neighbours);
+			if (neighbours.size < minNeighbours) {
+				// noise for now, may become a border point of a later cluster
+				continue;
+			}
+			int clusterId = clusters.size();
+			NumericPairList<Long, Double> cluster = new NumericPairList<>();
+			clusters.add(cluster);
+			clusterIds[i] = clusterId;
+			cluster.add(keys[i], values[i]);
+			queue.clear();
+			claimAll(neighbours, clusterId, cluster, clusterIds, visited, queue);
+			for (int q = 0; q < queue.size; q++) {
+				int point = queue.values[q];
+				visited[point] = true;
+				neighbours.clear();
+				findNeighbours(point, neighbours);
+				if (neighbours.size >= minNeighbours) {
+					claimAll(neighbours, clusterId, cluster, clusterIds, visited, queue);
+				}
+			}
+		}
+		return clusters;
+	}
+
+	/**
+	 * Adds the unclassified points to the cluster. Points which have not been
+	 * visited yet are queued for expansion. Visited unclassified points are
+	 * noise points, i.e. no core points, and need no expansion.
+	 */
+	private void claimAll(IntList points, int clusterId, NumericPairList<Long, Double> cluster, int[] clusterIds,
+			boolean[] visited, IntList queue) {
+		for (int k = 0; k < points.size; k++) {
+			int point = points.values[k];
+			if (clusterIds[point] != UNCLASSIFIED) {
+				continue;
+			}
+			clusterIds[point] = clusterId;
+			cluster.add(keys[point], values[point]);
+			if (!visited[point]) {
+				queue.add(point);
+			}
+		}
+	}
+
+	private void findNeighbours(int point, IntList result) {
+		long cellX = (long) Math.floor(xs[point] / cellSize);
+		long cellY = (long) Math.floor(ys[point] / cellSize);
+		for (long dx = -1; dx <= 1; dx++) {
+			for (long dy = -1; dy <= 1; dy++) {
+				long x = cellX + dx;
+				long y = cellY + dy;
+				if (x < 0 || y < 0 || y >= numRows) {
+					continue;
+				}
+				int cell = Arrays.binarySearch(cells, cellKey(x, y));
+				if (cell < 0) {
+					continue;
+				}
+				for (int p = cellOffsets[cell]; p < cellOffsets[cell + 1]; p++) {
+					int candidate = cellPoints[p];
+					double distX = xs[candidate] - xs[point];
+					double distY = ys[candidate] - ys[point];
+					if (distX * distX + distY * distY <= epsilonSquare) {
+						result.add(candidate);
+					}
+				}
+			}
+		}
+	}
+
+	private long cellKey(long x, long y) {
+		return x * numRows + y;
+	}
+
+	/**
+	 * Growable list of primitive integers.
+	 */
+	private static final class IntList {
+		private int[] values = new int[16];
+		private int size = 0;
+
+		void add(int value) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+
+		void clear() {
+			size = 0;
+		}
+	}
+}
@@ -0,0 +1,226 @@
+/**
+ * Copyright 2014 SAP AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spotter.ext.detection.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.aim.api.exceptions.InstrumentationException;
+import org.aim.api.exceptions.MeasurementException;
+import org.spotter.exceptions.WorkloadException;
+
+/**
+ * Searches the number of users at which the response times start to grow
+ * considerably (the knee of the response time curve) by bisection instead of
+ * running a dense grid of load steps. A load is considered as saturated if
+ * the mean response time of any operation reaches the knee factor times its
+ * single user response time. Each load is measured at most once, so results
+ * of earlier steps are reused for the bracket decisions.
+ * 
+ * The loads measured by the bisection cluster around the knee and are too few
+ * for analyses comparing consecutive load steps. Hence, the search is
+ * completed by {@link #measureLoadSteps(ILoadExperiment, int, int)}, which
+ * measures evenly spaced load steps up to the knee.
+ * 
+ * @author Alexander Wert
+ * 
+ */
+public class KneeSearch {
+
+	/**
+	 * Default ratio between response time and single user response time
+	 * which marks a saturated load.
+	 */
+	public static final double KNEE_FACTOR_DEFAULT = 2.0;
+
+	/**
+	 * Runs a single experiment.
+	 */
+	public interface ILoadExperiment {
+		/**
+		 * Runs an experiment with the given load.
+		 * 
+		 * @param numUsers
+		 *            number of users
+		 * @return response time summaries by operation
+		 * @throws InstrumentationException
+		 *             if instrumentation fails
+		 * @throws MeasurementException
+		 *             if measurement fails
+		 * @throws WorkloadException
+		 *             if load generation fails
+		 */
+		Map<String, ResponseTimeSummary> run(int numUsers) throws InstrumentationException, MeasurementException,
+				WorkloadException;
+	}
+
+	private final int maxUsers;
+	private final int resolution;
+	private final double kneeFactor;
+	private final Map<Integer, Map<String, Double>> meanResponseTimes = new HashMap<>();
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param maxUsers
+	 *            upper end of the search range
+	 * @param resolution
+	 *            the search stops when the bracket around the knee is not
+	 *            wider than this number of users
+	 * @param kneeFactor
+	 *            ratio between response time and single user response time
+	 *            which marks a saturated load
+	 */
+	public KneeSearch(int maxUsers, int resolution, double kneeFactor) {
+		this.maxUsers = Math.max(1, maxUsers);
+		this.resolution = Math.max(1, resolution);
+		this.kneeFactor = kneeFactor;
+	}
+
+	/**
+	 * Searches the knee.
+	 * 
+	 * @param experiment
+	 *            experiment to run for a load
+	 * @return smallest measured number of users with a saturated load, or -1
+	 *         if even the maximum load is not saturated
+	 * @throws InstrumentationException
+	 *             if instrumentation fails
+	 * @throws MeasurementException
+	 *             if measurement fails
+	 * @throws WorkloadException
+	 *             if load generation fails
+	 */
+	public int search(ILoadExperiment experiment) throws InstrumentationException, MeasurementException,
+			WorkloadException {
+		measure(experiment, 1);
+		if (maxUsers == 1 || !isSaturated(measure(experiment, maxUsers))) {
+			return -1;
+		}
+		int lower = 1;
+		int upper = maxUsers;
+		while (upper - lower > resolution) {
+			int mid = lower + (upper - lower) / 2;
+			if (isSaturated(measure(experiment, mid))) {
+				upper = mid;
+			} else {
+				lower = mid;
+			}
+		}
+		return upper;
+	}
+
+	/**
+	 * Measures evenly spaced load steps from one user up to the knee, or up to
+	 * the maximum load if the response times do not saturate. Loads measured
+	 * before are reused.
+	 * 
+	 * @param experiment
+	 *            experiment to run for a load
+	 * @param kneeUsers
+	 *            result of {@link #search(ILoadExperiment)}
+	 * @param numLoads
+	 *            number of evenly spaced load steps including the single user
+	 *            step
+	 * @return load steps to analyse in ascending order: the evenly spaced
+	 *         steps followed by the saturated loads measured above the knee.
+	 *         Loads measured by the bisection below the knee are left out.
+	 * @throws InstrumentationException
+	 *             if instrumentation fails
+	 * @throws MeasurementException
+	 *             if measurement fails
+	 * @throws WorkloadException
+	 *             if load generation fails
+	 */
+	public List<Integer> measureLoadSteps(ILoadExperiment experiment, int kneeUsers, int numLoads)
+			throws InstrumentationException, MeasurementException, WorkloadException {
+		int upper = kneeUsers > 0 ? kneeUsers : maxUsers;
+		List<Integer> loadSteps = Utils.calculateLoadSteps(upper, Math.max(1, numLoads - 1));
+		for (int numUsers : loadSteps) {
+			measure(experiment, numUsers);
+		}
+		for (int numUsers : getMeasuredLoads()) {
+			if (numUsers > upper) {
+				loadSteps.add(numUsers);
+			}
+		}
+		return loadSteps;
+	}
+
+	/**
+	 * Calculates the number of experiments of a search followed by
+	 * {@link #measureLoadSteps(ILoadExperiment, int, int)} in the worst case.
+	 * 
+	 * @param maxUsers
+	 *            upper end of the search range
+	 * @param resolution
+	 *            width of the bracket at which the search stops
+	 * @param numLoads
+	 *            number of evenly spaced load steps
+	 * @return maximum number of experiments
+	 */
+	public static int getMaxNumExperiments(int maxUsers, int resolution, int numLoads) {
+		if (maxUsers <= 1) {
+			return 1;
+		}
+		int numBisections = 0;
+		for (int width = maxUsers - 1; width > Math.max(1, resolution); width -= width / 2) {
+			numBisections++;
+		}
+		// one user and the maximum load are part of the search and the steps
+		return 2 + numBisections + Math.max(0, numLoads - 2);
+	}
+
+	/**
+	 * @return measured numbers of users in ascending order
+	 */
+	public List<Integer> getMeasuredLoads() {
+		List<Integer> loads = new ArrayList<>(meanResponseTimes.keySet());
+		Collections.sort(loads);
+		return loads;
+	}
+
+	private Map<String, Double> measure(ILoadExperiment experiment, int numUsers) throws InstrumentationException,
+			MeasurementException, WorkloadException {
+		Map<String, Double> means = meanResponseTimes.get(numUsers);
+		if (means == null) {
+			means = new HashMap<>();
+			for (Entry<String, ResponseTimeSummary> entry : experiment.run(numUsers).entrySet()) {
+				if (entry.getValue().getCount() > 0) {
+					means.put(entry.getKey(), entry.getValue().getMean());
+				}
+			}
+			meanResponseTimes.put(numUsers, means);
+		}
+		return means;
+	}
+
+	private boolean isSaturated(Map<String, Double> means) {
+		Map<String, Double> baseline = meanResponseTimes.get(1);
+		for (Entry<String, Double> entry : means.entrySet()) {
+			Double singleUserResponseTime = baseline.get(entry.getKey());
+			if (singleUserResponseTime != null && singleUserResponseTime > 0.0
+					&& entry.getValue() >= kneeFactor * singleUserResponseTime) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
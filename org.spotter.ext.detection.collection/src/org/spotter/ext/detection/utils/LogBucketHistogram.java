@@ -0,0 +1,219 @@
+/**
+ * Copyright 2014 SAP AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spotter.ext.detection.utils;
+
+import java.util.Arrays;
+
+/**
+ * Histogram of non-negative long values (e.g. response times) with
+ * logarithmically growing buckets, following the layout of HdrHistogram. For a
+ * precision of d significant decimal digits, all values below 2 * 10^d are
+ * counted exactly, larger values are counted in buckets whose width is below
+ * 10^-d of the values in the bucket. Hence, percentiles have a relative error
+ * of at most 10^-d.
+ * 
+ * Recording a value is constant time; counting, percentile queries and merges
+ * only iterate the buckets, independent of the number of recorded values.
+ * 
+ * @author Alexander Wert
+ * 
+ */
+public class LogBucketHistogram {
+
+	/**
+	 * Minimum number of significant decimal digits.
+	 */
+	public static final int MIN_SIGNIFICANT_DIGITS = 1;
+
+	/**
+	 * Maximum number of significant decimal digits.
+	 */
+	public static final int MAX_SIGNIFICANT_DIGITS = 5;
+
+	private static final double _100_PERCENT = 100.0;
+	private static final int DECIMAL_BASE = 10;
+
+	private final int significantDigits;
+	private final int subBucketHalfCountMagnitude;
+	private final int subBucketHalfCount;
+	private final long subBucketMask;
+	private final int leadingZeroCountBase;
+
+	private long[] counts;
+	private long totalCount = 0;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param significantDigits
+	 *            number of significant decimal digits to be preserved, between
+	 *            {@value #MIN_SIGNIFICANT_DIGITS} and
+	 *            {@value #MAX_SIGNIFICANT_DIGITS}
+	 */
+	public LogBucketHistogram(int significantDigits) {
+		if (significantDigits < MIN_SIGNIFICANT_DIGITS || significantDigits > MAX_SIGNIFICANT_DIGITS) {
+			throw new IllegalArgumentException("Number of significant digits must be between "
+					+ MIN_SIGNIFICANT_DIGITS + " and " + MAX_SIGNIFICANT_DIGITS + ".");
+		}
+		this.significantDigits = significantDigits;
+		long largestValueWithSingleUnitResolution = 2L * (long) Math.pow(DECIMAL_BASE, significantDigits);
+		int subBucketCountMagnitude = Long.SIZE - Long.numberOfLeadingZeros(largestValueWithSingleUnitResolution - 1);
+		subBucketHalfCountMagnitude = subBucketCountMagnitude - 1;
+		subBucketHalfCount = 1 << subBucketHalfCountMagnitude;
+		subBucketMask = (1L << subBucketCountMagnitude) - 1;
+		leadingZeroCountBase = Long.SIZE - subBucketHalfCountMagnitude - 1;
+		counts = new long[2 * subBucketHalfCount];
+	}
+
+	/**
+	 * Records a value.
+	 * 
+	 * @param value
+	 *            non-negative value to record
+	 */
+	public void recordValue(long value) {
+		recordValue(value, 1L);
+	}
+
+	/**
+	 * Records a value multiple times.
+	 * 
+	 * @param value
+	 *            non-negative value to record
+	 * @param count
+	 *            number of occurrences of the value
+	 */
+	public void recordValue(long value, long count) {
+		if (value < 0) {
+			throw new IllegalArgumentException("Histogram cannot record negative values.");
+		}
+		int index = countsIndex(value);
+		ensureCapacity(index + 1);
+		counts[index] += count;
+		totalCount += count;
+	}
+
+	/**
+	 * Adds all counts of the given histogram to this histogram.
+	 * 
+	 * @param other
+	 *            histogram with the same precision as this histogram
+	 */
+	public void add(LogBucketHistogram other) {
+		if (other.significantDigits != significantDigits) {
+			throw new IllegalArgumentException("Cannot merge histograms of different precision.");
+		}
+		ensureCapacity(other.counts.length);
+		for (int i = 0; i < other.counts.length; i++) {
+			counts[i] += other.counts[i];
+		}
+		totalCount += other.totalCount;
+	}
+
+	/**
+	 * @return number of recorded values
+	 */
+	public long getTotalCount() {
+		return totalCount;
+	}
+
+	/**
+	 * @return number of significant decimal digits
+	 */
+	public int getSignificantDigits() {
+		return significantDigits;
+	}
+
+	/**
+	 * Counts the recorded values above the given threshold. The count is exact
+	 * for thresholds below 2 * 10^d (d significant digits). For larger
+	 * thresholds, values which are equivalent to the threshold within the
+	 * precision of the histogram are not counted.
+	 * 
+	 * @param threshold
+	 *            threshold
+	 * @return number of values greater than the threshold
+	 */
+	public long getCountAbove(long threshold) {
+		if (threshold < 0) {
+			return totalCount;
+		}
+		long count = 0;
+		for (int i = countsIndex(threshold) + 1; i < counts.length; i++) {
+			count += counts[i];
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the value at the given percentile, i.e. the highest value
+	 * equivalent to the smallest recorded value which is greater than or equal
+	 * to the given percentage of all recorded values.
+	 * 
+	 * @param percentile
+	 *            percentile between 0 and 100
+	 * @return value at the percentile, 0 if the histogram is empty
+	 */
+	public long getValueAtPercentile(double percentile) {
+		double requestedPercentile = Math.min(Math.max(percentile, 0.0), _100_PERCENT);
+		long countAtPercentile = (long) Math.ceil(requestedPercentile / _100_PERCENT * totalCount);
+		countAtPercentile = Math.max(countAtPercentile, 1L);
+		long cumulativeCount = 0;
+		for (int i = 0; i < counts.length; i++) {
+			cumulativeCount += counts[i];
+			if (cumulativeCount >= countAtPercentile) {
+				return highestEquivalentValue(i);
+			}
+		}
+		return 0L;
+	}
+
+	/**
+	 * @return highest value equivalent to the largest recorded value, 0 if the
+	 *         histogram is empty
+	 */
+	public long getMaxValue() {
+		for (int i = counts.length - 1; i >= 0; i--) {
+			if (counts[i] > 0) {
+				return highestEquivalentValue(i);
+			}
+		}
+		return 0L;
+	}
+
+	private int countsIndex(long value) {
+		int bucketIndex = leadingZeroCountBase - Long.numberOfLeadingZeros(value | subBucketMask);
+		int subBucketIndex = (int) (value >>> bucketIndex);
+		return ((bucketIndex + 1) << subBucketHalfCountMagnitude) + (subBucketIndex - subBucketHalfCount);
+	}
+
+	private long highestEquivalentValue(int index) {
+		int bucketIndex = (index >> subBucketHalfCountMagnitude) - 1;
+		long subBucketIndex = (index & (subBucketHalfCount - 1)) + subBucketHalfCount;
+		if (bucketIndex < 0) {
+			subBucketIndex -= subBucketHalfCount;
+			bucketIndex = 0;
+		}
+		long lowestEquivalentValue = subBucketIndex << bucketIndex;
+		return lowestEquivalentValue + (1L << bucketIndex) - 1;
+	}
+
+	private void ensureCapacity(int length) {
+		if (length > counts.length) {
+			counts = Arrays.copyOf(counts, Math.max(length, counts.length + subBucketHalfCount));
+		}
+	}
+}
@@ -0,0 +1,158 @@
+/**
+ * Copyright 2014 SAP AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spotter.ext.detection.utils;
+
+import java.util.Random;
+
+import org.lpe.common.util.LpeNumericUtils;
+import org.lpe.common.util.NumericPair;
+import org.lpe.common.util.NumericPairList;
+
+/**
+ * Mean normalized distance between the points of a response time series, as
+ * calculated by {@link LpeNumericUtils#meanNormalizedDistance}. The exact
+ * mean requires all pairs of points. If the number of pairs exceeds the
+ * sample size, the mean is estimated from a seeded random sample of pairs
+ * instead. As the pairs are drawn independently and uniformly, the estimate
+ * is unbiased and its confidence interval follows from the central limit
+ * theorem.
+ * 
+ * @author Alexander Wert
+ * 
+ */
+public final class MeanDistanceEstimate {
+
+	/**
+	 * Default number of sampled pairs.
+	 */
+	public static final int DEFAULT_SAMPLE_SIZE = 100000;
+
+	/**
+	 * Default seed of the pair sampling.
+	 */
+	public static final long DEFAULT_SEED = 1L;
+
+	// two-sided 95% quantile of the standard normal distribution
+	private static final double CONFIDENCE_QUANTILE = 1.96;
+
+	private final double mean;
+	private final double confidenceHalfWidth;
+	private final long numPairs;
+	private final boolean exact;
+
+	private MeanDistanceEstimate(double mean, double confidenceHalfWidth, long numPairs, boolean exact) {
+		this.mean = mean;
+		this.confidenceHalfWidth = confidenceHalfWidth;
+		this.numPairs = numPairs;
+		this.exact = exact;
+	}
+
+	/**
+	 * Calculates or estimates the mean normalized distance.
+	 * 
+	 * @param series
+	 *            timestamp response time pairs
+	 * @param keyRange
+	 *            range of the keys used for normalization
+	 * @param valueRange
+	 *            range of the values used for normalization
+	 * @param sampleSize
+	 *            number of pairs to sample, the exact mean is calculated if
+	 *            the series has not more pairs of points
+	 * @param seed
+	 *            seed of the sampling
+	 * @return mean distance
+	 */
+	public static MeanDistanceEstimate calculate(NumericPairList<Long, Double> series, double keyRange,
+			double valueRange, int sampleSize, long seed) {
+		int n = series.size();
+		long totalPairs = ((long) n) * (n - 1) / 2;
+		if (totalPairs <= sampleSize) {
+			return new MeanDistanceEstimate(LpeNumericUtils.meanNormalizedDistance(series, keyRange, valueRange),
+					0.0, totalPairs, true);
+		}
+
+		// shifting by the minimum keeps the precision of large timestamps
+		double minKey = series.getKeyMin();
+		double[] xs = new double[n];
+		double[] ys = new double[n];
+		int i = 0;
+		for (NumericPair<Long, Double> pair : series) {
+			xs[i] = (pair.getKey() - minKey) / keyRange;
+			ys[i] = pair.getValue() / valueRange;
+			i++;
+		}
+
+		Random random = new Random(seed);
+		double sum = 0.0;
+		double sumOfSquares = 0.0;
+		for (int s = 0; s < sampleSize; s++) {
+			int first = random.nextInt(n);
+			// second point uniformly among the other points
+			int second = random.nextInt(n - 1);
+			if (second >= first) {
+				second++;
+			}
+			double dx = xs[first] - xs[second];
+			double dy = ys[first] - ys[second];
+			double distance = Math.sqrt(dx * dx + dy * dy);
+			sum += distance;
+			sumOfSquares += distance * distance;
+		}
+		double sampleMean = sum / sampleSize;
+		double variance = Math.max(0.0, (sumOfSquares - sampleSize * sampleMean * sampleMean) / (sampleSize - 1));
+		return new MeanDistanceEstimate(sampleMean, CONFIDENCE_QUANTILE * Math.sqrt(variance / sampleSize),
+				sampleSize, false);
+	}
+
+	/**
+	 * @return the mean normalized distance
+	 */
+	public double getMean() {
+		return mean;
+	}
+
+	/**
+	 * @return half width of the 95% confidence interval of the mean, zero for
+	 *         exact means
+	 */
+	public double getConfidenceHalfWidth() {
+		return confidenceHalfWidth;
+	}
+
+	/**
+	 * @return number of pairs the mean is based on
+	 */
+	public long getNumPairs() {
+		return numPairs;
+	}
+
+	/**
+	 * @return true, if the mean has been calculated from all pairs
+	 */
+	public boolean isExact() {
+		return exact;
+	}
+
+	@Override
+	public String toString() {
+		if (exact) {
+			return "mean normalized distance " + mean + " (exact, " + numPairs + " pairs)";
+		}
+		return "mean normalized distance " + mean + " +/- " + confidenceHalfWidth + " (95% confidence, " + numPairs
+				+ " sampled pairs)";
+	}
+}
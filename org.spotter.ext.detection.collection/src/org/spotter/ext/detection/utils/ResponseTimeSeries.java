@@ -0,0 +1,163 @@
+/**
+ * Copyright 2014 SAP AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spotter.ext.detection.utils;
+
+import java.util.Arrays;
+
+import org.lpe.common.util.NumericPairList;
+
+/**
+ * Immutable, chronologically sorted series of response times of one
+ * operation. Timestamps and response times are kept in primitive arrays, the
+ * order of measurements with equal timestamps is the order of the underlying
+ * dataset.
+ * 
+ * @author Alexander Wert
+ * 
+ */
+public final class ResponseTimeSeries {
+
+	private final long[] timestamps;
+	private final double[] responseTimes;
+	private TimeSeriesPyramid pyramid;
+
+	/**
+	 * Creates a series from the first entries of the given arrays. The entries
+	 * are copied in chronological order, the arrays are not modified.
+	 * 
+	 * @param timestamps
+	 *            measurement timestamps
+	 * @param responseTimes
+	 *            response times, index aligned with the timestamps
+	 * @param length
+	 *            number of valid entries in the arrays
+	 */
+	ResponseTimeSeries(long[] timestamps, double[] responseTimes, int length) {
+		int[] order = sortedOrder(timestamps, length);
+		this.timestamps = new long[length];
+		this.responseTimes = new double[length];
+		for (int i = 0; i < length; i++) {
+			this.timestamps[i] = timestamps[order[i]];
+			this.responseTimes[i] = responseTimes[order[i]];
+		}
+	}
+
+	/**
+	 * @return number of measurements
+	 */
+	public int size() {
+		return timestamps.length;
+	}
+
+	/**
+	 * @param index
+	 *            index of the measurement
+	 * @return timestamp of the measurement
+	 */
+	public long getTimestamp(int index) {
+		return timestamps[index];
+	}
+
+	/**
+	 * @param index
+	 *            index of the measurement
+	 * @return response time of the measurement
+	 */
+	public double getResponseTime(int index) {
+		return responseTimes[index];
+	}
+
+	/**
+	 * @return copy of the chronologically sorted timestamps
+	 */
+	public long[] getTimestamps() {
+		return Arrays.copyOf(timestamps, timestamps.length);
+	}
+
+	/**
+	 * @return copy of the response times in chronological order
+	 */
+	public double[] getResponseTimes() {
+		return Arrays.copyOf(responseTimes, responseTimes.length);
+	}
+
+	/**
+	 * @return multi-resolution view of the series, built on first request
+	 */
+	public synchronized TimeSeriesPyramid getPyramid() {
+		if (pyramid == null) {
+			pyramid = new TimeSeriesPyramid(timestamps, responseTimes, TimeSeriesPyramid.DEFAULT_NUM_LEVELS);
+		}
+		return pyramid;
+	}
+
+	/**
+	 * Creates a new, modifiable list of timestamp response time pairs in
+	 * chronological order. Equivalent to sorting the result of
+	 * {@link Utils#toTimestampRTPairs(org.aim.api.measurement.dataset.Dataset)}
+	 * .
+	 * 
+	 * @return list of timestamp response time pairs
+	 */
+	public NumericPairList<Long, Double> toNumericPairList() {
+		NumericPairList<Long, Double> pairs = new NumericPairList<>();
+		for (int i = 0; i < timestamps.length; i++) {
+			pairs.add(timestamps[i], responseTimes[i]);
+		}
+		return pairs;
+	}
+
+	/**
+	 * Stable sort of the indices by timestamp. Measurements mostly arrive in
+	 * chronological order, in that case no sorting is done at all.
+	 */
+	private static int[] sortedOrder(long[] keys, int length) {
+		int[] order = new int[length];
+		boolean sorted = true;
+		for (int i = 0; i < length; i++) {
+			order[i] = i;
+			if (i > 0 && keys[i] < keys[i - 1]) {
+				sorted = false;
+			}
+		}
+		if (!sorted) {
+			mergeSort(order, new int[length], keys, 0, length);
+		}
+		return order;
+	}
+
+	private static void mergeSort(int[] order, int[] buffer, long[] keys, int from, int to) {
+		if (to - from < 2) {
+			return;
+		}
+		int middle = (from + to) >>> 1;
+		mergeSort(order, buffer, keys, from, middle);
+		mergeSort(order, buffer, keys, middle, to);
+		if (keys[order[middle - 1]] <= keys[order[middle]]) {
+			return;
+		}
+		System.arraycopy(order, from, buffer, from, to - from);
+		int left = from;
+		int right = middle;
+		for (int i = from; i < to; i++) {
+			if (right >= to || (left < middle && keys[buffer[left]] <= keys[buffer[right]])) {
+				order[i] = buffer[left++];
+			} else {
+				order[i] = buffer[right++];
+			}
+		}
+	}
+}
@@ -0,0 +1,293 @@
+/**
+ * Copyright 2014 SAP AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spotter.ext.detection.utils;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.aim.api.measurement.dataset.Dataset;
+import org.aim.api.measurement.dataset.ParameterSelection;
+import org.aim.artifacts.records.ResponseTimeRecord;
+import org.spotter.core.detection.AbstractDetectionController;
+
+/**
+ * Cache of per operation response time series shared by all detection
+ * controllers analysing the same experiment. The series of a dataset are built
+ * lazily in a single pass over its records, on first request, and are
+ * immutable afterwards.
+ * 
+ * A dataset is first looked up by identity. Controllers reusing the
+ * experiment of another controller are not guaranteed to be handed the same
+ * dataset instance, for instance, if the measurement data is read again from
+ * disk. Hence, a dataset that is not cached by identity is looked up by a
+ * fingerprint built from its size and {@value #NUM_FINGERPRINT_SAMPLES} evenly
+ * spaced records. As the sampled records include their timestamps, datasets
+ * of different experiments do not share a fingerprint in practice.
+ * 
+ * Datasets are only weakly referenced, thus, the cache does not keep the
+ * records of finished experiments alive. The series of at most
+ * {@value #MAX_CACHED_DATASETS} datasets are cached at a time.
+ * 
+ * @author Alexander Wert
+ * 
+ */
+public final class ResponseTimeSeriesCache {
+
+	/**
+	 * Maximum number of datasets whose series are cached at the same time.
+	 */
+	public static final int MAX_CACHED_DATASETS = 4;
+
+	private static final int NUM_FINGERPRINT_SAMPLES = 32;
+
+	private static final List<Entry> ENTRIES = new LinkedList<>();
+
+	private ResponseTimeSeriesCache() {
+	}
+
+	/**
+	 * Returns the operations contained in the given response time dataset.
+	 * 
+	 * @param rtDataset
+	 *            response time dataset
+	 * @return unmodifiable set of operations
+	 */
+	public static Set<String> getOperations(Dataset rtDataset) {
+		return Collections.unmodifiableSet(getEntry(rtDataset).getAllUsersSeries(rtDataset).keySet());
+	}
+
+	/**
+	 * Returns the sorted numbers of users for which the given response time
+	 * dataset contains measurements.
+	 * 
+	 * @param rtDataset
+	 *            response time dataset
+	 * @return unmodifiable, ascending list of user numbers
+	 */
+	public static List<Integer> getNumUsers(Dataset rtDataset) {
+		return getEntry(rtDataset).getNumUsers(rtDataset);
+	}
+
+	/**
+	 * Returns the chronologically sorted response times of an operation over
+	 * all load levels.
+	 * 
+	 * @param rtDataset
+	 *            response time dataset
+	 * @param operation
+	 *            operation of interest
+	 * @return response time series, empty if the operation has not been
+	 *         measured
+	 */
+	public static ResponseTimeSeries getSeries(Dataset rtDataset, String operation) {
+		return lookup(getEntry(rtDataset).getAllUsersSeries(rtDataset), operation);
+	}
+
+	/**
+	 * Returns the chronologically sorted response times of an operation for
+	 * one load level.
+	 * 
+	 * @param rtDataset
+	 *            response time dataset
+	 * @param operation
+	 *            operation of interest
+	 * @param numUsers
+	 *            number of users of the load level
+	 * @return response time series, empty if the operation has not been
+	 *         measured under the given load
+	 */
+	public static ResponseTimeSeries getSeries(Dataset rtDataset, String operation, int numUsers) {
+		return lookup(getEntry(rtDataset).getSeriesForUsers(rtDataset, numUsers), operation);
+	}
+
+	private static ResponseTimeSeries lookup(Map<String, ResponseTimeSeries> seriesByOperation, String operation) {
+		ResponseTimeSeries series = seriesByOperation.get(operation);
+		return series != null ? series : new ResponseTimeSeries(new long[0], new double[0], 0);
+	}
+
+	private static Entry getEntry(Dataset rtDataset) {
+		synchronized (ENTRIES) {
+			Iterator<Entry> iterator = ENTRIES.iterator();
+			while (iterator.hasNext()) {
+				Entry entry = iterator.next();
+				if (entry.dataset.get() == rtDataset) {
+					// keep recently used entries at the front
+					iterator.remove();
+					ENTRIES.add(0, entry);
+					return entry;
+				}
+			}
+			Fingerprint fingerprint = new Fingerprint(rtDataset);
+			iterator = ENTRIES.iterator();
+			while (iterator.hasNext()) {
+				Entry entry = iterator.next();
+				if (entry.fingerprint.equals(fingerprint)) {
+					iterator.remove();
+					ENTRIES.add(0, entry);
+					entry.dataset = new WeakReference<>(rtDataset);
+					return entry;
+				}
+			}
+			Entry entry = new Entry(rtDataset, fingerprint);
+			ENTRIES.add(0, entry);
+			while (ENTRIES.size() > MAX_CACHED_DATASETS) {
+				ENTRIES.remove(ENTRIES.size() - 1);
+			}
+			return entry;
+		}
+	}
+
+	private static Map<String, ResponseTimeSeries> groupByOperation(Dataset rtDataset) {
+		Map<String, SeriesBuilder> builders = new LinkedHashMap<>();
+		for (ResponseTimeRecord rtRecord : rtDataset.getRecords(ResponseTimeRecord.class)) {
+			SeriesBuilder builder = builders.get(rtRecord.getOperation());
+			if (builder == null) {
+				builder = new SeriesBuilder();
+				builders.put(rtRecord.getOperation(), builder);
+			}
+			builder.add(rtRecord.getTimeStamp(), rtRecord.getResponseTime());
+		}
+		Map<String, ResponseTimeSeries> seriesByOperation = new LinkedHashMap<>();
+		for (Map.Entry<String, SeriesBuilder> builder : builders.entrySet()) {
+			seriesByOperation.put(builder.getKey(), builder.getValue().build());
+		}
+		return Collections.unmodifiableMap(seriesByOperation);
+	}
+
+	/**
+	 * Cached series of one dataset. The series are derived from the dataset
+	 * passed by the caller, which is either the cached dataset or one with
+	 * the same fingerprint.
+	 */
+	private static final class Entry {
+		private final Fingerprint fingerprint;
+		/** last dataset instance seen, guarded by the lock on the entries. */
+		private WeakReference<Dataset> dataset;
+		private Map<String, ResponseTimeSeries> allUsersSeries;
+		private List<Integer> numUsers;
+		private final Map<Integer, Map<String, ResponseTimeSeries>> seriesByUsers = new HashMap<>();
+
+		private Entry(Dataset dataset, Fingerprint fingerprint) {
+			this.dataset = new WeakReference<>(dataset);
+			this.fingerprint = fingerprint;
+		}
+
+		private synchronized Map<String, ResponseTimeSeries> getAllUsersSeries(Dataset rtDataset) {
+			if (allUsersSeries == null) {
+				allUsersSeries = groupByOperation(rtDataset);
+			}
+			return allUsersSeries;
+		}
+
+		private synchronized List<Integer> getNumUsers(Dataset rtDataset) {
+			if (numUsers == null) {
+				List<Integer> users = new ArrayList<>(rtDataset.getValueSet(
+						AbstractDetectionController.NUMBER_OF_USERS_KEY, Integer.class));
+				Collections.sort(users);
+				numUsers = Collections.unmodifiableList(users);
+			}
+			return numUsers;
+		}
+
+		private synchronized Map<String, ResponseTimeSeries> getSeriesForUsers(Dataset rtDataset, int users) {
+			Map<String, ResponseTimeSeries> series = seriesByUsers.get(users);
+			if (series == null) {
+				Dataset selection = ParameterSelection.newSelection()
+						.select(AbstractDetectionController.NUMBER_OF_USERS_KEY, users).applyTo(rtDataset);
+				series = selection == null ? Collections.<String, ResponseTimeSeries> emptyMap()
+						: groupByOperation(selection);
+				seriesByUsers.put(users, series);
+			}
+			return series;
+		}
+	}
+
+	/**
+	 * Size and hash of evenly spaced response time records of a dataset.
+	 */
+	private static final class Fingerprint {
+		private final int size;
+		private final long hash;
+
+		private Fingerprint(Dataset rtDataset) {
+			List<ResponseTimeRecord> records = rtDataset.getRecords(ResponseTimeRecord.class);
+			size = records.size();
+			int step = Math.max(1, size / NUM_FINGERPRINT_SAMPLES);
+			long sampleHash = 1L;
+			for (int i = 0; i < size; i += step) {
+				sampleHash = 31L * sampleHash + hash(records.get(i));
+			}
+			if (size > 0) {
+				sampleHash = 31L * sampleHash + hash(records.get(size - 1));
+			}
+			hash = sampleHash;
+		}
+
+		private static long hash(ResponseTimeRecord rtRecord) {
+			long recordHash = rtRecord.getTimeStamp();
+			recordHash = 31L * recordHash + rtRecord.getResponseTime();
+			return 31L * recordHash + (rtRecord.getOperation() == null ? 0 : rtRecord.getOperation().hashCode());
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Fingerprint)) {
+				return false;
+			}
+			Fingerprint other = (Fingerprint) obj;
+			return size == other.size && hash == other.hash;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * size + (int) (hash ^ (hash >>> 32));
+		}
+	}
+
+	/**
+	 * Growable primitive buffers collecting the measurements of one operation.
+	 */
+	private static final class SeriesBuilder {
+		private static final int INITIAL_CAPACITY = 64;
+
+		private long[] timestamps = new long[INITIAL_CAPACITY];
+		private double[] responseTimes = new double[INITIAL_CAPACITY];
+		private int size = 0;
+
+		private void add(long timestamp, double responseTime) {
+			if (size == timestamps.length) {
+				timestamps = Arrays.copyOf(timestamps, size * 2);
+				responseTimes = Arrays.copyOf(responseTimes, size * 2);
+			}
+			timestamps[size] = timestamp;
+			responseTimes[size] = responseTime;
+			size++;
+		}
+
+		private ResponseTimeSeries build() {
+			return new ResponseTimeSeries(timestamps, responseTimes, size);
+		}
+	}
+}
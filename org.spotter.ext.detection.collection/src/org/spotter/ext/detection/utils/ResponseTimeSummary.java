@@ -0,0 +1,196 @@
+/**
+ * Copyright 2014 SAP AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spotter.ext.detection.utils;
+
+/**
+ * Mergeable summary of a set of response times: count, sum, mean, sum of
+ * squared deviations from the mean, minimum and maximum. The mean and the
+ * squared deviations are updated incrementally (Welford) and merged with the
+ * pairwise update of Chan et al., which stays accurate when the spread of the
+ * response times is small compared to their mean. Optionally, a {@link LogBucketHistogram} serves as
+ * quantile sketch, thus, percentiles and requirement violations can be
+ * queried within the precision of the histogram.
+ * 
+ * @author Alexander Wert
+ * 
+ */
+public class ResponseTimeSummary {
+
+	/**
+	 * Sketch precision indicating that no quantile sketch is maintained.
+	 */
+	public static final int NO_SKETCH = 0;
+
+	private final int sketchPrecision;
+	private final LogBucketHistogram sketch;
+	private long count = 0;
+	private double sum = 0.0;
+	private double mean = 0.0;
+	private double squaredDeviations = 0.0;
+	private double min = Double.POSITIVE_INFINITY;
+	private double max = Double.NEGATIVE_INFINITY;
+
+	/**
+	 * Constructor for a summary without quantile sketch.
+	 */
+	public ResponseTimeSummary() {
+		this(NO_SKETCH);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param sketchPrecision
+	 *            number of significant digits of the quantile sketch, or
+	 *            {@link #NO_SKETCH}
+	 */
+	public ResponseTimeSummary(int sketchPrecision) {
+		this.sketchPrecision = sketchPrecision;
+		this.sketch = sketchPrecision == NO_SKETCH ? null : new LogBucketHistogram(sketchPrecision);
+	}
+
+	/**
+	 * Adds a response time.
+	 * 
+	 * @param responseTime
+	 *            non-negative response time
+	 */
+	public void add(double responseTime) {
+		count++;
+		sum += responseTime;
+		double delta = responseTime - mean;
+		mean += delta / count;
+		squaredDeviations += delta * (responseTime - mean);
+		min = Math.min(min, responseTime);
+		max = Math.max(max, responseTime);
+		if (sketch != null) {
+			sketch.recordValue((long) responseTime);
+		}
+	}
+
+	/**
+	 * Adds all response times summarized by the other summary.
+	 * 
+	 * @param other
+	 *            summary with the same sketch precision
+	 */
+	public void merge(ResponseTimeSummary other) {
+		if (other.sketchPrecision != sketchPrecision) {
+			throw new IllegalArgumentException("Cannot merge summaries of different sketch precision.");
+		}
+		if (other.count == 0) {
+			return;
+		}
+		long mergedCount = count + other.count;
+		double delta = other.mean - mean;
+		mean += delta * other.count / mergedCount;
+		squaredDeviations += other.squaredDeviations + delta * delta * ((double) count * other.count / mergedCount);
+		count = mergedCount;
+		sum += other.sum;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+		if (sketch != null) {
+			sketch.add(other.sketch);
+		}
+	}
+
+	/**
+	 * @return number of response times
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * @return sum of all response times
+	 */
+	public double getSum() {
+		return sum;
+	}
+
+	/**
+	 * @return sum of the squared deviations of the response times from their
+	 *         mean
+	 */
+	public double getSquaredDeviations() {
+		return squaredDeviations;
+	}
+
+	/**
+	 * @return smallest response time, positive infinity if empty
+	 */
+	public double getMin() {
+		return min;
+	}
+
+	/**
+	 * @return largest response time, negative infinity if empty
+	 */
+	public double getMax() {
+		return max;
+	}
+
+	/**
+	 * @return mean response time, NaN if empty
+	 */
+	public double getMean() {
+		return count == 0 ? Double.NaN : mean;
+	}
+
+	/**
+	 * @return sample variance of the response times, NaN for less than two
+	 *         response times
+	 */
+	public double getVariance() {
+		if (count < 2) {
+			return Double.NaN;
+		}
+		return squaredDeviations / (count - 1);
+	}
+
+	/**
+	 * @return true, if a quantile sketch is maintained
+	 */
+	public boolean hasSketch() {
+		return sketch != null;
+	}
+
+	/**
+	 * @param percentile
+	 *            percentile between 0 and 100
+	 * @return response time at the percentile, within the sketch precision
+	 */
+	public long getValueAtPercentile(double percentile) {
+		return getSketch().getValueAtPercentile(percentile);
+	}
+
+	/**
+	 * @param threshold
+	 *            response time threshold
+	 * @return number of response times above the threshold, within the sketch
+	 *         precision
+	 */
+	public long getCountAbove(long threshold) {
+		return getSketch().getCountAbove(threshold);
+	}
+
+	private LogBucketHistogram getSketch() {
+		if (sketch == null) {
+			throw new IllegalStateException("Summary has been created without quantile sketch.");
+		}
+		return sketch;
+	}
+}
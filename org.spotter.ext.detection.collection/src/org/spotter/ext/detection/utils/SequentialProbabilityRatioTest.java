@@ -0,0 +1,198 @@
+/**
+ * Copyright 2014 SAP AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spotter.ext.detection.utils;
+
+import java.util.List;
+
+/**
+ * Wald's sequential probability ratio test (SPRT). Evidence is accumulated
+ * as log-likelihood ratio over a sequence of observations until it crosses
+ * one of the bounds derived from the requested error rates.
+ * 
+ * @author Alexander Wert
+ * 
+ */
+public class SequentialProbabilityRatioTest {
+
+	/**
+	 * Decision of the test.
+	 */
+	public enum Decision {
+		/**
+		 * The evidence is not sufficient yet.
+		 */
+		CONTINUE,
+		/**
+		 * The null hypothesis has been accepted.
+		 */
+		ACCEPT_NULL_HYPOTHESIS,
+		/**
+		 * The alternative hypothesis has been accepted.
+		 */
+		ACCEPT_ALTERNATIVE_HYPOTHESIS
+	}
+
+	private final double alpha;
+	private final double beta;
+	private final double upperBound;
+	private final double lowerBound;
+	private double logLikelihoodRatio = 0.0;
+	private int numObservations = 0;
+	private Decision decision = Decision.CONTINUE;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param alpha
+	 *            requested probability of a type I error (false alarm)
+	 * @param beta
+	 *            requested probability of a type II error (miss)
+	 */
+	public SequentialProbabilityRatioTest(double alpha, double beta) {
+		if (alpha <= 0.0 || alpha >= 1.0 || beta <= 0.0 || beta >= 1.0) {
+			throw new IllegalArgumentException("Error probabilities must be in the range (0,1)!");
+		}
+		this.alpha = alpha;
+		this.beta = beta;
+		upperBound = Math.log((1.0 - beta) / alpha);
+		lowerBound = Math.log(beta / (1.0 - alpha));
+	}
+
+	/**
+	 * Adds the log-likelihood ratio of an observation. Observations added
+	 * after a decision has been made are ignored.
+	 * 
+	 * @param observationLogLikelihoodRatio
+	 *            log of the likelihood under the alternative hypothesis
+	 *            divided by the likelihood under the null hypothesis
+	 * @return decision after the observation
+	 */
+	public Decision addLogLikelihoodRatio(double observationLogLikelihoodRatio) {
+		if (decision != Decision.CONTINUE) {
+			return decision;
+		}
+		numObservations++;
+		logLikelihoodRatio += observationLogLikelihoodRatio;
+		if (logLikelihoodRatio >= upperBound) {
+			decision = Decision.ACCEPT_ALTERNATIVE_HYPOTHESIS;
+		} else if (logLikelihoodRatio <= lowerBound) {
+			decision = Decision.ACCEPT_NULL_HYPOTHESIS;
+		}
+		return decision;
+	}
+
+	/**
+	 * Adds the comparison of two consecutive samples. The null hypothesis is
+	 * that the mean did not increase, the alternative hypothesis is that the
+	 * mean increased by the given relative amount. The relative increase of
+	 * the means is assumed to be normally distributed with the standard error
+	 * estimated from the samples.
+	 * 
+	 * @param previous
+	 *            sample of the previous step
+	 * @param current
+	 *            sample of the current step
+	 * @param minRelativeIncrease
+	 *            relative increase of the mean under the alternative
+	 *            hypothesis, e.g. 0.1 for 10 percent
+	 * @return decision after the observation
+	 */
+	public Decision addRelativeIncrease(List<? extends Number> previous, List<? extends Number> current,
+			double minRelativeIncrease) {
+		return addRelativeIncrease(summarize(previous), summarize(current), minRelativeIncrease);
+	}
+
+	/**
+	 * Adds the comparison of two consecutive samples given by their summaries.
+	 * See {@link #addRelativeIncrease(List, List, double)}.
+	 * 
+	 * @param previous
+	 *            summary of the previous step
+	 * @param current
+	 *            summary of the current step
+	 * @param minRelativeIncrease
+	 *            relative increase of the mean under the alternative
+	 *            hypothesis, e.g. 0.1 for 10 percent
+	 * @return decision after the observation
+	 */
+	public Decision addRelativeIncrease(ResponseTimeSummary previous, ResponseTimeSummary current,
+			double minRelativeIncrease) {
+		if (previous.getCount() < 2 || current.getCount() < 2) {
+			return decision;
+		}
+		double prevMean = previous.getMean();
+		if (prevMean <= 0.0) {
+			return decision;
+		}
+		double relativeIncrease = current.getMean() / prevMean - 1.0;
+		double standardError = Math.sqrt(previous.getVariance() / previous.getCount() + current.getVariance()
+				/ current.getCount())
+				/ prevMean;
+		// avoid an infinite ratio for constant samples
+		double variance = Math.max(standardError * standardError, 1E-6 * minRelativeIncrease * minRelativeIncrease);
+		double llr = minRelativeIncrease * (relativeIncrease - minRelativeIncrease / 2.0) / variance;
+		return addLogLikelihoodRatio(llr);
+	}
+
+	private static ResponseTimeSummary summarize(List<? extends Number> sample) {
+		ResponseTimeSummary summary = new ResponseTimeSummary();
+		for (Number value : sample) {
+			summary.add(value.doubleValue());
+		}
+		return summary;
+	}
+
+	/**
+	 * @return current decision
+	 */
+	public Decision getDecision() {
+		return decision;
+	}
+
+	/**
+	 * @return number of observations the decision is based on
+	 */
+	public int getNumObservations() {
+		return numObservations;
+	}
+
+	/**
+	 * @return accumulated log-likelihood ratio
+	 */
+	public double getLogLikelihoodRatio() {
+		return logLikelihoodRatio;
+	}
+
+	/**
+	 * @return upper bound on the achieved probability of a type I error
+	 */
+	public double getMaxTypeIError() {
+		return alpha / (1.0 - beta);
+	}
+
+	/**
+	 * @return upper bound on the achieved probability of a type II error
+	 */
+	public double getMaxTypeIIError() {
+		return beta / (1.0 - alpha);
+	}
+
+	@Override
+	public String toString() {
+		return decision + " after " + numObservations + " observations (type I error <= " + getMaxTypeIError()
+				+ ", type II error <= " + getMaxTypeIIError() + ")";
+	}
+}
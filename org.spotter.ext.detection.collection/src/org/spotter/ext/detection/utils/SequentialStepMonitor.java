@@ -0,0 +1,171 @@
+/**
+ * Copyright 2014 SAP AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spotter.ext.detection.utils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.aim.api.exceptions.MeasurementException;
+import org.aim.api.measurement.AbstractRecord;
+import org.spotter.core.measurement.IMeasurementAdapter;
+import org.spotter.ext.detection.utils.SequentialProbabilityRatioTest.Decision;
+
+/**
+ * Evaluates an experiment series step by step with one sequential
+ * probability ratio test per operation. The tests check whether the response
+ * times of an operation increase from step to step. The series can be ended
+ * as soon as all operations have been decided.
+ * 
+ * @author Alexander Wert
+ * 
+ */
+public class SequentialStepMonitor {
+
+	/**
+	 * Default relative response time increase per step under the alternative
+	 * hypothesis.
+	 */
+	public static final double DEFAULT_MIN_RELATIVE_INCREASE = 0.1;
+
+	private final double alpha;
+	private final double beta;
+	private final double minRelativeIncrease;
+	private final Map<String, SequentialProbabilityRatioTest> tests = new HashMap<>();
+	private Map<String, ResponseTimeSummary> previousStep;
+	private int numSteps = 0;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param alpha
+	 *            requested probability of a false detection
+	 * @param beta
+	 *            requested probability of a missed detection
+	 * @param minRelativeIncrease
+	 *            relative response time increase per step to be detected
+	 */
+	public SequentialStepMonitor(double alpha, double beta, double minRelativeIncrease) {
+		this.alpha = alpha;
+		this.beta = beta;
+		this.minRelativeIncrease = minRelativeIncrease;
+	}
+
+	/**
+	 * Adds the response times measured in the next step.
+	 * 
+	 * @param summariesPerOperation
+	 *            summaries of the response times by operation
+	 */
+	public void addStep(Map<String, ResponseTimeSummary> summariesPerOperation) {
+		numSteps++;
+		if (previousStep != null) {
+			for (Entry<String, ResponseTimeSummary> entry : summariesPerOperation.entrySet()) {
+				ResponseTimeSummary previous = previousStep.get(entry.getKey());
+				if (previous == null) {
+					continue;
+				}
+				getTest(entry.getKey()).addRelativeIncrease(previous, entry.getValue(), minRelativeIncrease);
+			}
+		}
+		previousStep = summariesPerOperation;
+	}
+
+	/**
+	 * Adds the response times measured in the next step. The records are
+	 * summarized while they are piped from the adapter.
+	 * 
+	 * @param measurementAdapter
+	 *            adapter providing the records of the step
+	 * @throws MeasurementException
+	 *             if the records cannot be retrieved
+	 */
+	public void addStep(IMeasurementAdapter measurementAdapter) throws MeasurementException {
+		addStep(summarizeByOperation(measurementAdapter));
+	}
+
+	/**
+	 * @param stopOnNullHypothesis
+	 *            whether operations for which no increase has been accepted
+	 *            count as decided
+	 * @return true, if at least one step comparison has been made and all
+	 *         operations have been decided
+	 */
+	public boolean isDecided(boolean stopOnNullHypothesis) {
+		if (tests.isEmpty() || previousStep == null || tests.size() < previousStep.size()) {
+			return false;
+		}
+		for (SequentialProbabilityRatioTest test : tests.values()) {
+			Decision decision = test.getDecision();
+			if (decision == Decision.CONTINUE
+					|| (decision == Decision.ACCEPT_NULL_HYPOTHESIS && !stopOnNullHypothesis)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param operation
+	 *            operation of interest
+	 * @return the test of the operation
+	 */
+	public SequentialProbabilityRatioTest getTest(String operation) {
+		SequentialProbabilityRatioTest test = tests.get(operation);
+		if (test == null) {
+			test = new SequentialProbabilityRatioTest(alpha, beta);
+			tests.put(operation, test);
+		}
+		return test;
+	}
+
+	/**
+	 * @return number of steps added so far
+	 */
+	public int getNumSteps() {
+		return numSteps;
+	}
+
+	/**
+	 * Summarizes the response times of the given records by operation.
+	 * 
+	 * @param records
+	 *            records to summarize, records other than response time
+	 *            records are ignored
+	 * @return response time summaries by operation
+	 */
+	public static Map<String, ResponseTimeSummary> summarizeByOperation(List<AbstractRecord> records) {
+		return TimeBucketAggregation.aggregate(records, TimeBucketAggregation.SINGLE_BUCKET,
+				ResponseTimeSummary.NO_SKETCH).getSummaries();
+	}
+
+	/**
+	 * Summarizes the response times of the current measurement data of the
+	 * given adapter by operation without retrieving the list of records.
+	 * 
+	 * @param measurementAdapter
+	 *            adapter providing the records
+	 * @return response time summaries by operation
+	 * @throws MeasurementException
+	 *             if the records cannot be retrieved
+	 */
+	public static Map<String, ResponseTimeSummary> summarizeByOperation(IMeasurementAdapter measurementAdapter)
+			throws MeasurementException {
+		return TimeBucketAggregation.aggregate(measurementAdapter, TimeBucketAggregation.SINGLE_BUCKET,
+				ResponseTimeSummary.NO_SKETCH).getSummaries();
+	}
+}
@@ -0,0 +1,208 @@
+/**
+ * Copyright 2014 SAP AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spotter.ext.detection.utils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.lpe.common.config.ConfigParameterDescription;
+import org.lpe.common.util.LpeSupportedTypes;
+import org.spotter.core.detection.DetectionResultManager;
+import org.spotter.shared.result.model.SpotterResult;
+
+/**
+ * What-if analysis of performance requirement thresholds. Detection
+ * controllers evaluate their verdict for each threshold of a configured grid
+ * on the measurement data they analyse anyway, the verdicts are stored as CSV
+ * resource. Thus, requirements can be calibrated on the data of one
+ * experiment without repeating the diagnosis for each candidate threshold.
+ * 
+ * @author Alexander Wert
+ * 
+ */
+public class ThresholdSweep {
+
+	/**
+	 * Configuration key of the comma separated list of performance requirement
+	 * thresholds to evaluate.
+	 */
+	public static final String THRESHOLD_SWEEP_KEY = "thresholdSweep";
+
+	/**
+	 * Name of the operation column of the rows summarizing all operations.
+	 */
+	public static final String ALL_OPERATIONS = "*";
+
+	private static final String RESOURCE_NAME = "ThresholdSweep";
+	private static final String LIST_SEPARATOR = ",";
+	private static final String LINE_SEPARATOR = "\n";
+	private static final String QUOTE = "\"";
+
+	private final long[] thresholds;
+	private final String metricName;
+	private final StringBuilder rows = new StringBuilder();
+	private final Map<Long, Boolean> detectedPerThreshold = new TreeMap<>();
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param thresholds
+	 *            thresholds to evaluate
+	 * @param metricName
+	 *            name of an additional metric reported per verdict, or null if
+	 *            there is none
+	 */
+	public ThresholdSweep(long[] thresholds, String metricName) {
+		this.thresholds = thresholds;
+		this.metricName = metricName;
+		for (long threshold : thresholds) {
+			detectedPerThreshold.put(threshold, false);
+		}
+	}
+
+	/**
+	 * Parses a comma separated list of thresholds.
+	 * 
+	 * @param thresholdList
+	 *            list of thresholds in milliseconds, may be null or empty
+	 * @return ascending, distinct thresholds; empty array if the sweep is
+	 *         disabled
+	 */
+	public static long[] parseThresholds(String thresholdList) {
+		TreeSet<Long> parsed = new TreeSet<>();
+		if (thresholdList != null) {
+			for (String threshold : thresholdList.split(LIST_SEPARATOR)) {
+				if (!threshold.trim().isEmpty()) {
+					parsed.add(Long.parseLong(threshold.trim()));
+				}
+			}
+		}
+		long[] result = new long[parsed.size()];
+		int i = 0;
+		for (Long threshold : parsed) {
+			result[i++] = threshold;
+		}
+		return result;
+	}
+
+	/**
+	 * Combines the configured requirement threshold with the sweep
+	 * thresholds, so that a strategy evaluates all of them at once.
+	 * 
+	 * @param perfReqThreshold
+	 *            configured requirement threshold
+	 * @param sweepThresholds
+	 *            thresholds of the sweep
+	 * @return configured threshold at index 0, followed by the sweep
+	 *         thresholds
+	 */
+	public static double[] withRequirementThreshold(double perfReqThreshold, long[] sweepThresholds) {
+		double[] result = new double[sweepThresholds.length + 1];
+		result[0] = perfReqThreshold;
+		for (int i = 0; i < sweepThresholds.length; i++) {
+			result[i + 1] = sweepThresholds[i];
+		}
+		return result;
+	}
+
+	/**
+	 * @return configuration parameter for the threshold grid
+	 */
+	public static ConfigParameterDescription createThresholdSweepParameter() {
+		ConfigParameterDescription parameter = new ConfigParameterDescription(THRESHOLD_SWEEP_KEY,
+				LpeSupportedTypes.String);
+		parameter.setMandatory(false);
+		parameter.setDefaultValue("");
+		parameter.setDescription("Comma separated list of performance requirement thresholds [ms]. "
+				+ "If set, the detection verdict is additionally evaluated for each of these thresholds "
+				+ "and stored as CSV resource.");
+		return parameter;
+	}
+
+	/**
+	 * @return thresholds to evaluate
+	 */
+	public long[] getThresholds() {
+		return thresholds;
+	}
+
+	/**
+	 * Adds the verdict of an operation for one threshold.
+	 * 
+	 * @param operation
+	 *            analysed operation
+	 * @param threshold
+	 *            evaluated threshold
+	 * @param detected
+	 *            true, if the problem has been detected for the threshold
+	 * @param metric
+	 *            value of the additional metric, ignored if the sweep has no
+	 *            metric
+	 */
+	public void addVerdict(String operation, long threshold, boolean detected, double metric) {
+		appendRow(rows, operation, threshold, detected, metricName != null ? String.valueOf(metric) : null);
+		if (detected) {
+			detectedPerThreshold.put(threshold, true);
+		}
+	}
+
+	/**
+	 * Creates the CSV table. Beside the rows per operation, there is a row per
+	 * threshold with operation {@value #ALL_OPERATIONS} stating whether the
+	 * problem has been detected in any operation.
+	 * 
+	 * @return CSV representation of all verdicts
+	 */
+	public String toCSV() {
+		StringBuilder csv = new StringBuilder();
+		appendRow(csv, "operation", "threshold [ms]", "detected", metricName);
+		csv.append(rows);
+		for (Map.Entry<Long, Boolean> entry : detectedPerThreshold.entrySet()) {
+			appendRow(csv, ALL_OPERATIONS, entry.getKey(), entry.getValue(), metricName != null ? "" : null);
+		}
+		return csv.toString();
+	}
+
+	/**
+	 * Stores the CSV table as text resource of the given result.
+	 * 
+	 * @param resultManager
+	 *            result manager of the detection controller
+	 * @param result
+	 *            result to attach the resource to
+	 */
+	public void store(DetectionResultManager resultManager, SpotterResult result) {
+		byte[] csv = toCSV().getBytes(StandardCharsets.UTF_8);
+		resultManager.storeTextResource(RESOURCE_NAME, result, new ByteArrayInputStream(csv));
+	}
+
+	private static void appendRow(StringBuilder builder, String operation, Object threshold, Object detected,
+			String metric) {
+		builder.append(quote(operation)).append(LIST_SEPARATOR).append(threshold).append(LIST_SEPARATOR)
+				.append(detected);
+		if (metric != null) {
+			builder.append(LIST_SEPARATOR).append(metric);
+		}
+		builder.append(LINE_SEPARATOR);
+	}
+
+	private static String quote(String value) {
+		return QUOTE + value.replace(QUOTE, QUOTE + QUOTE) + QUOTE;
+	}
+}
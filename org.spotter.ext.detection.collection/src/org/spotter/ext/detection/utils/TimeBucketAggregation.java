@@ -0,0 +1,304 @@
+/**
+ * Copyright 2014 SAP AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spotter.ext.detection.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.aim.api.exceptions.MeasurementException;
+import org.aim.api.measurement.AbstractRecord;
+import org.aim.artifacts.records.ResponseTimeRecord;
+import org.spotter.core.measurement.IMeasurementAdapter;
+
+/**
+ * Per operation and per time bucket summaries of response times. When built
+ * from a measurement adapter, the records are aggregated while they are
+ * piped from the adapter, one record line at a time, thus, analyses which
+ * only need aggregates (counts, means, variances, percentiles per interval)
+ * never hold the list of records. Buckets of fixed width are aligned to multiples of
+ * the bucket width; summaries of arbitrary bucket ranges are obtained by
+ * merging.
+ * 
+ * @author Alexander Wert
+ * 
+ */
+public class TimeBucketAggregation {
+
+	/**
+	 * Bucket width which puts all response times of an operation into one
+	 * bucket.
+	 */
+	public static final long SINGLE_BUCKET = Long.MAX_VALUE;
+
+	private final long bucketWidth;
+	private final int sketchPrecision;
+	private final Map<String, TreeMap<Long, ResponseTimeSummary>> buckets = new HashMap<>();
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param bucketWidth
+	 *            width of a bucket in milliseconds, or {@link #SINGLE_BUCKET}
+	 * @param sketchPrecision
+	 *            number of significant digits of the quantile sketches per
+	 *            bucket, or {@link ResponseTimeSummary#NO_SKETCH}
+	 */
+	public TimeBucketAggregation(long bucketWidth, int sketchPrecision) {
+		if (bucketWidth <= 0) {
+			throw new IllegalArgumentException("Bucket width must be positive.");
+		}
+		this.bucketWidth = bucketWidth;
+		this.sketchPrecision = sketchPrecision;
+	}
+
+	/**
+	 * Aggregates the response time records among the given records.
+	 * 
+	 * @param records
+	 *            records to aggregate, records other than response time
+	 *            records are ignored
+	 * @param bucketWidth
+	 *            width of a bucket in milliseconds, or {@link #SINGLE_BUCKET}
+	 * @param sketchPrecision
+	 *            number of significant digits of the quantile sketches per
+	 *            bucket, or {@link ResponseTimeSummary#NO_SKETCH}
+	 * @return aggregation of the records
+	 */
+	public static TimeBucketAggregation aggregate(Iterable<? extends AbstractRecord> records, long bucketWidth,
+			int sketchPrecision) {
+		TimeBucketAggregation aggregation = new TimeBucketAggregation(bucketWidth, sketchPrecision);
+		for (AbstractRecord record : records) {
+			aggregation.add(record);
+		}
+		return aggregation;
+	}
+
+	/**
+	 * Aggregates the response time records of the current measurement data of
+	 * the given adapter. The records are parsed from the adapter's output
+	 * stream and dropped right after aggregation, the adapter's record list is
+	 * never requested.
+	 * 
+	 * @param measurementAdapter
+	 *            adapter providing the records
+	 * @param bucketWidth
+	 *            width of a bucket in milliseconds, or {@link #SINGLE_BUCKET}
+	 * @param sketchPrecision
+	 *            number of significant digits of the quantile sketches per
+	 *            bucket, or {@link ResponseTimeSummary#NO_SKETCH}
+	 * @return aggregation of the records
+	 * @throws MeasurementException
+	 *             if the records cannot be retrieved
+	 */
+	public static TimeBucketAggregation aggregate(IMeasurementAdapter measurementAdapter, long bucketWidth,
+			int sketchPrecision) throws MeasurementException {
+		TimeBucketAggregation aggregation = new TimeBucketAggregation(bucketWidth, sketchPrecision);
+		OutputStream recordStream = aggregation.newRecordStream();
+		measurementAdapter.pipeToOutputStream(recordStream);
+		try {
+			// adapters do not necessarily close the stream
+			recordStream.close();
+		} catch (IOException e) {
+			throw new MeasurementException(e);
+		}
+		return aggregation;
+	}
+
+	/**
+	 * Adds the response time of a record.
+	 * 
+	 * @param record
+	 *            record to add, records other than response time records are
+	 *            ignored
+	 */
+	public void add(AbstractRecord record) {
+		if (record instanceof ResponseTimeRecord) {
+			ResponseTimeRecord rtRecord = (ResponseTimeRecord) record;
+			add(rtRecord.getOperation(), rtRecord.getTimeStamp(), rtRecord.getResponseTime());
+		}
+	}
+
+	/**
+	 * Adds a response time.
+	 * 
+	 * @param operation
+	 *            measured operation
+	 * @param timestamp
+	 *            timestamp of the measurement
+	 * @param responseTime
+	 *            response time
+	 */
+	public void add(String operation, long timestamp, double responseTime) {
+		TreeMap<Long, ResponseTimeSummary> operationBuckets = buckets.get(operation);
+		if (operationBuckets == null) {
+			operationBuckets = new TreeMap<>();
+			buckets.put(operation, operationBuckets);
+		}
+		long bucketStart = getBucketStart(timestamp);
+		ResponseTimeSummary bucket = operationBuckets.get(bucketStart);
+		if (bucket == null) {
+			bucket = new ResponseTimeSummary(sketchPrecision);
+			operationBuckets.put(bucketStart, bucket);
+		}
+		bucket.add(responseTime);
+	}
+
+	/**
+	 * @param timestamp
+	 *            timestamp of a measurement
+	 * @return start of the bucket containing the timestamp
+	 */
+	public long getBucketStart(long timestamp) {
+		long remainder = timestamp % bucketWidth;
+		return remainder < 0 ? timestamp - remainder - bucketWidth : timestamp - remainder;
+	}
+
+	/**
+	 * @return width of a bucket in milliseconds
+	 */
+	public long getBucketWidth() {
+		return bucketWidth;
+	}
+
+	/**
+	 * @return operations with at least one response time
+	 */
+	public Set<String> getOperations() {
+		return Collections.unmodifiableSet(buckets.keySet());
+	}
+
+	/**
+	 * Returns the non-empty buckets of an operation. The summaries must not be
+	 * modified.
+	 * 
+	 * @param operation
+	 *            operation of interest
+	 * @return summaries by bucket start, in chronological order
+	 */
+	public SortedMap<Long, ResponseTimeSummary> getBuckets(String operation) {
+		TreeMap<Long, ResponseTimeSummary> operationBuckets = buckets.get(operation);
+		if (operationBuckets == null) {
+			return Collections.unmodifiableSortedMap(new TreeMap<Long, ResponseTimeSummary>());
+		}
+		return Collections.unmodifiableSortedMap(operationBuckets);
+	}
+
+	/**
+	 * @param operation
+	 *            operation of interest
+	 * @return summary of all response times of the operation
+	 */
+	public ResponseTimeSummary getSummary(String operation) {
+		return merge(getBuckets(operation));
+	}
+
+	/**
+	 * @param operation
+	 *            operation of interest
+	 * @param from
+	 *            start of the time range, inclusive
+	 * @param to
+	 *            end of the time range, exclusive
+	 * @return summary of the response times of the operation in all buckets
+	 *         starting within the given range
+	 */
+	public ResponseTimeSummary getSummary(String operation, long from, long to) {
+		return merge(getBuckets(operation).subMap(from, to));
+	}
+
+	/**
+	 * @return summaries of all response times by operation
+	 */
+	public Map<String, ResponseTimeSummary> getSummaries() {
+		Map<String, ResponseTimeSummary> summaries = new HashMap<>();
+		for (String operation : buckets.keySet()) {
+			summaries.put(operation, getSummary(operation));
+		}
+		return summaries;
+	}
+
+	private ResponseTimeSummary merge(SortedMap<Long, ResponseTimeSummary> operationBuckets) {
+		ResponseTimeSummary summary = new ResponseTimeSummary(sketchPrecision);
+		for (ResponseTimeSummary bucket : operationBuckets.values()) {
+			summary.merge(bucket);
+		}
+		return summary;
+	}
+
+	/**
+	 * @return stream adding the records written to it as one line per record
+	 *         to this aggregation, the last line is added on close
+	 */
+	OutputStream newRecordStream() {
+		return new RecordLineStream();
+	}
+
+	/**
+	 * Parses the record lines written by a measurement adapter and adds them
+	 * to this aggregation.
+	 */
+	private final class RecordLineStream extends OutputStream {
+		private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+		private boolean closed = false;
+
+		@Override
+		public void write(int b) throws IOException {
+			if (b == '\n') {
+				endLine();
+			} else {
+				line.write(b);
+			}
+		}
+
+		@Override
+		public void write(byte[] bytes, int offset, int length) throws IOException {
+			int lineStart = offset;
+			for (int i = offset; i < offset + length; i++) {
+				if (bytes[i] == '\n') {
+					line.write(bytes, lineStart, i - lineStart);
+					endLine();
+					lineStart = i + 1;
+				}
+			}
+			line.write(bytes, lineStart, offset + length - lineStart);
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (!closed) {
+				closed = true;
+				endLine();
+			}
+		}
+
+		private void endLine() {
+			// adapters write with the platform encoding
+			String recordString = new String(line.toByteArray(), Charset.defaultCharset()).trim();
+			line.reset();
+			if (!recordString.isEmpty()) {
+				add(AbstractRecord.fromString(recordString));
+			}
+		}
+	}
+}
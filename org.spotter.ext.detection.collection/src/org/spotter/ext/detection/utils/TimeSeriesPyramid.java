@@ -0,0 +1,331 @@
+/**
+ * Copyright 2014 SAP AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spotter.ext.detection.utils;
+
+import org.lpe.common.util.NumericPairList;
+
+/**
+ * Multi-resolution view of a chronologically sorted time series. Beside the
+ * full resolution series, each level summarizes blocks of consecutive points
+ * with ten times the block size of the previous level by minimum, maximum,
+ * sum and count. Window queries combine the blocks of the coarsest level
+ * fitting into the window with finer blocks at the window borders, hence,
+ * they cost O(levels * 10) instead of O(window size). Charts are drawn from
+ * the coarsest level which still provides the requested number of points.
+ * 
+ * @author Alexander Wert
+ * 
+ */
+public class TimeSeriesPyramid {
+
+	/**
+	 * Ratio between the block sizes of consecutive levels.
+	 */
+	public static final int FACTOR = 10;
+
+	/**
+	 * Default number of levels: full resolution, 10 and 100 times
+	 * downsampled.
+	 */
+	public static final int DEFAULT_NUM_LEVELS = 3;
+
+	/**
+	 * Default number of points of a chart series.
+	 */
+	public static final int DEFAULT_CHART_POINTS = 2000;
+
+	private static final int MIN = 0;
+	private static final int MAX = 1;
+	private static final int SUM = 2;
+
+	private final long[] timestamps;
+	private final double[] values;
+	private final int[] blockSizes;
+	private final double[][] mins;
+	private final double[][] maxs;
+	private final double[][] sums;
+	private final long[][] minTimestamps;
+	private final long[][] maxTimestamps;
+
+	/**
+	 * Creates a pyramid with the default number of levels from a
+	 * chronologically sorted series.
+	 * 
+	 * @param series
+	 *            sorted series
+	 * @return pyramid of the series
+	 */
+	public static TimeSeriesPyramid of(NumericPairList<Long, Double> series) {
+		long[] timestamps = new long[series.size()];
+		double[] values = new double[series.size()];
+		for (int i = 0; i < timestamps.length; i++) {
+			timestamps[i] = series.get(i).getKey();
+			values[i] = series.get(i).getValue();
+		}
+		return new TimeSeriesPyramid(timestamps, values, DEFAULT_NUM_LEVELS);
+	}
+
+	/**
+	 * Constructor. The arrays are not copied and must not be modified
+	 * afterwards.
+	 * 
+	 * @param timestamps
+	 *            sorted timestamps
+	 * @param values
+	 *            values, index aligned with the timestamps
+	 * @param numLevels
+	 *            number of levels including the full resolution level
+	 */
+	TimeSeriesPyramid(long[] timestamps, double[] values, int numLevels) {
+		this.timestamps = timestamps;
+		this.values = values;
+		int levels = 1;
+		long blockSize = FACTOR;
+		while (levels < numLevels && blockSize < values.length) {
+			levels++;
+			blockSize *= FACTOR;
+		}
+		blockSizes = new int[levels];
+		mins = new double[levels][];
+		maxs = new double[levels][];
+		sums = new double[levels][];
+		minTimestamps = new long[levels][];
+		maxTimestamps = new long[levels][];
+		blockSizes[0] = 1;
+		for (int level = 1; level < levels; level++) {
+			blockSizes[level] = blockSizes[level - 1] * FACTOR;
+			buildLevel(level);
+		}
+	}
+
+	private void buildLevel(int level) {
+		int numBlocks = (values.length + blockSizes[level] - 1) / blockSizes[level];
+		mins[level] = new double[numBlocks];
+		maxs[level] = new double[numBlocks];
+		sums[level] = new double[numBlocks];
+		minTimestamps[level] = new long[numBlocks];
+		maxTimestamps[level] = new long[numBlocks];
+		int numChildren = level == 1 ? values.length : mins[level - 1].length;
+		for (int block = 0; block < numBlocks; block++) {
+			double min = Double.POSITIVE_INFINITY;
+			double max = Double.NEGATIVE_INFINITY;
+			double sum = 0.0;
+			long minTimestamp = 0L;
+			long maxTimestamp = 0L;
+			int childEnd = Math.min((block + 1) * FACTOR, numChildren);
+			for (int child = block * FACTOR; child < childEnd; child++) {
+				double childMin = level == 1 ? values[child] : mins[level - 1][child];
+				double childMax = level == 1 ? values[child] : maxs[level - 1][child];
+				if (childMin < min) {
+					min = childMin;
+					minTimestamp = level == 1 ? timestamps[child] : minTimestamps[level - 1][child];
+				}
+				if (childMax > max) {
+					max = childMax;
+					maxTimestamp = level == 1 ? timestamps[child] : maxTimestamps[level - 1][child];
+				}
+				sum += level == 1 ? values[child] : sums[level - 1][child];
+			}
+			mins[level][block] = min;
+			maxs[level][block] = max;
+			sums[level][block] = sum;
+			minTimestamps[level][block] = minTimestamp;
+			maxTimestamps[level][block] = maxTimestamp;
+		}
+	}
+
+	/**
+	 * @return number of points at full resolution
+	 */
+	public int size() {
+		return values.length;
+	}
+
+	/**
+	 * @return number of levels including the full resolution level
+	 */
+	public int getNumLevels() {
+		return blockSizes.length;
+	}
+
+	/**
+	 * @param level
+	 *            level index, 0 is the full resolution
+	 * @return number of points summarized by one block of the level
+	 */
+	public int getBlockSize(int level) {
+		return blockSizes[level];
+	}
+
+	/**
+	 * @param windowSize
+	 *            number of points of a window
+	 * @return the coarsest level whose blocks fit into the window
+	 */
+	public int getLevelForWindow(int windowSize) {
+		int level = 0;
+		while (level + 1 < blockSizes.length && blockSizes[level + 1] <= windowSize) {
+			level++;
+		}
+		return level;
+	}
+
+	/**
+	 * @param numPoints
+	 *            requested number of points, e.g. the pixel width of a chart
+	 * @return the coarsest level which still has at least the requested
+	 *         number of blocks, 0 if the series is shorter
+	 */
+	public int getLevelForPoints(int numPoints) {
+		int level = 0;
+		while (level + 1 < blockSizes.length && mins[level + 1].length >= numPoints) {
+			level++;
+		}
+		return level;
+	}
+
+	/**
+	 * @param from
+	 *            index of the first point of the window, inclusive
+	 * @param to
+	 *            index of the window end, exclusive
+	 * @return minimum value within the window
+	 */
+	public double getWindowMin(int from, int to) {
+		return aggregate(MIN, from, to);
+	}
+
+	/**
+	 * @param from
+	 *            index of the first point of the window, inclusive
+	 * @param to
+	 *            index of the window end, exclusive
+	 * @return maximum value within the window
+	 */
+	public double getWindowMax(int from, int to) {
+		return aggregate(MAX, from, to);
+	}
+
+	/**
+	 * @param from
+	 *            index of the first point of the window, inclusive
+	 * @param to
+	 *            index of the window end, exclusive
+	 * @return mean value within the window
+	 */
+	public double getWindowMean(int from, int to) {
+		return aggregate(SUM, from, to) / (to - from);
+	}
+
+	/**
+	 * Creates a series for charts with about the requested number of points.
+	 * Each block of the selected level contributes its minimum and its
+	 * maximum at their original timestamps, thus, peaks remain visible.
+	 * 
+	 * @param numPoints
+	 *            requested number of points, e.g. the pixel width of a chart
+	 * @return downsampled series, the full series if it is not longer than
+	 *         requested
+	 */
+	public NumericPairList<Long, Double> downsample(int numPoints) {
+		NumericPairList<Long, Double> result = new NumericPairList<>();
+		int level = getLevelForPoints(numPoints);
+		if (level == 0) {
+			for (int i = 0; i < values.length; i++) {
+				result.add(timestamps[i], values[i]);
+			}
+			return result;
+		}
+		for (int block = 0; block < mins[level].length; block++) {
+			long minTimestamp = minTimestamps[level][block];
+			long maxTimestamp = maxTimestamps[level][block];
+			if (minTimestamp <= maxTimestamp) {
+				result.add(minTimestamp, mins[level][block]);
+				if (mins[level][block] != maxs[level][block]) {
+					result.add(maxTimestamp, maxs[level][block]);
+				}
+			} else {
+				result.add(maxTimestamp, maxs[level][block]);
+				result.add(minTimestamp, mins[level][block]);
+			}
+		}
+		return result;
+	}
+
+	private double aggregate(int operation, int from, int to) {
+		if (from < 0 || to > values.length || from >= to) {
+			throw new IllegalArgumentException("Invalid window [" + from + ", " + to + ").");
+		}
+		return aggregate(operation, getLevelForWindow(to - from), from, to);
+	}
+
+	private double aggregate(int operation, int level, int from, int to) {
+		if (from >= to) {
+			return identity(operation);
+		}
+		if (level == 0) {
+			double result = identity(operation);
+			for (int i = from; i < to; i++) {
+				result = combine(operation, result, values[i]);
+			}
+			return result;
+		}
+		int blockSize = blockSizes[level];
+		int firstBlock = (from + blockSize - 1) / blockSize;
+		int endBlock = to / blockSize;
+		if (firstBlock >= endBlock) {
+			return aggregate(operation, level - 1, from, to);
+		}
+		double result = aggregate(operation, level - 1, from, firstBlock * blockSize);
+		for (int block = firstBlock; block < endBlock; block++) {
+			result = combine(operation, result, blockValue(operation, level, block));
+		}
+		return combine(operation, result, aggregate(operation, level - 1, endBlock * blockSize, to));
+	}
+
+	private double blockValue(int operation, int level, int block) {
+		switch (operation) {
+		case MIN:
+			return mins[level][block];
+		case MAX:
+			return maxs[level][block];
+		default:
+			return sums[level][block];
+		}
+	}
+
+	private static double identity(int operation) {
+		switch (operation) {
+		case MIN:
+			return Double.POSITIVE_INFINITY;
+		case MAX:
+			return Double.NEGATIVE_INFINITY;
+		default:
+			return 0.0;
+		}
+	}
+
+	private static double combine(int operation, double a, double b) {
+		switch (operation) {
+		case MIN:
+			return Math.min(a, b);
+		case MAX:
+			return Math.max(a, b);
+		default:
+			return a + b;
+		}
+	}
+}
@@ -0,0 +1,412 @@
+/**
+ * Copyright 2014 SAP AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spotter.ext.detection.utils;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.commons.math3.distribution.NormalDistribution;
+
+/**
+ * Non-parametric monotonic trend test for time series. The significance of a
+ * trend is determined by the Mann-Kendall test, its magnitude by the Theil-Sen
+ * estimator (median of all pairwise slopes).
+ * 
+ * Both statistics are computed without enumerating the quadratic number of
+ * pairs: the number of pairs with a slope below a value t equals the number
+ * of inversions of the sequence y - t * x ordered by x, which is counted by a
+ * merge sort in O(n log n). The Theil-Sen slope and the bounds of its
+ * confidence interval are found by bisection over t.
+ * 
+ * @author Alexander Wert
+ * 
+ */
+public final class TrendTest {
+
+	/**
+	 * Minimal number of samples for which the normal approximation of the
+	 * Mann-Kendall statistic is reasonable.
+	 */
+	public static final int MIN_SAMPLES = 10;
+
+	/**
+	 * Configuration option for the ordinary least squares slope estimator.
+	 */
+	public static final String LEAST_SQUARES_ESTIMATOR = "least squares";
+
+	/**
+	 * Configuration option for the Theil-Sen slope estimator.
+	 */
+	public static final String THEIL_SEN_ESTIMATOR = "Theil-Sen";
+
+	private static final int MAX_BISECTION_STEPS = 200;
+	private static final double RELATIVE_SLOPE_TOLERANCE = 1E-12;
+
+	private final int numSamples;
+	private final long s;
+	private final double variance;
+	private final double z;
+	private final double slope;
+	private final SortedSeries series;
+
+	private TrendTest(int numSamples, long s, double variance, SortedSeries series) {
+		this.numSamples = numSamples;
+		this.s = s;
+		this.variance = variance;
+		this.series = series;
+		this.slope = series.medianSlope();
+		if (variance <= 0.0 || s == 0L) {
+			z = 0.0;
+		} else if (s > 0L) {
+			z = (s - 1) / Math.sqrt(variance);
+		} else {
+			z = (s + 1) / Math.sqrt(variance);
+		}
+	}
+
+	/**
+	 * Tests the given series for a monotonic trend.
+	 * 
+	 * @param x
+	 *            time axis, e.g. timestamps
+	 * @param y
+	 *            observed values
+	 * @return test result
+	 */
+	public static TrendTest test(double[] x, double[] y) {
+		if (x.length != y.length) {
+			throw new IllegalArgumentException("Time axis and values must have the same length!");
+		}
+		int n = x.length;
+		SortedSeries ascending = new SortedSeries(x, y);
+		SortedSeries descending = new SortedSeries(x, negate(y));
+
+		// S = #(increasing pairs) - #(decreasing pairs), pairs with equal time
+		// are not taken into account
+		long decreasing = ascending.countSlopesBelow(0.0);
+		long increasing = descending.countSlopesBelow(0.0);
+		long s = increasing - decreasing;
+
+		double[] sortedY = Arrays.copyOf(y, n);
+		Arrays.sort(sortedY);
+		TieSums yTies = new TieSums(sortedY);
+		TieSums xTies = new TieSums(ascending.xs);
+
+		double nn = n;
+		double variance = (nn * (nn - 1) * (2 * nn + 5) - xTies.sum1 - yTies.sum1) / 18.0;
+		if (n > 2) {
+			variance += xTies.sum2 * yTies.sum2 / (9.0 * nn * (nn - 1) * (nn - 2));
+		}
+		if (n > 1) {
+			variance += xTies.sum3 * yTies.sum3 / (2.0 * nn * (nn - 1));
+		}
+
+		return new TrendTest(n, s, variance, ascending);
+	}
+
+	/**
+	 * Calculates the Theil-Sen slope, i.e. the median of the slopes between
+	 * all pairs of points with distinct x values.
+	 * 
+	 * @param x
+	 *            time axis
+	 * @param y
+	 *            observed values
+	 * @return Theil-Sen slope, or NaN if all x values are equal
+	 */
+	public static double theilSenSlope(double[] x, double[] y) {
+		if (x.length != y.length) {
+			throw new IllegalArgumentException("Time axis and values must have the same length!");
+		}
+		return new SortedSeries(x, y).medianSlope();
+	}
+
+	/**
+	 * @return options of the configuration parameters selecting the slope
+	 *         estimator
+	 */
+	public static Set<String> getEstimatorOptions() {
+		Set<String> options = new HashSet<>();
+		options.add(LEAST_SQUARES_ESTIMATOR);
+		options.add(THEIL_SEN_ESTIMATOR);
+		return options;
+	}
+
+	/**
+	 * @return number of samples
+	 */
+	public int getNumSamples() {
+		return numSamples;
+	}
+
+	/**
+	 * @return Mann-Kendall statistic S
+	 */
+	public long getS() {
+		return s;
+	}
+
+	/**
+	 * @return variance of S under the null hypothesis, corrected for ties
+	 */
+	public double getVariance() {
+		return variance;
+	}
+
+	/**
+	 * @return normalized test statistic (with continuity correction)
+	 */
+	public double getZ() {
+		return z;
+	}
+
+	/**
+	 * @return Theil-Sen slope in units of y per unit of x
+	 */
+	public double getSlope() {
+		return slope;
+	}
+
+	/**
+	 * @return intercept of the Theil-Sen line, i.e. the median of y - slope *
+	 *         x
+	 */
+	public double getIntercept() {
+		if (Double.isNaN(slope)) {
+			return Double.NaN;
+		}
+		double[] residuals = new double[numSamples];
+		for (int i = 0; i < numSamples; i++) {
+			residuals[i] = series.ys[i] - slope * series.xs[i];
+		}
+		Arrays.sort(residuals);
+		int mid = numSamples / 2;
+		return numSamples % 2 == 1 ? residuals[mid] : (residuals[mid - 1] + residuals[mid]) / 2.0;
+	}
+
+	/**
+	 * Calculates the distribution-free confidence interval of the Theil-Sen
+	 * slope (Sen, 1968). The bounds are pairwise slopes whose ranks are
+	 * derived from the variance of the Mann-Kendall statistic.
+	 * 
+	 * @param confidenceLevel
+	 *            two-sided confidence level, e.g. 0.95
+	 * @return lower and upper bound of the slope, NaN if all x values are
+	 *         equal
+	 */
+	public double[] getSlopeConfidenceInterval(double confidenceLevel) {
+		long numPairs = series.numValidPairs;
+		if (numPairs == 0L) {
+			return new double[] { Double.NaN, Double.NaN };
+		}
+		double c = new NormalDistribution().inverseCumulativeProbability((1.0 + confidenceLevel) / 2.0)
+				* Math.sqrt(variance);
+		// 1-based ranks (N - C) / 2 and (N + C) / 2 + 1 of the bounds
+		long lowerRank = (long) Math.floor((numPairs - c) / 2.0);
+		long upperRank = (long) Math.ceil((numPairs + c) / 2.0) + 1;
+		long lowerIndex = Math.max(0L, Math.min(numPairs - 1, lowerRank - 1));
+		long upperIndex = Math.max(0L, Math.min(numPairs - 1, upperRank - 1));
+		return new double[] { series.selectSlope(lowerIndex), series.selectSlope(upperIndex) };
+	}
+
+	/**
+	 * @return one-sided p-value for the hypothesis of an increasing trend
+	 */
+	public double getPValueIncreasing() {
+		return 1.0 - new NormalDistribution().cumulativeProbability(z);
+	}
+
+	/**
+	 * @return one-sided p-value for the hypothesis of a decreasing trend
+	 */
+	public double getPValueDecreasing() {
+		return new NormalDistribution().cumulativeProbability(z);
+	}
+
+	/**
+	 * @param significanceLevel
+	 *            significance level
+	 * @return true, if there are enough samples and the series increases
+	 *         significantly
+	 */
+	public boolean isIncreasing(double significanceLevel) {
+		return numSamples >= MIN_SAMPLES && s > 0L && getPValueIncreasing() <= significanceLevel;
+	}
+
+	private static double[] negate(double[] values) {
+		double[] result = new double[values.length];
+		for (int i = 0; i < values.length; i++) {
+			result[i] = -values[i];
+		}
+		return result;
+	}
+
+	/**
+	 * Tie group sums of a sorted array used by the tie corrected variance of
+	 * the Mann-Kendall statistic.
+	 */
+	private static final class TieSums {
+		private double sum1;
+		private double sum2;
+		private double sum3;
+
+		TieSums(double[] sorted) {
+			int i = 0;
+			while (i < sorted.length) {
+				int j = i;
+				while (j < sorted.length && sorted[j] == sorted[i]) {
+					j++;
+				}
+				double t = j - i;
+				sum1 += t * (t - 1) * (2 * t + 5);
+				sum2 += t * (t - 1) * (t - 2);
+				sum3 += t * (t - 1);
+				i = j;
+			}
+		}
+	}
+
+	/**
+	 * Series sorted by x and, for equal x, ascending by y. With this order,
+	 * pairs with equal x never form an inversion.
+	 */
+	private static final class SortedSeries {
+		private final double[] xs;
+		private final double[] ys;
+		private final double[] keys;
+		private final double[] buffer;
+		private final long numValidPairs;
+
+		SortedSeries(final double[] x, final double[] y) {
+			int n = x.length;
+			Integer[] order = new Integer[n];
+			for (int i = 0; i < n; i++) {
+				order[i] = i;
+			}
+			Arrays.sort(order, new Comparator<Integer>() {
+				@Override
+				public int compare(Integer o1, Integer o2) {
+					int cmp = Double.compare(x[o1], x[o2]);
+					return cmp != 0 ? cmp : Double.compare(y[o1], y[o2]);
+				}
+			});
+			xs = new double[n];
+			ys = new double[n];
+			for (int i = 0; i < n; i++) {
+				xs[i] = x[order[i]];
+				ys[i] = y[order[i]];
+			}
+			keys = new double[n];
+			buffer = new double[n];
+
+			long pairs = ((long) n) * (n - 1) / 2;
+			int i = 0;
+			while (i < n) {
+				int j = i;
+				while (j < n && xs[j] == xs[i]) {
+					j++;
+				}
+				pairs -= ((long) (j - i)) * (j - i - 1) / 2;
+				i = j;
+			}
+			numValidPairs = pairs;
+		}
+
+		/**
+		 * Counts pairs (i, j) with x_i < x_j and a slope smaller than t.
+		 */
+		long countSlopesBelow(double t) {
+			for (int i = 0; i < xs.length; i++) {
+				keys[i] = t == 0.0 ? ys[i] : ys[i] - t * xs[i];
+			}
+			return countInversions(0, keys.length);
+		}
+
+		private long countInversions(int from, int to) {
+			if (to - from < 2) {
+				return 0L;
+			}
+			int mid = (from + to) >>> 1;
+			long inversions = countInversions(from, mid) + countInversions(mid, to);
+			int left = from;
+			int right = mid;
+			int pos = from;
+			while (left < mid && right < to) {
+				if (keys[right] < keys[left]) {
+					inversions += mid - left;
+					buffer[pos++] = keys[right++];
+				} else {
+					buffer[pos++] = keys[left++];
+				}
+			}
+			while (left < mid) {
+				buffer[pos++] = keys[left++];
+			}
+			while (right < to) {
+				buffer[pos++] = keys[right++];
+			}
+			System.arraycopy(buffer, from, keys, from, to - from);
+			return inversions;
+		}
+
+		double medianSlope() {
+			if (numValidPairs == 0L) {
+				return Double.NaN;
+			}
+			long k = (numValidPairs - 1) / 2;
+			double median = selectSlope(k);
+			if (numValidPairs % 2 == 0) {
+				median = (median + selectSlope(k + 1)) / 2.0;
+			}
+			return median;
+		}
+
+		/**
+		 * Finds the k-th smallest slope (0-based) by bisection, keeping the
+		 * invariant count(slope < lower) <= k < count(slope < upper).
+		 */
+		private double selectSlope(long k) {
+			double minY = Double.MAX_VALUE;
+			double maxY = -Double.MAX_VALUE;
+			double minDx = Double.MAX_VALUE;
+			for (int i = 0; i < xs.length; i++) {
+				minY = Math.min(minY, ys[i]);
+				maxY = Math.max(maxY, ys[i]);
+				if (i > 0 && xs[i] > xs[i - 1]) {
+					minDx = Math.min(minDx, xs[i] - xs[i - 1]);
+				}
+			}
+			double bound = (maxY - minY) / minDx + 1.0;
+			double lower = -bound;
+			double upper = bound;
+			for (int step = 0; step < MAX_BISECTION_STEPS; step++) {
+				double mid = lower + (upper - lower) / 2.0;
+				if (mid <= lower || mid >= upper
+						|| upper - lower <= RELATIVE_SLOPE_TOLERANCE * Math.max(Math.abs(lower), Math.abs(upper))) {
+					break;
+				}
+				if (countSlopesBelow(mid) <= k) {
+					lower = mid;
+				} else {
+					upper = mid;
+				}
+			}
+			return lower;
+		}
+	}
+}
@@ -7,6 +7,7 @@ import java.util.List;
 import org.aim.api.measurement.dataset.Dataset;
 import org.aim.api.measurement.dataset.ParameterSelection;
 import org.aim.artifacts.records.ResponseTimeRecord;
+import org.lpe.common.util.NumericPair;
 import org.lpe.common.util.NumericPairList;
 import org.spotter.core.detection.AbstractDetectionController;
 
@@ -63,6 +64,29 @@ public final class Utils {
 		return responseTimeSeries;
 	}
 
+	/**
+	 * Creates a list of user response time pairs of one operation, ordered by
+	 * the number of users. The response times are taken from the
+	 * {@link ResponseTimeSeriesCache}, thus, the dataset is grouped only once
+	 * for all operations.
+	 * 
+	 * @param rtDataSet
+	 *            dataset to read from
+	 * @param operation
+	 *            operation of interest
+	 * @return list of user response time pairs
+	 */
+	public static NumericPairList<Integer, Double> toUserRTPairs(Dataset rtDataSet, String operation) {
+		NumericPairList<Integer, Double> responseTimeSeries = new NumericPairList<>();
+		for (Integer numUsers : ResponseTimeSeriesCache.getNumUsers(rtDataSet)) {
+			ResponseTimeSeries series = ResponseTimeSeriesCache.getSeries(rtDataSet, operation, numUsers);
+			for (int i = 0; i < series.size(); i++) {
+				responseTimeSeries.add(numUsers, series.getResponseTime(i));
+			}
+		}
+		return responseTimeSeries;
+	}
+
 	/**
 	 * Calculates the mean value for the given window of a series.
 	 * 
@@ -116,15 +140,62 @@ public final class Utils {
 		return tmpList.get(indexPercentile);
 	}
 
+	/**
+	 * Calculates the mean time between two consecutive requests. The sum of
+	 * the differences between consecutive timestamps telescopes to the
+	 * difference between the last and the first timestamp.
+	 * 
+	 * @param responsetimeSeries
+	 *            series with at least two elements
+	 * @return mean inter request time
+	 */
 	public static long meanInterRequestTime(NumericPairList<Long, Double> responsetimeSeries) {
-		long diffSum = 0L;
-		long prevTimestamp = -1;
-		for (Long ts : responsetimeSeries.getKeyList()) {
-			if (prevTimestamp >= 0L) {
-				diffSum += ts - prevTimestamp;
+		int size = responsetimeSeries.size();
+		long diffSum = responsetimeSeries.get(size - 1).getKey() - responsetimeSeries.get(0).getKey();
+		return diffSum / (long) (size - 1);
+	}
+
+	/**
+	 * Calculates equidistant load steps between one user and the maximum
+	 * number of users.
+	 * 
+	 * @param maxUsers
+	 *            maximum number of users
+	 * @param numSteps
+	 *            number of steps after the single user step
+	 * @return ascending, distinct numbers of users starting with one user
+	 */
+	public static List<Integer> calculateLoadSteps(int maxUsers, int numSteps) {
+		List<Integer> userSteps = new ArrayList<>();
+		userSteps.add(1);
+		for (int i = 1; i <= numSteps; i++) {
+			int numUsers = (int) Math.round(((double) maxUsers * i) / numSteps);
+			if (numUsers > userSteps.get(userSteps.size() - 1)) {
+				userSteps.add(numUsers);
 			}
-			prevTimestamp = ts;
 		}
-		return diffSum / (long) (responsetimeSeries.size() - 1);
+		return userSteps;
+	}
+
+	/**
+	 * Runs the Mann-Kendall trend test and the Theil-Sen estimation on a
+	 * response time series.
+	 * 
+	 * @param responseTimeSeries
+	 *            pairs of time or number of users and response time
+	 * @param <T>
+	 *            type of the x axis
+	 * @return trend test result
+	 */
+	public static <T extends Number> TrendTest calculateTrend(NumericPairList<T, Double> responseTimeSeries) {
+		double[] x = new double[responseTimeSeries.size()];
+		double[] y = new double[responseTimeSeries.size()];
+		int i = 0;
+		for (NumericPair<T, Double> pair : responseTimeSeries) {
+			x[i] = pair.getKey().doubleValue();
+			y[i] = pair.getValue();
+			i++;
+		}
+		return TrendTest.test(x, y);
 	}
 }
@@ -0,0 +1,127 @@
+/**
+ * Copyright 2014 SAP AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spotter.ext.detection.blob;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class CommunicationMatrixTest {
+	private static final double EPSILON = 1E-9;
+
+	@Test
+	public void testSparseAccumulationMatchesReference() {
+		Random random = new Random(4);
+		CommunicationMatrix matrix = new CommunicationMatrix();
+		Map<Long, double[]> reference = new HashMap<>();
+		int maxIndex = 0;
+		for (int i = 0; i < 20000; i++) {
+			// few components communicate a lot, the others rarely
+			int sender = random.nextInt(4) == 0 ? random.nextInt(100000) : random.nextInt(30);
+			int receiver = random.nextInt(4) == 0 ? random.nextInt(100000) : random.nextInt(30);
+			double duration = random.nextInt(100);
+			if (random.nextBoolean()) {
+				matrix.addMessage(sender, receiver, duration);
+				accumulate(reference, sender, receiver, 1, duration);
+			} else {
+				int count = 1 + random.nextInt(5);
+				matrix.add(sender, receiver, count, duration);
+				accumulate(reference, sender, receiver, count, duration);
+			}
+			maxIndex = Math.max(maxIndex, Math.max(sender, receiver));
+
+			if (i % 5000 == 0) {
+				// views are rebuilt after modifications
+				assertViews(matrix, reference);
+			}
+		}
+		assertEquals(reference.size(), matrix.getNumEdges());
+		assertEquals(maxIndex + 1, matrix.getDimension());
+		for (Entry<Long, double[]> entry : reference.entrySet()) {
+			int sender = (int) (entry.getKey() / 100000L);
+			int receiver = (int) (entry.getKey() % 100000L);
+			assertEquals((long) entry.getValue()[0], matrix.getCount(sender, receiver));
+			assertEquals(entry.getValue()[1], matrix.getDuration(sender, receiver), EPSILON);
+		}
+		assertEquals(0L, matrix.getCount(maxIndex + 1, 0));
+		assertEquals(0.0, matrix.getDuration(31, 99999), EPSILON);
+		assertViews(matrix, reference);
+	}
+
+	@Test
+	public void testIncomingDurationSumsIgnoreSelfMessages() {
+		CommunicationMatrix matrix = new CommunicationMatrix();
+		matrix.addMessage(0, 1, 2.0);
+		matrix.addMessage(2, 1, 3.0);
+		matrix.addMessage(1, 1, 100.0);
+		matrix.add(1, 0, 4, 8.0);
+		double[] sums = matrix.getIncomingDurationSums(5);
+		assertEquals(5, sums.length);
+		assertEquals(8.0, sums[0], EPSILON);
+		assertEquals(5.0, sums[1], EPSILON);
+		assertEquals(0.0, sums[2], EPSILON);
+		assertEquals(0, matrix.getOutgoingEdges(7).length);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeIndex() {
+		new CommunicationMatrix().addMessage(-1, 0, 1.0);
+	}
+
+	private static void accumulate(Map<Long, double[]> reference, int sender, int receiver, long count,
+			double duration) {
+		long key = sender * 100000L + receiver;
+		double[] value = reference.get(key);
+		if (value == null) {
+			value = new double[2];
+			reference.put(key, value);
+		}
+		value[0] += count;
+		value[1] += duration;
+	}
+
+	private static void assertViews(CommunicationMatrix matrix, Map<Long, double[]> reference) {
+		Map<Long, double[]> outgoing = new HashMap<>();
+		Map<Long, double[]> incoming = new HashMap<>();
+		for (int component = 0; component < matrix.getDimension(); component++) {
+			for (int edge : matrix.getOutgoingEdges(component)) {
+				assertEquals(component, matrix.getSender(edge));
+				accumulate(outgoing, component, matrix.getReceiver(edge), matrix.getCount(edge),
+						matrix.getDuration(edge));
+			}
+			for (int edge : matrix.getIncomingEdges(component)) {
+				assertEquals(component, matrix.getReceiver(edge));
+				accumulate(incoming, matrix.getSender(edge), component, matrix.getCount(edge),
+						matrix.getDuration(edge));
+			}
+		}
+		assertSameEdges(reference, outgoing);
+		assertSameEdges(reference, incoming);
+	}
+
+	private static void assertSameEdges(Map<Long, double[]> expected, Map<Long, double[]> actual) {
+		assertEquals(expected.keySet(), actual.keySet());
+		for (Entry<Long, double[]> entry : expected.entrySet()) {
+			assertEquals(entry.getValue()[0], actual.get(entry.getKey())[0], 0.0);
+			assertEquals(entry.getValue()[1], actual.get(entry.getKey())[1], EPSILON);
+		}
+	}
+}
@@ -0,0 +1,146 @@
+/**
+ * Copyright 2014 SAP AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spotter.ext.detection.blob;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class CommunicationSummaryTest {
+	private static final int NUM_CLIENTS = 12;
+	private static final double EPSILON = 1E-6;
+
+	@Test
+	public void testMergedSummariesEqualSinglePass() {
+		Random random = new Random(13);
+		List<Event> events = createEvents(random, 3000);
+		CommunicationSummary singlePass = new CommunicationSummary();
+		for (Event event : events) {
+			event.addTo(singlePass);
+		}
+
+		for (int numParts : new int[] { 2, 3, 7 }) {
+			// events of a message may end up in different parts, thus,
+			// pending correlations have to be completed by the merge
+			CommunicationSummary[] parts = new CommunicationSummary[numParts];
+			for (int i = 0; i < numParts; i++) {
+				parts[i] = new CommunicationSummary();
+			}
+			for (Event event : events) {
+				event.addTo(parts[random.nextInt(numParts)]);
+			}
+			CommunicationSummary merged = new CommunicationSummary();
+			for (CommunicationSummary part : parts) {
+				merged.merge(part);
+			}
+			assertEquals(singlePass.getNumIncompleteMessages(), merged.getNumIncompleteMessages());
+			assertEqualProcessedData(singlePass.toProcessedData(), merged.toProcessedData());
+		}
+	}
+
+	@Test
+	public void testMergeEmptySummary() {
+		Random random = new Random(17);
+		CommunicationSummary summary = new CommunicationSummary();
+		CommunicationSummary expected = new CommunicationSummary();
+		for (Event event : createEvents(random, 200)) {
+			event.addTo(summary);
+			event.addTo(expected);
+		}
+		summary.merge(new CommunicationSummary());
+		assertEquals(expected.getNumIncompleteMessages(), summary.getNumIncompleteMessages());
+		assertEqualProcessedData(expected.toProcessedData(), summary.toProcessedData());
+	}
+
+	private static List<Event> createEvents(Random random, int numMessages) {
+		List<Event> events = new ArrayList<>();
+		for (int message = 0; message < numMessages; message++) {
+			String hash = "message-" + message;
+			double timeSend = random.nextInt(100000);
+			String sender = "client-" + random.nextInt(NUM_CLIENTS);
+			String receiver = "client-" + random.nextInt(NUM_CLIENTS);
+			String stackTrace = random.nextInt(50) == 0 ? "trace-" + sender : null;
+			events.add(new Event(sender, hash, true, timeSend, stackTrace));
+			// some messages are never received
+			if (random.nextInt(20) != 0) {
+				events.add(new Event(receiver, hash, false, timeSend + random.nextInt(500), null));
+			}
+		}
+		Collections.shuffle(events, random);
+		return events;
+	}
+
+	private static void assertEqualProcessedData(ProcessedData expected, ProcessedData actual) {
+		assertEquals(expected.getComponents().size(), actual.getComponents().size());
+		assertEquals(expected.getTotalMessagesSent(), actual.getTotalMessagesSent());
+		assertEquals(expected.getTotalMessagesReceived(), actual.getTotalMessagesReceived());
+		assertEquals(expected.getTotalExperimentDuration(), actual.getTotalExperimentDuration(), EPSILON);
+		for (Component expectedComponent : expected.getComponents()) {
+			Component actualComponent = actual.findComponent(expectedComponent.getId());
+			assertNotNull(actualComponent);
+			assertEquals(expectedComponent.getMessagesSent(), actualComponent.getMessagesSent());
+			assertEquals(expectedComponent.getMessagesReceived(), actualComponent.getMessagesReceived());
+			assertEquals(expectedComponent.getTotalMessageSentDuration(),
+					actualComponent.getTotalMessageSentDuration(), EPSILON);
+			assertEquals(expectedComponent.getShortestMessageSentDuration(),
+					actualComponent.getShortestMessageSentDuration(), 0.0);
+			assertEquals(expectedComponent.getLongestMessageSentDuration(),
+					actualComponent.getLongestMessageSentDuration(), 0.0);
+			assertArrayEquals(expectedComponent.getStackTrace(), actualComponent.getStackTrace());
+
+			for (Component expectedReceiver : expected.getComponents()) {
+				Component actualReceiver = actual.findComponent(expectedReceiver.getId());
+				assertEquals(
+						expected.getCommunicationMatrix().getCount(expectedComponent.getIndex(),
+								expectedReceiver.getIndex()),
+						actual.getCommunicationMatrix().getCount(actualComponent.getIndex(),
+								actualReceiver.getIndex()));
+				assertEquals(
+						expected.getCommunicationMatrix().getDuration(expectedComponent.getIndex(),
+								expectedReceiver.getIndex()),
+						actual.getCommunicationMatrix().getDuration(actualComponent.getIndex(),
+								actualReceiver.getIndex()), EPSILON);
+			}
+		}
+	}
+
+	private static final class Event {
+		private final String clientId;
+		private final String correlationHash;
+		private final boolean wasSent;
+		private final double timestamp;
+		private final String stackTrace;
+
+		private Event(String clientId, String correlationHash, boolean wasSent, double timestamp, String stackTrace) {
+			this.clientId = clientId;
+			this.correlationHash = correlationHash;
+			this.wasSent = wasSent;
+			this.timestamp = timestamp;
+			this.stackTrace = stackTrace;
+		}
+
+		private void addTo(CommunicationSummary summary) {
+			summary.addEvent(clientId, correlationHash, wasSent, timestamp, stackTrace);
+		}
+	}
+}
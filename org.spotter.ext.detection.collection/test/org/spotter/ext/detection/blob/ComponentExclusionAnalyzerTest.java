@@ -0,0 +1,79 @@
+/**
+ * Copyright 2014 SAP AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spotter.ext.detection.blob;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.spotter.ext.detection.blob.ComponentExclusionAnalyzer.LeaveOneOutStatistics;
+import org.spotter.shared.result.model.SpotterResult;
+
+public class ComponentExclusionAnalyzerTest {
+
+	@Test
+	public void testTooFewComponents() {
+		ProcessedData processedData = new ProcessedData();
+		processedData.createComponent("client-1");
+		processedData.createComponent("client-2");
+		assertTrue(new ComponentExclusionAnalyzer().analyze(processedData, null, new SpotterResult()).isEmpty());
+	}
+
+	@Test
+	public void testLeaveOneOutStatisticsMatchRecomputation() {
+		Random random = new Random(7);
+		for (int n = 3; n < 40; n++) {
+			double[] values = new double[n];
+			for (int i = 0; i < n; i++) {
+				// contributions are fractions, some components dominate
+				values[i] = random.nextInt(4) == 0 ? random.nextDouble() : 0.01 * random.nextDouble();
+			}
+			assertMatchesRecomputation(values);
+		}
+	}
+
+	@Test
+	public void testLeaveOneOutStatisticsWithEqualValues() {
+		assertMatchesRecomputation(new double[] { 0.2, 0.2, 0.2 });
+		assertMatchesRecomputation(new double[] { 0.2, 0.2, 0.9 });
+		assertMatchesRecomputation(new double[] { 1E6 + 0.5, 1E6 - 0.5, 1E6, 1E6 + 0.25 });
+	}
+
+	private static void assertMatchesRecomputation(double[] values) {
+		LeaveOneOutStatistics statistics = new LeaveOneOutStatistics(values);
+		for (int index = 0; index < values.length; index++) {
+			double sum = 0.0;
+			for (int i = 0; i < values.length; i++) {
+				if (i != index) {
+					sum += values[i];
+				}
+			}
+			double mean = sum / (values.length - 1);
+			double squaredDeviations = 0.0;
+			for (int i = 0; i < values.length; i++) {
+				if (i != index) {
+					squaredDeviations += (values[i] - mean) * (values[i] - mean);
+				}
+			}
+			double stdDev = Math.sqrt(squaredDeviations / (values.length - 2));
+			double scale = Math.max(1.0, Math.abs(mean));
+			assertEquals(mean, statistics.meanWithout(index), 1E-12 * scale);
+			assertEquals(stdDev, statistics.stdDevWithout(index), 1E-6);
+		}
+	}
+}
@@ -0,0 +1,177 @@
+/**
+ * Copyright 2014 SAP AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spotter.ext.detection.blob;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class MessageCorrelationTableTest {
+
+	@Test
+	public void testCollidingKeysMatchReference() {
+		// keys of a group share the same hash code, thus, they form long
+		// probe sequences and removals have to shift the following entries
+		List<String> keys = new ArrayList<>();
+		for (int group = 0; group < 8; group++) {
+			keys.addAll(collidingKeys("group-" + group + "-", 5));
+		}
+		// a group whose probe sequence wraps around the end of the table
+		int capacity = new MessageCorrelationTable().getCapacity();
+		for (int group = 0;; group++) {
+			List<String> groupKeys = collidingKeys("wrapping-" + group + "-", 5);
+			if (homeSlot(groupKeys.get(0)) == capacity - 1) {
+				keys.addAll(groupKeys);
+				break;
+			}
+		}
+		assertTrue(keys.size() * 2 < capacity);
+		runAgainstReference(new Random(1), keys, 100000);
+	}
+
+	@Test
+	public void testResizeMatchesReference() {
+		List<String> keys = new ArrayList<>();
+		for (int i = 0; i < 5000; i++) {
+			keys.add("message-" + i);
+		}
+		MessageCorrelationTable table = new MessageCorrelationTable();
+		int initialCapacity = table.getCapacity();
+		for (int i = 0; i < keys.size(); i++) {
+			assertEquals(-1, table.add(keys.get(i), true, i % 10, i));
+		}
+		assertTrue(table.getCapacity() > initialCapacity);
+		assertEquals(keys.size(), table.size());
+		for (int i = 0; i < keys.size(); i++) {
+			int slot = table.add(keys.get(i), false, i % 7, i + 0.5);
+			assertEquals(keys.get(i), table.getKey(slot));
+			assertEquals(i % 10, table.getSender(slot));
+			assertEquals(i % 7, table.getReceiver(slot));
+			assertEquals(i, table.getTimeSend(slot), 0.0);
+			assertEquals(i + 0.5, table.getTimeReceived(slot), 0.0);
+			table.remove(slot);
+		}
+		assertEquals(0, table.size());
+	}
+
+	@Test
+	public void testDuplicateEvents() {
+		MessageCorrelationTable table = new MessageCorrelationTable();
+		assertEquals(-1, table.add("m", true, 1, 10.0));
+		// a repeated send event replaces the first one
+		assertEquals(-1, table.add("m", true, 2, 11.0));
+		assertEquals(1, table.size());
+		int slot = table.add("m", false, 3, 15.0);
+		assertEquals(2, table.getSender(slot));
+		assertEquals(11.0, table.getTimeSend(slot), 0.0);
+		assertEquals(3, table.getReceiver(slot));
+		table.remove(slot);
+
+		// a repeated receive event after completion starts a new correlation
+		assertEquals(-1, table.add("m", false, 4, 16.0));
+		assertEquals(1, table.size());
+		slot = table.add("m", true, 5, 12.0);
+		assertEquals(5, table.getSender(slot));
+		assertEquals(4, table.getReceiver(slot));
+	}
+
+	private static void runAgainstReference(Random random, List<String> keys, int numEvents) {
+		MessageCorrelationTable table = new MessageCorrelationTable();
+		Map<String, double[]> reference = new HashMap<>();
+		for (int event = 0; event < numEvents; event++) {
+			String key = keys.get(random.nextInt(keys.size()));
+			boolean wasSent = random.nextBoolean();
+			int client = random.nextInt(20);
+			double timestamp = event;
+
+			double[] expected = reference.get(key);
+			if (expected == null) {
+				expected = new double[] { MessageCorrelationTable.UNKNOWN, MessageCorrelationTable.UNKNOWN, 0.0, 0.0 };
+				reference.put(key, expected);
+			}
+			expected[wasSent ? 0 : 1] = client;
+			expected[wasSent ? 2 : 3] = timestamp;
+
+			int slot = table.add(key, wasSent, client, timestamp);
+			boolean complete = expected[0] != MessageCorrelationTable.UNKNOWN
+					&& expected[1] != MessageCorrelationTable.UNKNOWN;
+			if (complete) {
+				assertEquals(key, table.getKey(slot));
+				assertEquals((int) expected[0], table.getSender(slot));
+				assertEquals((int) expected[1], table.getReceiver(slot));
+				assertEquals(expected[2], table.getTimeSend(slot), 0.0);
+				assertEquals(expected[3], table.getTimeReceived(slot), 0.0);
+				table.remove(slot);
+				reference.remove(key);
+			} else {
+				assertEquals(-1, slot);
+			}
+			assertEquals(reference.size(), table.size());
+		}
+		assertTableContent(table, reference);
+	}
+
+	private static void assertTableContent(MessageCorrelationTable table, Map<String, double[]> reference) {
+		int numKeys = 0;
+		for (int slot = 0; slot < table.getCapacity(); slot++) {
+			String key = table.getKey(slot);
+			if (key == null) {
+				continue;
+			}
+			numKeys++;
+			double[] expected = reference.get(key);
+			assertEquals((int) expected[0], table.getSender(slot));
+			assertEquals((int) expected[1], table.getReceiver(slot));
+		}
+		assertEquals(reference.size(), numKeys);
+	}
+
+	private static int homeSlot(String key) {
+		MessageCorrelationTable table = new MessageCorrelationTable();
+		table.add(key, true, 0, 0.0);
+		for (int slot = 0; slot < table.getCapacity(); slot++) {
+			if (key.equals(table.getKey(slot))) {
+				return slot;
+			}
+		}
+		throw new IllegalStateException();
+	}
+
+	/**
+	 * "Aa" and "BB" have the same hash code, thus, all concatenations of the
+	 * same number of them do as well.
+	 */
+	private static List<String> collidingKeys(String prefix, int length) {
+		List<String> keys = new ArrayList<>();
+		keys.add(prefix);
+		for (int i = 0; i < length; i++) {
+			List<String> longer = new ArrayList<>();
+			for (String key : keys) {
+				longer.add(key + "Aa");
+				longer.add(key + "BB");
+			}
+			keys = longer;
+		}
+		return keys;
+	}
+}
@@ -0,0 +1,64 @@
+/**
+ * Copyright 2014 SAP AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spotter.ext.detection.stifle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class QueryRegistryTest {
+	private static final String[] TABLES = { "orders", "items", "customers", "stock", "prices" };
+
+	@Test
+	public void testBoundedCacheKeepsIds() {
+		Random random = new Random(9);
+		QueryRegistry bounded = new QueryRegistry(16);
+		QueryRegistry unbounded = new QueryRegistry(Integer.MAX_VALUE);
+		Map<String, Integer> firstIds = new HashMap<>();
+		for (int i = 0; i < 5000; i++) {
+			// literals make most raw queries unique
+			String rawQuery = "SELECT * FROM " + TABLES[random.nextInt(TABLES.length)] + " WHERE id = "
+					+ random.nextInt(500);
+			int id = bounded.getQueryId(rawQuery);
+			assertTrue(bounded.getNumCachedRawQueries() <= 16);
+
+			// ids survive the eviction of the raw query
+			Integer firstId = firstIds.get(rawQuery);
+			if (firstId == null) {
+				firstIds.put(rawQuery, id);
+			} else {
+				assertEquals(firstId.intValue(), id);
+			}
+			assertEquals(unbounded.getQuery(unbounded.getQueryId(rawQuery)), bounded.getQuery(id));
+		}
+		assertEquals(unbounded.size(), bounded.size());
+		assertTrue(unbounded.getNumCachedRawQueries() > 16);
+	}
+
+	@Test
+	public void testDenseIds() {
+		QueryRegistry registry = new QueryRegistry();
+		assertEquals(0, registry.getQueryId("SELECT a FROM orders"));
+		assertEquals(1, registry.getQueryId("SELECT b FROM orders"));
+		assertEquals(0, registry.getQueryId("SELECT a FROM orders"));
+		assertEquals(2, registry.size());
+	}
+}
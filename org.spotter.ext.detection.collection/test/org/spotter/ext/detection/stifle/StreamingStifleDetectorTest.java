@@ -0,0 +1,245 @@
+/**
+ * Copyright 2014 SAP AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spotter.ext.detection.stifle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.aim.artifacts.records.ResponseTimeRecord;
+import org.aim.artifacts.records.SQLQueryRecord;
+import org.aim.artifacts.records.ThreadTracingRecord;
+import org.junit.Test;
+
+public class StreamingStifleDetectorTest {
+
+	@Test
+	public void testInterleavedRecordsMatchListBasedAnalysis() {
+		for (long seed = 1; seed <= 20; seed++) {
+			Records records = new Records(new Random(seed), 300);
+			Map<String, Map<String, List<Integer>>> expected = listBasedAnalysis(records);
+
+			List<ResponseTimeRecord> rtRecords = new ArrayList<>(records.rtRecords);
+			List<SQLQueryRecord> sqlRecords = new ArrayList<>(records.sqlRecords);
+			List<ThreadTracingRecord> ttRecords = new ArrayList<>(records.ttRecords);
+			Random random = new Random(seed);
+			Collections.shuffle(rtRecords, random);
+			Collections.shuffle(sqlRecords, random);
+			Collections.shuffle(ttRecords, random);
+			Map<String, List<StifleQuery>> actual = StifleDetectionController.analyzeDatasets(rtRecords, sqlRecords,
+					ttRecords);
+
+			assertTrue(!expected.isEmpty());
+			assertEquals(expected.keySet(), actual.keySet());
+			for (Entry<String, List<StifleQuery>> entry : actual.entrySet()) {
+				Map<String, List<Integer>> expectedQueries = expected.get(entry.getKey());
+				assertEquals(expectedQueries.size(), entry.getValue().size());
+				for (StifleQuery stifleQuery : entry.getValue()) {
+					List<Integer> occurrences = expectedQueries.get(stifleQuery.getQuery());
+					int sum = 0;
+					for (int occurrence : occurrences) {
+						sum += occurrence;
+					}
+					assertEquals(occurrences.size(), stifleQuery.getNumOccurrences());
+					assertEquals(Collections.min(occurrences).intValue(), stifleQuery.getMinOccurrence());
+					assertEquals(Collections.max(occurrences).intValue(), stifleQuery.getMaxOccurrence());
+					assertEquals((double) sum / occurrences.size(), stifleQuery.getAverageOccurrence(), 1E-12);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testTooFewResponseTimes() {
+		Records records = new Records(new Random(3), 2);
+		List<ResponseTimeRecord> rtRecords = new ArrayList<>(records.rtRecords.subList(0, 1));
+		assertTrue(StifleDetectionController.analyzeDatasets(rtRecords, records.sqlRecords, records.ttRecords)
+				.isEmpty());
+	}
+
+	@Test
+	public void testListenerAndOpenRequest() {
+		final List<Integer> observed = new ArrayList<>();
+		StreamingStifleDetector detector = new StreamingStifleDetector();
+		detector.addListener(new IStifleListener() {
+			@Override
+			public void stifleObserved(String operation, StifleQuery stifleQuery, int occurrence) {
+				assertEquals("op", operation);
+				observed.add(occurrence);
+			}
+		});
+		// queries before the first request are not attributed
+		detector.addQuery(1, "SELECT a FROM t", 0, 10);
+		detector.addQuery(2, "SELECT a FROM t", 20, 30);
+		detector.addResponseTime(3, "op", 100, 50);
+		detector.addQuery(4, "SELECT a FROM t", 40, 50);
+		detector.addQuery(5, "SELECT a FROM t", 60, 70);
+		detector.addQuery(6, "SELECT a FROM t", 80, 90);
+		detector.addQuery(7, "SELECT b FROM t", 100, 110);
+		assertTrue(detector.getStifleQueries().isEmpty());
+
+		detector.addResponseTime(8, "op", 200, 50);
+		assertEquals(Collections.singletonList(3), observed);
+		assertEquals(1, detector.getStifleQueries().get("op").size());
+
+		// the last request is still open
+		detector.addQuery(9, "SELECT a FROM t", 120, 130);
+		detector.addQuery(10, "SELECT a FROM t", 140, 150);
+		assertEquals(1, observed.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testCallIdOrder() {
+		StreamingStifleDetector detector = new StreamingStifleDetector();
+		detector.addResponseTime(5, "op", 100, 50);
+		detector.addQuery(4, "SELECT a FROM t", 40, 50);
+	}
+
+	/**
+	 * The analysis based on record lists which the streaming detector
+	 * replaced: nested queries and requests are filtered first, then the
+	 * queries between two consecutive requests are counted for the first of
+	 * them.
+	 */
+	private static Map<String, Map<String, List<Integer>>> listBasedAnalysis(Records records) {
+		Map<Long, ThreadTracingRecord> ttByCallId = new HashMap<>();
+		for (ThreadTracingRecord ttRecord : records.ttRecords) {
+			ttByCallId.put(ttRecord.getCallId(), ttRecord);
+		}
+		List<SQLQueryRecord> queries = new ArrayList<>();
+		long refEnd = -1;
+		for (SQLQueryRecord sqlRecord : records.sqlRecords) {
+			ThreadTracingRecord ttRecord = ttByCallId.get(sqlRecord.getCallId());
+			if (ttRecord != null && (refEnd < 0 || ttRecord.getEnterNanoTime() > refEnd)) {
+				refEnd = ttRecord.getExitNanoTime();
+				queries.add(sqlRecord);
+			}
+		}
+		List<ResponseTimeRecord> requests = new ArrayList<>();
+		refEnd = -1;
+		for (ResponseTimeRecord rtRecord : records.rtRecords) {
+			if (refEnd < 0 || rtRecord.getTimeStamp() > refEnd) {
+				refEnd = rtRecord.getTimeStamp() + rtRecord.getResponseTime();
+				requests.add(rtRecord);
+			}
+		}
+
+		QueryRegistry queryRegistry = new QueryRegistry();
+		Map<String, Map<String, List<Integer>>> result = new HashMap<>();
+		for (int r = 0; r + 1 < requests.size(); r++) {
+			long from = requests.get(r).getCallId();
+			long to = requests.get(r + 1).getCallId();
+			Map<String, Integer> counts = new TreeMap<>();
+			for (SQLQueryRecord query : queries) {
+				if (query.getCallId() >= from && query.getCallId() <= to) {
+					String generalizedQuery = queryRegistry.getQuery(queryRegistry.getQueryId(query
+							.getQueryString()));
+					Integer count = counts.get(generalizedQuery);
+					counts.put(generalizedQuery, count == null ? 1 : count + 1);
+				}
+			}
+			for (Entry<String, Integer> count : counts.entrySet()) {
+				if (count.getValue() > 1) {
+					String operation = requests.get(r).getOperation();
+					if (!result.containsKey(operation)) {
+						result.put(operation, new HashMap<String, List<Integer>>());
+					}
+					Map<String, List<Integer>> operationQueries = result.get(operation);
+					if (!operationQueries.containsKey(count.getKey())) {
+						operationQueries.put(count.getKey(), new ArrayList<Integer>());
+					}
+					operationQueries.get(count.getKey()).add(count.getValue());
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Records of consecutive requests with unique, ascending call ids. Some
+	 * requests and queries are nested, some queries lack the thread tracing
+	 * record.
+	 */
+	private static final class Records {
+		private static final String[] TABLES = { "orders", "items", "customers", "stock", "prices" };
+
+		private final List<ResponseTimeRecord> rtRecords = new ArrayList<>();
+		private final List<SQLQueryRecord> sqlRecords = new ArrayList<>();
+		private final List<ThreadTracingRecord> ttRecords = new ArrayList<>();
+		private final Random random;
+		private long callId = 0;
+		private long lastExit = 0;
+
+		private Records(Random random, int numRequests) {
+			this.random = random;
+			addQueries(3);
+			long timestamp = 1000;
+			for (int r = 0; r < numRequests; r++) {
+				long responseTime = 20 + random.nextInt(50);
+				addResponseTime("op" + random.nextInt(4), timestamp, responseTime);
+				if (random.nextInt(5) == 0) {
+					addResponseTime("nested", timestamp + 1, 5);
+				}
+				addQueries(random.nextInt(8));
+				timestamp += responseTime + 1 + random.nextInt(5);
+			}
+		}
+
+		private void addResponseTime(String operation, long timestamp, long responseTime) {
+			ResponseTimeRecord rtRecord = new ResponseTimeRecord();
+			rtRecord.setCallId(callId++);
+			rtRecord.setOperation(operation);
+			rtRecord.setTimeStamp(timestamp);
+			rtRecord.setResponseTime(responseTime);
+			rtRecords.add(rtRecord);
+		}
+
+		private void addQueries(int numQueries) {
+			for (int q = 0; q < numQueries; q++) {
+				String query = "SELECT * FROM " + TABLES[random.nextInt(TABLES.length)] + " WHERE id = "
+						+ random.nextInt(1000);
+				addQuery(query, lastExit + 100, lastExit + 200, random.nextInt(10) != 0);
+				if (random.nextInt(10) == 0) {
+					addQuery(query, lastExit - 50, lastExit - 10, true);
+				}
+			}
+		}
+
+		private void addQuery(String query, long enter, long exit, boolean traced) {
+			SQLQueryRecord sqlRecord = new SQLQueryRecord();
+			sqlRecord.setCallId(callId);
+			sqlRecord.setQueryString(query);
+			sqlRecords.add(sqlRecord);
+			if (traced) {
+				ThreadTracingRecord ttRecord = new ThreadTracingRecord();
+				ttRecord.setCallId(callId);
+				ttRecord.setEnterNanoTime(enter);
+				ttRecord.setExitNanoTime(exit);
+				ttRecords.add(ttRecord);
+			}
+			callId++;
+			lastExit = Math.max(lastExit, exit);
+		}
+	}
+}
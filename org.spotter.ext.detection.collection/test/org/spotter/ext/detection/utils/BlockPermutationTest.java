@@ -0,0 +1,111 @@
+/**
+ * Copyright 2014 SAP AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spotter.ext.detection.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class BlockPermutationTest {
+	private static final double SIGNIFICANCE_LEVEL = 0.05;
+
+	@Test
+	public void testSeededDeterminism() {
+		double[] series = noise(new Random(1), 300, 0.0);
+		BlockPermutation first = new BlockPermutation(0, BlockPermutation.DEFAULT_MAX_PERMUTATIONS, 42L);
+		BlockPermutation second = new BlockPermutation(0, BlockPermutation.DEFAULT_MAX_PERMUTATIONS, 42L);
+		assertEquals(first.testIncrease(series, 150, SIGNIFICANCE_LEVEL),
+				second.testIncrease(series, 150, SIGNIFICANCE_LEVEL), 0.0);
+		assertEquals(first.getNumPermutations(), second.getNumPermutations());
+	}
+
+	@Test
+	public void testShiftedSeries() {
+		Random random = new Random(2);
+		double[] unshifted = noise(random, 400, 0.0);
+		double[] shifted = noise(random, 400, 1.0);
+		double[] decreasing = noise(random, 400, -1.0);
+		BlockPermutation test = new BlockPermutation(0, BlockPermutation.DEFAULT_MAX_PERMUTATIONS, 1L);
+		assertTrue(test.testIncrease(unshifted, 200, SIGNIFICANCE_LEVEL) > SIGNIFICANCE_LEVEL);
+		assertTrue(test.testIncrease(shifted, 200, SIGNIFICANCE_LEVEL) < 0.01);
+		assertTrue(test.testIncrease(decreasing, 200, SIGNIFICANCE_LEVEL) > 0.99);
+	}
+
+	@Test
+	public void testEarlyStopping() {
+		double[] shifted = noise(new Random(3), 400, 1.0);
+		BlockPermutation test = new BlockPermutation(0, BlockPermutation.DEFAULT_MAX_PERMUTATIONS, 1L);
+		double pValue = test.testIncrease(shifted, 200, SIGNIFICANCE_LEVEL);
+		// all permutations are less extreme, p = 1 / (k + 1) is decided
+		// after a few check intervals
+		assertEquals(1.0 / (test.getNumPermutations() + 1.0), pValue, 1E-12);
+		assertTrue(test.getNumPermutations() < BlockPermutation.DEFAULT_MAX_PERMUTATIONS);
+		assertEquals(0, test.getNumPermutations() % 100);
+
+		BlockPermutation limited = new BlockPermutation(0, 150, 1L);
+		limited.testIncrease(shifted, 200, SIGNIFICANCE_LEVEL);
+		assertEquals(150, limited.getNumPermutations());
+	}
+
+	@Test
+	public void testDerivedBlockLengthOnAutocorrelatedSeries() {
+		// AR(1) series with autocorrelation 0.95 and without shift, blocks of
+		// the cube root of the series length break up the autocorrelation
+		// and cause many false alarms
+		Random random = new Random(3);
+		int runs = 300;
+		int n = 400;
+		int cubeRootAlarms = 0;
+		int derivedAlarms = 0;
+		for (int run = 0; run < runs; run++) {
+			double[] series = new double[n];
+			double value = 0.0;
+			for (int i = 0; i < n; i++) {
+				value = 0.95 * value + random.nextGaussian();
+				series[i] = value;
+			}
+			int cubeRoot = (int) Math.ceil(Math.cbrt(n));
+			if (new BlockPermutation(cubeRoot, BlockPermutation.DEFAULT_MAX_PERMUTATIONS, run).testIncrease(series,
+					n / 2, SIGNIFICANCE_LEVEL) <= SIGNIFICANCE_LEVEL) {
+				cubeRootAlarms++;
+			}
+			if (new BlockPermutation(0, BlockPermutation.DEFAULT_MAX_PERMUTATIONS, run).testIncrease(series, n / 2,
+					SIGNIFICANCE_LEVEL) <= SIGNIFICANCE_LEVEL) {
+				derivedAlarms++;
+			}
+		}
+		double cubeRootRate = (double) cubeRootAlarms / runs;
+		double derivedRate = (double) derivedAlarms / runs;
+		assertTrue(cubeRootRate > 0.2);
+		assertTrue(derivedRate < 0.15);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testEmptyPart() {
+		new BlockPermutation(0, 100, 1L).testIncrease(new double[] { 1.0, 2.0 }, 2, SIGNIFICANCE_LEVEL);
+	}
+
+	private static double[] noise(Random random, int n, double shift) {
+		double[] series = new double[n];
+		for (int i = 0; i < n; i++) {
+			series[i] = 10.0 + random.nextGaussian() + (i >= n / 2 ? shift : 0.0);
+		}
+		return series;
+	}
+}
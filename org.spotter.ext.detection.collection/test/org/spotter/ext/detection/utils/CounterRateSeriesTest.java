@@ -0,0 +1,120 @@
+/**
+ * Copyright 2014 SAP AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spotter.ext.detection.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class CounterRateSeriesTest {
+	private static final long UINT32_MAX = 0xFFFFFFFFL;
+
+	@Test
+	public void testCounterReset() {
+		CounterRateSeries series = new CounterRateSeries(1);
+		series.add(1000L, 100L);
+		series.add(2000L, 300L);
+		// the counter restarted from zero and counted 50 since then
+		series.add(3000L, 50L);
+		series.add(4000L, 150L);
+		assertArrayEquals(new long[] { 200L, 50L, 100L }, series.getDeltas(0));
+		assertEquals(350L, series.getTotalIncrease(0));
+		assertEquals(350.0 / 3.0, series.getAverageRate(0, 1000L), 1E-9);
+	}
+
+	@Test
+	public void testInt32Wraparound() {
+		CounterRateSeries series = new CounterRateSeries(1);
+		series.add(1000L, UINT32_MAX - 99L);
+		series.add(2000L, 50L);
+		series.add(3000L, 250L);
+		assertArrayEquals(new long[] { 150L, 200L }, series.getDeltas(0));
+
+		// a reset below the upper half of the 32 bit range is no wraparound
+		CounterRateSeries reset = new CounterRateSeries(1);
+		reset.add(1000L, 1000000L);
+		reset.add(2000L, 50L);
+		assertArrayEquals(new long[] { 50L }, reset.getDeltas(0));
+
+		// 64 bit counters above the 32 bit range reset as well
+		CounterRateSeries large = new CounterRateSeries(1);
+		large.add(1000L, UINT32_MAX + 1000L);
+		large.add(2000L, 50L);
+		assertArrayEquals(new long[] { 50L }, large.getDeltas(0));
+	}
+
+	@Test
+	public void testInt64Wraparound() {
+		CounterRateSeries series = new CounterRateSeries(1);
+		series.add(1000L, Long.MAX_VALUE - 9L);
+		// unsigned 64 bit counter beyond the signed range
+		series.add(2000L, Long.MIN_VALUE + 10L);
+		assertArrayEquals(new long[] { 20L }, series.getDeltas(0));
+	}
+
+	@Test
+	public void testGapsAndOrder() {
+		CounterRateSeries series = new CounterRateSeries(2, 3.0);
+		// added out of order, the interval 4000 - 20000 is a gap
+		series.add(3000L, 30L, 3L);
+		series.add(1000L, 10L, 1L);
+		series.add(20000L, 1000L, 100L);
+		series.add(2000L, 20L, 2L);
+		series.add(4000L, 40L, 4L);
+		series.add(21000L, 1010L, 102L);
+		assertEquals(6, series.size());
+		assertArrayEquals(new long[] { 2000L, 3000L, 4000L, 21000L }, series.getIntervalEnds());
+		assertArrayEquals(new long[] { 10L, 10L, 10L, 10L }, series.getDeltas(0));
+		assertArrayEquals(new long[] { 1L, 1L, 1L, 2L }, series.getDeltas(1));
+		assertEquals(4000L, series.getTotalDuration());
+		double[] rates = series.getRates(1, 1000L);
+		assertEquals(1.0, rates[0], 1E-12);
+		assertEquals(2.0, rates[3], 1E-12);
+		assertEquals(5.0 / 4.0, series.getAverageRate(1, 1000L), 1E-12);
+	}
+
+	@Test
+	public void testEqualTimestampsAndSingleSample() {
+		CounterRateSeries series = new CounterRateSeries(1);
+		series.add(1000L, 10L);
+		assertEquals(0, series.getNumIntervals());
+		assertEquals(0.0, series.getAverageRate(0, 1000L), 0.0);
+		series.add(1000L, 12L);
+		assertEquals(0, series.getNumIntervals());
+		series.add(2000L, 20L);
+		// the sample added last for a timestamp is the start of the interval
+		assertArrayEquals(new long[] { 8L }, series.getDeltas(0));
+	}
+
+	@Test
+	public void testGroup() {
+		CounterRateSeries.Group<String> group = new CounterRateSeries.Group<>(1);
+		group.add("queue-b", 1000L, 5L);
+		group.add("queue-a", 1000L, 1L);
+		group.add("queue-b", 2000L, 15L);
+		assertEquals(Arrays.asList("queue-b", "queue-a"), Arrays.asList(group.getKeys().toArray()));
+		assertEquals(10L, group.get("queue-b").getTotalIncrease(0));
+		assertEquals(0, group.get("queue-a").getNumIntervals());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testWrongNumberOfValues() {
+		new CounterRateSeries(2).add(1000L, 1L);
+	}
+}
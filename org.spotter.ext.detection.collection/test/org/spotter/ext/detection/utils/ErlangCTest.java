@@ -0,0 +1,68 @@
+/**
+ * Copyright 2014 SAP AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spotter.ext.detection.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ErlangCTest {
+	private static final double DELTA = 1E-8;
+
+	@Test
+	public void testWaitingProbability() {
+		// reference values of the Erlang C formula for offered load a = c * u
+		assertEquals(0.5, ErlangC.waitingProbability(1, 0.5), DELTA);
+		assertEquals(1.0 / 3.0, ErlangC.waitingProbability(2, 0.5), DELTA);
+		assertEquals(4.0 / 9.0, ErlangC.waitingProbability(3, 2.0 / 3.0), DELTA);
+		assertEquals(0.5541125541, ErlangC.waitingProbability(5, 0.8), DELTA);
+		assertEquals(0.4091801508, ErlangC.waitingProbability(10, 0.8), DELTA);
+		assertEquals(0.1604293874, ErlangC.waitingProbability(20, 0.75), DELTA);
+		assertEquals(0.0, ErlangC.waitingProbability(4, 0.0), DELTA);
+		assertEquals(1.0, ErlangC.waitingProbability(4, 1.0), DELTA);
+	}
+
+	@Test
+	public void testResponseTimeFactor() {
+		// M/M/1: R = S / (1 - u)
+		assertEquals(2.0, ErlangC.responseTimeFactor(1, 0.5), DELTA);
+		assertEquals(10.0, ErlangC.responseTimeFactor(1, 0.9), 1E-6);
+		// M/M/2 with u = 0.5: R = S * (1 + (1/3) / (2 * 0.5))
+		assertEquals(4.0 / 3.0, ErlangC.responseTimeFactor(2, 0.5), DELTA);
+		assertTrue(Double.isInfinite(ErlangC.responseTimeFactor(2, 1.0)));
+	}
+
+	@Test
+	public void testInverse() {
+		assertEquals(0.5, ErlangC.getUtilizationForResponseTimeFactor(2.0, 1), 1E-7);
+		assertEquals(2.0 / 3.0, ErlangC.getUtilizationForResponseTimeFactor(3.0, 1), 1E-7);
+		for (int numServers = 1; numServers <= 64; numServers *= 2) {
+			for (double factor = 1.1; factor < 10.0; factor += 0.7) {
+				double utilization = ErlangC.getUtilizationForResponseTimeFactor(factor, numServers);
+				assertTrue(utilization > 0.0 && utilization < 1.0);
+				assertEquals(factor, ErlangC.responseTimeFactor(numServers, utilization), 1E-5 * factor * factor);
+				// cached result is identical
+				assertEquals(utilization, ErlangC.getUtilizationForResponseTimeFactor(factor, numServers), 0.0);
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidFactor() {
+		ErlangC.getUtilizationForResponseTimeFactor(0.5, 2);
+	}
+}
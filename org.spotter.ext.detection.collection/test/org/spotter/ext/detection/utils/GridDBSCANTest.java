@@ -0,0 +1,85 @@
+/**
+ * Copyright 2014 SAP AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spotter.ext.detection.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.lpe.common.util.LpeNumericUtils;
+import org.lpe.common.util.NumericPairList;
+
+public class GridDBSCANTest {
+
+	@Test
+	public void testSeparatedClusters() {
+		NumericPairList<Long, Double> series = new NumericPairList<>();
+		for (long i = 0; i < 100; i++) {
+			series.add(i, 10.0 + (i % 5));
+			series.add(1000L + i, 100.0 + (i % 5));
+		}
+		// isolated outlier
+		series.add(500L, 55.0);
+
+		List<NumericPairList<Long, Double>> clusters = GridDBSCAN.cluster(series, 0.05, 5, 1099.0, 94.0);
+		assertEquals(2, clusters.size());
+		assertEquals(100, clusters.get(0).size());
+		assertEquals(0L, clusters.get(0).getKeyMin().longValue());
+		assertEquals(99L, clusters.get(0).getKeyMax().longValue());
+		assertEquals(100, clusters.get(1).size());
+		assertEquals(1000L, clusters.get(1).getKeyMin().longValue());
+	}
+
+	@Test
+	public void testSameClustersAsReference() {
+		Random random = new Random(42);
+		for (int run = 0; run < 50; run++) {
+			NumericPairList<Long, Double> series = new NumericPairList<>();
+			int numPoints = 100 + random.nextInt(900);
+			long timestamp = 0L;
+			for (int i = 0; i < numPoints; i++) {
+				timestamp += 1 + random.nextInt(20);
+				double responseTime = random.nextInt(10) == 0 ? 300.0 + random.nextInt(200) : 50.0 + random
+						.nextGaussian() * 5.0;
+				series.add(timestamp, responseTime);
+			}
+			double keyRange = series.getKeyMax() - series.getKeyMin();
+			double valueRange = series.getValueMax() - series.getValueMin();
+			double epsilon = 0.01 + random.nextDouble() * 0.05;
+			int minNeighbours = 2 + random.nextInt(20);
+
+			List<NumericPairList<Long, Double>> expected = LpeNumericUtils.dbscanNormalized(series, epsilon,
+					minNeighbours, keyRange, valueRange);
+			List<NumericPairList<Long, Double>> actual = GridDBSCAN.cluster(series, epsilon, minNeighbours,
+					keyRange, valueRange);
+
+			assertEquals(expected.size(), actual.size());
+			for (int c = 0; c < expected.size(); c++) {
+				assertEquals(expected.get(c).size(), actual.get(c).size());
+				assertEquals(expected.get(c).getKeyMin(), actual.get(c).getKeyMin());
+				assertEquals(expected.get(c).getKeyMax(), actual.get(c).getKeyMax());
+				assertEquals(expected.get(c).getValueMax(), actual.get(c).getValueMax(), 0.0);
+			}
+		}
+	}
+
+	@Test
+	public void testEmptySeries() {
+		assertEquals(0, GridDBSCAN.cluster(new NumericPairList<Long, Double>(), 0.1, 3, 1.0, 1.0).size());
+	}
+}
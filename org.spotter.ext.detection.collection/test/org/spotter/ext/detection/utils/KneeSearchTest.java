@@ -0,0 +1,119 @@
+/**
+ * Copyright 2014 SAP AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spotter.ext.detection.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class KneeSearchTest {
+
+	@Test
+	public void testBracket() throws Exception {
+		for (int kneeLoad = 2; kneeLoad <= 100; kneeLoad++) {
+			KneeExperiment experiment = new KneeExperiment(kneeLoad);
+			int kneeUsers = new KneeSearch(100, 5, KneeSearch.KNEE_FACTOR_DEFAULT).search(experiment);
+
+			assertTrue(kneeUsers >= kneeLoad);
+			int lower = 1;
+			for (int numUsers : experiment.runs.keySet()) {
+				if (numUsers < kneeLoad) {
+					lower = Math.max(lower, numUsers);
+				}
+			}
+			assertTrue("knee " + kneeLoad + ": " + lower + " - " + kneeUsers, kneeUsers - lower <= 5);
+		}
+	}
+
+	@Test
+	public void testMeasuredLoadsAreReused() throws Exception {
+		KneeExperiment experiment = new KneeExperiment(37);
+		KneeSearch search = new KneeSearch(100, 5, KneeSearch.KNEE_FACTOR_DEFAULT);
+		int kneeUsers = search.search(experiment);
+		// 1 and 100, then 50, 25, 37, 31, 34
+		assertEquals(Arrays.asList(1, 25, 31, 34, 37, 50, 100), search.getMeasuredLoads());
+		assertEquals(37, kneeUsers);
+
+		List<Integer> loadSteps = search.measureLoadSteps(experiment, kneeUsers, 4);
+		// evenly spaced up to the knee, then the saturated loads above it
+		assertEquals(Arrays.asList(1, 12, 25, 37, 50, 100), loadSteps);
+		assertEquals(Arrays.asList(1, 12, 25, 31, 34, 37, 50, 100), search.getMeasuredLoads());
+		for (int numRuns : experiment.runs.values()) {
+			assertEquals(1, numRuns);
+		}
+		assertTrue(experiment.runs.size() <= KneeSearch.getMaxNumExperiments(100, 5, 4));
+	}
+
+	@Test
+	public void testUnsaturated() throws Exception {
+		KneeExperiment experiment = new KneeExperiment(Integer.MAX_VALUE);
+		KneeSearch search = new KneeSearch(100, 5, KneeSearch.KNEE_FACTOR_DEFAULT);
+		assertEquals(-1, search.search(experiment));
+		assertEquals(Arrays.asList(1, 100), search.getMeasuredLoads());
+
+		// falls back to the evenly spaced grid over all loads
+		assertEquals(Arrays.asList(1, 33, 67, 100), search.measureLoadSteps(experiment, -1, 4));
+		assertEquals(4, experiment.runs.size());
+
+		KneeSearch singleUser = new KneeSearch(1, 5, KneeSearch.KNEE_FACTOR_DEFAULT);
+		assertEquals(-1, singleUser.search(new KneeExperiment(1)));
+	}
+
+	@Test
+	public void testMaxNumExperiments() throws Exception {
+		for (int maxUsers : new int[] { 2, 7, 64, 100, 1000 }) {
+			for (int resolution : new int[] { 1, 5, 50 }) {
+				int maxNumExperiments = KneeSearch.getMaxNumExperiments(maxUsers, resolution, 5);
+				for (int kneeLoad = 2; kneeLoad <= maxUsers + 1; kneeLoad++) {
+					KneeExperiment experiment = new KneeExperiment(kneeLoad);
+					KneeSearch search = new KneeSearch(maxUsers, resolution, KneeSearch.KNEE_FACTOR_DEFAULT);
+					search.measureLoadSteps(experiment, search.search(experiment), 5);
+					assertTrue(experiment.runs.size() <= maxNumExperiments);
+				}
+			}
+		}
+		assertEquals(2 + 5 + 2, KneeSearch.getMaxNumExperiments(100, 5, 4));
+	}
+
+	/**
+	 * Single operation whose response time triples at the knee load.
+	 */
+	private static class KneeExperiment implements KneeSearch.ILoadExperiment {
+		private final int kneeLoad;
+		private final Map<Integer, Integer> runs = new HashMap<>();
+
+		KneeExperiment(int kneeLoad) {
+			this.kneeLoad = kneeLoad;
+		}
+
+		@Override
+		public Map<String, ResponseTimeSummary> run(int numUsers) {
+			Integer numRuns = runs.get(numUsers);
+			runs.put(numUsers, numRuns == null ? 1 : numRuns + 1);
+			ResponseTimeSummary summary = new ResponseTimeSummary();
+			summary.add(numUsers >= kneeLoad ? 30.0 : 10.0);
+			Map<String, ResponseTimeSummary> summaries = new HashMap<>();
+			summaries.put("op", summary);
+			return summaries;
+		}
+	}
+}
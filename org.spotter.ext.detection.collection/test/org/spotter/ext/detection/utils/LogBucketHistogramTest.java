@@ -0,0 +1,96 @@
+/**
+ * Copyright 2014 SAP AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spotter.ext.detection.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LogBucketHistogramTest {
+
+	@Test
+	public void testExactBelowUnitResolutionLimit() {
+		LogBucketHistogram histogram = new LogBucketHistogram(3);
+		for (long value = 0; value < 2000; value++) {
+			histogram.recordValue(value);
+		}
+		assertEquals(2000L, histogram.getTotalCount());
+		assertEquals(999L, histogram.getCountAbove(1000L));
+		assertEquals(0L, histogram.getCountAbove(1999L));
+		assertEquals(2000L, histogram.getCountAbove(-1L));
+		assertEquals(999L, histogram.getValueAtPercentile(50.0));
+		assertEquals(1999L, histogram.getValueAtPercentile(100.0));
+		assertEquals(1999L, histogram.getMaxValue());
+	}
+
+	@Test
+	public void testRelativeErrorOfPercentiles() {
+		Random random = new Random(5);
+		for (int digits = LogBucketHistogram.MIN_SIGNIFICANT_DIGITS; digits <= 4; digits++) {
+			LogBucketHistogram histogram = new LogBucketHistogram(digits);
+			long[] values = new long[10000];
+			for (int i = 0; i < values.length; i++) {
+				values[i] = (long) Math.exp(random.nextDouble() * 20.0);
+				histogram.recordValue(values[i]);
+			}
+			Arrays.sort(values);
+			double maxRelativeError = Math.pow(10.0, -digits);
+			for (double percentile : new double[] { 1.0, 25.0, 50.0, 90.0, 99.0, 99.9, 100.0 }) {
+				long exact = values[(int) Math.ceil(percentile / 100.0 * values.length) - 1];
+				long estimate = histogram.getValueAtPercentile(percentile);
+				assertTrue(estimate >= exact);
+				assertTrue(estimate - exact <= maxRelativeError * exact);
+			}
+		}
+	}
+
+	@Test
+	public void testMergeEqualsCombinedRecording() {
+		Random random = new Random(11);
+		LogBucketHistogram first = new LogBucketHistogram(2);
+		LogBucketHistogram second = new LogBucketHistogram(2);
+		LogBucketHistogram combined = new LogBucketHistogram(2);
+		for (int i = 0; i < 5000; i++) {
+			long value = random.nextInt(100000);
+			if (i % 3 == 0) {
+				first.recordValue(value);
+			} else {
+				second.recordValue(value, 2L);
+			}
+			combined.recordValue(value, i % 3 == 0 ? 1L : 2L);
+		}
+		first.add(second);
+		assertEquals(combined.getTotalCount(), first.getTotalCount());
+		for (double percentile = 0.0; percentile <= 100.0; percentile += 2.5) {
+			assertEquals(combined.getValueAtPercentile(percentile), first.getValueAtPercentile(percentile));
+		}
+		assertEquals(combined.getCountAbove(5000L), first.getCountAbove(5000L));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeValuesAreRejected() {
+		new LogBucketHistogram(3).recordValue(-1L);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMergeOfDifferentPrecisionIsRejected() {
+		new LogBucketHistogram(3).add(new LogBucketHistogram(2));
+	}
+}
@@ -0,0 +1,82 @@
+/**
+ * Copyright 2014 SAP AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spotter.ext.detection.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.lpe.common.util.LpeNumericUtils;
+import org.lpe.common.util.NumericPairList;
+
+public class MeanDistanceEstimateTest {
+	private static final double MAX_RELATIVE_ERROR = 0.03;
+
+	@Test
+	public void testExactForSmallSeries() {
+		NumericPairList<Long, Double> series = createSeries(100, new Random(7));
+		double keyRange = series.getKeyMax() - series.getKeyMin();
+		double valueRange = series.getValueMax() - series.getValueMin();
+
+		MeanDistanceEstimate estimate = MeanDistanceEstimate.calculate(series, keyRange, valueRange,
+				MeanDistanceEstimate.DEFAULT_SAMPLE_SIZE, MeanDistanceEstimate.DEFAULT_SEED);
+		assertTrue(estimate.isExact());
+		assertEquals(0.0, estimate.getConfidenceHalfWidth(), 0.0);
+		assertEquals(LpeNumericUtils.meanNormalizedDistance(series, keyRange, valueRange), estimate.getMean(), 0.0);
+	}
+
+	@Test
+	public void testSampledEstimate() {
+		Random random = new Random(13);
+		for (int run = 0; run < 3; run++) {
+			NumericPairList<Long, Double> series = createSeries(2000 + random.nextInt(2000), random);
+			double keyRange = series.getKeyMax() - series.getKeyMin();
+			double valueRange = series.getValueMax() - series.getValueMin();
+			double exact = LpeNumericUtils.meanNormalizedDistance(series, keyRange, valueRange);
+
+			MeanDistanceEstimate estimate = MeanDistanceEstimate.calculate(series, keyRange, valueRange, 20000,
+					random.nextLong());
+			assertFalse(estimate.isExact());
+			assertEquals(20000L, estimate.getNumPairs());
+			assertEquals(exact, estimate.getMean(), MAX_RELATIVE_ERROR * exact);
+			assertTrue(estimate.getConfidenceHalfWidth() > 0.0);
+			assertTrue(estimate.getConfidenceHalfWidth() < MAX_RELATIVE_ERROR * exact);
+		}
+	}
+
+	@Test
+	public void testSeededEstimateIsReproducible() {
+		NumericPairList<Long, Double> series = createSeries(1000, new Random(3));
+		MeanDistanceEstimate first = MeanDistanceEstimate.calculate(series, 1000.0, 100.0, 5000, 42L);
+		MeanDistanceEstimate second = MeanDistanceEstimate.calculate(series, 1000.0, 100.0, 5000, 42L);
+		assertEquals(first.getMean(), second.getMean(), 0.0);
+	}
+
+	private NumericPairList<Long, Double> createSeries(int numPoints, Random random) {
+		NumericPairList<Long, Double> series = new NumericPairList<>();
+		long timestamp = 1400000000000L;
+		for (int i = 0; i < numPoints; i++) {
+			timestamp += 1 + random.nextInt(50);
+			double responseTime = random.nextInt(20) == 0 ? 500.0 + random.nextInt(500) : 40.0 + random
+					.nextGaussian() * 8.0;
+			series.add(timestamp, responseTime);
+		}
+		return series;
+	}
+}
@@ -0,0 +1,116 @@
+/**
+ * Copyright 2014 SAP AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spotter.ext.detection.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.aim.api.measurement.dataset.Dataset;
+import org.aim.api.measurement.dataset.DatasetCollectionBuilder;
+import org.aim.artifacts.records.ResponseTimeRecord;
+import org.junit.Test;
+
+public class ResponseTimeSeriesCacheTest {
+
+	@Test
+	public void testSeriesPerOperation() {
+		Dataset dataset = createDataset(1000L, 10L);
+		assertEquals(new HashSet<>(Arrays.asList("a", "b")),
+				ResponseTimeSeriesCache.getOperations(dataset));
+
+		ResponseTimeSeries series = ResponseTimeSeriesCache.getSeries(dataset, "a");
+		assertArrayEquals(new long[] { 1000L, 1001L, 1002L }, series.getTimestamps());
+		assertArrayEquals(new double[] { 10.0, 12.0, 11.0 }, series.getResponseTimes(), 0.0);
+		assertEquals(0, ResponseTimeSeriesCache.getSeries(dataset, "unknown").size());
+	}
+
+	@Test
+	public void testSameDatasetSharesSeries() {
+		Dataset dataset = createDataset(2000L, 10L);
+		assertSame(ResponseTimeSeriesCache.getSeries(dataset, "a"), ResponseTimeSeriesCache.getSeries(dataset, "a"));
+	}
+
+	@Test
+	public void testReloadedDatasetSharesSeries() {
+		// the same experiment read twice yields two dataset instances
+		Dataset dataset = createDataset(3000L, 10L);
+		Dataset reloaded = createDataset(3000L, 10L);
+		assertNotSame(dataset, reloaded);
+		assertSame(ResponseTimeSeriesCache.getSeries(dataset, "a"), ResponseTimeSeriesCache.getSeries(reloaded, "a"));
+
+		Dataset otherExperiment = createDataset(3000L, 11L);
+		assertNotSame(ResponseTimeSeriesCache.getSeries(dataset, "a"),
+				ResponseTimeSeriesCache.getSeries(otherExperiment, "a"));
+	}
+
+	@Test
+	public void testCacheLimit() {
+		List<Dataset> datasets = new ArrayList<>();
+		for (int i = 0; i <= ResponseTimeSeriesCache.MAX_CACHED_DATASETS; i++) {
+			datasets.add(createDataset(4000L + 100L * i, 10L));
+		}
+		List<ResponseTimeSeries> series = new ArrayList<>();
+		for (Dataset dataset : datasets) {
+			series.add(ResponseTimeSeriesCache.getSeries(dataset, "a"));
+		}
+
+		// the least recently used dataset has been evicted, the others not
+		for (int i = datasets.size() - 1; i > 0; i--) {
+			assertSame(series.get(i), ResponseTimeSeriesCache.getSeries(datasets.get(i), "a"));
+		}
+		assertNotSame(series.get(0), ResponseTimeSeriesCache.getSeries(datasets.get(0), "a"));
+	}
+
+	@Test
+	public void testDatasetIsNotRetained() throws InterruptedException {
+		Dataset dataset = createDataset(5000L, 10L);
+		ResponseTimeSeries series = ResponseTimeSeriesCache.getSeries(dataset, "a");
+		WeakReference<Dataset> reference = new WeakReference<>(dataset);
+		dataset = null;
+		for (int i = 0; i < 100 && reference.get() != null; i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertNull(reference.get());
+		assertEquals(3, series.size());
+	}
+
+	private static Dataset createDataset(long startTime, long responseTime) {
+		DatasetCollectionBuilder builder = new DatasetCollectionBuilder();
+		builder.addRecord(createRecord(startTime + 1L, "a", responseTime + 2L));
+		builder.addRecord(createRecord(startTime, "a", responseTime));
+		builder.addRecord(createRecord(startTime, "b", responseTime));
+		builder.addRecord(createRecord(startTime + 2L, "a", responseTime + 1L));
+		return builder.build().getDataSet(ResponseTimeRecord.class);
+	}
+
+	private static ResponseTimeRecord createRecord(long timestamp, String operation, long responseTime) {
+		ResponseTimeRecord rtRecord = new ResponseTimeRecord();
+		rtRecord.setTimeStamp(timestamp);
+		rtRecord.setOperation(operation);
+		rtRecord.setResponseTime(responseTime);
+		return rtRecord;
+	}
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright 2014 SAP AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spotter.ext.detection.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.lpe.common.util.NumericPairList;
+
+public class ResponseTimeSeriesTest {
+
+	@Test
+	public void testStableChronologicalOrder() {
+		long[] timestamps = { 5L, 3L, 5L, 1L, 3L, 5L, 0L };
+		double[] responseTimes = { 50.0, 30.0, 51.0, 10.0, 31.0, 52.0, 0.0, -1.0 };
+		ResponseTimeSeries series = new ResponseTimeSeries(timestamps, responseTimes, 7);
+
+		assertEquals(7, series.size());
+		assertArrayEquals(new long[] { 0L, 1L, 3L, 3L, 5L, 5L, 5L }, series.getTimestamps());
+		// measurements with equal timestamps keep their order
+		assertArrayEquals(new double[] { 0.0, 10.0, 30.0, 31.0, 50.0, 51.0, 52.0 }, series.getResponseTimes(), 0.0);
+		// the input is not modified
+		assertEquals(5L, timestamps[0]);
+		assertEquals(50.0, responseTimes[0], 0.0);
+	}
+
+	@Test
+	public void testLongUnsortedSeries() {
+		int length = 1000;
+		long[] timestamps = new long[length];
+		double[] responseTimes = new double[length];
+		for (int i = 0; i < length; i++) {
+			timestamps[i] = (i * 7919L) % 97L;
+			responseTimes[i] = i;
+		}
+		ResponseTimeSeries series = new ResponseTimeSeries(timestamps, responseTimes, length);
+		for (int i = 1; i < length; i++) {
+			long previous = series.getTimestamp(i - 1);
+			assertTrue(previous <= series.getTimestamp(i));
+			if (previous == series.getTimestamp(i)) {
+				assertTrue(series.getResponseTime(i - 1) < series.getResponseTime(i));
+			}
+		}
+	}
+
+	@Test
+	public void testCopiesAndViews() {
+		ResponseTimeSeries series = new ResponseTimeSeries(new long[] { 2L, 1L }, new double[] { 20.0, 10.0 }, 2);
+		series.getTimestamps()[0] = 42L;
+		series.getResponseTimes()[0] = 42.0;
+		assertEquals(1L, series.getTimestamp(0));
+		assertEquals(10.0, series.getResponseTime(0), 0.0);
+
+		NumericPairList<Long, Double> pairs = series.toNumericPairList();
+		assertEquals(2, pairs.size());
+		assertEquals(Long.valueOf(1L), pairs.get(0).getKey());
+		assertEquals(Double.valueOf(20.0), pairs.get(1).getValue());
+
+		assertSame(series.getPyramid(), series.getPyramid());
+	}
+}
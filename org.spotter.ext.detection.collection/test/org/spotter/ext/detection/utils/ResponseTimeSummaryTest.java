@@ -0,0 +1,118 @@
+/**
+ * Copyright 2014 SAP AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spotter.ext.detection.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ResponseTimeSummaryTest {
+
+	@Test
+	public void testVarianceWithLargeMean() {
+		Random random = new Random(5);
+		double[] values = new double[100000];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = 1E6 + (random.nextBoolean() ? 1.0 : -1.0) * random.nextDouble();
+		}
+		ResponseTimeSummary summary = new ResponseTimeSummary();
+		for (double value : values) {
+			summary.add(value);
+		}
+
+		double expectedVariance = twoPassVariance(values, 0, values.length);
+		assertEquals(twoPassMean(values, 0, values.length), summary.getMean(), 1E-6);
+		assertEquals(expectedVariance, summary.getVariance(), expectedVariance * 1E-9);
+	}
+
+	@Test
+	public void testMergedSummariesEqualSinglePass() {
+		Random random = new Random(8);
+		double[] values = new double[20000];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = 1E6 + random.nextInt(3) - 1.0;
+		}
+
+		ResponseTimeSummary singlePass = new ResponseTimeSummary();
+		for (double value : values) {
+			singlePass.add(value);
+		}
+		// uneven parts including empty ones, merged in a tree like order
+		int[] bounds = { 0, 0, 1, 17, 5000, 5000, 12345, 20000 };
+		ResponseTimeSummary left = new ResponseTimeSummary();
+		ResponseTimeSummary right = new ResponseTimeSummary();
+		for (int part = 0; part + 1 < bounds.length; part++) {
+			ResponseTimeSummary partSummary = new ResponseTimeSummary();
+			for (int i = bounds[part]; i < bounds[part + 1]; i++) {
+				partSummary.add(values[i]);
+			}
+			if (part < bounds.length / 2) {
+				left.merge(partSummary);
+			} else {
+				right.merge(partSummary);
+			}
+		}
+		left.merge(right);
+
+		double expectedVariance = twoPassVariance(values, 0, values.length);
+		assertEquals(singlePass.getCount(), left.getCount());
+		assertEquals(singlePass.getSum(), left.getSum(), 1E-3);
+		assertEquals(singlePass.getMean(), left.getMean(), 1E-6);
+		assertEquals(expectedVariance, singlePass.getVariance(), expectedVariance * 1E-9);
+		assertEquals(expectedVariance, left.getVariance(), expectedVariance * 1E-9);
+		assertEquals(singlePass.getMin(), left.getMin(), 0.0);
+		assertEquals(singlePass.getMax(), left.getMax(), 0.0);
+	}
+
+	@Test
+	public void testSmallSummaries() {
+		ResponseTimeSummary summary = new ResponseTimeSummary();
+		assertTrue(Double.isNaN(summary.getMean()));
+		assertTrue(Double.isNaN(summary.getVariance()));
+		summary.add(7.0);
+		assertEquals(7.0, summary.getMean(), 0.0);
+		assertTrue(Double.isNaN(summary.getVariance()));
+
+		ResponseTimeSummary constant = new ResponseTimeSummary();
+		constant.add(1E9);
+		constant.add(1E9);
+		constant.merge(summary);
+		constant.merge(new ResponseTimeSummary());
+		assertEquals(3L, constant.getCount());
+		double expectedVariance = twoPassVariance(new double[] { 1E9, 1E9, 7.0 }, 0, 3);
+		assertEquals(expectedVariance, constant.getVariance(), expectedVariance * 1E-12);
+	}
+
+	private static double twoPassMean(double[] values, int from, int to) {
+		double sum = 0.0;
+		for (int i = from; i < to; i++) {
+			sum += values[i];
+		}
+		return sum / (to - from);
+	}
+
+	private static double twoPassVariance(double[] values, int from, int to) {
+		double mean = twoPassMean(values, from, to);
+		double squaredDeviations = 0.0;
+		for (int i = from; i < to; i++) {
+			squaredDeviations += (values[i] - mean) * (values[i] - mean);
+		}
+		return squaredDeviations / (to - from - 1);
+	}
+}
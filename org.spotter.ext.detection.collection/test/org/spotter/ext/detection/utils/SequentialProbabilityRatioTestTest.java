@@ -0,0 +1,111 @@
+/**
+ * Copyright 2014 SAP AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spotter.ext.detection.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.spotter.ext.detection.utils.SequentialProbabilityRatioTest.Decision;
+
+public class SequentialProbabilityRatioTestTest {
+	private static final double ALPHA = 0.05;
+	private static final double BETA = 0.1;
+	private static final double UPPER_BOUND = Math.log((1.0 - BETA) / ALPHA);
+	private static final double LOWER_BOUND = Math.log(BETA / (1.0 - ALPHA));
+
+	@Test
+	public void testUpperBound() {
+		SequentialProbabilityRatioTest test = new SequentialProbabilityRatioTest(ALPHA, BETA);
+		assertEquals(Decision.CONTINUE, test.addLogLikelihoodRatio(UPPER_BOUND - 1E-6));
+		assertEquals(Decision.ACCEPT_ALTERNATIVE_HYPOTHESIS, test.addLogLikelihoodRatio(1E-6));
+		assertEquals(2, test.getNumObservations());
+
+		// the bound itself decides
+		SequentialProbabilityRatioTest exact = new SequentialProbabilityRatioTest(ALPHA, BETA);
+		assertEquals(Decision.ACCEPT_ALTERNATIVE_HYPOTHESIS, exact.addLogLikelihoodRatio(UPPER_BOUND));
+	}
+
+	@Test
+	public void testLowerBound() {
+		SequentialProbabilityRatioTest test = new SequentialProbabilityRatioTest(ALPHA, BETA);
+		assertEquals(Decision.CONTINUE, test.addLogLikelihoodRatio(LOWER_BOUND + 1E-6));
+		assertEquals(Decision.ACCEPT_NULL_HYPOTHESIS, test.addLogLikelihoodRatio(-1E-6));
+
+		SequentialProbabilityRatioTest exact = new SequentialProbabilityRatioTest(ALPHA, BETA);
+		assertEquals(Decision.ACCEPT_NULL_HYPOTHESIS, exact.addLogLikelihoodRatio(LOWER_BOUND));
+	}
+
+	@Test
+	public void testDecisionIsFinal() {
+		SequentialProbabilityRatioTest test = new SequentialProbabilityRatioTest(ALPHA, BETA);
+		test.addLogLikelihoodRatio(LOWER_BOUND - 1.0);
+		assertEquals(Decision.ACCEPT_NULL_HYPOTHESIS, test.addLogLikelihoodRatio(100.0));
+		assertEquals(1, test.getNumObservations());
+		assertEquals(LOWER_BOUND - 1.0, test.getLogLikelihoodRatio(), 1E-12);
+		assertEquals(ALPHA / (1.0 - BETA), test.getMaxTypeIError(), 1E-12);
+		assertEquals(BETA / (1.0 - ALPHA), test.getMaxTypeIIError(), 1E-12);
+	}
+
+	@Test
+	public void testRelativeIncreaseLogLikelihoodRatio() {
+		ResponseTimeSummary previous = summary(90.0, 100.0, 110.0, 100.0);
+		ResponseTimeSummary current = summary(105.0, 115.0, 125.0, 115.0);
+		double relativeIncrease = current.getMean() / previous.getMean() - 1.0;
+		double standardError = Math.sqrt(previous.getVariance() / previous.getCount() + current.getVariance()
+				/ current.getCount())
+				/ previous.getMean();
+		double expected = 0.1 * (relativeIncrease - 0.05) / (standardError * standardError);
+
+		SequentialProbabilityRatioTest test = new SequentialProbabilityRatioTest(ALPHA, BETA);
+		test.addRelativeIncrease(previous, current, 0.1);
+		assertEquals(expected, test.getLogLikelihoodRatio(), 1E-9);
+
+		// raw samples give the same ratio
+		SequentialProbabilityRatioTest rawTest = new SequentialProbabilityRatioTest(ALPHA, BETA);
+		rawTest.addRelativeIncrease(Arrays.asList(90, 100, 110, 100), Arrays.asList(105, 115, 125, 115), 0.1);
+		assertEquals(expected, rawTest.getLogLikelihoodRatio(), 1E-9);
+	}
+
+	@Test
+	public void testRelativeIncreaseEdgeCases() {
+		SequentialProbabilityRatioTest test = new SequentialProbabilityRatioTest(ALPHA, BETA);
+		// too few samples are skipped
+		assertEquals(Decision.CONTINUE, test.addRelativeIncrease(summary(100.0), summary(200.0, 210.0), 0.1));
+		assertEquals(0, test.getNumObservations());
+
+		// constant samples decide at once instead of dividing by zero
+		assertEquals(Decision.ACCEPT_ALTERNATIVE_HYPOTHESIS,
+				test.addRelativeIncrease(summary(100.0, 100.0), summary(120.0, 120.0), 0.1));
+		SequentialProbabilityRatioTest constant = new SequentialProbabilityRatioTest(ALPHA, BETA);
+		assertEquals(Decision.ACCEPT_NULL_HYPOTHESIS,
+				constant.addRelativeIncrease(summary(100.0, 100.0), summary(100.0, 100.0), 0.1));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidErrorProbability() {
+		new SequentialProbabilityRatioTest(0.0, BETA);
+	}
+
+	private static ResponseTimeSummary summary(double... values) {
+		ResponseTimeSummary summary = new ResponseTimeSummary();
+		for (double value : values) {
+			summary.add(value);
+		}
+		return summary;
+	}
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright 2014 SAP AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spotter.ext.detection.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.spotter.ext.detection.utils.SequentialProbabilityRatioTest.Decision;
+
+public class SequentialStepMonitorTest {
+
+	@Test
+	public void testIncreaseStopsSeries() {
+		SequentialStepMonitor monitor = new SequentialStepMonitor(0.05, 0.05, 0.1);
+		monitor.addStep(step("op", 100.0));
+		assertFalse(monitor.isDecided(false));
+		monitor.addStep(step("op", 150.0));
+		assertEquals(Decision.ACCEPT_ALTERNATIVE_HYPOTHESIS, monitor.getTest("op").getDecision());
+		assertTrue(monitor.isDecided(false));
+		assertTrue(monitor.isDecided(true));
+		assertEquals(2, monitor.getNumSteps());
+	}
+
+	@Test
+	public void testNullHypothesisStopsOnlyIfRequested() {
+		SequentialStepMonitor monitor = new SequentialStepMonitor(0.05, 0.05, 0.1);
+		monitor.addStep(step("op", 100.0));
+		monitor.addStep(step("op", 100.0));
+		assertEquals(Decision.ACCEPT_NULL_HYPOTHESIS, monitor.getTest("op").getDecision());
+		assertFalse(monitor.isDecided(false));
+		assertTrue(monitor.isDecided(true));
+	}
+
+	@Test
+	public void testAllOperationsHaveToBeDecided() {
+		SequentialStepMonitor monitor = new SequentialStepMonitor(0.05, 0.05, 0.1);
+		Map<String, ResponseTimeSummary> first = step("a", 100.0);
+		monitor.addStep(first);
+		Map<String, ResponseTimeSummary> second = step("a", 150.0);
+		// an operation without predecessor has no test yet
+		second.putAll(step("b", 100.0));
+		monitor.addStep(second);
+		assertFalse(monitor.isDecided(true));
+
+		Map<String, ResponseTimeSummary> third = step("a", 225.0);
+		third.putAll(step("b", 105.0));
+		monitor.addStep(third);
+		// half of the minimum relative increase carries no evidence either way
+		assertEquals(Decision.CONTINUE, monitor.getTest("b").getDecision());
+		assertFalse(monitor.isDecided(true));
+
+		Map<String, ResponseTimeSummary> fourth = step("a", 340.0);
+		fourth.putAll(step("b", 160.0));
+		monitor.addStep(fourth);
+		assertTrue(monitor.isDecided(false));
+	}
+
+	/**
+	 * Summary with the given mean and a standard deviation of 5 percent of
+	 * the mean over 50 samples.
+	 */
+	private static Map<String, ResponseTimeSummary> step(String operation, double mean) {
+		ResponseTimeSummary summary = new ResponseTimeSummary();
+		for (int i = 0; i < 50; i++) {
+			summary.add(mean + (i % 2 == 0 ? 0.05 : -0.05) * mean);
+		}
+		Map<String, ResponseTimeSummary> step = new HashMap<>();
+		step.put(operation, summary);
+		return step;
+	}
+}
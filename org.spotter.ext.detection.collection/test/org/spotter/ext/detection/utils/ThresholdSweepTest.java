@@ -0,0 +1,57 @@
+/**
+ * Copyright 2014 SAP AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spotter.ext.detection.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class ThresholdSweepTest {
+
+	@Test
+	public void testParseThresholds() {
+		assertArrayEquals(new long[] { 100L, 500L, 2000L }, ThresholdSweep.parseThresholds(" 500, 100,,500 ,2000"));
+		assertArrayEquals(new long[0], ThresholdSweep.parseThresholds(""));
+		assertArrayEquals(new long[0], ThresholdSweep.parseThresholds(null));
+	}
+
+	@Test
+	public void testWithRequirementThreshold() {
+		assertArrayEquals(new double[] { 250.0, 100.0, 500.0 },
+				ThresholdSweep.withRequirementThreshold(250.0, new long[] { 100L, 500L }), 0.0);
+		assertArrayEquals(new double[] { 250.0 }, ThresholdSweep.withRequirementThreshold(250.0, new long[0]), 0.0);
+	}
+
+	@Test
+	public void testCSV() {
+		ThresholdSweep sweep = new ThresholdSweep(new long[] { 100L, 500L }, "violations [%]");
+		sweep.addVerdict("op(int, \"a\")", 100L, true, 12.5);
+		sweep.addVerdict("op(int, \"a\")", 500L, false, 1.0);
+		assertEquals("\"operation\",threshold [ms],detected,violations [%]\n" //
+				+ "\"op(int, \"\"a\"\")\",100,true,12.5\n" //
+				+ "\"op(int, \"\"a\"\")\",500,false,1.0\n" //
+				+ "\"*\",100,true,\n" //
+				+ "\"*\",500,false,\n", sweep.toCSV());
+	}
+
+	@Test
+	public void testCSVWithoutMetric() {
+		ThresholdSweep sweep = new ThresholdSweep(new long[] { 100L }, null);
+		sweep.addVerdict("op", 100L, false, Double.NaN);
+		assertEquals("\"operation\",threshold [ms],detected\n\"op\",100,false\n\"*\",100,false\n", sweep.toCSV());
+	}
+}
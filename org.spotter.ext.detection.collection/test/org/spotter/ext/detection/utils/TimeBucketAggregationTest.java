@@ -0,0 +1,160 @@
+/**
+ * Copyright 2014 SAP AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spotter.ext.detection.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.SortedMap;
+
+import org.aim.api.measurement.AbstractRecord;
+import org.aim.artifacts.records.ResponseTimeRecord;
+import org.junit.Test;
+
+public class TimeBucketAggregationTest {
+	private static final long START = 1400000000000L;
+
+	@Test
+	public void testBucketsMatchRawStatistics() {
+		Random random = new Random(17);
+		TimeBucketAggregation aggregation = new TimeBucketAggregation(1000L, 3);
+		List<Double> rawValues = new ArrayList<>();
+		long timestamp = START;
+		for (int i = 0; i < 20000; i++) {
+			timestamp += random.nextInt(10);
+			double responseTime = 10 + random.nextInt(1000);
+			aggregation.add("op", timestamp, responseTime);
+			if (timestamp >= START + 5000L && timestamp < START + 15000L) {
+				rawValues.add(responseTime);
+			}
+		}
+
+		SortedMap<Long, ResponseTimeSummary> buckets = aggregation.getBuckets("op");
+		assertEquals(START, buckets.firstKey().longValue());
+		for (Long bucketStart : buckets.keySet()) {
+			assertEquals(0L, bucketStart % 1000L);
+		}
+
+		ResponseTimeSummary range = aggregation.getSummary("op", START + 5000L, START + 15000L);
+		assertEquals(rawValues.size(), range.getCount());
+		double sum = 0.0;
+		double min = Double.MAX_VALUE;
+		double max = 0.0;
+		for (Double value : rawValues) {
+			sum += value;
+			min = Math.min(min, value);
+			max = Math.max(max, value);
+		}
+		double mean = sum / rawValues.size();
+		double squaredDeviations = 0.0;
+		for (Double value : rawValues) {
+			squaredDeviations += (value - mean) * (value - mean);
+		}
+		assertEquals(mean, range.getMean(), 1E-9);
+		assertEquals(squaredDeviations / (rawValues.size() - 1), range.getVariance(), 1E-6);
+		assertEquals(min, range.getMin(), 0.0);
+		assertEquals(max, range.getMax(), 0.0);
+
+		long above = 0;
+		for (Double value : rawValues) {
+			if (value > 500.0) {
+				above++;
+			}
+		}
+		assertEquals(above, range.getCountAbove(500L));
+		assertEquals(20000L, aggregation.getSummary("op").getCount());
+	}
+
+	@Test
+	public void testSingleBucketPerOperation() {
+		TimeBucketAggregation aggregation = new TimeBucketAggregation(TimeBucketAggregation.SINGLE_BUCKET,
+				ResponseTimeSummary.NO_SKETCH);
+		for (int i = 0; i < 100; i++) {
+			aggregation.add(i % 2 == 0 ? "even" : "odd", START + i * 1000L, i);
+		}
+		assertEquals(2, aggregation.getOperations().size());
+		assertEquals(1, aggregation.getBuckets("even").size());
+		assertEquals(50L, aggregation.getSummaries().get("odd").getCount());
+		assertEquals(50.0, aggregation.getSummaries().get("odd").getMean(), 1E-9);
+		assertTrue(aggregation.getBuckets("unknown").isEmpty());
+		assertEquals(0L, aggregation.getSummary("unknown").getCount());
+	}
+
+	@Test
+	public void testBucketStartOfNegativeTimestamps() {
+		TimeBucketAggregation aggregation = new TimeBucketAggregation(10L, ResponseTimeSummary.NO_SKETCH);
+		assertEquals(-10L, aggregation.getBucketStart(-5L));
+		assertEquals(-10L, aggregation.getBucketStart(-10L));
+		assertEquals(0L, aggregation.getBucketStart(9L));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testPercentilesRequireSketch() {
+		ResponseTimeSummary summary = new ResponseTimeSummary();
+		summary.add(1.0);
+		summary.getValueAtPercentile(50.0);
+	}
+
+	@Test
+	public void testRecordStreamMatchesRecordList() throws IOException {
+		Random random = new Random(5);
+		List<AbstractRecord> records = new ArrayList<>();
+		StringBuilder lines = new StringBuilder();
+		for (int i = 0; i < 5000; i++) {
+			ResponseTimeRecord record = new ResponseTimeRecord(START + i * 3L, "op" + random.nextInt(3),
+					(long) random.nextInt(500));
+			records.add(record);
+			lines.append(record.toString());
+			lines.append(i % 7 == 0 ? "\r\n" : "\n");
+		}
+		// the last line is not terminated
+		lines.setLength(lines.length() - 1);
+		byte[] bytes = lines.toString().getBytes(Charset.defaultCharset());
+
+		TimeBucketAggregation streamed = new TimeBucketAggregation(1000L, 3);
+		OutputStream stream = streamed.newRecordStream();
+		int offset = 0;
+		while (offset < bytes.length) {
+			// chunks end within lines as well as at line ends
+			int length = Math.min(1 + random.nextInt(100), bytes.length - offset);
+			if (length == 1) {
+				stream.write(bytes[offset]);
+			} else {
+				stream.write(bytes, offset, length);
+			}
+			offset += length;
+		}
+		stream.close();
+
+		TimeBucketAggregation listed = TimeBucketAggregation.aggregate(records, 1000L, 3);
+		assertEquals(listed.getSummaries().keySet(), streamed.getSummaries().keySet());
+		for (String operation : listed.getSummaries().keySet()) {
+			assertEquals(listed.getBuckets(operation).keySet(), streamed.getBuckets(operation).keySet());
+			ResponseTimeSummary expected = listed.getSummary(operation);
+			ResponseTimeSummary actual = streamed.getSummary(operation);
+			assertEquals(expected.getCount(), actual.getCount());
+			assertEquals(expected.getMean(), actual.getMean(), 1E-9);
+			assertEquals(expected.getVariance(), actual.getVariance(), 1E-6);
+			assertEquals(expected.getValueAtPercentile(90.0), actual.getValueAtPercentile(90.0));
+		}
+	}
+}
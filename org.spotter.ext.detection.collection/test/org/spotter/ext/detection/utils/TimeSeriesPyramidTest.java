@@ -0,0 +1,99 @@
+/**
+ * Copyright 2014 SAP AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spotter.ext.detection.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.lpe.common.util.NumericPairList;
+
+public class TimeSeriesPyramidTest {
+
+	@Test
+	public void testWindowQueriesMatchFullResolution() {
+		Random random = new Random(23);
+		NumericPairList<Long, Double> series = createSeries(12345, random);
+		TimeSeriesPyramid pyramid = TimeSeriesPyramid.of(series);
+		assertEquals(TimeSeriesPyramid.DEFAULT_NUM_LEVELS, pyramid.getNumLevels());
+
+		for (int run = 0; run < 2000; run++) {
+			int from = random.nextInt(series.size());
+			int to = from + 1 + random.nextInt(Math.min(series.size() - from, run % 2 == 0 ? 30 : 5000));
+			double min = Double.MAX_VALUE;
+			double max = -Double.MAX_VALUE;
+			double sum = 0.0;
+			for (int i = from; i < to; i++) {
+				double value = series.get(i).getValue();
+				min = Math.min(min, value);
+				max = Math.max(max, value);
+				sum += value;
+			}
+			assertEquals(min, pyramid.getWindowMin(from, to), 0.0);
+			assertEquals(max, pyramid.getWindowMax(from, to), 0.0);
+			assertEquals(sum / (to - from), pyramid.getWindowMean(from, to), 1E-9);
+		}
+	}
+
+	@Test
+	public void testLevelSelection() {
+		TimeSeriesPyramid pyramid = TimeSeriesPyramid.of(createSeries(100000, new Random(1)));
+		assertEquals(0, pyramid.getLevelForWindow(9));
+		assertEquals(1, pyramid.getLevelForWindow(11));
+		assertEquals(2, pyramid.getLevelForWindow(5000));
+		assertEquals(2, pyramid.getLevelForPoints(1000));
+		assertEquals(1, pyramid.getLevelForPoints(2000));
+		assertEquals(0, pyramid.getLevelForPoints(20000));
+
+		TimeSeriesPyramid small = TimeSeriesPyramid.of(createSeries(5, new Random(1)));
+		assertEquals(1, small.getNumLevels());
+		assertEquals(0, small.getLevelForWindow(100));
+	}
+
+	@Test
+	public void testDownsampleKeepsPeaks() {
+		Random random = new Random(3);
+		NumericPairList<Long, Double> series = new NumericPairList<>();
+		for (int i = 0; i < 50000; i++) {
+			series.add(1400000000000L + i, i == 31337 ? 100000.0 : 20.0 + random.nextInt(200));
+		}
+		TimeSeriesPyramid pyramid = TimeSeriesPyramid.of(series);
+
+		NumericPairList<Long, Double> chartSeries = pyramid.downsample(TimeSeriesPyramid.DEFAULT_CHART_POINTS);
+		assertTrue(chartSeries.size() <= 2 * 5000);
+		assertTrue(chartSeries.size() >= TimeSeriesPyramid.DEFAULT_CHART_POINTS);
+		assertEquals(100000.0, chartSeries.getValueMax(), 0.0);
+		assertEquals(series.getValueMin(), chartSeries.getValueMin(), 0.0);
+		long previous = Long.MIN_VALUE;
+		for (int i = 0; i < chartSeries.size(); i++) {
+			assertTrue(chartSeries.get(i).getKey() >= previous);
+			previous = chartSeries.get(i).getKey();
+		}
+		assertEquals(series.size(), pyramid.downsample(series.size()).size());
+	}
+
+	private NumericPairList<Long, Double> createSeries(int numPoints, Random random) {
+		NumericPairList<Long, Double> series = new NumericPairList<>();
+		long timestamp = 1400000000000L;
+		for (int i = 0; i < numPoints; i++) {
+			timestamp += random.nextInt(20);
+			series.add(timestamp, 20.0 + random.nextInt(200));
+		}
+		return series;
+	}
+}
@@ -0,0 +1,198 @@
+/**
+ * Copyright 2014 SAP AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spotter.ext.detection.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.commons.math3.distribution.NormalDistribution;
+import org.junit.Test;
+
+public class TrendTestTest {
+	private static final double EPSILON = 1E-9;
+
+	@Test
+	public void testRandomSeriesWithTies() {
+		Random random = new Random(11);
+		for (int run = 0; run < 50; run++) {
+			int n = 2 + random.nextInt(80);
+			double[] x = new double[n];
+			double[] y = new double[n];
+			for (int i = 0; i < n; i++) {
+				// few distinct values to produce ties in x and in y
+				x[i] = random.nextInt(n / 2 + 2);
+				y[i] = random.nextInt(8) + (run % 2 == 0 ? 0.5 * x[i] : -0.25 * x[i]);
+			}
+			assertMatchesPairwiseComputation(x, y);
+		}
+	}
+
+	@Test
+	public void testSmallSeries() {
+		assertMatchesPairwiseComputation(new double[] { 1.0, 2.0 }, new double[] { 3.0, 5.0 });
+		assertMatchesPairwiseComputation(new double[] { 1.0, 2.0 }, new double[] { 5.0, 3.0 });
+		assertMatchesPairwiseComputation(new double[] { 1.0, 2.0 }, new double[] { 4.0, 4.0 });
+		assertMatchesPairwiseComputation(new double[] { 1.0, 2.0, 3.0 }, new double[] { 3.0, 1.0, 7.0 });
+		assertMatchesPairwiseComputation(new double[] { 1.0, 1.0, 3.0 }, new double[] { 2.0, 2.0, 1.0 });
+		assertMatchesPairwiseComputation(new double[] { 3.0, 1.0, 2.0 }, new double[] { 1.0, 1.0, 1.0 });
+	}
+
+	@Test
+	public void testEqualTimeAxis() {
+		TrendTest test = TrendTest.test(new double[] { 2.0, 2.0, 2.0 }, new double[] { 1.0, 2.0, 3.0 });
+		assertEquals(0L, test.getS());
+		assertTrue(Double.isNaN(test.getSlope()));
+		assertTrue(Double.isNaN(test.getIntercept()));
+		assertTrue(Double.isNaN(test.getSlopeConfidenceInterval(0.95)[0]));
+	}
+
+	@Test
+	public void testVarianceEqualsPermutationVariance() {
+		// under the null hypothesis all assignments of the values to the
+		// time axis are equally likely, thus, the variance of S over all
+		// permutations is the exact null variance
+		double[] x = { 1.0, 2.0, 2.0, 3.0, 4.0, 4.0, 4.0 };
+		double[] y = { 5.0, 1.0, 5.0, 2.0, 2.0, 7.0, 5.0 };
+		List<Long> statistics = new ArrayList<>();
+		permute(x, y, 0, statistics);
+		double sumOfSquares = 0.0;
+		for (long s : statistics) {
+			sumOfSquares += (double) s * s;
+		}
+		assertEquals(sumOfSquares / statistics.size(), TrendTest.test(x, y).getVariance(), EPSILON);
+	}
+
+	private static void permute(double[] x, double[] y, int from, List<Long> statistics) {
+		if (from == y.length) {
+			statistics.add(pairwiseS(x, y));
+			return;
+		}
+		for (int i = from; i < y.length; i++) {
+			swap(y, from, i);
+			permute(x, y, from + 1, statistics);
+			swap(y, from, i);
+		}
+	}
+
+	private static void swap(double[] values, int i, int j) {
+		double tmp = values[i];
+		values[i] = values[j];
+		values[j] = tmp;
+	}
+
+	private static void assertMatchesPairwiseComputation(double[] x, double[] y) {
+		TrendTest test = TrendTest.test(x, y);
+		int n = x.length;
+		assertEquals(n, test.getNumSamples());
+		assertEquals(pairwiseS(x, y), test.getS());
+
+		double variance = tieCorrectedVariance(x, y);
+		assertEquals(variance, test.getVariance(), EPSILON);
+
+		List<Double> slopes = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) {
+				if (x[i] < x[j]) {
+					slopes.add((y[j] - y[i]) / (x[j] - x[i]));
+				}
+			}
+		}
+		Collections.sort(slopes);
+		double slope = median(slopes);
+		assertEquals(slope, test.getSlope(), EPSILON);
+		assertEquals(slope, TrendTest.theilSenSlope(x, y), EPSILON);
+
+		List<Double> residuals = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			residuals.add(y[i] - slope * x[i]);
+		}
+		Collections.sort(residuals);
+		assertEquals(median(residuals), test.getIntercept(), 1E-6);
+
+		for (double confidenceLevel : new double[] { 0.5, 0.9, 0.95 }) {
+			double c = new NormalDistribution().inverseCumulativeProbability((1.0 + confidenceLevel) / 2.0)
+					* Math.sqrt(variance);
+			int numPairs = slopes.size();
+			int lower = (int) Math.floor((numPairs - c) / 2.0);
+			int upper = (int) Math.ceil((numPairs + c) / 2.0) + 1;
+			double[] interval = test.getSlopeConfidenceInterval(confidenceLevel);
+			assertEquals(slopes.get(clamp(lower - 1, numPairs)), interval[0], EPSILON);
+			assertEquals(slopes.get(clamp(upper - 1, numPairs)), interval[1], EPSILON);
+		}
+	}
+
+	private static long pairwiseS(double[] x, double[] y) {
+		long s = 0L;
+		for (int i = 0; i < x.length; i++) {
+			for (int j = 0; j < x.length; j++) {
+				if (x[i] < x[j]) {
+					s += (long) Math.signum(y[j] - y[i]);
+				}
+			}
+		}
+		return s;
+	}
+
+	private static double tieCorrectedVariance(double[] x, double[] y) {
+		double n = x.length;
+		double variance = n * (n - 1) * (2 * n + 5);
+		double xPairs = 0.0;
+		double yPairs = 0.0;
+		double xTriples = 0.0;
+		double yTriples = 0.0;
+		for (int t : tieGroupSizes(x)) {
+			variance -= t * (t - 1.0) * (2 * t + 5);
+			xPairs += t * (t - 1.0);
+			xTriples += t * (t - 1.0) * (t - 2.0);
+		}
+		for (int u : tieGroupSizes(y)) {
+			variance -= u * (u - 1.0) * (2 * u + 5);
+			yPairs += u * (u - 1.0);
+			yTriples += u * (u - 1.0) * (u - 2.0);
+		}
+		variance /= 18.0;
+		if (n > 2) {
+			variance += xTriples * yTriples / (9.0 * n * (n - 1) * (n - 2));
+		}
+		variance += xPairs * yPairs / (2.0 * n * (n - 1));
+		return variance;
+	}
+
+	private static List<Integer> tieGroupSizes(double[] values) {
+		Map<Double, Integer> counts = new HashMap<>();
+		for (double value : values) {
+			Integer count = counts.get(value);
+			counts.put(value, count == null ? 1 : count + 1);
+		}
+		return new ArrayList<>(counts.values());
+	}
+
+	private static double median(List<Double> sorted) {
+		int mid = sorted.size() / 2;
+		return sorted.size() % 2 == 1 ? sorted.get(mid) : (sorted.get(mid - 1) + sorted.get(mid)) / 2.0;
+	}
+
+	private static int clamp(int index, int size) {
+		return Math.max(0, Math.min(size - 1, index));
+	}
+}
@@ -0,0 +1,331 @@
+/**
+ * Copyright 2014 SAP AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spotter.ext.measurement;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.aim.api.exceptions.MeasurementException;
+import org.aim.api.measurement.AbstractRecord;
+import org.aim.api.measurement.MeasurementData;
+import org.aim.api.measurement.collector.AbstractDataSource;
+import org.aim.description.InstrumentationDescription;
+import org.aim.description.sampling.SamplingDescription;
+import org.lpe.common.extension.IExtension;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.spotter.core.measurement.AbstractMeasurementAdapter;
+
+/**
+ * Base class for measurement adapters which periodically sample the state of
+ * a server into a local data source. Samples are taken at a fixed rate on a
+ * scheduler shared by all sampling adapters, i.e. the sampling cost does not
+ * shift subsequent samples. If a sample takes longer than the sampling delay,
+ * the sampling slots it overran are skipped and counted instead of being
+ * caught up in a burst. The records of a sample are written to the data source
+ * as soon as the sample has been taken.
+ * 
+ * @author Alexander Wert
+ * 
+ */
+public abstract class AbstractSamplingMeasurementAdapter extends AbstractMeasurementAdapter {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(AbstractSamplingMeasurementAdapter.class);
+
+	private static final int NUM_SAMPLER_THREADS = 4;
+	private static final long MIN_DELAY = 1L;
+
+	private static ScheduledThreadPoolExecutor samplingExecutor;
+
+	private final Object sampleLock = new Object();
+	private final List<AbstractRecord> sampledRecords = new ArrayList<>();
+
+	private AbstractDataSource dataSource;
+	private boolean samplerActivated = false;
+	private long delay;
+
+	private ScheduledFuture<?> samplingTask;
+	private boolean sampling = false;
+	private long startNanos;
+	private long numTicks;
+	private long numSamples;
+	private long numOverruns;
+	private Exception samplingError;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param provider
+	 *            extension provider
+	 */
+	public AbstractSamplingMeasurementAdapter(IExtension<?> provider) {
+		super(provider);
+	}
+
+	/**
+	 * @return resource name of the sampling description activating this
+	 *         sampler, e.g. {@link SamplingDescription#SAMPLER_DATABASE_STATISTICS}
+	 */
+	protected abstract String getSamplerResourceName();
+
+	/**
+	 * Takes a single sample. Called by the scheduler at a fixed rate while
+	 * monitoring is enabled, never concurrently for the same adapter.
+	 * 
+	 * @param sampleIndex
+	 *            number of samples taken before this one since monitoring has
+	 *            been enabled
+	 * @param records
+	 *            list to add the sampled records to
+	 * @throws Exception
+	 *             if sampling fails, sampling is stopped then and the error
+	 *             is reported when monitoring is disabled
+	 */
+	protected abstract void sample(long sampleIndex, List<AbstractRecord> records) throws Exception;
+
+	/**
+	 * Called before the first sample is taken, e.g. to open connections.
+	 * 
+	 * @throws MeasurementException
+	 *             if sampling cannot be started
+	 */
+	protected void onStart() throws MeasurementException {
+		// nothing to do by default
+	}
+
+	/**
+	 * Called after the last sample has been taken, e.g. to close connections.
+	 * 
+	 * @throws MeasurementException
+	 *             if resources could not be released
+	 */
+	protected void onStop() throws MeasurementException {
+		// nothing to do by default
+	}
+
+	/**
+	 * @return false, if the sampled server is not available, no samples are
+	 *         taken then
+	 */
+	protected boolean isSamplingAvailable() {
+		return true;
+	}
+
+	/**
+	 * @param dataSource
+	 *            data source to write the sampled records to
+	 */
+	protected void setDataSource(AbstractDataSource dataSource) {
+		this.dataSource = dataSource;
+	}
+
+	/**
+	 * @return sampling delay in milliseconds
+	 */
+	protected long getDelay() {
+		return delay;
+	}
+
+	/**
+	 * @return number of samples taken during the last monitoring period
+	 */
+	public long getNumSamples() {
+		synchronized (sampleLock) {
+			return numSamples;
+		}
+	}
+
+	/**
+	 * @return number of sampling slots skipped during the last monitoring
+	 *         period because a previous sample took longer than the sampling
+	 *         delay
+	 */
+	public long getNumOverruns() {
+		synchronized (sampleLock) {
+			return numOverruns;
+		}
+	}
+
+	@Override
+	public void enableMonitoring() throws MeasurementException {
+		if (isSamplingEnabled()) {
+			onStart();
+			startSampling();
+		}
+	}
+
+	@Override
+	public void disableMonitoring() throws MeasurementException {
+		if (isSamplingEnabled()) {
+			try {
+				stopSampling();
+			} finally {
+				onStop();
+			}
+		}
+	}
+
+	@Override
+	public MeasurementData getMeasurementData() throws MeasurementException {
+		if (isSamplingEnabled()) {
+			return dataSource.read();
+		}
+		return new MeasurementData();
+	}
+
+	@Override
+	public void pipeToOutputStream(OutputStream oStream) throws MeasurementException {
+		if (isSamplingEnabled()) {
+			dataSource.pipeToOutputStream(oStream);
+		} else {
+			try {
+				oStream.close();
+			} catch (IOException e) {
+				throw new MeasurementException(e);
+			}
+		}
+	}
+
+	@Override
+	public long getCurrentTime() {
+		return System.currentTimeMillis();
+	}
+
+	@Override
+	public void storeReport(String path) throws MeasurementException {
+		// nothing to do here
+	}
+
+	@Override
+	public void prepareMonitoring(InstrumentationDescription monitoringDescription) throws MeasurementException {
+		for (SamplingDescription sDescr : monitoringDescription.getSamplingDescriptions()) {
+			if (sDescr.getResourceName().equals(getSamplerResourceName())) {
+				samplerActivated = true;
+				delay = sDescr.getDelay();
+				break;
+			}
+		}
+	}
+
+	@Override
+	public void resetMonitoring() throws MeasurementException {
+		samplerActivated = false;
+	}
+
+	private boolean isSamplingEnabled() {
+		return samplerActivated && isSamplingAvailable();
+	}
+
+	private void startSampling() throws MeasurementException {
+		synchronized (sampleLock) {
+			if (sampling) {
+				return;
+			}
+			sampledRecords.clear();
+			numTicks = 0;
+			numSamples = 0;
+			numOverruns = 0;
+			samplingError = null;
+			dataSource.enable();
+
+			final long period = Math.max(delay, MIN_DELAY);
+			sampling = true;
+			startNanos = System.nanoTime();
+			samplingTask = getSamplingExecutor().scheduleAtFixedRate(new Runnable() {
+				@Override
+				public void run() {
+					tick(TimeUnit.MILLISECONDS.toNanos(period));
+				}
+			}, 0L, period, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private void stopSampling() throws MeasurementException {
+		synchronized (sampleLock) {
+			if (samplingTask == null) {
+				return;
+			}
+			// holding the lock, no sample is in progress and the cancelled
+			// task will not take another one
+			sampling = false;
+			samplingTask.cancel(false);
+			samplingTask = null;
+			dataSource.disable();
+		}
+		if (numOverruns > 0) {
+			LOGGER.warn("{} skipped {} of {} sampling slots as samples took longer than {} ms.", getClass()
+					.getSimpleName(), numOverruns, numTicks, delay);
+		}
+		if (samplingError != null) {
+			throw new MeasurementException(samplingError);
+		}
+	}
+
+	private void tick(long periodNanos) {
+		synchronized (sampleLock) {
+			if (!sampling) {
+				return;
+			}
+			long slot = numTicks++;
+			long lateness = System.nanoTime() - (startNanos + slot * periodNanos);
+			if (lateness >= periodNanos) {
+				// the previous sample ran into this slot
+				numOverruns++;
+				return;
+			}
+			try {
+				sample(numSamples, sampledRecords);
+				numSamples++;
+			} catch (Exception e) {
+				LOGGER.error("Sampling failed, stopping {}.", getClass().getSimpleName(), e);
+				samplingError = e;
+				sampling = false;
+				samplingTask.cancel(false);
+			} finally {
+				// the data source has no bulk write, records are written one
+				// by one
+				for (AbstractRecord record : sampledRecords) {
+					dataSource.newRecord(record);
+				}
+				sampledRecords.clear();
+			}
+		}
+	}
+
+	private static synchronized ScheduledThreadPoolExecutor getSamplingExecutor() {
+		if (samplingExecutor == null) {
+			samplingExecutor = new ScheduledThreadPoolExecutor(NUM_SAMPLER_THREADS, new ThreadFactory() {
+				private final AtomicInteger threadCount = new AtomicInteger();
+
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "Sampler-" + threadCount.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			samplingExecutor.setRemoveOnCancelPolicy(true);
+		}
+		return samplingExecutor;
+	}
+}
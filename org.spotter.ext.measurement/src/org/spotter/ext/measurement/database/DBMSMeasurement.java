@@ -15,32 +15,23 @@
  */
 package org.spotter.ext.measurement.database;
 
-import java.io.IOException;
-import java.io.OutputStream;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.List;
 import java.util.Properties;
-import java.util.concurrent.Future;
-
-import javax.net.ssl.HostnameVerifier;
 
 import org.aim.api.exceptions.MeasurementException;
-import org.aim.api.measurement.MeasurementData;
-import org.aim.api.measurement.collector.AbstractDataSource;
+import org.aim.api.measurement.AbstractRecord;
 import org.aim.api.measurement.collector.CollectorFactory;
 import org.aim.artifacts.measurement.collector.FileDataSource;
 import org.aim.artifacts.records.DBStatisticsRecrod;
-import org.aim.description.InstrumentationDescription;
 import org.aim.description.sampling.SamplingDescription;
 import org.lpe.common.config.GlobalConfiguration;
 import org.lpe.common.extension.IExtension;
-import org.lpe.common.util.system.LpeSystemUtils;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.spotter.core.measurement.AbstractMeasurementAdapter;
+import org.spotter.ext.measurement.AbstractSamplingMeasurementAdapter;
 
 /**
  * Measurement adapter for sampling status of a Database Server. TODO: this
@@ -49,19 +40,12 @@ import org.spotter.core.measurement.AbstractMeasurementAdapter;
  * @author Alexander Wert
  * 
  */
-public class DBMSMeasurement extends AbstractMeasurementAdapter implements Runnable {
+public class DBMSMeasurement extends AbstractSamplingMeasurementAdapter {
 
-	private static final Logger LOGGER = LoggerFactory.getLogger(DBMSMeasurement.class);
-	
 	public static Integer instanceId = 1;
-	private AbstractDataSource dataSource;
-	private Future<?> measurementTask;
 
 	private Connection jdbcConnection;
 	private PreparedStatement sqlStatement;
-	private boolean running;
-	private boolean samplerActivated = false;
-	private long delay;
 	private String mySQLHost;
 	private String mySQLPort;
 	private String mySQLUser;
@@ -88,57 +72,32 @@ public class DBMSMeasurement extends AbstractMeasurementAdapter implements Runna
 	}
 
 	@Override
-	public void enableMonitoring() throws MeasurementException {
-		if (samplerActivated) {
-			try {
-				String dbConnectionString = "jdbc:mysql://" + mySQLHost + ":"+ mySQLPort + "/" + mySQLdatabase;
-				jdbcConnection = DriverManager.getConnection(dbConnectionString,mySQLUser,mySQLPW);
-				sqlStatement = jdbcConnection.prepareStatement(SQL_QUERY);
-			} catch (Exception e) {
-				throw new RuntimeException(e);
-			}
-			measurementTask = LpeSystemUtils.submitTask(this);
-		}
-
+	protected String getSamplerResourceName() {
+		return SamplingDescription.SAMPLER_DATABASE_STATISTICS;
 	}
 
 	@Override
-	public void disableMonitoring() throws MeasurementException {
-		if (samplerActivated) {
-			try {
-				running = false;
-				measurementTask.get();
-				if (sqlStatement != null) {
-					sqlStatement.close();
-				}
-				if (jdbcConnection != null) {
-					jdbcConnection.close();
-				}
-
-			} catch (Exception e) {
-				throw new MeasurementException(e);
-			}
-		}
-	}
-
-	@Override
-	public MeasurementData getMeasurementData() throws MeasurementException {
-		if (samplerActivated) {
-			return dataSource.read();
+	protected void onStart() throws MeasurementException {
+		try {
+			String dbConnectionString = "jdbc:mysql://" + mySQLHost + ":"+ mySQLPort + "/" + mySQLdatabase;
+			jdbcConnection = DriverManager.getConnection(dbConnectionString,mySQLUser,mySQLPW);
+			sqlStatement = jdbcConnection.prepareStatement(SQL_QUERY);
+		} catch (SQLException e) {
+			throw new MeasurementException(e);
 		}
-		return new MeasurementData();
 	}
 
 	@Override
-	public void pipeToOutputStream(OutputStream oStream) throws MeasurementException {
-		if (samplerActivated) {
-			dataSource.pipeToOutputStream(oStream);
-		} else {
-			try {
-				oStream.close();
-			} catch (IOException e) {
-				throw new MeasurementException(e);
+	protected void onStop() throws MeasurementException {
+		try {
+			if (sqlStatement != null) {
+				sqlStatement.close();
+			}
+			if (jdbcConnection != null) {
+				jdbcConnection.close();
 			}
+		} catch (SQLException e) {
+			throw new MeasurementException(e);
 		}
 	}
 
@@ -157,7 +116,7 @@ public class DBMSMeasurement extends AbstractMeasurementAdapter implements Runna
 			instanceId++;
 		}
 
-		dataSource = CollectorFactory.createDataSource(FileDataSource.class.getName(), collectorProperties);
+		setDataSource(CollectorFactory.createDataSource(FileDataSource.class.getName(), collectorProperties));
 		try {
 			Class.forName("com.mysql.jdbc.Driver");
 		} catch (ClassNotFoundException e) {
@@ -167,92 +126,41 @@ public class DBMSMeasurement extends AbstractMeasurementAdapter implements Runna
 	}
 
 	@Override
-	public long getCurrentTime() {
-		return System.currentTimeMillis();
+	protected void sample(long sampleIndex, List<AbstractRecord> records) throws SQLException {
+		// every sample issues one query itself
+		records.add(sampleMySQLStatistics(sampleIndex));
 	}
 
-	@Override
-	public void run() {
-		running = true;
-		try {
-			dataSource.enable();
-			long counter = 0;
-			while (running) {
-				sampleMySQLStatistics(counter);
-				counter++;
-				try {
-					Thread.sleep(delay);
-				} catch (InterruptedException ie) {
-					LOGGER.debug("Sleeptime interrupted.");
-					running = false;
-				}
+	private DBStatisticsRecrod sampleMySQLStatistics(long ownNumQueries) throws SQLException {
+		ResultSet resultSet = sqlStatement.executeQuery();
+		String name = "";
+		long numQueueries = 0;
+		long numLockWaits = 0;
+		long lockTime = 0;
+		while (resultSet.next()) {
+			name = resultSet.getString("Variable_name");
+
+			if ("Queries".equals(name)) {
+				numQueueries = resultSet.getLong("Value") - ownNumQueries;
 			}
 
-			dataSource.disable();
-		} catch (MeasurementException e) {
-			throw new RuntimeException(e);
-		}
-	}
-
-	private void sampleMySQLStatistics(long ownNumQueries) {
-
-		try {
-			ResultSet resultSet = sqlStatement.executeQuery();
-			String name = "";
-			long numQueueries = 0;
-			long numLockWaits = 0;
-			long lockTime = 0;
-			while (resultSet.next()) {
-				name = resultSet.getString("Variable_name");
-
-				if ("Queries".equals(name)) {
-					numQueueries = resultSet.getLong("Value") - ownNumQueries;
-				}
-
-				if ("Innodb_row_lock_waits".equals(name)) {
-					numLockWaits = resultSet.getLong("Value");
-				}
-
-				if ("Innodb_row_lock_time".equals(name)) {
-					lockTime = resultSet.getLong("Value");
-				}
-
-				continue;
+			if ("Innodb_row_lock_waits".equals(name)) {
+				numLockWaits = resultSet.getLong("Value");
 			}
-			resultSet.close();
-			DBStatisticsRecrod record = new DBStatisticsRecrod();
-			record.setTimeStamp(System.currentTimeMillis());
-			record.setNumQueueries(numQueueries);
-			record.setProcessId(mySQLHost);
-			record.setNumLockWaits(numLockWaits);
-			record.setLockTime(lockTime);
-			dataSource.newRecord(record);
-		} catch (SQLException e) {
-			throw new RuntimeException(e);
-		}
-
-	}
 
-	@Override
-	public void storeReport(String path) throws MeasurementException {
-		// nothing to do here
-	}
-
-	@Override
-	public void prepareMonitoring(InstrumentationDescription monitoringDescription) throws MeasurementException {
-		for (SamplingDescription sDescr : monitoringDescription.getSamplingDescriptions()) {
-			if (sDescr.getResourceName().equals(SamplingDescription.SAMPLER_DATABASE_STATISTICS)) {
-				samplerActivated = true;
-				delay = sDescr.getDelay();
-				break;
+			if ("Innodb_row_lock_time".equals(name)) {
+				lockTime = resultSet.getLong("Value");
 			}
-		}
-
-	}
-
-	@Override
-	public void resetMonitoring() throws MeasurementException {
-		samplerActivated = false;
 
+			continue;
+		}
+		resultSet.close();
+		DBStatisticsRecrod record = new DBStatisticsRecrod();
+		record.setTimeStamp(System.currentTimeMillis());
+		record.setNumQueueries(numQueueries);
+		record.setProcessId(mySQLHost);
+		record.setNumLockWaits(numLockWaits);
+		record.setLockTime(lockTime);
+		return record;
 	}
 }
@@ -0,0 +1,197 @@
+/**
+ * Copyright 2014 SAP AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spotter.ext.measurement.database;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * HTTP client polling the statistics of a DummyDB server. A single client
+ * instance is meant to be reused for all samples: responses are always read
+ * completely, so that the underlying keep-alive connection is returned to the
+ * connection cache and reused by the next request instead of opening a new
+ * TCP connection per sample.
+ * 
+ * If the server provides the batch endpoint, all statistics records since the
+ * last cursor are fetched with a single request. The response of the batch
+ * endpoint consists of the next cursor in the first line followed by one
+ * statistics record per line. Without a cursor, the server responds with its
+ * current cursor and the latest record. Servers without the batch endpoint
+ * are polled for their latest record.
+ * 
+ * @author Alexander Wert
+ * 
+ */
+public class DummyDBClient {
+
+	/**
+	 * Endpoint providing the latest statistics record.
+	 */
+	public static final String STATISTICS_PATH = "getStatistics";
+
+	/**
+	 * Endpoint providing all statistics records since a cursor.
+	 */
+	public static final String STATISTICS_BATCH_PATH = "getStatisticsSince";
+
+	/**
+	 * Query parameter of the batch endpoint.
+	 */
+	public static final String CURSOR_PARAMETER = "cursor";
+
+	private static final String BASE_PATH = "/dummyDB/";
+	private static final String ENCODING = "UTF-8";
+	private static final int BUFFER_SIZE = 4096;
+
+	private final String baseUrl;
+	private final int timeout;
+
+	private boolean batchSupported = true;
+	private String cursor = null;
+	private long numRequests = 0;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param host
+	 *            host of the DummyDB server
+	 * @param port
+	 *            port of the DummyDB server
+	 * @param timeout
+	 *            connect and read timeout in milliseconds
+	 */
+	public DummyDBClient(String host, String port, int timeout) {
+		this.baseUrl = "http://" + host + ":" + port + BASE_PATH;
+		this.timeout = timeout;
+	}
+
+	/**
+	 * Fetches the statistics records which have been collected since the last
+	 * call, or the latest record if the server does not support batches.
+	 * 
+	 * @return serialized statistics records, one per list entry
+	 * @throws IOException
+	 *             if the server could not be polled
+	 */
+	public synchronized List<String> fetchStatistics() throws IOException {
+		if (batchSupported) {
+			List<String> records = fetchBatch();
+			if (records != null) {
+				return records;
+			}
+			batchSupported = false;
+		}
+		String record = readBody(open(STATISTICS_PATH, "application/json")).trim();
+		if (record.isEmpty()) {
+			return Collections.emptyList();
+		}
+		return Collections.singletonList(record);
+	}
+
+	/**
+	 * Forgets the batch cursor, the next call of {@link #fetchStatistics()}
+	 * starts with the latest record again.
+	 */
+	public synchronized void resetCursor() {
+		cursor = null;
+	}
+
+	/**
+	 * @return true, if the server has not rejected batch requests so far
+	 */
+	public synchronized boolean isBatchSupported() {
+		return batchSupported;
+	}
+
+	/**
+	 * @return number of HTTP requests issued by this client
+	 */
+	public synchronized long getNumRequests() {
+		return numRequests;
+	}
+
+	private List<String> fetchBatch() throws IOException {
+		String path = STATISTICS_BATCH_PATH;
+		if (cursor != null) {
+			path += "?" + CURSOR_PARAMETER + "=" + URLEncoder.encode(cursor, ENCODING);
+		}
+		HttpURLConnection connection = open(path, "text/plain");
+		if (connection.getResponseCode() == HttpURLConnection.HTTP_NOT_FOUND) {
+			drain(connection.getErrorStream());
+			return null;
+		}
+		String[] lines = readBody(connection).split("\r?\n");
+		List<String> records = new ArrayList<>(lines.length);
+		for (int i = 1; i < lines.length; i++) {
+			if (!lines[i].trim().isEmpty()) {
+				records.add(lines[i]);
+			}
+		}
+		String nextCursor = lines[0].trim();
+		if (!nextCursor.isEmpty()) {
+			cursor = nextCursor;
+		}
+		return records;
+	}
+
+	private HttpURLConnection open(String path, String accept) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+		connection.setConnectTimeout(timeout);
+		connection.setReadTimeout(timeout);
+		connection.setRequestProperty("Accept", accept);
+		connection.setRequestProperty("Connection", "keep-alive");
+		numRequests++;
+		return connection;
+	}
+
+	private String readBody(HttpURLConnection connection) throws IOException {
+		int status = connection.getResponseCode();
+		if (status != HttpURLConnection.HTTP_OK) {
+			drain(connection.getErrorStream());
+			throw new IOException("DummyDB server responded with status " + status + " to "
+					+ connection.getURL());
+		}
+		return new String(drain(connection.getInputStream()), ENCODING);
+	}
+
+	/**
+	 * Reads the stream to its end and closes it. Closing instead of
+	 * disconnecting keeps the connection open for reuse.
+	 */
+	private static byte[] drain(InputStream stream) throws IOException {
+		if (stream == null) {
+			return new byte[0];
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			int numRead;
+			while ((numRead = stream.read(buffer)) >= 0) {
+				bytes.write(buffer, 0, numRead);
+			}
+		} finally {
+			stream.close();
+		}
+		return bytes.toByteArray();
+	}
+}
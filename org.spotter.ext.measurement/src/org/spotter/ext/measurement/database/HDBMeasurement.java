@@ -1,43 +1,33 @@
 package org.spotter.ext.measurement.database;
 
-import java.io.IOException;
-import java.io.OutputStream;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.List;
 import java.util.Properties;
-import java.util.concurrent.Future;
 
 import org.aim.api.exceptions.MeasurementException;
-import org.aim.api.measurement.MeasurementData;
-import org.aim.api.measurement.collector.AbstractDataSource;
+import org.aim.api.measurement.AbstractRecord;
 import org.aim.api.measurement.collector.CollectorFactory;
 import org.aim.artifacts.measurement.collector.FileDataSource;
 import org.aim.artifacts.records.DBStatisticsRecrod;
-import org.aim.description.InstrumentationDescription;
 import org.aim.description.sampling.SamplingDescription;
 import org.lpe.common.extension.IExtension;
-import org.lpe.common.util.system.LpeSystemUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.spotter.core.measurement.AbstractMeasurementAdapter;
+import org.spotter.ext.measurement.AbstractSamplingMeasurementAdapter;
 
-public class HDBMeasurement extends AbstractMeasurementAdapter implements Runnable {
+public class HDBMeasurement extends AbstractSamplingMeasurementAdapter {
 	private static final Logger LOGGER = LoggerFactory.getLogger(HDBMeasurement.class);
 	public static Integer instanceId = 1;
-	private AbstractDataSource dataSource;
 	private String host;
 	private String port;
 	private String username;
 	private String password;
-	private Long delay;
 	private Connection connection;
 	private PreparedStatement sqlStatement;
-	private boolean running;
-	private boolean samplerActivated = false;
-	private Future<?> measurementTask;
 	private static final String SQL_QUERY = "SELECT * FROM M_LOCK_WAITS_STATISTICS WHERE PORT LIKE '%03' AND LOCK_TYPE='TABLE';";
 
 	public HDBMeasurement(IExtension<?> provider) {
@@ -45,59 +35,36 @@ public class HDBMeasurement extends AbstractMeasurementAdapter implements Runnab
 	}
 
 	@Override
-	public void enableMonitoring() throws MeasurementException {
-		if (samplerActivated) {
-			try {
-				sqlStatement = getConnection().prepareStatement(SQL_QUERY);
-			} catch (Exception e) {
-				throw new RuntimeException(e);
-			}
-			measurementTask = LpeSystemUtils.submitTask(this);
-		}
-
+	protected String getSamplerResourceName() {
+		return SamplingDescription.SAMPLER_DATABASE_STATISTICS;
 	}
 
 	@Override
-	public void disableMonitoring() throws MeasurementException {
-		if (samplerActivated) {
-			try {
-				running = false;
-				measurementTask.get();
-				if (sqlStatement != null) {
-					sqlStatement.close();
-					sqlStatement = null;
-				}
-				if (connection != null) {
-					connection.close();
-					connection = null;
-				}
-
-			} catch (Exception e) {
-				throw new MeasurementException(e);
-			}
+	protected void onStart() throws MeasurementException {
+		Connection hdbConnection = getConnection();
+		if (hdbConnection == null) {
+			throw new MeasurementException("Connection to HDB at " + host + ":" + port + " failed!");
 		}
-
-	}
-
-	@Override
-	public MeasurementData getMeasurementData() throws MeasurementException {
-		if (samplerActivated) {
-			return dataSource.read();
-		} else {
-			return new MeasurementData();
+		try {
+			sqlStatement = hdbConnection.prepareStatement(SQL_QUERY);
+		} catch (SQLException e) {
+			throw new MeasurementException(e);
 		}
 	}
 
 	@Override
-	public void pipeToOutputStream(OutputStream oStream) throws MeasurementException {
-		if (samplerActivated) {
-			dataSource.pipeToOutputStream(oStream);
-		} else {
-			try {
-				oStream.close();
-			} catch (IOException e) {
-				throw new MeasurementException(e);
+	protected void onStop() throws MeasurementException {
+		try {
+			if (sqlStatement != null) {
+				sqlStatement.close();
+				sqlStatement = null;
+			}
+			if (connection != null) {
+				connection.close();
+				connection = null;
 			}
+		} catch (SQLException e) {
+			throw new MeasurementException(e);
 		}
 	}
 
@@ -114,65 +81,30 @@ public class HDBMeasurement extends AbstractMeasurementAdapter implements Runnab
 			instanceId++;
 		}
 
-		dataSource = CollectorFactory.createDataSource(FileDataSource.class.getName(), collectorProperties);
-	}
-
-	@Override
-	public long getCurrentTime() {
-		return System.currentTimeMillis();
-	}
-
-	@Override
-	public void storeReport(String path) throws MeasurementException {
-		// TODO Auto-generated method stub
-
+		setDataSource(CollectorFactory.createDataSource(FileDataSource.class.getName(), collectorProperties));
 	}
 
 	@Override
-	public void run() {
-		running = true;
-		try {
-			dataSource.enable();
-			long counter = 0;
-			while (running) {
-				sampleLockStatistics(counter);
-				counter++;
-				try {
-					Thread.sleep(delay);
-				} catch (InterruptedException ie) {
-					LOGGER.debug("Sleeptime interrupted.");
-					running = false;
-				}
-			}
-
-			dataSource.disable();
-		} catch (MeasurementException e) {
-			throw new RuntimeException(e);
-		}
+	protected void sample(long sampleIndex, List<AbstractRecord> records) throws SQLException {
+		records.add(sampleLockStatistics());
 	}
 
-	private void sampleLockStatistics(long ownNumQueries) {
-
-		try {
-			ResultSet resultSet = sqlStatement.executeQuery();
-			long numQueueries = -1;
-			long numLockWaits = 0;
-			long lockTime = 0;
-			resultSet.next();
-			numLockWaits = resultSet.getLong("TOTAL_LOCK_WAITS");
-			lockTime = resultSet.getLong("TOTAL_LOCK_WAIT_TIME");
-			resultSet.close();
-			DBStatisticsRecrod record = new DBStatisticsRecrod();
-			record.setTimeStamp(System.currentTimeMillis());
-			record.setNumQueueries(numQueueries);
-			record.setProcessId(host + ":" + port);
-			record.setNumLockWaits(numLockWaits);
-			record.setLockTime(lockTime);
-			dataSource.newRecord(record);
-		} catch (SQLException e) {
-			throw new RuntimeException(e);
-		}
-
+	private DBStatisticsRecrod sampleLockStatistics() throws SQLException {
+		ResultSet resultSet = sqlStatement.executeQuery();
+		long numQueueries = -1;
+		long numLockWaits = 0;
+		long lockTime = 0;
+		resultSet.next();
+		numLockWaits = resultSet.getLong("TOTAL_LOCK_WAITS");
+		lockTime = resultSet.getLong("TOTAL_LOCK_WAIT_TIME");
+		resultSet.close();
+		DBStatisticsRecrod record = new DBStatisticsRecrod();
+		record.setTimeStamp(System.currentTimeMillis());
+		record.setNumQueueries(numQueueries);
+		record.setProcessId(host + ":" + port);
+		record.setNumLockWaits(numLockWaits);
+		record.setLockTime(lockTime);
+		return record;
 	}
 
 	protected Connection getConnection() {
@@ -201,22 +133,4 @@ public class HDBMeasurement extends AbstractMeasurementAdapter implements Runnab
 	public boolean testConnection() {
 		return getConnection() != null;
 	}
-
-	@Override
-	public void prepareMonitoring(InstrumentationDescription monitoringDescription) throws MeasurementException {
-		for (SamplingDescription sDescr : monitoringDescription.getSamplingDescriptions()) {
-			if (sDescr.getResourceName().equals(SamplingDescription.SAMPLER_DATABASE_STATISTICS)) {
-				samplerActivated = true;
-				delay = sDescr.getDelay();
-				break;
-			}
-		}
-
-	}
-
-	@Override
-	public void resetMonitoring() throws MeasurementException {
-		samplerActivated = false;
-
-	}
 }
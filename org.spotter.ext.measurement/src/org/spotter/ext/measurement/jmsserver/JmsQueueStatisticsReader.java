@@ -0,0 +1,235 @@
+/**
+ * Copyright 2014 SAP AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spotter.ext.measurement.jmsserver;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
+
+import org.aim.api.exceptions.MeasurementException;
+import org.aim.artifacts.records.JmsServerRecord;
+
+/**
+ * Reads the statistics of all queues of an ActiveMQ broker via JMX. The
+ * attributes of a queue are fetched with a single bulk request, requests for
+ * different queues are issued in parallel. The list of queues is refreshed
+ * periodically, so that queues created after the first discovery are sampled
+ * as well.
+ * 
+ * @author Alexander Wert
+ * 
+ */
+public class JmsQueueStatisticsReader {
+
+	private static final String NAME = "Name";
+	private static final String AVERAGE_ENQUEUE_TIME = "AverageEnqueueTime";
+	private static final String DEQUEUE_COUNT = "DequeueCount";
+	private static final String DISPATCH_COUNT = "DispatchCount";
+	private static final String ENQUEUE_COUNT = "EnqueueCount";
+	private static final String MEMORY_PERCENT_USAGE = "MemoryPercentUsage";
+	private static final String MEMORY_USAGE = "MemoryUsageByteCount";
+	private static final String QUEUE_SIZE = "QueueSize";
+	private static final String[] QUEUE_ATTRIBUTES = { NAME, AVERAGE_ENQUEUE_TIME, DEQUEUE_COUNT, DISPATCH_COUNT,
+			ENQUEUE_COUNT, MEMORY_PERCENT_USAGE, MEMORY_USAGE, QUEUE_SIZE };
+
+	private static final String BROKER_QUEUES = "Queues";
+	private static final String BROKER_AVERAGE_MESSAGE_SIZE = "AverageMessageSize";
+	private static final String RESET_STATISTICS = "resetStatistics";
+
+	private static final long THREAD_KEEP_ALIVE = 60L;
+
+	private final MBeanServerConnection connection;
+	private final ObjectName brokerName;
+	private final long rediscoveryInterval;
+	private final ThreadPoolExecutor fetchExecutor;
+
+	private ObjectName[] queueNames;
+	private long lastDiscovery;
+	private boolean queueRemoved = false;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param connection
+	 *            connection to the MBean server of the broker
+	 * @param brokerName
+	 *            object name of the broker MBean
+	 * @param numFetchThreads
+	 *            maximum number of queues read in parallel
+	 * @param rediscoveryInterval
+	 *            time in milliseconds after which the list of queues is
+	 *            refreshed
+	 */
+	public JmsQueueStatisticsReader(MBeanServerConnection connection, ObjectName brokerName, int numFetchThreads,
+			long rediscoveryInterval) {
+		this.connection = connection;
+		this.brokerName = brokerName;
+		this.rediscoveryInterval = rediscoveryInterval;
+		int numThreads = Math.max(numFetchThreads, 1);
+		fetchExecutor = new ThreadPoolExecutor(numThreads, numThreads, THREAD_KEEP_ALIVE, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable, "JmsQueueStatisticsReader");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		// idle threads are released between monitoring periods
+		fetchExecutor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Retrieves the current list of queues from the broker.
+	 * 
+	 * @throws MeasurementException
+	 *             if the broker cannot be accessed
+	 */
+	public synchronized void discoverQueues() throws MeasurementException {
+		try {
+			queueNames = (ObjectName[]) connection.getAttribute(brokerName, BROKER_QUEUES);
+			lastDiscovery = System.currentTimeMillis();
+			queueRemoved = false;
+		} catch (JMException | IOException e) {
+			throw new MeasurementException(e);
+		}
+	}
+
+	/**
+	 * @return number of queues known from the last discovery
+	 */
+	public synchronized int getNumQueues() {
+		return queueNames == null ? 0 : queueNames.length;
+	}
+
+	/**
+	 * Resets the statistics of the broker and all its queues.
+	 * 
+	 * @throws MeasurementException
+	 *             if the broker cannot be accessed
+	 */
+	public synchronized void resetStatistics() throws MeasurementException {
+		discoverQueues();
+		try {
+			for (ObjectName queueName : queueNames) {
+				connection.invoke(queueName, RESET_STATISTICS, new Object[0], new String[0]);
+			}
+			connection.invoke(brokerName, RESET_STATISTICS, new Object[0], new String[0]);
+		} catch (JMException | IOException e) {
+			throw new MeasurementException(e);
+		}
+	}
+
+	/**
+	 * Reads the statistics of all queues. Queues which have been removed since
+	 * the last discovery are skipped and trigger a new discovery with the
+	 * next call.
+	 * 
+	 * @return one record per queue
+	 * @throws MeasurementException
+	 *             if the statistics cannot be read
+	 */
+	public synchronized List<JmsServerRecord> readStatistics() throws MeasurementException {
+		long timestamp = System.currentTimeMillis();
+		if (queueNames == null || queueRemoved || timestamp - lastDiscovery >= rediscoveryInterval) {
+			discoverQueues();
+		}
+		try {
+			long avgMessageSize = toLong(connection.getAttribute(brokerName, BROKER_AVERAGE_MESSAGE_SIZE));
+
+			List<Future<AttributeList>> fetches = new ArrayList<>(queueNames.length);
+			for (final ObjectName queueName : queueNames) {
+				fetches.add(fetchExecutor.submit(new Callable<AttributeList>() {
+					@Override
+					public AttributeList call() throws Exception {
+						return connection.getAttributes(queueName, QUEUE_ATTRIBUTES);
+					}
+				}));
+			}
+
+			List<JmsServerRecord> records = new ArrayList<>(queueNames.length);
+			for (Future<AttributeList> fetch : fetches) {
+				AttributeList attributes = fetchAttributes(fetch);
+				if (attributes != null) {
+					records.add(createRecord(attributes, timestamp, avgMessageSize));
+				}
+			}
+			return records;
+		} catch (JMException | IOException e) {
+			throw new MeasurementException(e);
+		}
+	}
+
+	private AttributeList fetchAttributes(Future<AttributeList> fetch) throws MeasurementException {
+		try {
+			return fetch.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof InstanceNotFoundException) {
+				// queue has been removed meanwhile
+				queueRemoved = true;
+				return null;
+			}
+			throw new MeasurementException(e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MeasurementException(e);
+		}
+	}
+
+	private static JmsServerRecord createRecord(AttributeList attributes, long timestamp, long avgMessageSize) {
+		Map<String, Object> values = new HashMap<>();
+		for (Attribute attribute : attributes.asList()) {
+			values.put(attribute.getName(), attribute.getValue());
+		}
+		JmsServerRecord record = new JmsServerRecord();
+		record.setQueueName((String) values.get(NAME));
+		record.setTimeStamp(timestamp);
+		record.setAverageEnqueueTime(toDouble(values.get(AVERAGE_ENQUEUE_TIME)));
+		record.setDequeueCount(toLong(values.get(DEQUEUE_COUNT)));
+		record.setDispatchCount(toLong(values.get(DISPATCH_COUNT)));
+		record.setEnqueueCount(toLong(values.get(ENQUEUE_COUNT)));
+		record.setMemoryPercentUsage((int) toLong(values.get(MEMORY_PERCENT_USAGE)));
+		record.setMemoryUsage(toLong(values.get(MEMORY_USAGE)));
+		record.setQueueSize(toLong(values.get(QUEUE_SIZE)));
+		record.setAvgMessageSize(avgMessageSize);
+		return record;
+	}
+
+	// attributes which could not be read are missing in the bulk result
+	private static long toLong(Object value) {
+		return value instanceof Number ? ((Number) value).longValue() : 0L;
+	}
+
+	private static double toDouble(Object value) {
+		return value instanceof Number ? ((Number) value).doubleValue() : 0.0;
+	}
+}
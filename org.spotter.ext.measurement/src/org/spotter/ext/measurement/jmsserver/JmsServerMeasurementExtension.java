@@ -59,9 +59,35 @@ public class JmsServerMeasurementExtension extends AbstractMeasurmentExtension {
 		return collectorTypeParameter;
 	}
 
+	private ConfigParameterDescription createNumFetchThreadsParameter() {
+		ConfigParameterDescription numFetchThreadsParameter = new ConfigParameterDescription(
+				JmsServerMeasurement.NUM_FETCH_THREADS, LpeSupportedTypes.Integer);
+		numFetchThreadsParameter.setMandatory(false);
+		numFetchThreadsParameter.setDefaultValue(String.valueOf(JmsServerMeasurement.DEFAULT_NUM_FETCH_THREADS));
+		numFetchThreadsParameter.setRange(String.valueOf(1), String.valueOf(Integer.MAX_VALUE));
+		numFetchThreadsParameter.setDescription("Maximum number of queues whose statistics are read in parallel.");
+
+		return numFetchThreadsParameter;
+	}
+
+	private ConfigParameterDescription createQueueRediscoveryIntervalParameter() {
+		ConfigParameterDescription rediscoveryParameter = new ConfigParameterDescription(
+				JmsServerMeasurement.QUEUE_REDISCOVERY_INTERVAL, LpeSupportedTypes.Integer);
+		rediscoveryParameter.setMandatory(false);
+		rediscoveryParameter.setDefaultValue(String
+				.valueOf(JmsServerMeasurement.DEFAULT_QUEUE_REDISCOVERY_INTERVAL));
+		rediscoveryParameter.setRange(String.valueOf(0), String.valueOf(Integer.MAX_VALUE));
+		rediscoveryParameter.setDescription("Interval in milliseconds after which the list of queues "
+				+ "of the messaging server is refreshed during sampling.");
+
+		return rediscoveryParameter;
+	}
+
 	@Override
 	protected void initializeConfigurationParameters() {
 		addConfigParameter(createServerConnectionStringParameter());
+		addConfigParameter(createNumFetchThreadsParameter());
+		addConfigParameter(createQueueRediscoveryIntervalParameter());
 		addConfigParameter(ConfigParameterDescription.createExtensionDescription(EXTENSION_DESCRIPTION));
 	}
 
@@ -0,0 +1,167 @@
+/**
+ * Copyright 2014 SAP AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spotter.ext.measurement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.aim.api.exceptions.MeasurementException;
+import org.aim.api.measurement.AbstractRecord;
+import org.aim.api.measurement.collector.CollectorFactory;
+import org.aim.artifacts.measurement.collector.MemoryDataSource;
+import org.aim.artifacts.records.JmsServerRecord;
+import org.aim.description.builder.InstrumentationDescriptionBuilder;
+import org.junit.Test;
+
+public class AbstractSamplingMeasurementAdapterTest {
+
+	private static final String SAMPLER_NAME = "TestSampler";
+
+	@Test
+	public void testFixedRate() throws Exception {
+		// samples take half of the delay, with fixed rate scheduling their
+		// cost neither shifts nor skips subsequent slots
+		TestSampler sampler = new TestSampler(40L, 20L, Long.MAX_VALUE);
+		long startNanos = System.nanoTime();
+		sampler.enableMonitoring();
+		Thread.sleep(1200L);
+		sampler.disableMonitoring();
+		long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+
+		long numSamples = sampler.getNumSamples();
+		assertTrue("samples: " + numSamples, numSamples >= elapsedMillis / 40L * 8L / 10L);
+		assertTrue("samples: " + numSamples, numSamples + sampler.getNumOverruns() <= elapsedMillis / 40L + 1L);
+		assertSampleIndices(sampler);
+	}
+
+	@Test
+	public void testOverrunSkipsSlots() throws Exception {
+		// the first sample ends 125 and 75 ms after the following two slots
+		// should have started, both are skipped
+		TestSampler sampler = new TestSampler(50L, 0L, 0L);
+		sampler.slowSampleMillis = 175L;
+		long startNanos = System.nanoTime();
+		sampler.enableMonitoring();
+		Thread.sleep(500L);
+		sampler.disableMonitoring();
+		long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+
+		assertTrue("overruns: " + sampler.getNumOverruns(), sampler.getNumOverruns() >= 2L);
+		// skipped slots are not caught up
+		assertTrue(sampler.getNumSamples() + sampler.getNumOverruns() <= elapsedMillis / 50L + 1L);
+		assertSampleIndices(sampler);
+	}
+
+	@Test
+	public void testStopWritesAllRecords() throws Exception {
+		TestSampler sampler = new TestSampler(5L, 0L, Long.MAX_VALUE);
+		sampler.enableMonitoring();
+		Thread.sleep(200L);
+		sampler.disableMonitoring();
+		long numSamples = sampler.getNumSamples();
+		assertEquals(numSamples, sampler.numSampleCalls);
+		assertEquals(numSamples, sampler.getMeasurementData().getRecords().size());
+
+		// no sample is taken after monitoring has been disabled
+		Thread.sleep(50L);
+		assertEquals(numSamples, sampler.numSampleCalls);
+		assertEquals(numSamples, sampler.getMeasurementData().getRecords().size());
+	}
+
+	@Test
+	public void testSamplingError() throws Exception {
+		TestSampler sampler = new TestSampler(5L, 0L, Long.MAX_VALUE);
+		sampler.failingSample = 3L;
+		sampler.enableMonitoring();
+		Thread.sleep(200L);
+		try {
+			sampler.disableMonitoring();
+			fail("sampling error has not been reported");
+		} catch (MeasurementException e) {
+			// expected
+		}
+		assertEquals(3L, sampler.getNumSamples());
+		// records added by the failed sample are kept
+		assertEquals(4, sampler.getMeasurementData().getRecords().size());
+	}
+
+	@Test
+	public void testSamplerNotActivated() throws Exception {
+		TestSampler sampler = new TestSampler(5L, 0L, Long.MAX_VALUE);
+		sampler.resetMonitoring();
+		sampler.prepareMonitoring(new InstrumentationDescriptionBuilder().newSampling("OtherSampler", 5L).build());
+		sampler.enableMonitoring();
+		Thread.sleep(50L);
+		sampler.disableMonitoring();
+		assertEquals(0L, sampler.numSampleCalls);
+		assertEquals(0, sampler.getMeasurementData().getRecords().size());
+	}
+
+	private static void assertSampleIndices(TestSampler sampler) throws MeasurementException {
+		List<AbstractRecord> records = sampler.getMeasurementData().getRecords();
+		assertEquals(sampler.getNumSamples(), records.size());
+		for (int i = 0; i < records.size(); i++) {
+			assertEquals(i, ((JmsServerRecord) records.get(i)).getDequeueCount());
+		}
+	}
+
+	/**
+	 * Sampler adding one record per sample, holding the sample index.
+	 */
+	private static class TestSampler extends AbstractSamplingMeasurementAdapter {
+		private final long sampleMillis;
+		private final long slowSample;
+		private long slowSampleMillis;
+		private long failingSample = -1L;
+		private volatile long numSampleCalls;
+
+		TestSampler(long delay, long sampleMillis, long slowSample) throws MeasurementException {
+			super(null);
+			this.sampleMillis = sampleMillis;
+			this.slowSample = slowSample;
+			setDataSource(CollectorFactory.createDataSource(MemoryDataSource.class.getName(), new Properties()));
+			prepareMonitoring(new InstrumentationDescriptionBuilder().newSampling(SAMPLER_NAME, delay).build());
+		}
+
+		@Override
+		public void initialize() throws MeasurementException {
+			// nothing to do
+		}
+
+		@Override
+		protected String getSamplerResourceName() {
+			return SAMPLER_NAME;
+		}
+
+		@Override
+		protected void sample(long sampleIndex, List<AbstractRecord> records) throws Exception {
+			numSampleCalls++;
+			JmsServerRecord record = new JmsServerRecord();
+			record.setTimeStamp(System.currentTimeMillis());
+			record.setDequeueCount(sampleIndex);
+			records.add(record);
+			if (sampleIndex == failingSample) {
+				throw new IllegalStateException("sampling failed");
+			}
+			Thread.sleep(sampleIndex == slowSample ? slowSampleMillis : sampleMillis);
+		}
+	}
+}
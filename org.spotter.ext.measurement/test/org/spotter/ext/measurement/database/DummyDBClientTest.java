@@ -0,0 +1,189 @@
+/**
+ * Copyright 2014 SAP AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spotter.ext.measurement.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class DummyDBClientTest {
+
+	private HttpServer server;
+	private final List<String> statistics = new ArrayList<>();
+	private final AtomicInteger numSingleRequests = new AtomicInteger();
+	private final AtomicInteger numBatchRequests = new AtomicInteger();
+	private final Set<Integer> clientPorts = new HashSet<>();
+
+	@Before
+	public void startServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		final String statisticsPath = "/dummyDB/" + DummyDBClient.STATISTICS_PATH;
+		server.createContext(statisticsPath, new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				// contexts match by prefix, this one would serve the batch
+				// endpoint as well
+				if (!exchange.getRequestURI().getPath().equals(statisticsPath)) {
+					respond(exchange, 404, "");
+					return;
+				}
+				numSingleRequests.incrementAndGet();
+				String latest;
+				synchronized (statistics) {
+					latest = statistics.get(statistics.size() - 1);
+				}
+				respond(exchange, 200, latest);
+			}
+		});
+		server.start();
+	}
+
+	@After
+	public void stopServer() {
+		server.stop(0);
+	}
+
+	@Test
+	public void testBatchPollingIsComplete() throws IOException {
+		enableBatchEndpoint();
+		addStatistics(1);
+		DummyDBClient client = createClient();
+
+		List<String> received = new ArrayList<>(client.fetchStatistics());
+		assertEquals(1, received.size());
+		int numPolls = 50;
+		for (int poll = 1; poll < numPolls; poll++) {
+			// sometimes nothing, sometimes many records between two polls
+			addStatistics(poll % 7);
+			received.addAll(client.fetchStatistics());
+		}
+
+		assertEquals(statistics, received);
+		assertTrue(client.isBatchSupported());
+		assertEquals(numPolls, client.getNumRequests());
+		assertEquals(numPolls, numBatchRequests.get());
+		assertEquals(0, numSingleRequests.get());
+		assertEquals(1, clientPorts.size());
+	}
+
+	@Test
+	public void testResetCursor() throws IOException {
+		enableBatchEndpoint();
+		addStatistics(5);
+		DummyDBClient client = createClient();
+		assertEquals(1, client.fetchStatistics().size());
+		addStatistics(3);
+		assertEquals(3, client.fetchStatistics().size());
+
+		addStatistics(4);
+		client.resetCursor();
+		List<String> received = client.fetchStatistics();
+		assertEquals(1, received.size());
+		assertEquals(statistics.get(statistics.size() - 1), received.get(0));
+	}
+
+	@Test
+	public void testFallbackToSingleRecords() throws IOException {
+		addStatistics(1);
+		DummyDBClient client = createClient();
+		int numPolls = 20;
+		for (int poll = 0; poll < numPolls; poll++) {
+			addStatistics(1);
+			List<String> received = client.fetchStatistics();
+			assertEquals(1, received.size());
+			assertEquals(statistics.get(statistics.size() - 1), received.get(0));
+		}
+
+		assertFalse(client.isBatchSupported());
+		// only the first poll probes the batch endpoint
+		assertEquals(numPolls + 1, client.getNumRequests());
+		assertEquals(numPolls, numSingleRequests.get());
+		assertEquals(1, clientPorts.size());
+	}
+
+	@Test(expected = IOException.class)
+	public void testServerError() throws IOException {
+		server.createContext("/dummyDB/" + DummyDBClient.STATISTICS_BATCH_PATH, new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				respond(exchange, 500, "failure");
+			}
+		});
+		createClient().fetchStatistics();
+	}
+
+	private void enableBatchEndpoint() {
+		server.createContext("/dummyDB/" + DummyDBClient.STATISTICS_BATCH_PATH, new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				numBatchRequests.incrementAndGet();
+				String query = exchange.getRequestURI().getQuery();
+				StringBuilder body = new StringBuilder();
+				synchronized (statistics) {
+					int from = statistics.size() - 1;
+					if (query != null && query.startsWith(DummyDBClient.CURSOR_PARAMETER + "=")) {
+						from = Integer.parseInt(query.substring(DummyDBClient.CURSOR_PARAMETER.length() + 1));
+					}
+					body.append(statistics.size()).append('\n');
+					for (int i = from; i < statistics.size(); i++) {
+						body.append(statistics.get(i)).append('\n');
+					}
+				}
+				respond(exchange, 200, body.toString());
+			}
+		});
+	}
+
+	private DummyDBClient createClient() {
+		return new DummyDBClient("localhost", String.valueOf(server.getAddress().getPort()), 5000);
+	}
+
+	private void addStatistics(int numRecords) {
+		synchronized (statistics) {
+			for (int i = 0; i < numRecords; i++) {
+				statistics.add("DBStatisticsRecord;" + statistics.size() + ";" + (i * 3));
+			}
+		}
+	}
+
+	private void respond(HttpExchange exchange, int status, String body) throws IOException {
+		synchronized (clientPorts) {
+			clientPorts.add(exchange.getRemoteAddress().getPort());
+		}
+		byte[] bytes = body.getBytes("UTF-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		OutputStream out = exchange.getResponseBody();
+		out.write(bytes);
+		out.close();
+	}
+}
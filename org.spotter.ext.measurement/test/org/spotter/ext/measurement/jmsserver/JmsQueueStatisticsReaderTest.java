@@ -0,0 +1,271 @@
+/**
+ * Copyright 2014 SAP AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spotter.ext.measurement.jmsserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerConnection;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import org.aim.api.exceptions.MeasurementException;
+import org.aim.artifacts.records.JmsServerRecord;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JmsQueueStatisticsReaderTest {
+
+	private static final int NUM_QUEUES = 50;
+
+	private MBeanServer mBeanServer;
+	private ObjectName brokerName;
+	private MockBroker broker;
+	private Map<String, MockQueue> queues;
+	private final Map<String, Integer> numCalls = new HashMap<>();
+
+	@Before
+	public void registerMBeans() throws JMException {
+		mBeanServer = MBeanServerFactory.newMBeanServer();
+		brokerName = new ObjectName("org.apache.activemq:type=Broker,brokerName=myBroker");
+		broker = new MockBroker();
+		mBeanServer.registerMBean(broker, brokerName);
+		queues = new HashMap<>();
+		for (int i = 0; i < NUM_QUEUES; i++) {
+			addQueue("queue" + i);
+		}
+	}
+
+	@Test
+	public void testBulkRead() throws MeasurementException {
+		JmsQueueStatisticsReader reader = new JmsQueueStatisticsReader(countingConnection(), brokerName, 4, 60000);
+		List<JmsServerRecord> records = reader.readStatistics();
+
+		assertEquals(NUM_QUEUES, records.size());
+		for (JmsServerRecord record : records) {
+			MockQueue queue = queues.get(record.getQueueName());
+			assertEquals(queue.getEnqueueCount(), record.getEnqueueCount());
+			assertEquals(queue.getDequeueCount(), record.getDequeueCount());
+			assertEquals(queue.getDispatchCount(), record.getDispatchCount());
+			assertEquals(queue.getQueueSize(), record.getQueueSize());
+			assertEquals(queue.getMemoryUsageByteCount(), record.getMemoryUsage());
+			assertEquals(queue.getMemoryPercentUsage(), record.getMemoryPercentUsage());
+			assertEquals(queue.getAverageEnqueueTime(), record.getAverageEnqueueTime(), 0.0);
+			assertEquals(broker.getAverageMessageSize(), record.getAvgMessageSize());
+		}
+		// one bulk request per queue, the broker is asked for its queues and
+		// the average message size
+		assertEquals(NUM_QUEUES, calls("getAttributes"));
+		assertEquals(2, calls("getAttribute"));
+
+		reader.readStatistics();
+		assertEquals(2 * NUM_QUEUES, calls("getAttributes"));
+		assertEquals(3, calls("getAttribute"));
+	}
+
+	@Test
+	public void testRediscovery() throws JMException, MeasurementException {
+		JmsQueueStatisticsReader reader = new JmsQueueStatisticsReader(countingConnection(), brokerName, 4, 0);
+		assertEquals(NUM_QUEUES, reader.readStatistics().size());
+
+		addQueue("newQueue");
+		List<String> queueNames = new ArrayList<>();
+		for (JmsServerRecord record : reader.readStatistics()) {
+			queueNames.add(record.getQueueName());
+		}
+		assertEquals(NUM_QUEUES + 1, queueNames.size());
+		assertTrue(queueNames.contains("newQueue"));
+		assertEquals(NUM_QUEUES + 1, reader.getNumQueues());
+	}
+
+	@Test
+	public void testRemovedQueueIsSkipped() throws JMException, MeasurementException {
+		JmsQueueStatisticsReader reader = new JmsQueueStatisticsReader(countingConnection(), brokerName, 4, 60000);
+		assertEquals(NUM_QUEUES, reader.readStatistics().size());
+
+		// the queue vanishes in between two samples, before the next discovery
+		ObjectName removedQueue = broker.queueNames.remove(0);
+		mBeanServer.unregisterMBean(removedQueue);
+		assertEquals(NUM_QUEUES - 1, reader.readStatistics().size());
+		assertEquals(NUM_QUEUES, reader.getNumQueues());
+		// the next sample does not wait for the rediscovery interval
+		assertEquals(NUM_QUEUES - 1, reader.readStatistics().size());
+		assertEquals(NUM_QUEUES - 1, reader.getNumQueues());
+	}
+
+	@Test
+	public void testResetStatistics() throws MeasurementException {
+		JmsQueueStatisticsReader reader = new JmsQueueStatisticsReader(countingConnection(), brokerName, 4, 60000);
+		reader.resetStatistics();
+
+		assertEquals(1, broker.numResets);
+		for (MockQueue queue : queues.values()) {
+			assertEquals(1, queue.numResets);
+		}
+		assertEquals(NUM_QUEUES + 1, calls("invoke"));
+	}
+
+	private void addQueue(String name) throws JMException {
+		ObjectName queueName = new ObjectName("org.apache.activemq:type=Broker,brokerName=myBroker,"
+				+ "destinationType=Queue,destinationName=" + name);
+		MockQueue queue = new MockQueue(name, queues.size());
+		mBeanServer.registerMBean(queue, queueName);
+		queues.put(name, queue);
+		broker.queueNames.add(queueName);
+	}
+
+	private int calls(String method) {
+		synchronized (numCalls) {
+			Integer count = numCalls.get(method);
+			return count == null ? 0 : count;
+		}
+	}
+
+	/**
+	 * Counts the requests, each call to a remote MBean server is a round trip.
+	 */
+	private MBeanServerConnection countingConnection() {
+		return (MBeanServerConnection) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { MBeanServerConnection.class }, new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						synchronized (numCalls) {
+							numCalls.put(method.getName(), calls(method.getName()) + 1);
+						}
+						try {
+							return method.invoke(mBeanServer, args);
+						} catch (InvocationTargetException e) {
+							throw e.getCause();
+						}
+					}
+				});
+	}
+
+	public interface MockBrokerMBean {
+		ObjectName[] getQueues();
+
+		long getAverageMessageSize();
+
+		void resetStatistics();
+	}
+
+	public static class MockBroker implements MockBrokerMBean {
+		private final List<ObjectName> queueNames = new ArrayList<>();
+		private int numResets = 0;
+
+		@Override
+		public ObjectName[] getQueues() {
+			return queueNames.toArray(new ObjectName[queueNames.size()]);
+		}
+
+		@Override
+		public long getAverageMessageSize() {
+			return 1024L;
+		}
+
+		@Override
+		public void resetStatistics() {
+			numResets++;
+		}
+	}
+
+	public interface MockQueueMBean {
+		String getName();
+
+		double getAverageEnqueueTime();
+
+		long getDequeueCount();
+
+		long getDispatchCount();
+
+		long getEnqueueCount();
+
+		int getMemoryPercentUsage();
+
+		long getMemoryUsageByteCount();
+
+		long getQueueSize();
+
+		void resetStatistics();
+	}
+
+	public static class MockQueue implements MockQueueMBean {
+		private final String name;
+		private final int seed;
+		private int numResets = 0;
+
+		public MockQueue(String name, int seed) {
+			this.name = name;
+			this.seed = seed;
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+
+		@Override
+		public double getAverageEnqueueTime() {
+			return seed * 0.5;
+		}
+
+		@Override
+		public long getDequeueCount() {
+			return seed * 10L;
+		}
+
+		@Override
+		public long getDispatchCount() {
+			return seed * 10L + 1;
+		}
+
+		@Override
+		public long getEnqueueCount() {
+			return seed * 10L + 2;
+		}
+
+		@Override
+		public int getMemoryPercentUsage() {
+			return seed % 100;
+		}
+
+		@Override
+		public long getMemoryUsageByteCount() {
+			return seed * 1000L;
+		}
+
+		@Override
+		public long getQueueSize() {
+			return seed + 3L;
+		}
+
+		@Override
+		public void resetStatistics() {
+			numResets++;
+		}
+	}
+}